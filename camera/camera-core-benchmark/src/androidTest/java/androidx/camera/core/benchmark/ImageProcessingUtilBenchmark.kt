@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.benchmark
+
+import android.graphics.ImageFormat
+import android.util.Size
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.camera.core.ImageProcessingUtil
+import androidx.camera.core.impl.utils.executor.CameraXExecutors
+import androidx.camera.testing.impl.ImageProxyUtil.createYUV420ImagePlanes
+import androidx.camera.testing.impl.fakes.FakeImageInfo
+import androidx.camera.testing.impl.fakes.FakeImageProxy
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import com.google.common.truth.Truth.assertThat
+import java.nio.ByteBuffer
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Compares converting YUV frames to RGBA on the calling thread with converting them in tiles on
+ * all the cores.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = 21)
+class ImageProcessingUtilBenchmark(
+    private val size: Size,
+    private val rotationDegrees: Int,
+) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val threadCount = Runtime.getRuntime().availableProcessors()
+    private lateinit var workers: ExecutorService
+    private lateinit var yuvImage: FakeImageProxy
+    private lateinit var rgbaBuffer: ByteBuffer
+    private lateinit var rgbConvertedBuffer: ByteBuffer
+    private var rgbaStride = 0
+
+    @Before
+    fun setUp() {
+        // The calling thread converts one of the tiles.
+        workers = Executors.newFixedThreadPool(maxOf(1, threadCount - 1))
+        yuvImage = FakeImageProxy(FakeImageInfo()).apply {
+            width = size.width
+            height = size.height
+            format = ImageFormat.YUV_420_888
+            planes = createYUV420ImagePlanes(
+                size.width,
+                size.height,
+                /*pixelStrideY=*/1,
+                /*pixelStrideUV=*/1,
+                /*flipUV=*/false,
+                /*incrementValue=*/true
+            )
+        }
+        val isTransposed = rotationDegrees == 90 || rotationDegrees == 270
+        rgbaStride = (if (isTransposed) size.height else size.width) * 4
+        rgbaBuffer = ByteBuffer.allocateDirect(size.width * size.height * 4)
+        rgbConvertedBuffer = ByteBuffer.allocateDirect(size.width * size.height * 4)
+    }
+
+    @After
+    fun tearDown() {
+        workers.shutdown()
+        yuvImage.close()
+    }
+
+    @Test
+    fun convertYuvToRgb_singleThread() {
+        benchmarkRule.measureRepeated {
+            assertThat(convert(CameraXExecutors.directExecutor(), /*tileCount=*/1)).isTrue()
+        }
+    }
+
+    @Test
+    fun convertYuvToRgb_tiled() {
+        benchmarkRule.measureRepeated {
+            assertThat(convert(workers, threadCount)).isTrue()
+        }
+    }
+
+    private fun convert(executor: Executor, tileCount: Int) =
+        ImageProcessingUtil.convertYUVToRGB(
+            yuvImage,
+            rgbaBuffer,
+            rgbaStride,
+            rgbConvertedBuffer,
+            rotationDegrees,
+            executor,
+            tileCount
+        )
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "size={0}, rotationDegrees={1}")
+        fun data() = listOf(Size(1280, 720), Size(1920, 1080), Size(3840, 2160)).flatMap { size ->
+            listOf(0, 90).map { rotationDegrees -> arrayOf(size, rotationDegrees) }
+        }
+    }
+}
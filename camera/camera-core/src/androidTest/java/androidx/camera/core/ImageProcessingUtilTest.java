@@ -35,6 +35,7 @@ import android.media.ImageWriter;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.camera.core.impl.utils.Exif;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
 import androidx.camera.testing.impl.fakes.FakeImageInfo;
 import androidx.camera.testing.impl.fakes.FakeImageProxy;
 import androidx.core.math.MathUtils;
@@ -52,6 +53,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Unit test for {@link ImageProcessingUtil}.
@@ -386,6 +390,119 @@ public class ImageProcessingUtilTest {
         rgbImageProxy.close();
     }
 
+    @Test
+    public void convertYUVToRGBInTiles_sameAsConvertYUVToRGB() {
+        // Arrange: an image tall enough to be split in tiles.
+        int width = 640;
+        int height = 480;
+        ImageProxy.PlaneProxy[] planes = createYUV420ImagePlanes(
+                width,
+                height,
+                PIXEL_STRIDE_Y,
+                PIXEL_STRIDE_UV,
+                /*flipUV=*/false,
+                /*incrementValue=*/true);
+        ByteBuffer rgbConvertedBuffer = ByteBuffer.allocateDirect(width * height * 4);
+
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            // The YUV image is closed with the RGB image.
+            FakeImageProxy yuvImageProxy = new FakeImageProxy(new FakeImageInfo());
+            yuvImageProxy.setWidth(width);
+            yuvImageProxy.setHeight(height);
+            yuvImageProxy.setFormat(ImageFormat.YUV_420_888);
+            yuvImageProxy.setPlanes(planes);
+            boolean isTransposed = rotation == 90 || rotation == 270;
+            int rotatedWidth = isTransposed ? height : width;
+            int rotatedHeight = isTransposed ? width : height;
+            SafeCloseImageReaderProxy imageReaderProxy = new SafeCloseImageReaderProxy(
+                    ImageReaderProxys.createIsolatedReader(
+                            rotatedWidth,
+                            rotatedHeight,
+                            PixelFormat.RGBA_8888,
+                            MAX_IMAGES));
+            ByteBuffer rgbaBuffer = ByteBuffer.allocateDirect(rotatedWidth * rotatedHeight * 4);
+
+            // Act.
+            boolean success = ImageProcessingUtil.convertYUVToRGB(
+                    yuvImageProxy,
+                    rgbaBuffer,
+                    rotatedWidth * 4,
+                    rgbConvertedBuffer,
+                    rotation,
+                    CameraXExecutors.ioExecutor(),
+                    /*tileCount=*/4);
+            ImageProxy rgbImageProxy = ImageProcessingUtil.convertYUVToRGB(
+                    yuvImageProxy,
+                    imageReaderProxy,
+                    rgbConvertedBuffer,
+                    rotation,
+                    /*onePixelShiftRequested=*/false);
+
+            // Assert.
+            assertThat(success).isTrue();
+            ImageProxy.PlaneProxy plane = Preconditions.checkNotNull(rgbImageProxy).getPlanes()[0];
+            byte[] expectedRow = new byte[rotatedWidth * 4];
+            byte[] actualRow = new byte[rotatedWidth * 4];
+            for (int row = 0; row < rotatedHeight; row++) {
+                plane.getBuffer().position(row * plane.getRowStride());
+                plane.getBuffer().get(expectedRow);
+                rgbaBuffer.position(row * rotatedWidth * 4);
+                rgbaBuffer.get(actualRow);
+                assertWithMessage("Row " + row + " with rotation " + rotation)
+                        .that(actualRow).isEqualTo(expectedRow);
+            }
+            rgbImageProxy.close();
+            imageReaderProxy.safeClose();
+        }
+    }
+
+    @Test
+    public void convertYUVToRGBInTiles_onItsOwnSingleThreadedExecutor() throws Exception {
+        // Arrange.
+        int width = 640;
+        int height = 480;
+        FakeImageProxy yuvImageProxy = new FakeImageProxy(new FakeImageInfo());
+        yuvImageProxy.setWidth(width);
+        yuvImageProxy.setHeight(height);
+        yuvImageProxy.setFormat(ImageFormat.YUV_420_888);
+        yuvImageProxy.setPlanes(createYUV420ImagePlanes(
+                width,
+                height,
+                PIXEL_STRIDE_Y,
+                PIXEL_STRIDE_UV,
+                /*flipUV=*/false,
+                /*incrementValue=*/true));
+        ByteBuffer expectedBuffer = ByteBuffer.allocateDirect(width * height * 4);
+        ByteBuffer rgbaBuffer = ByteBuffer.allocateDirect(width * height * 4);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // Act: the tiles queued behind the conversion are converted by the calling thread.
+            boolean success = executor.submit(() -> ImageProcessingUtil.convertYUVToRGB(
+                    yuvImageProxy,
+                    rgbaBuffer,
+                    width * 4,
+                    /*rgbConvertedBuffer=*/null,
+                    /*rotationDegrees=*/0,
+                    executor,
+                    /*tileCount=*/4)).get(10, TimeUnit.SECONDS);
+
+            // Assert.
+            assertThat(success).isTrue();
+            assertThat(ImageProcessingUtil.convertYUVToRGB(
+                    yuvImageProxy,
+                    expectedBuffer,
+                    width * 4,
+                    /*rgbConvertedBuffer=*/null,
+                    /*rotationDegrees=*/0,
+                    CameraXExecutors.ioExecutor(),
+                    /*tileCount=*/1)).isTrue();
+            assertThat(rgbaBuffer).isEqualTo(expectedBuffer);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @SdkSuppress(minSdkVersion = 23)
     @Test
     public void rotateYUV_imageRotated() {
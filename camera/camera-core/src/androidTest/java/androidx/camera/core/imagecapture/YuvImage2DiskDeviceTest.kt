@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.imagecapture
+
+import android.graphics.BitmapFactory
+import android.graphics.Matrix
+import android.media.ExifInterface.TAG_FOCAL_LENGTH
+import androidx.camera.core.ImageCapture
+import androidx.camera.core.ImageProxy
+import androidx.camera.core.imagecapture.Utils.CAMERA_CAPTURE_RESULT
+import androidx.camera.core.imagecapture.Utils.CROP_RECT
+import androidx.camera.core.imagecapture.Utils.FOCAL_LENGTH
+import androidx.camera.core.imagecapture.Utils.HEIGHT
+import androidx.camera.core.imagecapture.Utils.ROTATION_DEGREES
+import androidx.camera.core.imagecapture.Utils.TEMP_FILE
+import androidx.camera.core.imagecapture.Utils.WIDTH
+import androidx.camera.core.impl.utils.Exif
+import androidx.camera.core.internal.utils.ByteArrayPool
+import androidx.camera.core.processing.Packet
+import androidx.camera.testing.impl.TestImageUtil.createYuvFakeImageProxy
+import androidx.camera.testing.impl.fakes.FakeImageInfo
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SdkSuppress
+import androidx.test.filters.SmallTest
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Instrumented tests for [YuvImage2Disk].
+ */
+@SmallTest
+@RunWith(AndroidJUnit4::class)
+@SdkSuppress(minSdkVersion = 21)
+class YuvImage2DiskDeviceTest {
+
+    private val nv21Pool = ByteArrayPool(1)
+    private val operation = YuvImage2Disk(nv21Pool)
+
+    @Test
+    fun saveToFile_imageIsCroppedAndExifIsSaved() {
+        // Arrange.
+        val imageInfo = FakeImageInfo().also {
+            it.rotationDegrees = 180
+            it.setFocalLength(FOCAL_LENGTH)
+        }
+        val yuvImage = createYuvFakeImageProxy(imageInfo, WIDTH, HEIGHT)
+
+        // Act.
+        val path = saveYuvImage(yuvImage)
+
+        // Assert: the image is cropped and closed.
+        val bitmap = BitmapFactory.decodeFile(path)
+        assertThat(bitmap.width).isEqualTo(WIDTH)
+        assertThat(bitmap.height).isEqualTo(HEIGHT / 2)
+        assertThat(yuvImage.isClosed).isTrue()
+        // Assert: exif rotation is overwritten by packet rotation, and the focal length from
+        // ImageInfo is saved to Exif.
+        val exif = Exif.createFromFileString(path)
+        assertThat(exif.rotation).isEqualTo(ROTATION_DEGREES)
+        assertThat(exif.exifInterface.getAttributeDouble(TAG_FOCAL_LENGTH, 0.0))
+            .isWithin(1E-4).of(FOCAL_LENGTH.toDouble())
+    }
+
+    @Test
+    fun saveTwice_nv21BufferIsReused() {
+        // Act.
+        saveYuvImage(createYuvFakeImageProxy(FakeImageInfo(), WIDTH, HEIGHT))
+        val buffer = nv21Pool.acquire(0)
+        nv21Pool.release(buffer)
+        saveYuvImage(createYuvFakeImageProxy(FakeImageInfo(), WIDTH, HEIGHT))
+
+        // Assert: the same buffer is back in the pool.
+        assertThat(nv21Pool.size()).isEqualTo(1)
+        assertThat(nv21Pool.acquire(0)).isSameInstanceAs(buffer)
+    }
+
+    private fun saveYuvImage(yuvImage: ImageProxy): String {
+        val packet = Packet.of(
+            yuvImage,
+            null, // YuvImage doesn't have exif info.
+            CROP_RECT,
+            ROTATION_DEGREES,
+            Matrix(),
+            CAMERA_CAPTURE_RESULT
+        )
+        val options = ImageCapture.OutputFileOptions.Builder(TEMP_FILE).build()
+        return operation.apply(YuvImage2Disk.In.of(packet, 100, options)).savedUri!!.path!!
+    }
+}
@@ -473,6 +473,100 @@ Java_androidx_camera_core_ImageProcessingUtil_nativeConvertAndroid420ToBitmap(
     return 0;
 }
 
+// Converts the rows [tile_top, tile_top + tile_height) of the image, and writes them to where
+// they end up in the rotated output. Tiles don't overlap in the output, nor in the converted
+// buffer, so that any number of them can be converted at once.
+JNIEXPORT jint Java_androidx_camera_core_ImageProcessingUtil_nativeConvertAndroid420ToABGRTile(
+        JNIEnv* env,
+        jclass,
+        jobject src_y,
+        jint src_stride_y,
+        jobject src_u,
+        jint src_stride_u,
+        jobject src_v,
+        jint src_stride_v,
+        jint src_pixel_stride_uv,
+        jobject dst_buffer,
+        jint dst_stride,
+        jobject converted_buffer,
+        jint width,
+        jint height,
+        jint tile_top,
+        jint tile_height,
+        jint rotation) {
+    // The chroma planes are subsampled vertically, so tiles have to start at an even row.
+    if (tile_top % 2 != 0 || tile_top < 0 || tile_height <= 0 || tile_top + tile_height > height) {
+        return -1;
+    }
+
+    uint8_t* src_y_ptr =
+            static_cast<uint8_t*>(env->GetDirectBufferAddress(src_y));
+    uint8_t* src_u_ptr =
+            static_cast<uint8_t*>(env->GetDirectBufferAddress(src_u));
+    uint8_t* src_v_ptr =
+            static_cast<uint8_t*>(env->GetDirectBufferAddress(src_v));
+    uint8_t* dst_ptr =
+            static_cast<uint8_t*>(env->GetDirectBufferAddress(dst_buffer));
+    if (src_y_ptr == nullptr || src_u_ptr == nullptr || src_v_ptr == nullptr
+            || dst_ptr == nullptr) {
+        return -1;
+    }
+
+    bool has_rotation = rotation != 0;
+    uint8_t* converted_buffer_ptr = has_rotation && converted_buffer != nullptr
+            ? static_cast<uint8_t*>(env->GetDirectBufferAddress(converted_buffer)) : nullptr;
+    if (has_rotation && converted_buffer_ptr == nullptr) {
+        return -1;
+    }
+
+    // Without rotation, the tile is converted straight to the output.
+    int tile_stride = has_rotation ? width * 4 : dst_stride;
+    uint8_t* tile_ptr = has_rotation
+            ? converted_buffer_ptr + tile_top * tile_stride
+            : dst_ptr + tile_top * tile_stride;
+
+    int result = Android420ToABGR(src_y_ptr + tile_top * src_stride_y,
+                                  src_stride_y,
+                                  src_u_ptr + (tile_top / 2) * src_stride_u,
+                                  src_stride_u,
+                                  src_v_ptr + (tile_top / 2) * src_stride_v,
+                                  src_stride_v,
+                                  src_pixel_stride_uv,
+                                  tile_ptr,
+                                  tile_stride,
+                                  /* is_full_swing = */true,
+                                  width,
+                                  tile_height);
+    if (result != 0 || !has_rotation) {
+        return result;
+    }
+
+    // The rows of the tile become columns of the output for 90 and 270 degrees, or stay rows for
+    // 180 degrees, in reverse order for 90 and 180 degrees.
+    int tile_bottom = tile_top + tile_height;
+    uint8_t* rotated_tile_ptr;
+    switch (rotation) {
+        case 90:
+            rotated_tile_ptr = dst_ptr + (height - tile_bottom) * 4;
+            break;
+        case 180:
+            rotated_tile_ptr = dst_ptr + (height - tile_bottom) * dst_stride;
+            break;
+        case 270:
+            rotated_tile_ptr = dst_ptr + tile_top * 4;
+            break;
+        default:
+            return -1;
+    }
+    return libyuv::ARGBRotate(tile_ptr,
+                              tile_stride,
+                              rotated_tile_ptr,
+                              dst_stride,
+                              width,
+                              tile_height,
+                              get_rotation_mode(rotation));
+}
+
 JNIEXPORT jint Java_androidx_camera_core_ImageProcessingUtil_nativeRotateYUV(
         JNIEnv* env,
         jclass,
@@ -60,6 +60,7 @@ import androidx.annotation.GuardedBy;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.RestrictTo.Scope;
@@ -159,6 +160,25 @@ public final class ImageAnalysis extends UseCase {
      * @see Builder#setImageQueueDepth(int)
      */
     public static final int STRATEGY_BLOCK_PRODUCER = 1;
+    /**
+     * Adapt to the time the analyzer takes, dropping images at a regular interval.
+     *
+     * <p>Up to the image queue depth minus one images are delivered for analysis at once, so
+     * that an {@link Analyzer} running on a multi-threaded {@link Executor} can analyze several
+     * images in parallel. The time from the delivery of an image to its
+     * {@link ImageProxy#close()} is measured, and only every n-th image is delivered, with n
+     * picked so that the analyzer keeps up with the frame rate. Images which arrive while the
+     * maximum number of images are being analyzed are dropped.
+     *
+     * <p>Unlike {@link #STRATEGY_BLOCK_PRODUCER}, the producer is never blocked, and unlike
+     * {@link #STRATEGY_KEEP_ONLY_LATEST}, the delivered images are evenly spaced when the
+     * analyzer can't keep up. The number of images analyzed and dropped, and the time taken,
+     * can be read with {@link #getAnalysisStatistics()}.
+     *
+     * @see Builder#setImageQueueDepth(int)
+     */
+    @ExperimentalUseCaseApi
+    public static final int STRATEGY_ADAPTIVE = 2;
 
     /**
      * Images sent to the analyzer will have YUV format.
@@ -230,6 +250,7 @@ public final class ImageAnalysis extends UseCase {
      *
      * @param config for this use case instance
      */
+    @OptIn(markerClass = ExperimentalUseCaseApi.class)
     @SuppressWarnings("WeakerAccess")
     ImageAnalysis(@NonNull ImageAnalysisConfig config) {
         super(config);
@@ -237,9 +258,14 @@ public final class ImageAnalysis extends UseCase {
         // Get the combined configuration with defaults
         ImageAnalysisConfig combinedConfig = (ImageAnalysisConfig) getCurrentConfig();
 
-        if (combinedConfig.getBackpressureStrategy(DEFAULT_BACKPRESSURE_STRATEGY)
-                == STRATEGY_BLOCK_PRODUCER) {
+        int backpressureStrategy =
+                combinedConfig.getBackpressureStrategy(DEFAULT_BACKPRESSURE_STRATEGY);
+        if (backpressureStrategy == STRATEGY_BLOCK_PRODUCER) {
             mImageAnalysisAbstractAnalyzer = new ImageAnalysisBlockingAnalyzer();
+        } else if (backpressureStrategy == STRATEGY_ADAPTIVE) {
+            // Keeps an image for the producer to fill while the others are analyzed.
+            mImageAnalysisAbstractAnalyzer = new ImageAnalysisAdaptiveAnalyzer(
+                    combinedConfig.getImageQueueDepth(DEFAULT_IMAGE_QUEUE_DEPTH) - 1);
         } else {
             mImageAnalysisAbstractAnalyzer = new ImageAnalysisNonBlockingAnalyzer(
                     config.getBackgroundExecutor(CameraXExecutors.highPriorityExecutor()));
@@ -314,6 +340,7 @@ public final class ImageAnalysis extends UseCase {
         return builder.getUseCaseConfig();
     }
 
+    @OptIn(markerClass = ExperimentalUseCaseApi.class)
     @SuppressWarnings("WeakerAccess") /* synthetic accessor */
     SessionConfig.Builder createPipeline(@NonNull String cameraId,
             @NonNull ImageAnalysisConfig config, @NonNull StreamSpec streamSpec) {
@@ -323,9 +350,9 @@ public final class ImageAnalysis extends UseCase {
         Executor backgroundExecutor = Preconditions.checkNotNull(config.getBackgroundExecutor(
                 CameraXExecutors.highPriorityExecutor()));
 
-        int imageQueueDepth =
-                getBackpressureStrategy() == STRATEGY_BLOCK_PRODUCER ? getImageQueueDepth()
-                        : NON_BLOCKING_IMAGE_DEPTH;
+        int imageQueueDepth = getBackpressureStrategy() == STRATEGY_BLOCK_PRODUCER
+                || getBackpressureStrategy() == STRATEGY_ADAPTIVE ? getImageQueueDepth()
+                : NON_BLOCKING_IMAGE_DEPTH;
         SafeCloseImageReaderProxy imageReaderProxy;
         if (config.getImageReaderProxyProvider() != null) {
             imageReaderProxy = new SafeCloseImageReaderProxy(
@@ -593,6 +620,23 @@ public final class ImageAnalysis extends UseCase {
                 .getBackgroundExecutor(null);
     }
 
+    /**
+     * Returns the statistics of the analysis, for the {@link #STRATEGY_ADAPTIVE} backpressure
+     * mode.
+     *
+     * @return A snapshot of the statistics since this {@link ImageAnalysis} was created, or
+     * {@code null} if it uses another backpressure strategy.
+     */
+    @Nullable
+    @ExperimentalUseCaseApi
+    public AnalysisStatistics getAnalysisStatistics() {
+        if (mImageAnalysisAbstractAnalyzer instanceof ImageAnalysisAdaptiveAnalyzer) {
+            return ((ImageAnalysisAdaptiveAnalyzer) mImageAnalysisAbstractAnalyzer)
+                    .getStatistics();
+        }
+        return null;
+    }
+
     /**
      * Returns the number of images available to the camera pipeline, including the image being
      * analyzed, for the {@link #STRATEGY_BLOCK_PRODUCER} backpressure mode.
@@ -791,12 +835,73 @@ public final class ImageAnalysis extends UseCase {
      *
      * @see Builder#setBackpressureStrategy(int)
      */
-    @IntDef({STRATEGY_KEEP_ONLY_LATEST, STRATEGY_BLOCK_PRODUCER})
+    @OptIn(markerClass = ExperimentalUseCaseApi.class)
+    @IntDef({STRATEGY_KEEP_ONLY_LATEST, STRATEGY_BLOCK_PRODUCER, STRATEGY_ADAPTIVE})
     @Retention(RetentionPolicy.SOURCE)
     @RestrictTo(Scope.LIBRARY_GROUP)
     public @interface BackpressureStrategy {
     }
 
+    /**
+     * The statistics of the analysis with the {@link #STRATEGY_ADAPTIVE} backpressure strategy.
+     *
+     * @see #getAnalysisStatistics()
+     */
+    @ExperimentalUseCaseApi
+    public static final class AnalysisStatistics {
+        private final long mProcessedImageCount;
+        private final long mDroppedImageCount;
+        private final long mAverageLatencyMillis;
+        private final int mImageStride;
+
+        AnalysisStatistics(long processedImageCount, long droppedImageCount,
+                long averageLatencyMillis, int imageStride) {
+            mProcessedImageCount = processedImageCount;
+            mDroppedImageCount = droppedImageCount;
+            mAverageLatencyMillis = averageLatencyMillis;
+            mImageStride = imageStride;
+        }
+
+        /**
+         * Returns the number of images delivered to the analyzer, and closed.
+         */
+        public long getProcessedImageCount() {
+            return mProcessedImageCount;
+        }
+
+        /**
+         * Returns the number of images dropped without being delivered to the analyzer.
+         */
+        public long getDroppedImageCount() {
+            return mDroppedImageCount;
+        }
+
+        /**
+         * Returns the moving average of the time from the delivery of an image to the analyzer
+         * to its {@link ImageProxy#close()}, in milliseconds.
+         */
+        public long getAverageLatencyMillis() {
+            return mAverageLatencyMillis;
+        }
+
+        /**
+         * Returns the current interval between the images delivered to the analyzer, e.g. 2 when
+         * every other image is delivered.
+         */
+        public int getImageStride() {
+            return mImageStride;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "AnalysisStatistics{processed=" + mProcessedImageCount
+                    + ", dropped=" + mDroppedImageCount
+                    + ", averageLatencyMillis=" + mAverageLatencyMillis
+                    + ", imageStride=" + mImageStride + "}";
+        }
+    }
+
     /**
      * Supported output image format for image analysis.
      *
@@ -1052,8 +1157,8 @@ public final class ImageAnalysis extends UseCase {
          * Sets the backpressure strategy to apply to the image producer to deal with scenarios
          * where images may be produced faster than they can be analyzed.
          *
-         * <p>The available values are {@link #STRATEGY_BLOCK_PRODUCER} and
-         * {@link #STRATEGY_KEEP_ONLY_LATEST}.
+         * <p>The available values are {@link #STRATEGY_BLOCK_PRODUCER},
+         * {@link #STRATEGY_KEEP_ONLY_LATEST} and {@link #STRATEGY_ADAPTIVE}.
          *
          * <p>If not set, the backpressure strategy will default to
          * {@link #STRATEGY_KEEP_ONLY_LATEST}.
@@ -1069,7 +1174,7 @@ public final class ImageAnalysis extends UseCase {
 
         /**
          * Sets the number of images available to the camera pipeline for
-         * {@link #STRATEGY_BLOCK_PRODUCER} mode.
+         * {@link #STRATEGY_BLOCK_PRODUCER} and {@link #STRATEGY_ADAPTIVE} modes.
          *
          * <p>The image queue depth is the number of images available to the camera to fill with
          * data. This includes the image currently being analyzed by {@link
@@ -1083,8 +1188,12 @@ public final class ImageAnalysis extends UseCase {
          * a single frame period for the current frame rate, <i>on average</i>, to avoid stalling
          * the camera pipeline.
          *
-         * <p>The value only applies to {@link #STRATEGY_BLOCK_PRODUCER} mode.
-         * For {@link #STRATEGY_KEEP_ONLY_LATEST} the value is ignored.
+         * <p>When the backpressure strategy is set to {@link #STRATEGY_ADAPTIVE}, up to the image
+         * queue depth minus one images are analyzed at once.
+         *
+         * <p>The value only applies to {@link #STRATEGY_BLOCK_PRODUCER} and
+         * {@link #STRATEGY_ADAPTIVE} modes. For {@link #STRATEGY_KEEP_ONLY_LATEST} the value is
+         * ignored.
          *
          * <p>If not set, and this option is used by the selected backpressure strategy,
          * the default will be a queue depth of 6 images.
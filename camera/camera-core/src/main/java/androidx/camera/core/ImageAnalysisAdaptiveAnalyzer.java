@@ -0,0 +1,220 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import android.os.SystemClock;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.camera.core.impl.ImageReaderProxy;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.camera.core.impl.utils.futures.FutureCallback;
+import androidx.camera.core.impl.utils.futures.Futures;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * OnImageAvailableListener which adapts to the latency of the analyzer. Analyzes up to a given
+ * number of images at once, and only every n-th image, where the stride n is picked so that the
+ * analyzer keeps up with the frame rate.
+ *
+ * <p> Used with {@link ImageAnalysis}.
+ */
+@RequiresApi(21) // TODO(b/200306659): Remove and replace with annotation on package-info.java
+final class ImageAnalysisAdaptiveAnalyzer extends ImageAnalysisAbstractAnalyzer {
+
+    // The largest stride, so that a slow analyzer still gets a few images per second. Past that,
+    // images are only dropped when the maximum number of images are being analyzed.
+    @VisibleForTesting
+    static final int MAX_STRIDE = 16;
+
+    // The weight of the latest sample in the moving averages is 1 / 2^AVERAGE_WEIGHT_SHIFT.
+    private static final int AVERAGE_WEIGHT_SHIFT = 3;
+
+    private final int mMaxImagesInFlight;
+
+    private final Object mLock = new Object();
+
+    @GuardedBy("mLock")
+    private int mImagesInFlight;
+
+    @GuardedBy("mLock")
+    private int mStride = 1;
+
+    // The number of images dropped since the last analyzed one.
+    @GuardedBy("mLock")
+    private int mSkippedImageCount;
+
+    @GuardedBy("mLock")
+    private long mLastTimestampNanos = -1;
+
+    // Moving averages, 0 until there is a sample.
+    @GuardedBy("mLock")
+    private long mFrameIntervalNanos;
+    @GuardedBy("mLock")
+    private long mLatencyNanos;
+
+    @GuardedBy("mLock")
+    private long mProcessedImageCount;
+    @GuardedBy("mLock")
+    private long mDroppedImageCount;
+
+    /**
+     * @param maxImagesInFlight the maximum number of images being analyzed at once. It must be
+     *                          less than the number of images of the image reader, so that the
+     *                          producer is never blocked.
+     */
+    ImageAnalysisAdaptiveAnalyzer(int maxImagesInFlight) {
+        mMaxImagesInFlight = Math.max(1, maxImagesInFlight);
+    }
+
+    @Nullable
+    @Override
+    ImageProxy acquireImage(@NonNull ImageReaderProxy imageReaderProxy) {
+        // Use acquireNextImage() so that every image is either analyzed or counted as dropped.
+        return imageReaderProxy.acquireNextImage();
+    }
+
+    @Override
+    void onValidImageAvailable(@NonNull ImageProxy imageProxy) {
+        synchronized (mLock) {
+            if (!mIsAttached) {
+                imageProxy.close();
+                return;
+            }
+            long timestamp = imageProxy.getImageInfo().getTimestamp();
+            if (mLastTimestampNanos >= 0 && timestamp > mLastTimestampNanos) {
+                mFrameIntervalNanos = average(mFrameIntervalNanos,
+                        timestamp - mLastTimestampNanos);
+            }
+            mLastTimestampNanos = timestamp;
+            if (mSkippedImageCount + 1 < mStride || mImagesInFlight >= mMaxImagesInFlight) {
+                mSkippedImageCount++;
+                mDroppedImageCount++;
+                imageProxy.close();
+                return;
+            }
+            mSkippedImageCount = 0;
+            mImagesInFlight++;
+        }
+
+        final InFlightImageProxy inFlightImage = new InFlightImageProxy(imageProxy, this);
+        Futures.addCallback(analyzeImage(inFlightImage), new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                // No-op. If the post is successful, app should close it.
+            }
+
+            @Override
+            public void onFailure(@NonNull Throwable t) {
+                // Close the image if we didn't post it to user.
+                inFlightImage.closeUnanalyzed();
+            }
+        }, CameraXExecutors.directExecutor());
+    }
+
+    @Override
+    void clearCache() {
+        // no-op. The adaptive analyzer does not cache images.
+    }
+
+    // Synthetic access
+    void onImageClosed(long analysisStartNanos, boolean analyzed) {
+        synchronized (mLock) {
+            mImagesInFlight--;
+            if (!analyzed) {
+                mDroppedImageCount++;
+                return;
+            }
+            mProcessedImageCount++;
+            mLatencyNanos = average(mLatencyNanos,
+                    SystemClock.elapsedRealtimeNanos() - analysisStartNanos);
+            updateStride();
+        }
+    }
+
+    /**
+     * Picks the stride with which the images analyzed at once are done, on average, by the time
+     * the next image is analyzed.
+     */
+    @GuardedBy("mLock")
+    private void updateStride() {
+        if (mFrameIntervalNanos == 0) {
+            return;
+        }
+        long budgetNanos = mFrameIntervalNanos * mMaxImagesInFlight;
+        long stride = (mLatencyNanos + budgetNanos - 1) / budgetNanos;
+        mStride = (int) Math.max(1, Math.min(MAX_STRIDE, stride));
+    }
+
+    @OptIn(markerClass = ExperimentalUseCaseApi.class)
+    @NonNull
+    ImageAnalysis.AnalysisStatistics getStatistics() {
+        synchronized (mLock) {
+            return new ImageAnalysis.AnalysisStatistics(
+                    mProcessedImageCount,
+                    mDroppedImageCount,
+                    TimeUnit.NANOSECONDS.toMillis(mLatencyNanos),
+                    mStride);
+        }
+    }
+
+    private static long average(long average, long sample) {
+        if (average == 0) {
+            return sample;
+        }
+        return average + ((sample - average) >> AVERAGE_WEIGHT_SHIFT);
+    }
+
+    /**
+     * An {@link ImageProxy} which reports to the analyzer when it is closed.
+     */
+    static class InFlightImageProxy extends ForwardingImageProxy {
+
+        private final ImageAnalysisAdaptiveAnalyzer mAdaptiveAnalyzer;
+        private final long mAnalysisStartNanos = SystemClock.elapsedRealtimeNanos();
+        private final AtomicBoolean mClosed = new AtomicBoolean(false);
+
+        InFlightImageProxy(@NonNull ImageProxy image,
+                @NonNull ImageAnalysisAdaptiveAnalyzer adaptiveAnalyzer) {
+            super(image);
+            mAdaptiveAnalyzer = adaptiveAnalyzer;
+        }
+
+        @Override
+        public void close() {
+            close(/*analyzed=*/true);
+        }
+
+        void closeUnanalyzed() {
+            close(/*analyzed=*/false);
+        }
+
+        private void close(boolean analyzed) {
+            // The image may be closed more than once, but only leaves the analyzer once.
+            if (mClosed.compareAndSet(false, true)) {
+                super.close();
+                mAdaptiveAnalyzer.onImageClosed(mAnalysisStartNanos, analyzed);
+            }
+        }
+    }
+}
@@ -86,6 +86,7 @@ import androidx.annotation.RestrictTo;
 import androidx.annotation.RestrictTo.Scope;
 import androidx.annotation.UiThread;
 import androidx.annotation.VisibleForTesting;
+import androidx.camera.core.imagecapture.CaptureLatencyTracker;
 import androidx.camera.core.imagecapture.ImageCaptureControl;
 import androidx.camera.core.imagecapture.ImagePipeline;
 import androidx.camera.core.imagecapture.TakePictureManager;
@@ -296,6 +297,10 @@ public final class ImageCapture extends UseCase {
     private int mFlashMode = FLASH_MODE_UNKNOWN;
     private Rational mCropAspectRatio = null;
 
+    // Outlives the pipeline and the TakePictureManager, so that the latencies are kept when the
+    // use case is rebound.
+    private final CaptureLatencyTracker mLatencyTracker = new CaptureLatencyTracker();
+
     ////////////////////////////////////////////////////////////////////////////////////////////
     // [UseCase attached dynamic] - Can change but is only available when the UseCase is attached.
     ////////////////////////////////////////////////////////////////////////////////////////////
@@ -996,7 +1001,7 @@ public final class ImageCapture extends UseCase {
 
         if (mTakePictureManager == null) {
             // mTakePictureManager is reused when the Surface is reset.
-            mTakePictureManager = new TakePictureManager(mImageCaptureControl);
+            mTakePictureManager = new TakePictureManager(mImageCaptureControl, mLatencyTracker);
         }
         mTakePictureManager.setImagePipeline(mImagePipeline);
 
@@ -1171,6 +1176,9 @@ public final class ImageCapture extends UseCase {
      * {@link ImageCaptureLatencyEstimate#UNDEFINED_CAPTURE_LATENCY}. If the processing
      * latency is not supported then the processing latency component will be
      * {@link ImageCaptureLatencyEstimate#UNDEFINED_PROCESSING_LATENCY}.
+     *
+     * <p>If the camera doesn't provide an estimate, the median latencies of the latest captures
+     * are returned, if any.
      */
     @RestrictTo(Scope.LIBRARY_GROUP)
     @NonNull
@@ -1184,11 +1192,45 @@ public final class ImageCapture extends UseCase {
         final SessionProcessor sessionProcessor = config.getSessionProcessor();
         final Pair<Long, Long> latencyEstimate = sessionProcessor.getRealtimeCaptureLatency();
         if (latencyEstimate == null) {
-            return ImageCaptureLatencyEstimate.UNDEFINED_IMAGE_CAPTURE_LATENCY;
+            return getMeasuredCaptureLatencyEstimate();
         }
         return new ImageCaptureLatencyEstimate(latencyEstimate.first, latencyEstimate.second);
     }
 
+    /**
+     * Returns the median latencies of the latest captures as an estimate. The processing latency
+     * includes the time waiting for the other captures to be processed.
+     */
+    @NonNull
+    private ImageCaptureLatencyEstimate getMeasuredCaptureLatencyEstimate() {
+        long[][] samplesMillis = mLatencyTracker.getSortedSamplesMillis();
+        long captureLatency = CaptureLatencyTracker.getPercentile(
+                samplesMillis[CaptureLatencyTracker.STAGE_CAPTURE], 50);
+        long processingQueueLatency = CaptureLatencyTracker.getPercentile(
+                samplesMillis[CaptureLatencyTracker.STAGE_PROCESSING_QUEUE], 50);
+        long processingLatency = CaptureLatencyTracker.getPercentile(
+                samplesMillis[CaptureLatencyTracker.STAGE_PROCESSING], 50);
+        if (captureLatency < 0 || processingQueueLatency < 0 || processingLatency < 0) {
+            return ImageCaptureLatencyEstimate.UNDEFINED_IMAGE_CAPTURE_LATENCY;
+        }
+        return new ImageCaptureLatencyEstimate(captureLatency,
+                processingQueueLatency + processingLatency);
+    }
+
+    /**
+     * Returns the latencies of each stage of the latest captures, from {@link #takePicture} to
+     * the delivery of the result, e.g. to tell whether the time is spent by the camera, by the
+     * JPEG encoding or by the disk.
+     *
+     * <p>Only the captures which succeeded are taken into account. The stages are also emitted
+     * as async sections of system traces.
+     */
+    @ExperimentalUseCaseApi
+    @NonNull
+    public LatencyStatistics getLatencyStatistics() {
+        return new LatencyStatistics(mLatencyTracker.getSortedSamplesMillis());
+    }
+
     /**
      * Describes the error that occurred during an image capture operation (such as {@link
      * ImageCapture#takePicture(Executor, OnImageCapturedCallback)}).
@@ -1566,6 +1608,99 @@ public final class ImageCapture extends UseCase {
         }
     }
 
+    /**
+     * The latencies of each stage of the latest captures.
+     *
+     * <p>A capture goes through the stages in order, except {@link #STAGE_PROCESSING}, which
+     * spans {@link #STAGE_ENCODE} and {@link #STAGE_SAVE}. {@link #STAGE_ENCODE} and
+     * {@link #STAGE_SAVE} are only measured for captures saved to disk from JPEG images: YUV
+     * images are encoded straight to the file, and in-memory captures are not saved.
+     *
+     * @see #getLatencyStatistics()
+     */
+    @ExperimentalUseCaseApi
+    public static final class LatencyStatistics {
+
+        /** No capture went through the stage. */
+        public static final long UNKNOWN_LATENCY = -1;
+
+        /**
+         * From {@link #takePicture} to the capture being sent to the camera, which takes one
+         * capture at a time.
+         */
+        public static final int STAGE_QUEUE = CaptureLatencyTracker.STAGE_QUEUE;
+        /** From the capture being sent to the camera to the images being received. */
+        public static final int STAGE_CAPTURE = CaptureLatencyTracker.STAGE_CAPTURE;
+        /**
+         * From the images being received to their processing starting, which waits for the
+         * other captures being processed.
+         */
+        public static final int STAGE_PROCESSING_QUEUE =
+                CaptureLatencyTracker.STAGE_PROCESSING_QUEUE;
+        /** From the processing starting to the result being ready, saving included. */
+        public static final int STAGE_PROCESSING = CaptureLatencyTracker.STAGE_PROCESSING;
+        /** From the processing starting to the image being encoded to JPEG. */
+        public static final int STAGE_ENCODE = CaptureLatencyTracker.STAGE_ENCODE;
+        /** From the image being encoded to JPEG to it being saved to disk. */
+        public static final int STAGE_SAVE = CaptureLatencyTracker.STAGE_SAVE;
+        /** From the result being ready to it being delivered to the app callback executor. */
+        public static final int STAGE_DELIVERY = CaptureLatencyTracker.STAGE_DELIVERY;
+        /** From {@link #takePicture} to the result being delivered. */
+        public static final int STAGE_TOTAL = CaptureLatencyTracker.STAGE_TOTAL;
+
+        private static final String[] STAGE_NAMES = {"queue", "capture", "processingQueue",
+                "processing", "encode", "save", "delivery", "total"};
+
+        /**
+         * The stages of a capture.
+         */
+        @IntDef({STAGE_QUEUE, STAGE_CAPTURE, STAGE_PROCESSING_QUEUE, STAGE_PROCESSING,
+                STAGE_ENCODE, STAGE_SAVE, STAGE_DELIVERY, STAGE_TOTAL})
+        @Retention(RetentionPolicy.SOURCE)
+        @RestrictTo(Scope.LIBRARY_GROUP)
+        public @interface Stage {
+        }
+
+        private final long[][] mSortedSamplesMillis;
+
+        LatencyStatistics(@NonNull long[][] sortedSamplesMillis) {
+            mSortedSamplesMillis = sortedSamplesMillis;
+        }
+
+        /**
+         * Returns the number of latest captures which went through the stage.
+         */
+        public int getCaptureCount(@Stage int stage) {
+            return mSortedSamplesMillis[stage].length;
+        }
+
+        /**
+         * Returns the given percentile of the latency of the stage, in milliseconds, or
+         * {@link #UNKNOWN_LATENCY} if no capture went through the stage.
+         *
+         * <p>For example, a percentile of 50 returns the median latency.
+         */
+        public long getLatencyMillis(@Stage int stage,
+                @IntRange(from = 0, to = 100) int percentile) {
+            return CaptureLatencyTracker.getPercentile(mSortedSamplesMillis[stage], percentile);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("LatencyStatistics{");
+            for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+                if (stage > 0) {
+                    builder.append(", ");
+                }
+                builder.append(STAGE_NAMES[stage]).append("=[p50=")
+                        .append(getLatencyMillis(stage, 50)).append(", p90=")
+                        .append(getLatencyMillis(stage, 90)).append("]");
+            }
+            return builder.append("}").toString();
+        }
+    }
+
     /** Holder class for metadata that will be saved with captured images. */
     public static final class Metadata {
         /**
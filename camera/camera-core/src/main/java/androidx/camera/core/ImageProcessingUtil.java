@@ -40,6 +40,11 @@ import androidx.core.util.Preconditions;
 
 import java.nio.ByteBuffer;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utility class to convert an {@link Image} from YUV to RGB.
@@ -50,6 +55,8 @@ import java.util.Locale;
 public final class ImageProcessingUtil {
 
     private static final String TAG = "ImageProcessingUtil";
+    // Smaller tiles cost more to schedule than they save.
+    private static final int MIN_TILE_HEIGHT = 64;
     private static int sImageCount = 0;
 
     static {
@@ -238,6 +245,122 @@ public final class ImageProcessingUtil {
         return wrappedRgbImageProxy;
     }
 
+    /**
+     * Converts image proxy in YUV to RGBA_8888, one horizontal tile per thread.
+     *
+     * <p>Different from {@link ImageProcessingUtil#convertYUVToRGB(
+     * ImageProxy, ImageReaderProxy, ByteBuffer, int, boolean)}, this function writes to a buffer
+     * owned by the caller, so that no image is allocated for each frame, and splits the image in
+     * up to {@code tileCount} tiles of rows, which are converted and rotated concurrently. The
+     * calling thread converts the tiles no executor thread has started yet, and returns once every
+     * tile is done. It never waits for a tile which isn't running, so the executor may be the one
+     * the caller runs on, even a single-threaded or saturated one, in which case the calling
+     * thread converts all the tiles. Tasks the executor starts after that return right away.
+     *
+     * <p>The input image is not closed. One pixel shift is not supported.
+     *
+     * @param imageProxy         input image proxy in YUV.
+     * @param rgbaBuffer         output direct buffer, which holds the rotated image in RGBA_8888.
+     * @param rgbaStride         row stride of the output buffer, in bytes.
+     * @param rgbConvertedBuffer intermediate direct buffer of {@code width * height * 4} bytes,
+     *                           only needed if the rotation degrees is not 0.
+     * @param rotationDegrees    output image rotation degrees.
+     * @param executor           executor the tiles are converted on, along with the calling
+     *                           thread.
+     * @param tileCount          maximum number of tiles, e.g. the number of worker threads plus
+     *                           one for the calling thread.
+     * @return true if the image is converted successfully, otherwise false.
+     */
+    public static boolean convertYUVToRGB(
+            @NonNull ImageProxy imageProxy,
+            @NonNull ByteBuffer rgbaBuffer,
+            int rgbaStride,
+            @Nullable ByteBuffer rgbConvertedBuffer,
+            @IntRange(from = 0, to = 359) int rotationDegrees,
+            @NonNull Executor executor,
+            @IntRange(from = 1) int tileCount) {
+        if (!isSupportedYUVFormat(imageProxy)) {
+            Logger.e(TAG, "Unsupported format for YUV to RGB");
+            return false;
+        }
+        if (!isSupportedRotationDegrees(rotationDegrees)) {
+            Logger.e(TAG, "Unsupported rotation degrees for rotate RGB");
+            return false;
+        }
+        int width = imageProxy.getWidth();
+        int height = imageProxy.getHeight();
+        boolean isTransposed = rotationDegrees == 90 || rotationDegrees == 270;
+        int rotatedWidth = isTransposed ? height : width;
+        int rotatedHeight = isTransposed ? width : height;
+        Preconditions.checkArgument(rgbaBuffer.isDirect(), "The output buffer must be direct");
+        Preconditions.checkArgument(rgbaStride >= rotatedWidth * 4
+                        && rgbaBuffer.capacity() >= rgbaStride * (rotatedHeight - 1)
+                        + rotatedWidth * 4,
+                "The output buffer is too small for a " + rotatedWidth + "x" + rotatedHeight
+                        + " image");
+        Preconditions.checkArgument(rotationDegrees == 0 || (rgbConvertedBuffer != null
+                        && rgbConvertedBuffer.isDirect()
+                        && rgbConvertedBuffer.capacity() >= width * height * 4),
+                "A direct intermediate buffer of " + (width * height * 4)
+                        + " bytes is needed for rotation");
+
+        // Tiles start at an even row, as chroma rows are shared by two rows of the image.
+        int minTileHeight = Math.max(MIN_TILE_HEIGHT, (height + tileCount - 1) / tileCount);
+        int tileHeight = minTileHeight + minTileHeight % 2;
+        int tiles = (height + tileHeight - 1) / tileHeight;
+
+        // Each thread, the calling one included, claims the next tile until none is left, so that
+        // tiles are only waited for once they are running.
+        AtomicInteger nextTile = new AtomicInteger(0);
+        CountDownLatch remainingTiles = new CountDownLatch(tiles);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        Runnable convertTiles = () -> {
+            int tile;
+            while ((tile = nextTile.getAndIncrement()) < tiles) {
+                try {
+                    int tileTop = tile * tileHeight;
+                    if (convertYUVToRGBTile(imageProxy, rgbaBuffer, rgbaStride,
+                            rgbConvertedBuffer, rotationDegrees, tileTop,
+                            Math.min(tileHeight, height - tileTop)) != SUCCESS) {
+                        failed.set(true);
+                    }
+                } finally {
+                    remainingTiles.countDown();
+                }
+            }
+        };
+        for (int i = 0; i < tiles - 1; i++) {
+            try {
+                executor.execute(convertTiles);
+            } catch (RejectedExecutionException e) {
+                // The calling thread converts the tiles when the executor is shut down or full.
+                break;
+            }
+        }
+        convertTiles.run();
+
+        // The tiles claimed by other threads still read the input and write the output, so they
+        // have to be waited for even if the thread is interrupted.
+        boolean interrupted = false;
+        while (true) {
+            try {
+                remainingTiles.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failed.get()) {
+            Logger.e(TAG, "YUV to RGB conversion failure");
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Converts image proxy in YUV to {@link Bitmap}.
      *
@@ -432,6 +555,37 @@ public final class ImageProcessingUtil {
         return SUCCESS;
     }
 
+    @NonNull
+    private static Result convertYUVToRGBTile(
+            @NonNull ImageProxy imageProxy,
+            @NonNull ByteBuffer rgbaBuffer,
+            int rgbaStride,
+            @Nullable ByteBuffer rgbConvertedBuffer,
+            @ImageOutputConfig.RotationDegreesValue int rotation,
+            int tileTop,
+            int tileHeight) {
+        int result = nativeConvertAndroid420ToABGRTile(
+                imageProxy.getPlanes()[0].getBuffer(),
+                imageProxy.getPlanes()[0].getRowStride(),
+                imageProxy.getPlanes()[1].getBuffer(),
+                imageProxy.getPlanes()[1].getRowStride(),
+                imageProxy.getPlanes()[2].getBuffer(),
+                imageProxy.getPlanes()[2].getRowStride(),
+                imageProxy.getPlanes()[1].getPixelStride(),
+                rgbaBuffer,
+                rgbaStride,
+                rgbConvertedBuffer,
+                imageProxy.getWidth(),
+                imageProxy.getHeight(),
+                tileTop,
+                tileHeight,
+                rotation);
+        if (result != 0) {
+            return ERROR_CONVERSION;
+        }
+        return SUCCESS;
+    }
+
     @NonNull
     private static Result applyPixelShiftInternal(@NonNull ImageProxy imageProxy) {
         int imageWidth = imageProxy.getWidth();
@@ -547,6 +701,23 @@ public final class ImageProcessingUtil {
             int startOffsetV,
             @ImageOutputConfig.RotationDegreesValue int rotationDegrees);
 
+    private static native int nativeConvertAndroid420ToABGRTile(
+            @NonNull ByteBuffer srcByteBufferY,
+            int srcStrideY,
+            @NonNull ByteBuffer srcByteBufferU,
+            int srcStrideU,
+            @NonNull ByteBuffer srcByteBufferV,
+            int srcStrideV,
+            int srcPixelStrideUV,
+            @NonNull ByteBuffer dstByteBufferRGBA,
+            int dstStrideRGBA,
+            @Nullable ByteBuffer convertedByteBufferRGB,
+            int width,
+            int height,
+            int tileTop,
+            int tileHeight,
+            @ImageOutputConfig.RotationDegreesValue int rotationDegrees);
+
     private static native int nativeConvertAndroid420ToBitmap(
             @NonNull ByteBuffer srcByteBufferY,
             int srcStrideY,
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.imagecapture;
+
+import static androidx.camera.core.imagecapture.CaptureTimeline.EVENT_CAPTURED;
+import static androidx.camera.core.imagecapture.CaptureTimeline.EVENT_DELIVERED;
+import static androidx.camera.core.imagecapture.CaptureTimeline.EVENT_ENCODED;
+import static androidx.camera.core.imagecapture.CaptureTimeline.EVENT_OFFERED;
+import static androidx.camera.core.imagecapture.CaptureTimeline.EVENT_PROCESSED;
+import static androidx.camera.core.imagecapture.CaptureTimeline.EVENT_PROCESSING_STARTED;
+import static androidx.camera.core.imagecapture.CaptureTimeline.EVENT_SUBMITTED;
+import static androidx.camera.core.imagecapture.CaptureTimeline.NOT_MARKED;
+
+import android.os.Build;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.camera.core.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates the stage latencies of the completed {@link TakePictureRequest}s.
+ *
+ * <p>Only the latest {@link #MAX_SAMPLES} requests are kept, so that the percentiles follow the
+ * current scene and camera configuration.
+ */
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+public class CaptureLatencyTracker {
+
+    private static final String TAG = "CaptureLatencyTracker";
+
+    @VisibleForTesting
+    static final int MAX_SAMPLES = 32;
+
+    /** From {@code takePicture()} to the request being sent to the camera. */
+    public static final int STAGE_QUEUE = 0;
+    /** From the request being sent to the camera to all its images being received. */
+    public static final int STAGE_CAPTURE = 1;
+    /** From the images being received to the processing starting on the blocking executor. */
+    public static final int STAGE_PROCESSING_QUEUE = 2;
+    /** From the processing starting to the result being ready, saving included. */
+    public static final int STAGE_PROCESSING = 3;
+    /** From the processing starting to the JPEG bytes being ready to be saved. */
+    public static final int STAGE_ENCODE = 4;
+    /** From the JPEG bytes being ready to them being saved to disk. */
+    public static final int STAGE_SAVE = 5;
+    /** From the result being ready to it being delivered on the main thread. */
+    public static final int STAGE_DELIVERY = 6;
+    /** From {@code takePicture()} to the result being delivered. */
+    public static final int STAGE_TOTAL = 7;
+
+    static final int STAGE_COUNT = 8;
+
+    // The events each stage starts and ends with.
+    private static final int[][] STAGE_EVENTS = {
+            {EVENT_OFFERED, EVENT_SUBMITTED},
+            {EVENT_SUBMITTED, EVENT_CAPTURED},
+            {EVENT_CAPTURED, EVENT_PROCESSING_STARTED},
+            {EVENT_PROCESSING_STARTED, EVENT_PROCESSED},
+            {EVENT_PROCESSING_STARTED, EVENT_ENCODED},
+            {EVENT_ENCODED, EVENT_PROCESSED},
+            {EVENT_PROCESSED, EVENT_DELIVERED},
+            {EVENT_OFFERED, EVENT_DELIVERED},
+    };
+
+    // Ring buffers of the latest samples of each stage, in nanoseconds.
+    @GuardedBy("this")
+    private final long[][] mSamples = new long[STAGE_COUNT][MAX_SAMPLES];
+    @GuardedBy("this")
+    private final int[] mSampleCounts = new int[STAGE_COUNT];
+    @GuardedBy("this")
+    private final int[] mNextSampleIndices = new int[STAGE_COUNT];
+
+    /**
+     * Ends the timeline of a request and, if it succeeded, adds its stage latencies to the
+     * samples.
+     */
+    void record(@NonNull CaptureTimeline timeline) {
+        if (!timeline.finish()) {
+            // Failed and aborted requests would skew the latencies.
+            return;
+        }
+        synchronized (this) {
+            for (int stage = 0; stage < STAGE_COUNT; stage++) {
+                long durationNanos = timeline.getDurationNanos(STAGE_EVENTS[stage][0],
+                        STAGE_EVENTS[stage][1]);
+                if (durationNanos == NOT_MARKED) {
+                    continue;
+                }
+                mSamples[stage][mNextSampleIndices[stage]] = durationNanos;
+                mNextSampleIndices[stage] = (mNextSampleIndices[stage] + 1) % MAX_SAMPLES;
+                mSampleCounts[stage] = Math.min(mSampleCounts[stage] + 1, MAX_SAMPLES);
+            }
+        }
+        Logger.d(TAG, "Request completed: " + timeline);
+    }
+
+    /**
+     * Returns the latest samples of each stage, sorted and in milliseconds.
+     *
+     * <p>The array of a stage is empty if no request went through it.
+     */
+    @NonNull
+    public synchronized long[][] getSortedSamplesMillis() {
+        long[][] samplesMillis = new long[STAGE_COUNT][];
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            samplesMillis[stage] = new long[mSampleCounts[stage]];
+            for (int i = 0; i < mSampleCounts[stage]; i++) {
+                samplesMillis[stage][i] = TimeUnit.NANOSECONDS.toMillis(mSamples[stage][i]);
+            }
+            Arrays.sort(samplesMillis[stage]);
+        }
+        return samplesMillis;
+    }
+
+    /**
+     * Returns the given percentile of the sorted samples with the nearest-rank method, or -1 if
+     * there is no sample.
+     */
+    public static long getPercentile(@NonNull long[] sortedSamples, int percentile) {
+        if (sortedSamples.length == 0) {
+            return NOT_MARKED;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedSamples.length);
+        return sortedSamples[Math.max(0, Math.min(sortedSamples.length - 1, rank - 1))];
+    }
+}
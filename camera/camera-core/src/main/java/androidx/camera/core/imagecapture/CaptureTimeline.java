@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.imagecapture;
+
+import android.os.Build;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.tracing.Trace;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records when a {@link TakePictureRequest} crosses each node of the pipeline.
+ *
+ * <p>The time between two events is a stage, which is also emitted as an async trace section so
+ * that it shows up in system traces next to the camera and the app threads.
+ *
+ * <p>Events are marked from the main thread and from the worker thread that processes the
+ * image, so the class is thread-safe.
+ */
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+class CaptureTimeline {
+
+    /** {@link TakePictureManager} receives the request. */
+    static final int EVENT_OFFERED = 0;
+    /** The request is sent to the camera. */
+    static final int EVENT_SUBMITTED = 1;
+    /** {@link CaptureNode} receives the images of the request. */
+    static final int EVENT_CAPTURED = 2;
+    /** {@link ProcessingNode} starts processing the images on the blocking executor. */
+    static final int EVENT_PROCESSING_STARTED = 3;
+    /**
+     * The image is encoded to JPEG bytes, before they are saved to disk. Not marked for
+     * in-memory captures, nor for YUV images which are encoded straight to the file.
+     */
+    static final int EVENT_ENCODED = 4;
+    /** The result is ready to be delivered, i.e. saved to disk for on-disk captures. */
+    static final int EVENT_PROCESSED = 5;
+    /** The result is delivered to {@link TakePictureRequest} on the main thread. */
+    static final int EVENT_DELIVERED = 6;
+
+    static final int EVENT_COUNT = 7;
+
+    /**
+     * The events of a request.
+     */
+    @IntDef({EVENT_OFFERED, EVENT_SUBMITTED, EVENT_CAPTURED, EVENT_PROCESSING_STARTED,
+            EVENT_ENCODED, EVENT_PROCESSED, EVENT_DELIVERED})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface Event {
+    }
+
+    // The trace section which starts with the event of the same index, and ends with the next
+    // marked event.
+    private static final String[] TRACE_SECTION_NAMES = {
+            "CX:ImageCapture#queue",
+            "CX:ImageCapture#capture",
+            "CX:ImageCapture#waitForProcessing",
+            "CX:ImageCapture#process",
+            "CX:ImageCapture#save",
+            "CX:ImageCapture#deliver",
+    };
+
+    static final long NOT_MARKED = -1;
+
+    private static final AtomicInteger sNextTraceCookie = new AtomicInteger();
+
+    private final int mTraceCookie = sNextTraceCookie.getAndIncrement();
+
+    @GuardedBy("this")
+    private final long[] mEventNanos = new long[EVENT_COUNT];
+
+    // The event that started the trace section which is still open, if any.
+    @GuardedBy("this")
+    private int mOpenSectionEvent = -1;
+
+    CaptureTimeline() {
+        Arrays.fill(mEventNanos, NOT_MARKED);
+    }
+
+    /**
+     * Marks that the request reached the given event now.
+     */
+    void mark(@Event int event) {
+        mark(event, System.nanoTime());
+    }
+
+    /**
+     * Marks that the request reached the given event at the given {@link System#nanoTime()}.
+     *
+     * <p>The events after the given one are cleared, e.g. when a failed capture is retried.
+     */
+    @VisibleForTesting
+    synchronized void mark(@Event int event, long timestampNanos) {
+        mEventNanos[event] = timestampNanos;
+        for (int i = event + 1; i < EVENT_COUNT; i++) {
+            mEventNanos[i] = NOT_MARKED;
+        }
+        endOpenSection();
+        if (event < EVENT_DELIVERED) {
+            Trace.beginAsyncSection(TRACE_SECTION_NAMES[event], mTraceCookie);
+            mOpenSectionEvent = event;
+        }
+    }
+
+    /**
+     * Ends the trace section still open, e.g. when the request fails or is aborted.
+     *
+     * @return true if the request went all the way to {@link #EVENT_DELIVERED}.
+     */
+    synchronized boolean finish() {
+        endOpenSection();
+        return mEventNanos[EVENT_DELIVERED] != NOT_MARKED;
+    }
+
+    /**
+     * Returns the time between the two events, or -1 if either is not marked.
+     */
+    synchronized long getDurationNanos(@Event int fromEvent, @Event int toEvent) {
+        if (mEventNanos[fromEvent] == NOT_MARKED || mEventNanos[toEvent] == NOT_MARKED) {
+            return NOT_MARKED;
+        }
+        return mEventNanos[toEvent] - mEventNanos[fromEvent];
+    }
+
+    @GuardedBy("this")
+    private void endOpenSection() {
+        if (mOpenSectionEvent >= 0) {
+            Trace.endAsyncSection(TRACE_SECTION_NAMES[mOpenSectionEvent], mTraceCookie);
+            mOpenSectionEvent = -1;
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "CaptureTimeline{eventNanos=" + Arrays.toString(mEventNanos) + "}";
+    }
+}
@@ -31,11 +31,13 @@ import android.os.Build;
 import android.util.Size;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.impl.utils.Exif;
+import androidx.camera.core.internal.utils.ByteArrayPool;
 import androidx.camera.core.internal.utils.ImageUtil;
 import androidx.camera.core.processing.Operation;
 import androidx.camera.core.processing.Packet;
@@ -43,6 +45,7 @@ import androidx.camera.core.processing.Packet;
 import com.google.auto.value.AutoValue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /**
@@ -51,6 +54,21 @@ import java.io.IOException;
 @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
 final class Image2JpegBytes implements Operation<Image2JpegBytes.In, Packet<byte[]>> {
 
+    @Nullable
+    private final ByteArrayPool mNv21Pool;
+
+    Image2JpegBytes() {
+        this(null);
+    }
+
+    /**
+     * @param nv21Pool the pool of the buffers the YUV images are converted to NV21 in, or null to
+     *                 allocate one for each image.
+     */
+    Image2JpegBytes(@Nullable ByteArrayPool nv21Pool) {
+        mNv21Pool = nv21Pool;
+    }
+
     @NonNull
     @Override
     public Packet<byte[]> apply(@NonNull Image2JpegBytes.In input) throws ImageCaptureException {
@@ -88,17 +106,26 @@ final class Image2JpegBytes implements Operation<Image2JpegBytes.In, Packet<byte
         ImageProxy image = packet.getData();
         Rect cropRect = packet.getCropRect();
 
-        byte[] jpegBytes;
+        ByteArrayPool nv21Pool = mNv21Pool;
+        byte[] nv21 = nv21Pool != null ? nv21Pool.acquire(ImageUtil.getNv21Size(image)) : null;
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         try {
-            jpegBytes = ImageUtil.yuvImageToJpegByteArray(
+            ImageUtil.yuvImageToJpeg(
                     image,
                     cropRect,
                     input.getJpegQuality(),
-                    packet.getRotationDegrees());
+                    packet.getRotationDegrees(),
+                    nv21,
+                    outputStream);
         } catch (ImageUtil.CodecFailedException e) {
             throw new ImageCaptureException(ImageCapture.ERROR_FILE_IO,
                     "Failed to encode the image to JPEG.", e);
+        } finally {
+            if (nv21Pool != null && nv21 != null) {
+                nv21Pool.release(nv21);
+            }
         }
+        byte[] jpegBytes = outputStream.toByteArray();
 
         // Return bytes with a new format, size, and crop rect.
         return Packet.of(
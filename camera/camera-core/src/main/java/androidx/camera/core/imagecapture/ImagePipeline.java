@@ -245,7 +245,8 @@ public class ImagePipeline {
                 takePictureRequest.getJpegQuality(),
                 takePictureRequest.getSensorToBufferTransform(),
                 takePictureCallback,
-                captureFuture);
+                captureFuture,
+                takePictureRequest.getTimeline());
     }
 
     private CameraRequest createCameraRequest(
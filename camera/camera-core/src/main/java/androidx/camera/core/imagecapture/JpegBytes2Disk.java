@@ -75,7 +75,7 @@ class JpegBytes2Disk implements Operation<JpegBytes2Disk.In, ImageCapture.Output
      * Creates a temporary JPEG file.
      */
     @NonNull
-    private static File createTempFile(@NonNull ImageCapture.OutputFileOptions options)
+    static File createTempFile(@NonNull ImageCapture.OutputFileOptions options)
             throws ImageCaptureException {
         try {
             File appProvidedFile = options.getFile();
@@ -117,16 +117,21 @@ class JpegBytes2Disk implements Operation<JpegBytes2Disk.In, ImageCapture.Output
         }
     }
 
-    private static void updateFileExif(
+    /**
+     * Updates the Exif of the file based on the original Exif, if any, and the metadata.
+     */
+    static void updateFileExif(
             @NonNull File tempFile,
-            @NonNull Exif originalExif,
+            @Nullable Exif originalExif,
             @NonNull ImageCapture.OutputFileOptions options,
             int rotationDegrees)
             throws ImageCaptureException {
         try {
             // Create new exif based on the original exif.
             Exif exif = Exif.createFromFile(tempFile);
-            originalExif.copyToCroppedImage(exif);
+            if (originalExif != null) {
+                originalExif.copyToCroppedImage(exif);
+            }
 
             if (exif.getRotation() == 0 && rotationDegrees != 0) {
                 // When the HAL does not handle rotation, exif rotation is 0. In which case we
@@ -41,6 +41,7 @@ import androidx.camera.core.ImageProxy;
 import androidx.camera.core.impl.utils.executor.CameraXExecutors;
 import androidx.camera.core.internal.compat.quirk.DeviceQuirks;
 import androidx.camera.core.internal.compat.quirk.LowMemoryQuirk;
+import androidx.camera.core.internal.utils.ByteArrayPool;
 import androidx.camera.core.processing.Edge;
 import androidx.camera.core.processing.InternalImageProcessor;
 import androidx.camera.core.processing.Node;
@@ -60,16 +61,25 @@ import java.util.concurrent.Executor;
 @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
 public class ProcessingNode implements Node<ProcessingNode.In, Void> {
 
+    /**
+     * The number of NV21 buffers kept, enough for two images processed at once.
+     */
+    private static final int NV21_POOL_SIZE = 2;
+
     @NonNull
     final Executor mBlockingExecutor;
     @Nullable
     final InternalImageProcessor mImageProcessor;
+    // Reuses the NV21 buffers of YUV images across captures, instead of allocating several MB
+    // for each of them.
+    private final ByteArrayPool mNv21Pool = new ByteArrayPool(NV21_POOL_SIZE);
 
     private ProcessingNode.In mInputEdge;
     private Operation<InputPacket, Packet<ImageProxy>> mInput2Packet;
     private Operation<Image2JpegBytes.In, Packet<byte[]>> mImage2JpegBytes;
     private Operation<Bitmap2JpegBytes.In, Packet<byte[]>> mBitmap2JpegBytes;
     private Operation<JpegBytes2Disk.In, ImageCapture.OutputFileResults> mJpegBytes2Disk;
+    private Operation<YuvImage2Disk.In, ImageCapture.OutputFileResults> mYuvImage2Disk;
     private Operation<Packet<byte[]>, Packet<Bitmap>> mJpegBytes2CroppedBitmap;
     private Operation<Packet<ImageProxy>, ImageProxy> mJpegImage2Result;
     private Operation<Packet<byte[]>, Packet<ImageProxy>> mJpegBytes2Image;
@@ -115,11 +125,14 @@ public class ProcessingNode implements Node<ProcessingNode.In, Void> {
                 });
 
         mInput2Packet = new ProcessingInput2Packet();
-        mImage2JpegBytes = new Image2JpegBytes();
+        mImage2JpegBytes = new Image2JpegBytes(mNv21Pool);
         mJpegBytes2CroppedBitmap = new JpegBytes2CroppedBitmap();
         mBitmap2JpegBytes = new Bitmap2JpegBytes();
         mJpegBytes2Disk = new JpegBytes2Disk();
         mJpegImage2Result = new JpegImage2Result();
+        if (inputEdge.getInputFormat() == YUV_420_888) {
+            mYuvImage2Disk = new YuvImage2Disk(mNv21Pool);
+        }
         if (inputEdge.getInputFormat() == YUV_420_888 || mImageProcessor != null) {
             // Convert JPEG bytes to ImageProxy for:
             // - YUV input: YUV -> JPEG -> ImageProxy
@@ -143,12 +156,15 @@ public class ProcessingNode implements Node<ProcessingNode.In, Void> {
     @WorkerThread
     void processInputPacket(@NonNull InputPacket inputPacket) {
         ProcessingRequest request = inputPacket.getProcessingRequest();
+        request.markEvent(CaptureTimeline.EVENT_PROCESSING_STARTED);
         try {
             if (inputPacket.getProcessingRequest().isInMemoryCapture()) {
                 ImageProxy result = processInMemoryCapture(inputPacket);
+                request.markEvent(CaptureTimeline.EVENT_PROCESSED);
                 mainThreadExecutor().execute(() -> request.onFinalResult(result));
             } else {
                 ImageCapture.OutputFileResults result = processOnDiskCapture(inputPacket);
+                request.markEvent(CaptureTimeline.EVENT_PROCESSED);
                 mainThreadExecutor().execute(() -> request.onFinalResult(result));
             }
         } catch (ImageCaptureException e) {
@@ -171,11 +187,17 @@ public class ProcessingNode implements Node<ProcessingNode.In, Void> {
                         mInputEdge.getOutputFormat()));
         ProcessingRequest request = inputPacket.getProcessingRequest();
         Packet<ImageProxy> originalImage = mInput2Packet.apply(inputPacket);
+        if (originalImage.getFormat() == YUV_420_888 && mBitmapEffect == null) {
+            // Encodes straight to disk. The image is cropped by the encoder.
+            return mYuvImage2Disk.apply(YuvImage2Disk.In.of(originalImage,
+                    request.getJpegQuality(), requireNonNull(request.getOutputFileOptions())));
+        }
         Packet<byte[]> jpegBytes = mImage2JpegBytes.apply(
                 Image2JpegBytes.In.of(originalImage, request.getJpegQuality()));
         if (jpegBytes.hasCropping() || mBitmapEffect != null) {
             jpegBytes = cropAndMaybeApplyEffect(jpegBytes, request.getJpegQuality());
         }
+        request.markEvent(CaptureTimeline.EVENT_ENCODED);
         return mJpegBytes2Disk.apply(
                 JpegBytes2Disk.In.of(jpegBytes, requireNonNull(request.getOutputFileOptions())));
     }
@@ -58,6 +58,9 @@ class ProcessingRequest {
     @NonNull
     private final List<Integer> mStageIds;
 
+    @NonNull
+    private final CaptureTimeline mTimeline;
+
     @NonNull final ListenableFuture<Void> mCaptureFuture;
 
     ProcessingRequest(
@@ -69,6 +72,20 @@ class ProcessingRequest {
             @NonNull Matrix sensorToBufferTransform,
             @NonNull TakePictureCallback callback,
             @NonNull ListenableFuture<Void> captureFuture) {
+        this(captureBundle, outputFileOptions, cropRect, rotationDegrees, jpegQuality,
+                sensorToBufferTransform, callback, captureFuture, new CaptureTimeline());
+    }
+
+    ProcessingRequest(
+            @NonNull CaptureBundle captureBundle,
+            @Nullable ImageCapture.OutputFileOptions outputFileOptions,
+            @NonNull Rect cropRect,
+            int rotationDegrees,
+            int jpegQuality,
+            @NonNull Matrix sensorToBufferTransform,
+            @NonNull TakePictureCallback callback,
+            @NonNull ListenableFuture<Void> captureFuture,
+            @NonNull CaptureTimeline timeline) {
         mOutputFileOptions = outputFileOptions;
         mJpegQuality = jpegQuality;
         mRotationDegrees = rotationDegrees;
@@ -81,6 +98,7 @@ class ProcessingRequest {
             mStageIds.add(captureStage.getId());
         }
         mCaptureFuture = captureFuture;
+        mTimeline = timeline;
     }
 
     @NonNull
@@ -120,11 +138,23 @@ class ProcessingRequest {
         return getOutputFileOptions() == null;
     }
 
+    /**
+     * Marks that the request reached the given event of its {@link CaptureTimeline}.
+     *
+     * <p>No-ops if the request has been aborted, as the timeline is then used by its retry.
+     */
+    void markEvent(@CaptureTimeline.Event int event) {
+        if (!isAborted()) {
+            mTimeline.mark(event);
+        }
+    }
+
     /**
      * @see TakePictureCallback#onImageCaptured()
      */
     @MainThread
     void onImageCaptured() {
+        markEvent(CaptureTimeline.EVENT_CAPTURED);
         mCallback.onImageCaptured();
     }
 
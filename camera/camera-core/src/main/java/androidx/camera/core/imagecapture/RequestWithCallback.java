@@ -106,6 +106,7 @@ class RequestWithCallback implements TakePictureCallback {
             return;
         }
         checkOnImageCaptured();
+        mTakePictureRequest.getTimeline().mark(CaptureTimeline.EVENT_DELIVERED);
         markComplete();
         mTakePictureRequest.onResult(outputFileResults);
     }
@@ -119,6 +120,7 @@ class RequestWithCallback implements TakePictureCallback {
             return;
         }
         checkOnImageCaptured();
+        mTakePictureRequest.getTimeline().mark(CaptureTimeline.EVENT_DELIVERED);
         markComplete();
         mTakePictureRequest.onResult(imageProxy);
     }
@@ -221,6 +223,14 @@ class RequestWithCallback implements TakePictureCallback {
         return mCompleteFuture;
     }
 
+    /**
+     * Gets the {@link TakePictureRequest} wrapped by this class.
+     */
+    @NonNull
+    TakePictureRequest getTakePictureRequest() {
+        return mTakePictureRequest;
+    }
+
     private void checkOnImageCaptured() {
         checkState(mCaptureFuture.isDone(),
                 "onImageCaptured() must be called before onFinalResult()");
@@ -73,6 +73,8 @@ public class TakePictureManager implements OnImageCloseListener, TakePictureRequ
     final Deque<TakePictureRequest> mNewRequests = new ArrayDeque<>();
     final ImageCaptureControl mImageCaptureControl;
     ImagePipeline mImagePipeline;
+    @NonNull
+    private final CaptureLatencyTracker mLatencyTracker;
 
     // The current request being processed by the camera. Only one request can be processed by
     // the camera at the same time. Null if the camera is idle.
@@ -89,8 +91,19 @@ public class TakePictureManager implements OnImageCloseListener, TakePictureRequ
      */
     @MainThread
     public TakePictureManager(@NonNull ImageCaptureControl imageCaptureControl) {
+        this(imageCaptureControl, new CaptureLatencyTracker());
+    }
+
+    /**
+     * @param imageCaptureControl for controlling {@link ImageCapture}
+     * @param latencyTracker      aggregates the stage latencies of the completed requests.
+     */
+    @MainThread
+    public TakePictureManager(@NonNull ImageCaptureControl imageCaptureControl,
+            @NonNull CaptureLatencyTracker latencyTracker) {
         checkMainThread();
         mImageCaptureControl = imageCaptureControl;
+        mLatencyTracker = latencyTracker;
         mIncompleteRequests = new ArrayList<>();
     }
 
@@ -113,6 +126,7 @@ public class TakePictureManager implements OnImageCloseListener, TakePictureRequ
     @MainThread
     public void offerRequest(@NonNull TakePictureRequest takePictureRequest) {
         checkMainThread();
+        takePictureRequest.getTimeline().mark(CaptureTimeline.EVENT_OFFERED);
         mNewRequests.offer(takePictureRequest);
         issueNextRequest();
     }
@@ -163,6 +177,7 @@ public class TakePictureManager implements OnImageCloseListener, TakePictureRequ
 
         // Clear pending request first so aborting in-flight request won't trigger another capture.
         for (TakePictureRequest request : mNewRequests) {
+            request.getTimeline().finish();
             request.onError(exception);
         }
         mNewRequests.clear();
@@ -211,6 +226,7 @@ public class TakePictureManager implements OnImageCloseListener, TakePictureRequ
         CameraRequest cameraRequest = requireNonNull(requests.first);
         ProcessingRequest processingRequest = requireNonNull(requests.second);
         mImagePipeline.submitProcessingRequest(processingRequest);
+        request.getTimeline().mark(CaptureTimeline.EVENT_SUBMITTED);
         ListenableFuture<Void> captureRequestFuture = submitCameraRequest(cameraRequest);
         requestWithCallback.setCaptureRequestFuture(captureRequestFuture);
     }
@@ -232,6 +248,7 @@ public class TakePictureManager implements OnImageCloseListener, TakePictureRequ
         mIncompleteRequests.add(requestWithCallback);
         requestWithCallback.getCompleteFuture().addListener(() -> {
             mIncompleteRequests.remove(requestWithCallback);
+            mLatencyTracker.record(requestWithCallback.getTakePictureRequest().getTimeline());
         }, directExecutor());
     }
 
@@ -282,6 +299,14 @@ public class TakePictureManager implements OnImageCloseListener, TakePictureRequ
         return mCapturingRequest != null;
     }
 
+    /**
+     * Gets the {@link CaptureLatencyTracker} the completed requests are recorded to.
+     */
+    @NonNull
+    public CaptureLatencyTracker getLatencyTracker() {
+        return mLatencyTracker;
+    }
+
     @VisibleForTesting
     List<RequestWithCallback> getIncompleteRequests() {
         return mIncompleteRequests;
@@ -62,6 +62,12 @@ public abstract class TakePictureRequest {
      */
     private int mRemainingRetires = new CaptureFailedRetryEnabler().getRetryCount();
 
+    /**
+     * When the request crossed each node of the pipeline. A retried request keeps its timeline,
+     * so the queueing time includes the failed attempts.
+     */
+    private final CaptureTimeline mTimeline = new CaptureTimeline();
+
     /**
      * Gets the callback {@link Executor} provided by the app.
      */
@@ -149,6 +155,14 @@ public abstract class TakePictureRequest {
         }
     }
 
+    /**
+     * Gets the {@link CaptureTimeline} of the request.
+     */
+    @NonNull
+    CaptureTimeline getTimeline() {
+        return mTimeline;
+    }
+
     /**
      * Increments retry counter.
      */
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.imagecapture;
+
+import static android.graphics.ImageFormat.YUV_420_888;
+
+import static androidx.camera.core.ImageCapture.ERROR_FILE_IO;
+import static androidx.core.util.Preconditions.checkArgument;
+
+import android.net.Uri;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageCaptureException;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Logger;
+import androidx.camera.core.internal.utils.ByteArrayPool;
+import androidx.camera.core.internal.utils.ImageUtil;
+import androidx.camera.core.processing.Operation;
+import androidx.camera.core.processing.Packet;
+
+import com.google.auto.value.AutoValue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes a YUV {@link ImageProxy} to JPEG and saves it to disk.
+ *
+ * <p>This is the same as {@link Image2JpegBytes} followed by {@link JpegBytes2Disk}, except that
+ * the encoder writes straight to the temp file, so the JPEG is never copied in memory, and that
+ * the NV21 buffer the image is converted to is reused across captures.
+ */
+@RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+class YuvImage2Disk implements Operation<YuvImage2Disk.In, ImageCapture.OutputFileResults> {
+
+    private static final String TAG = "YuvImage2Disk";
+
+    private final ByteArrayPool mNv21Pool;
+
+    /**
+     * @param nv21Pool the pool of the buffers the images are converted to NV21 in.
+     */
+    YuvImage2Disk(@NonNull ByteArrayPool nv21Pool) {
+        mNv21Pool = nv21Pool;
+    }
+
+    @NonNull
+    @Override
+    public ImageCapture.OutputFileResults apply(@NonNull In in) throws ImageCaptureException {
+        Packet<ImageProxy> packet = in.getPacket();
+        ImageCapture.OutputFileOptions options = in.getOutputFileOptions();
+        long startNanos = System.nanoTime();
+        File tempFile;
+        try {
+            checkArgument(packet.getFormat() == YUV_420_888,
+                    "Unexpected format: " + packet.getFormat());
+            tempFile = JpegBytes2Disk.createTempFile(options);
+            writeJpegToFile(tempFile, packet, in.getJpegQuality());
+        } finally {
+            packet.getData().close();
+        }
+        long encodedNanos = System.nanoTime();
+        // The Exif written by the encoder is the original one.
+        JpegBytes2Disk.updateFileExif(tempFile, null, options, packet.getRotationDegrees());
+        Uri uri = JpegBytes2Disk.moveFileToTarget(tempFile, options);
+        long savedNanos = System.nanoTime();
+        Logger.d(TAG, "Encoded " + packet.getCropRect().width() + "x"
+                + packet.getCropRect().height() + " image to JPEG in "
+                + TimeUnit.NANOSECONDS.toMillis(encodedNanos - startNanos) + " ms, saved in "
+                + TimeUnit.NANOSECONDS.toMillis(savedNanos - encodedNanos) + " ms");
+        return new ImageCapture.OutputFileResults(uri);
+    }
+
+    /**
+     * Encodes the image to the given {@link File}, deleting it if that fails.
+     */
+    private void writeJpegToFile(@NonNull File tempFile, @NonNull Packet<ImageProxy> packet,
+            int jpegQuality) throws ImageCaptureException {
+        ImageProxy image = packet.getData();
+        byte[] nv21 = mNv21Pool.acquire(ImageUtil.getNv21Size(image));
+        boolean success = false;
+        try (OutputStream output = new FileOutputStream(tempFile)) {
+            ImageUtil.yuvImageToJpeg(
+                    image,
+                    packet.getCropRect(),
+                    jpegQuality,
+                    packet.getRotationDegrees(),
+                    nv21,
+                    output);
+            success = true;
+        } catch (ImageUtil.CodecFailedException e) {
+            throw new ImageCaptureException(ERROR_FILE_IO, "Failed to encode the image to JPEG.",
+                    e);
+        } catch (IOException e) {
+            throw new ImageCaptureException(ERROR_FILE_IO, "Failed to write to temp file", e);
+        } finally {
+            mNv21Pool.release(nv21);
+            if (!success) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Input packet.
+     */
+    @AutoValue
+    abstract static class In {
+
+        @NonNull
+        abstract Packet<ImageProxy> getPacket();
+
+        abstract int getJpegQuality();
+
+        @NonNull
+        abstract ImageCapture.OutputFileOptions getOutputFileOptions();
+
+        @NonNull
+        static In of(@NonNull Packet<ImageProxy> imagePacket, int jpegQuality,
+                @NonNull ImageCapture.OutputFileOptions outputFileOptions) {
+            return new AutoValue_YuvImage2Disk_In(imagePacket, jpegQuality, outputFileOptions);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.internal.utils;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * A pool of byte arrays, so that the large buffers needed for every captured image are reused
+ * instead of being allocated, and garbage collected, for each of them.
+ *
+ * <p>At most {@code maxSize} arrays are kept; the ones released past that are left to the garbage
+ * collector.
+ */
+public final class ByteArrayPool {
+
+    private final int mMaxSize;
+    private final Object mLock = new Object();
+
+    @GuardedBy("mLock")
+    private final ArrayDeque<byte[]> mArrays;
+
+    public ByteArrayPool(int maxSize) {
+        mMaxSize = maxSize;
+        mArrays = new ArrayDeque<>(maxSize);
+    }
+
+    /**
+     * Returns an array with at least the given length, which must be
+     * {@link #release(byte[]) released} once done with.
+     *
+     * <p>The content of the array is undefined.
+     */
+    @NonNull
+    public byte[] acquire(int length) {
+        synchronized (mLock) {
+            Iterator<byte[]> iterator = mArrays.iterator();
+            while (iterator.hasNext()) {
+                byte[] array = iterator.next();
+                if (array.length >= length) {
+                    iterator.remove();
+                    return array;
+                }
+            }
+            // Arrays which are too small, e.g. after the resolution changed, are dropped so that
+            // the pool ends up with arrays of the new size.
+            mArrays.pollFirst();
+        }
+        return new byte[length];
+    }
+
+    /**
+     * Returns an array acquired from {@link #acquire(int)} to the pool.
+     */
+    public void release(@NonNull byte[] array) {
+        synchronized (mLock) {
+            if (mArrays.size() < mMaxSize) {
+                mArrays.addLast(array);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of arrays available in the pool.
+     */
+    public int size() {
+        synchronized (mLock) {
+            return mArrays.size();
+        }
+    }
+}
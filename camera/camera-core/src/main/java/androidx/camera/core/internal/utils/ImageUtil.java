@@ -206,18 +206,37 @@ public final class ImageUtil {
             @IntRange(from = 1, to = 100)
             int jpegQuality,
             int rotationDegrees) throws CodecFailedException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        yuvImageToJpeg(image, cropRect, jpegQuality, rotationDegrees, null,
+                byteArrayOutputStream);
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Converts YUV_420_888 {@link ImageProxy} to JPEG and writes it to the given
+     * {@link OutputStream}, as {@link #yuvImageToJpegByteArray} does.
+     *
+     * @param nv21Buffer the buffer to convert the image to NV21 in, if it has at least
+     *                   {@link #getNv21Size} bytes. Otherwise a new one is allocated.
+     */
+    public static void yuvImageToJpeg(@NonNull ImageProxy image,
+            @Nullable Rect cropRect,
+            @IntRange(from = 1, to = 100)
+            int jpegQuality,
+            int rotationDegrees,
+            @Nullable byte[] nv21Buffer,
+            @NonNull OutputStream outputStream) throws CodecFailedException {
         if (image.getFormat() != ImageFormat.YUV_420_888) {
             throw new IllegalArgumentException(
                     "Incorrect image format of the input image proxy: " + image.getFormat());
         }
 
-        byte[] yuvBytes = yuv_420_888toNv21(image);
+        byte[] yuvBytes = yuv_420_888toNv21(image, nv21Buffer);
         YuvImage yuv = new YuvImage(yuvBytes, ImageFormat.NV21, image.getWidth(), image.getHeight(),
                 null);
 
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         OutputStream out = new ExifOutputStream(
-                byteArrayOutputStream, ExifData.create(image, rotationDegrees));
+                outputStream, ExifData.create(image, rotationDegrees));
         if (cropRect == null) {
             cropRect = new Rect(0, 0, image.getWidth(), image.getHeight());
         }
@@ -227,12 +246,29 @@ public final class ImageUtil {
             throw new CodecFailedException("YuvImage failed to encode jpeg.",
                     CodecFailedException.FailureType.ENCODE_FAILED);
         }
-        return byteArrayOutputStream.toByteArray();
     }
 
     /** {@link android.media.Image} to NV21 byte array. */
     @NonNull
     public static byte[] yuv_420_888toNv21(@NonNull ImageProxy image) {
+        return yuv_420_888toNv21(image, null);
+    }
+
+    /**
+     * Returns the number of bytes {@link #yuv_420_888toNv21} converts the image to.
+     */
+    public static int getNv21Size(@NonNull ImageProxy image) {
+        return image.getPlanes()[0].getBuffer().limit()
+                + (image.getWidth() * image.getHeight() / 2);
+    }
+
+    /**
+     * {@link android.media.Image} to NV21 byte array, reusing the given buffer if it has at least
+     * {@link #getNv21Size} bytes.
+     */
+    @NonNull
+    public static byte[] yuv_420_888toNv21(@NonNull ImageProxy image,
+            @Nullable byte[] nv21Buffer) {
         ImageProxy.PlaneProxy yPlane = image.getPlanes()[0];
         ImageProxy.PlaneProxy uPlane = image.getPlanes()[1];
         ImageProxy.PlaneProxy vPlane = image.getPlanes()[2];
@@ -247,8 +283,9 @@ public final class ImageUtil {
         int ySize = yBuffer.remaining();
 
         int position = 0;
-        // TODO(b/115743986): Pull these bytes from a pool instead of allocating for every image.
-        byte[] nv21 = new byte[ySize + (image.getWidth() * image.getHeight() / 2)];
+        int nv21Size = ySize + (image.getWidth() * image.getHeight() / 2);
+        byte[] nv21 = nv21Buffer != null && nv21Buffer.length >= nv21Size
+                ? nv21Buffer : new byte[nv21Size];
 
         // Add the full y buffer to the array. If rowStride > 1, some padding may be skipped.
         for (int row = 0; row < image.getHeight(); row++) {
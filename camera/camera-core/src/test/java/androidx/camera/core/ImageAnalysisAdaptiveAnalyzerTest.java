@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import static android.os.Looper.getMainLooper;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
+import androidx.camera.core.impl.ImageReaderProxy;
+import androidx.camera.core.impl.MutableTagBundle;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link ImageAnalysisAdaptiveAnalyzer}
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP, instrumentedPackages = { "androidx.camera.core" })
+@OptIn(markerClass = ExperimentalUseCaseApi.class)
+public class ImageAnalysisAdaptiveAnalyzerTest {
+    private static final long FRAME_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final List<ImageProxy> mAnalyzedImages = new ArrayList<>();
+    private ImageAnalysisAdaptiveAnalyzer mAdaptiveAnalyzer;
+    private ImageReaderProxy mImageReaderProxy;
+    private long mTimestampNanos;
+
+    @Before
+    public void setup() {
+        mImageReaderProxy = mock(ImageReaderProxy.class);
+        mAdaptiveAnalyzer = new ImageAnalysisAdaptiveAnalyzer(1);
+        mAdaptiveAnalyzer.setAnalyzer(CameraXExecutors.mainThreadExecutor(),
+                mAnalyzedImages::add);
+        mAdaptiveAnalyzer.attach();
+    }
+
+    @Test
+    public void imageClosedAfterAnalyzerDetached() {
+        // Arrange.
+        mAdaptiveAnalyzer.detach();
+        // Act.
+        ImageProxy imageProxy = sendImage();
+        // Assert.
+        verify(imageProxy, times(1)).close();
+        assertThat(mAnalyzedImages).isEmpty();
+    }
+
+    @Test
+    public void imageDroppedWhenMaxImagesInFlight() {
+        // Act.
+        ImageProxy analyzedImage = sendImage();
+        ImageProxy droppedImage = sendImage();
+        // Assert.
+        assertThat(mAnalyzedImages).hasSize(1);
+        verify(analyzedImage, never()).close();
+        verify(droppedImage, times(1)).close();
+        ImageAnalysis.AnalysisStatistics statistics = mAdaptiveAnalyzer.getStatistics();
+        assertThat(statistics.getProcessedImageCount()).isEqualTo(0);
+        assertThat(statistics.getDroppedImageCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void closeImageTwice_countedOnce() {
+        // Arrange.
+        ImageProxy imageProxy = sendImage();
+        // Act.
+        mAnalyzedImages.get(0).close();
+        mAnalyzedImages.get(0).close();
+        // Assert.
+        verify(imageProxy, times(1)).close();
+        assertThat(mAdaptiveAnalyzer.getStatistics().getProcessedImageCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void setAnalyzerNull_incomingImageClosedAndCountedAsDropped() {
+        // Arrange.
+        mAdaptiveAnalyzer.setAnalyzer(null, null);
+        // Act.
+        ImageProxy imageProxy = sendImage();
+        // Assert.
+        verify(imageProxy).close();
+        assertThat(mAdaptiveAnalyzer.getStatistics().getDroppedImageCount()).isEqualTo(1);
+        // Assert: the dropped image doesn't count as in flight.
+        mAdaptiveAnalyzer.setAnalyzer(CameraXExecutors.mainThreadExecutor(),
+                mAnalyzedImages::add);
+        sendImage();
+        assertThat(mAnalyzedImages).hasSize(1);
+    }
+
+    @Test
+    public void slowAnalyzer_strideIncreases() {
+        // Arrange: the analyzer takes two frame intervals.
+        sendImage();
+        sendImage();
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(100));
+        // Act.
+        mAnalyzedImages.get(0).close();
+        // Assert: every other image is analyzed.
+        assertThat(mAdaptiveAnalyzer.getStatistics().getImageStride()).isEqualTo(2);
+        assertThat(mAdaptiveAnalyzer.getStatistics().getAverageLatencyMillis()).isEqualTo(100);
+        sendImage();
+        mAnalyzedImages.get(1).close();
+        ImageProxy skippedImage = sendImage();
+        sendImage();
+        verify(skippedImage).close();
+        assertThat(mAnalyzedImages).hasSize(3);
+    }
+
+    @Test
+    public void fastAnalyzer_analyzesEveryImage() {
+        for (int i = 0; i < 5; i++) {
+            sendImage();
+            mAnalyzedImages.get(i).close();
+        }
+        assertThat(mAnalyzedImages).hasSize(5);
+        assertThat(mAdaptiveAnalyzer.getStatistics().getImageStride()).isEqualTo(1);
+        assertThat(mAdaptiveAnalyzer.getStatistics().getDroppedImageCount()).isEqualTo(0);
+    }
+
+    /**
+     * Sends an image one frame interval after the previous one, and returns it.
+     */
+    @NonNull
+    private ImageProxy sendImage() {
+        mTimestampNanos += FRAME_INTERVAL_NANOS;
+        ImageInfo imageInfo = mock(ImageInfo.class);
+        MutableTagBundle tagBundle = MutableTagBundle.create();
+        when(imageInfo.getTagBundle()).thenReturn(tagBundle);
+        when(imageInfo.getTimestamp()).thenReturn(mTimestampNanos);
+        ImageProxy imageProxy = mock(ImageProxy.class);
+        when(imageProxy.getImageInfo()).thenReturn(imageInfo);
+        when(mImageReaderProxy.acquireNextImage()).thenReturn(imageProxy);
+        mAdaptiveAnalyzer.onImageAvailable(mImageReaderProxy);
+        shadowOf(getMainLooper()).idle();
+        return imageProxy;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.imagecapture
+
+import android.os.Build
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.MAX_SAMPLES
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.STAGE_CAPTURE
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.STAGE_DELIVERY
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.STAGE_ENCODE
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.STAGE_PROCESSING
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.STAGE_PROCESSING_QUEUE
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.STAGE_QUEUE
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.STAGE_SAVE
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.STAGE_TOTAL
+import androidx.camera.core.imagecapture.CaptureLatencyTracker.getPercentile
+import androidx.camera.core.imagecapture.CaptureTimeline.EVENT_CAPTURED
+import androidx.camera.core.imagecapture.CaptureTimeline.EVENT_DELIVERED
+import androidx.camera.core.imagecapture.CaptureTimeline.EVENT_ENCODED
+import androidx.camera.core.imagecapture.CaptureTimeline.EVENT_OFFERED
+import androidx.camera.core.imagecapture.CaptureTimeline.EVENT_PROCESSED
+import androidx.camera.core.imagecapture.CaptureTimeline.EVENT_PROCESSING_STARTED
+import androidx.camera.core.imagecapture.CaptureTimeline.EVENT_SUBMITTED
+import com.google.common.truth.Truth.assertThat
+import java.util.concurrent.TimeUnit.MILLISECONDS
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.internal.DoNotInstrument
+
+/**
+ * Unit tests for [CaptureLatencyTracker].
+ */
+@RunWith(RobolectricTestRunner::class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+class CaptureLatencyTrackerTest {
+
+    private val tracker = CaptureLatencyTracker()
+
+    @Test
+    fun recordDeliveredRequest_stageLatenciesAdded() {
+        // Act.
+        tracker.record(createTimeline(captureMillis = 100))
+
+        // Assert.
+        val samples = tracker.sortedSamplesMillis
+        assertThat(samples[STAGE_QUEUE].toList()).containsExactly(10L)
+        assertThat(samples[STAGE_CAPTURE].toList()).containsExactly(100L)
+        assertThat(samples[STAGE_PROCESSING_QUEUE].toList()).containsExactly(5L)
+        assertThat(samples[STAGE_PROCESSING].toList()).containsExactly(50L)
+        assertThat(samples[STAGE_DELIVERY].toList()).containsExactly(2L)
+        assertThat(samples[STAGE_TOTAL].toList()).containsExactly(167L)
+        // Assert: the JPEG bytes were not saved to disk.
+        assertThat(samples[STAGE_ENCODE]).isEmpty()
+        assertThat(samples[STAGE_SAVE]).isEmpty()
+    }
+
+    @Test
+    fun recordOnDiskRequest_encodeAndSaveAdded() {
+        // Act.
+        tracker.record(createTimeline(captureMillis = 100, encodeMillis = 30))
+
+        // Assert.
+        val samples = tracker.sortedSamplesMillis
+        assertThat(samples[STAGE_ENCODE].toList()).containsExactly(30L)
+        assertThat(samples[STAGE_SAVE].toList()).containsExactly(20L)
+    }
+
+    @Test
+    fun recordFailedRequest_ignored() {
+        // Arrange: the request never reaches the app.
+        val timeline = CaptureTimeline()
+        timeline.mark(EVENT_OFFERED, 0)
+        timeline.mark(EVENT_SUBMITTED, MILLISECONDS.toNanos(10))
+
+        // Act.
+        tracker.record(timeline)
+
+        // Assert.
+        tracker.sortedSamplesMillis.forEach { assertThat(it).isEmpty() }
+    }
+
+    @Test
+    fun retriedRequest_laterEventsCleared() {
+        // Arrange: the request is delivered, then submitted again.
+        val timeline = createTimeline(captureMillis = 100)
+        timeline.mark(EVENT_SUBMITTED, MILLISECONDS.toNanos(500))
+
+        // Act.
+        tracker.record(timeline)
+
+        // Assert.
+        tracker.sortedSamplesMillis.forEach { assertThat(it).isEmpty() }
+    }
+
+    @Test
+    fun recordMoreThanMaxSamples_onlyLatestKept() {
+        // Act.
+        for (i in 1..MAX_SAMPLES + 10) {
+            tracker.record(createTimeline(captureMillis = i.toLong()))
+        }
+
+        // Assert.
+        val captureSamples = tracker.sortedSamplesMillis[STAGE_CAPTURE]
+        assertThat(captureSamples).hasLength(MAX_SAMPLES)
+        assertThat(captureSamples.first()).isEqualTo(11L)
+        assertThat(captureSamples.last()).isEqualTo(MAX_SAMPLES + 10L)
+    }
+
+    @Test
+    fun getPercentile_nearestRank() {
+        val samples = longArrayOf(10, 20, 30, 40, 50, 60, 70, 80, 90, 100)
+        assertThat(getPercentile(samples, 0)).isEqualTo(10L)
+        assertThat(getPercentile(samples, 50)).isEqualTo(50L)
+        assertThat(getPercentile(samples, 90)).isEqualTo(90L)
+        assertThat(getPercentile(samples, 95)).isEqualTo(100L)
+        assertThat(getPercentile(samples, 100)).isEqualTo(100L)
+    }
+
+    @Test
+    fun getPercentileWithoutSamples_returnsMinusOne() {
+        assertThat(getPercentile(longArrayOf(), 50)).isEqualTo(-1L)
+    }
+
+    /**
+     * Creates a delivered timeline: queue 10ms, waiting for processing 5ms, processing 50ms and
+     * delivery 2ms, with the given capture time. The JPEG bytes are encoded after [encodeMillis]
+     * of processing if it's set.
+     */
+    private fun createTimeline(captureMillis: Long, encodeMillis: Long? = null): CaptureTimeline {
+        val timeline = CaptureTimeline()
+        var millis = 0L
+        timeline.mark(EVENT_OFFERED, MILLISECONDS.toNanos(millis))
+        millis += 10
+        timeline.mark(EVENT_SUBMITTED, MILLISECONDS.toNanos(millis))
+        millis += captureMillis
+        timeline.mark(EVENT_CAPTURED, MILLISECONDS.toNanos(millis))
+        millis += 5
+        timeline.mark(EVENT_PROCESSING_STARTED, MILLISECONDS.toNanos(millis))
+        if (encodeMillis != null) {
+            timeline.mark(EVENT_ENCODED, MILLISECONDS.toNanos(millis + encodeMillis))
+        }
+        millis += 50
+        timeline.mark(EVENT_PROCESSED, MILLISECONDS.toNanos(millis))
+        millis += 2
+        timeline.mark(EVENT_DELIVERED, MILLISECONDS.toNanos(millis))
+        return timeline
+    }
+}
@@ -392,6 +392,39 @@ class TakePictureManagerTest {
         assertThat(request.imageReceived).isEqualTo(image)
     }
 
+    @Test
+    fun requestDelivered_latencyRecorded() {
+        // Arrange.
+        val request = FakeTakePictureRequest(FakeTakePictureRequest.Type.IN_MEMORY)
+        takePictureManager.offerRequest(request)
+
+        // Act.
+        imagePipeline.getProcessingRequest(request).onImageCaptured()
+        imagePipeline.getProcessingRequest(request).onFinalResult(FakeImageProxy(FakeImageInfo()))
+        shadowOf(getMainLooper()).idle()
+
+        // Assert.
+        val samples = takePictureManager.latencyTracker.sortedSamplesMillis
+        assertThat(samples[CaptureLatencyTracker.STAGE_QUEUE]).hasLength(1)
+        assertThat(samples[CaptureLatencyTracker.STAGE_TOTAL]).hasLength(1)
+    }
+
+    @Test
+    fun requestFailed_latencyNotRecorded() {
+        // Arrange.
+        val request = FakeTakePictureRequest(FakeTakePictureRequest.Type.IN_MEMORY)
+        takePictureManager.offerRequest(request)
+
+        // Act.
+        imagePipeline.getProcessingRequest(request).onProcessFailure(exception)
+        shadowOf(getMainLooper()).idle()
+
+        // Assert.
+        takePictureManager.latencyTracker.sortedSamplesMillis.forEach {
+            assertThat(it).isEmpty()
+        }
+    }
+
     @Test
     fun takePictureManager_unableToProcessNextWhenOverMaxImages() {
         // Arrange.
@@ -49,6 +49,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class to serialize and deserialize objects to/from {@link Bundle}s.
@@ -111,6 +112,16 @@ public final class Bundler {
     private static final int IBINDER = 9;
     private static final int PERSON = 10;
 
+    /** Used as the index of the frames which are not items of a collection. */
+    private static final int NO_INDEX = -1;
+
+    // Reflection is only done once per class rather than once per bundled object, since the same
+    // model classes are bundled over and over.
+    private static final Map<Class<?>, ObjectPlan> sObjectPlans = new ConcurrentHashMap<>();
+    private static final Map<String, Class<?>> sClassesByName = new ConcurrentHashMap<>();
+    private static final Map<String, Method> sEnumValueOfMethods = new ConcurrentHashMap<>();
+    private static final Map<String, Method> sAsInterfaceMethods = new ConcurrentHashMap<>();
+
     /**
      * Serializes an object into a {@link Bundle} for sending over IPC.
      *
@@ -127,19 +138,19 @@ public final class Bundler {
         if (Log.isLoggable(TAG_BUNDLER, Log.DEBUG)) {
             Log.d(TAG_BUNDLER, "Bundling " + className);
         }
-        return toBundle(obj, className, Trace.create());
+        return toBundle(obj, className, NO_INDEX, Trace.create());
     }
 
     @SuppressWarnings("unchecked")
-    private static Bundle toBundle(@Nullable Object obj, String display, Trace parentTrace)
-            throws BundlerException {
+    private static Bundle toBundle(@Nullable Object obj, String display, int index,
+            Trace parentTrace) throws BundlerException {
         if (obj != null && parentTrace.find(obj)) {
             throw new CycleDetectedBundlerException(
                     "Found cycle while bundling type " + obj.getClass().getSimpleName(),
                     parentTrace);
         }
 
-        try (Trace trace = Trace.fromParent(obj, display, parentTrace)) {
+        try (Trace trace = parentTrace.push(obj, display, index)) {
             if (obj == null) {
                 throw new TracedBundlerException("Bundling of null object is not supported", trace);
             } else if (obj instanceof IconCompat) {
@@ -157,7 +168,7 @@ public final class Bundler {
             } else if (obj instanceof Set) {
                 return serializeSet((Set<Object>) obj, trace);
             } else if (obj.getClass().isEnum()) {
-                return serializeEnum(obj, trace);
+                return serializeEnum(obj);
             } else if (obj instanceof Class) {
                 return serializeClass((Class<?>) obj);
             } else if (obj.getClass().isArray()) {
@@ -203,7 +214,7 @@ public final class Bundler {
 
         int classType = bundle.getInt(TAG_CLASS_TYPE);
 
-        try (Trace trace = Trace.fromParent(bundle, Trace.bundleToString(bundle), parentTrace)) {
+        try (Trace trace = parentTrace.push(bundle, Trace.bundleToString(bundle), NO_INDEX)) {
             switch (classType) {
                 case PRIMITIVE:
                     return deserializePrimitive(bundle, trace);
@@ -297,10 +308,9 @@ public final class Bundler {
         int i = 0;
         for (Map.Entry<?, ?> mapEntry : map.entrySet()) {
             Bundle keyValue = new Bundle(2);
-            keyValue.putBundle(TAG_1, toBundle(mapEntry.getKey(), "<key " + i + ">", trace));
+            keyValue.putBundle(TAG_1, toBundle(mapEntry.getKey(), "<key ", i, trace));
             if (mapEntry.getValue() != null) {
-                keyValue.putBundle(TAG_2,
-                        toBundle(mapEntry.getValue(), "<value " + i + ">", trace));
+                keyValue.putBundle(TAG_2, toBundle(mapEntry.getValue(), "<value ", i, trace));
             }
             i++;
             list.add(keyValue);
@@ -330,7 +340,7 @@ public final class Bundler {
 
         int i = 0;
         for (Object entry : collection) {
-            list.add(toBundle(entry, "<item " + i + ">", trace));
+            list.add(toBundle(entry, "<item ", i, trace));
             i++;
         }
         bundle.putParcelableArrayList(TAG_VALUE, list);
@@ -338,20 +348,10 @@ public final class Bundler {
         return bundle;
     }
 
-    private static Bundle serializeEnum(Object obj, Trace trace) throws BundlerException {
+    private static Bundle serializeEnum(Object obj) {
         Bundle bundle = new Bundle(3);
         bundle.putInt(TAG_CLASS_TYPE, ENUM);
-
-        Method nameMethod = getClassOrSuperclassMethod(obj.getClass(), "name", trace);
-        String enumName;
-        try {
-            enumName = (String) nameMethod.invoke(obj);
-        } catch (ReflectiveOperationException e) {
-            // Should not happen since it always exists.
-            throw new TracedBundlerException("Enum missing name method", trace, e);
-        }
-
-        bundle.putString(TAG_VALUE, enumName);
+        bundle.putString(TAG_VALUE, ((Enum<?>) obj).name());
         bundle.putString(TAG_CLASS_NAME, obj.getClass().getName());
         return bundle;
     }
@@ -377,22 +377,21 @@ public final class Bundler {
     }
 
     private static Bundle serializeObject(Object obj, Trace trace) throws BundlerException {
-        String className = obj.getClass().getName();
+        ObjectPlan plan;
         try {
-            obj.getClass().getDeclaredConstructor();
+            plan = getObjectPlan(obj.getClass());
         } catch (NoSuchMethodException e) {
             throw new TracedBundlerException(
-                    "Class to deserialize is missing a no args constructor: " + className, trace,
-                    e);
+                    "Class to deserialize is missing a no args constructor: "
+                            + obj.getClass().getName(), trace, e);
         }
-        List<Field> fields = getFields(obj.getClass());
-        Bundle bundle = new Bundle(fields.size() + 2);
+        Bundle bundle = new Bundle(plan.mFields.length + 2);
 
         bundle.putInt(TAG_CLASS_TYPE, OBJECT);
-        bundle.putString(TAG_CLASS_NAME, className);
-        for (Field field : fields) {
-            field.setAccessible(true);
-            String fieldName = getFieldName(field);
+        bundle.putString(TAG_CLASS_NAME, plan.mClassName);
+        for (int i = 0; i < plan.mFields.length; i++) {
+            Field field = plan.mFields[i];
+            String fieldName = plan.mFieldNames[i];
 
             Object value = null;
             try {
@@ -402,7 +401,7 @@ public final class Bundler {
             }
 
             if (value != null) {
-                bundle.putParcelable(fieldName, toBundle(value, field.getName(), trace));
+                bundle.putParcelable(fieldName, toBundle(value, field.getName(), NO_INDEX, trace));
             }
         }
 
@@ -432,8 +431,8 @@ public final class Bundler {
         }
 
         try {
-            Class<?> clazz = Class.forName(interfaceClassName);
-            Method converter = getClassOrSuperclassMethod(clazz, "asInterface", trace);
+            Method converter = getCachedMethod(sAsInterfaceMethods, interfaceClassName,
+                    "asInterface", trace);
 
             // null obj because the asInterface is static.
             Object obj = converter.invoke(null, binder);
@@ -523,9 +522,9 @@ public final class Bundler {
         }
 
         try {
-            Method nameMethod =
-                    getClassOrSuperclassMethod(Class.forName(enumClassName), "valueOf", trace);
-            return nameMethod.invoke(null, enumName);
+            Method valueOfMethod =
+                    getCachedMethod(sEnumValueOfMethods, enumClassName, "valueOf", trace);
+            return valueOfMethod.invoke(null, enumName);
         } catch (IllegalArgumentException e) {
             throw new TracedBundlerException(
                     "Enum value [" + enumName + "] does not exist in enum class [" + enumClassName
@@ -549,7 +548,7 @@ public final class Bundler {
         }
 
         try {
-            return Class.forName(className);
+            return getClassForName(className);
         } catch (ClassNotFoundException e) {
             throw new TracedBundlerException("Class name is unknown: " + className, trace, e);
         }
@@ -579,26 +578,22 @@ public final class Bundler {
         }
 
         try {
-            Class<?> clazz = Class.forName(className);
-            Constructor<?> constructor = clazz.getDeclaredConstructor();
-            constructor.setAccessible(true);
-            Object obj = constructor.newInstance();
+            ObjectPlan plan = getObjectPlan(getClassForName(className));
+            Object obj = plan.mConstructor.newInstance();
 
-            for (Field field : getFields(clazz)) {
-                field.setAccessible(true);
-                String fieldName = getFieldName(field);
+            for (int i = 0; i < plan.mFields.length; i++) {
+                Field field = plan.mFields[i];
 
-                Object value = bundle.get(fieldName);
-                if (value == null) {
+                Object value = bundle.get(plan.mFieldNames[i]);
+                if (value == null && plan.mDejetifiedFieldNames[i] != null) {
                     // If we don't find the field in the bundle, try dejetifying it.
-                    value = bundle.get(
-                            fieldName.replaceAll(ICON_COMPAT_ANDROIDX, ICON_COMPAT_SUPPORT));
+                    value = bundle.get(plan.mDejetifiedFieldNames[i]);
                 }
 
                 if (value instanceof Bundle) {
                     field.set(obj, fromBundle((Bundle) value, trace));
                 } else if (value == null) {
-                    if (Log.isLoggable(TAG_BUNDLER, Log.DEBUG)) {
+                    if (trace.isDebugLoggable()) {
                         Log.d(TAG_BUNDLER, "Value is null for field: " + field);
                     }
                 }
@@ -645,6 +640,41 @@ public final class Bundler {
         return fields;
     }
 
+    /**
+     * Returns the {@link ObjectPlan} of the class, creating it the first time the class is bundled
+     * or unbundled.
+     *
+     * @throws NoSuchMethodException if the class has no default constructor
+     */
+    private static ObjectPlan getObjectPlan(Class<?> clazz) throws NoSuchMethodException {
+        ObjectPlan plan = sObjectPlans.get(clazz);
+        if (plan == null) {
+            plan = new ObjectPlan(clazz);
+            sObjectPlans.put(clazz, plan);
+        }
+        return plan;
+    }
+
+    private static Class<?> getClassForName(String className) throws ClassNotFoundException {
+        Class<?> clazz = sClassesByName.get(className);
+        if (clazz == null) {
+            clazz = Class.forName(className);
+            sClassesByName.put(className, clazz);
+        }
+        return clazz;
+    }
+
+    /** Returns the method of the named class, looking it up the first time the class is used. */
+    private static Method getCachedMethod(Map<String, Method> cache, String className,
+            String methodName, Trace trace) throws ClassNotFoundException, TracedBundlerException {
+        Method method = cache.get(className);
+        if (method == null) {
+            method = getClassOrSuperclassMethod(getClassForName(className), methodName, trace);
+            cache.put(className, method);
+        }
+        return method;
+    }
+
     private static Method getClassOrSuperclassMethod(
             @Nullable Class<?> clazz, String methodName, Trace trace)
             throws TracedBundlerException {
@@ -733,14 +763,52 @@ public final class Bundler {
                 || obj instanceof String;
     }
 
+    /**
+     * The reflective accessors of a class bundled as an object, resolved once per class.
+     */
+    private static final class ObjectPlan {
+        final String mClassName;
+        final Constructor<?> mConstructor;
+        final Field[] mFields;
+        /** The keys of the fields in the bundle. */
+        final String[] mFieldNames;
+        /**
+         * The keys of the fields before jetification, or {@code null} when they are the same as
+         * the ones in {@link #mFieldNames}.
+         */
+        final String[] mDejetifiedFieldNames;
+
+        ObjectPlan(Class<?> clazz) throws NoSuchMethodException {
+            mClassName = clazz.getName();
+            mConstructor = clazz.getDeclaredConstructor();
+            mConstructor.setAccessible(true);
+
+            List<Field> fields = getFields(clazz);
+            mFields = fields.toArray(new Field[0]);
+            mFieldNames = new String[mFields.length];
+            mDejetifiedFieldNames = new String[mFields.length];
+            for (int i = 0; i < mFields.length; i++) {
+                mFields[i].setAccessible(true);
+                mFieldNames[i] = getFieldName(mFields[i]);
+                String dejetifiedFieldName =
+                        mFieldNames[i].replaceAll(ICON_COMPAT_ANDROIDX, ICON_COMPAT_SUPPORT);
+                if (!dejetifiedFieldName.equals(mFieldNames[i])) {
+                    mDejetifiedFieldNames[i] = dejetifiedFieldName;
+                }
+            }
+        }
+    }
+
     /** Represents a named frame in the serialization stack tracked by a {@link Trace} instance. */
     private static class Frame {
         private final Object mObj;
         private final String mDisplay;
+        private final int mIndex;
 
-        Frame(Object obj, String display) {
+        Frame(Object obj, String display, int index) {
             mObj = obj;
             mDisplay = display;
+            mIndex = index;
         }
 
         public Object getObj() {
@@ -752,12 +820,20 @@ public final class Bundler {
             return toFlatString();
         }
 
+        /**
+         * Returns the name of the frame. The names of the collection items are only built when
+         * needed, as most frames are never displayed.
+         */
+        String getDisplay() {
+            return mIndex == NO_INDEX ? mDisplay : mDisplay + mIndex + ">";
+        }
+
         String toFlatString() {
-            return "[" + mDisplay + ", " + getUnobfuscatedClassName(mObj.getClass()) + "]";
+            return "[" + getDisplay() + ", " + getUnobfuscatedClassName(mObj.getClass()) + "]";
         }
 
         String toTraceString() {
-            String s = getUnobfuscatedClassName(mObj.getClass()) + " " + mDisplay;
+            String s = getUnobfuscatedClassName(mObj.getClass()) + " " + getDisplay();
             if (!REDACT_LOG_VALUES && isPrimitiveType(mObj)) {
                 s += ": " + ellipsize(mObj.toString());
             }
@@ -771,8 +847,9 @@ public final class Bundler {
      * <p>Used for detecting cycles, logging, and including a trace of the objects in exceptions
      * thrown during bundling and unbundling operations down the stack.
      *
-     * <p>This type is {@link AutoCloseable} so that it can pop the frame it owns with its {@link
-     * #close()} method once the operation is complete for the object.
+     * <p>A single instance is used for the whole operation. It is {@link AutoCloseable} so that
+     * the frame pushed by {@link #push} is popped with its {@link #close()} method once the
+     * operation is complete for the object.
      */
     private static class Trace implements AutoCloseable {
         private static final int MAX_LOG_INDENT = 12;
@@ -780,14 +857,36 @@ public final class Bundler {
 
         @Nullable
         private String[] mIndents; // memoized blank lines used for indentation
-        private final ArrayDeque<Frame> mFrames;
+        private final ArrayDeque<Frame> mFrames = new ArrayDeque<>();
+
+        // Checked once per operation rather than once per object.
+        private final boolean mIsVerboseLoggable = Log.isLoggable(TAG_BUNDLER, Log.VERBOSE);
+        private final boolean mIsDebugLoggable = Log.isLoggable(TAG_BUNDLER, Log.DEBUG);
 
         static Trace create() {
-            return new Trace(null, "", new ArrayDeque<>());
+            return new Trace();
+        }
+
+        /**
+         * Pushes the frame of an object, unless it is {@code null}.
+         *
+         * @param index the index of the object in its collection, appended to the display name,
+         *              or {@link #NO_INDEX}
+         * @return this trace, to close once the operation is complete for the object
+         */
+        Trace push(@Nullable Object obj, String display, int index) {
+            if (obj != null) {
+                Frame frame = new Frame(obj, display, index);
+                mFrames.addFirst(frame);
+                if (mIsVerboseLoggable) {
+                    Log.v(TAG_BUNDLER, getIndent(mFrames.size()) + frame.toTraceString());
+                }
+            }
+            return this;
         }
 
-        static Trace fromParent(@Nullable Object obj, String display, Trace parent) {
-            return new Trace(obj, display, parent.mFrames);
+        boolean isDebugLoggable() {
+            return mIsDebugLoggable;
         }
 
         @SuppressWarnings("deprecation")
@@ -851,16 +950,7 @@ public final class Bundler {
             return new String(chars);
         }
 
-        @SuppressWarnings("method.invocation.invalid")
-        private Trace(@Nullable Object obj, String display, ArrayDeque<Frame> frames) {
-            mFrames = frames;
-            if (obj != null) { // not the root
-                Frame frame = new Frame(obj, display);
-                frames.addFirst(frame);
-                if (Log.isLoggable(TAG_BUNDLER, Log.VERBOSE)) {
-                    Log.v(TAG_BUNDLER, getIndent(frames.size()) + frame.toTraceString());
-                }
-            }
+        private Trace() {
         }
     }
 
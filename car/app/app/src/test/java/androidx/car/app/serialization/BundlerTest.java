@@ -434,6 +434,26 @@ public class BundlerTest {
         assertThat(Bundler.fromBundle(bundle)).isEqualTo(value);
     }
 
+    @Test
+    public void objectSerialization_repeated_producesSameBundle() throws BundlerException {
+        TestClass value =
+                new TestClass(
+                        1,
+                        "foobar",
+                        true,
+                        94f,
+                        123.98,
+                        CarLocation.create(4.3, 9.6),
+                        Arrays.asList("a", "z"));
+
+        Bundle first = Bundler.toBundle(value);
+        Bundle second = Bundler.toBundle(value);
+
+        assertThat(second.keySet()).isEqualTo(first.keySet());
+        assertThat(Bundler.fromBundle(first)).isEqualTo(value);
+        assertThat(Bundler.fromBundle(second)).isEqualTo(value);
+    }
+
     @Test
     public void objectContainingMultipleValuesSerialization_overloadsParentVariableName()
             throws BundlerException {
@@ -582,6 +602,15 @@ public class BundlerTest {
         assertThrows(BundlerException.class, () -> Bundler.toBundle(array));
     }
 
+    @Test
+    public void arrayInListSerialization_exceptionTracesItemIndex() {
+        List<Object> list = Arrays.asList("foo", new String[5]);
+
+        BundlerException e =
+                assertThrows(TracedBundlerException.class, () -> Bundler.toBundle(list));
+        assertThat(e).hasMessageThat().contains("<item 1>");
+    }
+
     @Test
     public void detectCycle() {
         Click click = new Click();
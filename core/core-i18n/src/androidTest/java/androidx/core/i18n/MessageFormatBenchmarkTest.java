@@ -54,6 +54,27 @@ public class MessageFormatBenchmarkTest {
         }
     }
 
+    @Test @MediumTest
+    public void testTimePluralsFormatTo() throws Exception {
+        final Locale sr = new Locale("sr");
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("name", "Peter");
+        final StringBuilder result = new StringBuilder();
+
+        for (int i = 0; i < REPEAT_COUNT; ++i) {
+            String msg = "{num,plural,offset:1" +
+                "  =1    {only {name}}" +
+                "  =2    {{name} and one other}" +
+                "  one   {{name} and #-one others}" +
+                "  few   {{name} and #-few others}" +
+                "  other {{name} and #... others}" +
+                "}";
+            arguments.put("num", i % 9);
+            result.setLength(0);
+            MessageFormat.formatTo(appContext, sr, msg, arguments, result);
+        }
+    }
+
     @Test @SmallTest
     public void testTimeGenders() throws Exception {
         final String [] genders = { "female", "male", "no_match" };
@@ -153,4 +153,41 @@ public class SimpleMessageFormatTest {
         Assert.assertEquals("11", "11th floor",
                 MessageFormat.format(appContext, msg, ImmutableMap.of("num", 11)));
     }
+
+    @Test @SmallTest
+    public void testFormatTo() {
+        String msg = "{num,plural, one {# file} other {# files}}";
+        StringBuilder result = new StringBuilder("Row: ");
+        Assert.assertSame(result, MessageFormat.formatTo(appContext, Locale.US, msg,
+                ImmutableMap.of("num", 1), result));
+        Assert.assertEquals("Row: 1 file", result.toString());
+        MessageFormat.formatTo(appContext, Locale.US, ", {name}", ImmutableMap.of("name", "Kim"),
+                result);
+        Assert.assertEquals("Row: 1 file, Kim", result.toString());
+    }
+
+    @Test @SmallTest
+    public void testSamePatternInDifferentLocales() {
+        String msg = "{num,plural, one {# one} few {# few} other {# other}}";
+        Map<String, Object> arguments = ImmutableMap.of("num", 21);
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals("en 21", "21 other",
+                    MessageFormat.format(appContext, Locale.ENGLISH, msg, arguments));
+            Assert.assertEquals("sr 21", "21 one",
+                    MessageFormat.format(appContext, new Locale("sr"), msg, arguments));
+        }
+    }
+
+    @Test @SmallTest
+    public void testPluralIntegersAndFractions() {
+        String msg = "{num,plural, one {# file} other {# files}}";
+        Assert.assertEquals("1", "1 file",
+                MessageFormat.format(appContext, Locale.US, msg, ImmutableMap.of("num", 1)));
+        Assert.assertEquals("1.5", "1.5 files",
+                MessageFormat.format(appContext, Locale.US, msg, ImmutableMap.of("num", 1.5)));
+        Assert.assertEquals("1.0", "1 file",
+                MessageFormat.format(appContext, Locale.US, msg, ImmutableMap.of("num", 1.0)));
+        Assert.assertEquals("1000", "1,000 files",
+                MessageFormat.format(appContext, Locale.US, msg, ImmutableMap.of("num", 1000)));
+    }
 }
@@ -16,15 +16,15 @@
 package androidx.core.i18n
 
 import android.content.Context
-import androidx.core.i18n.messageformat_icu.simple.MessageFormat
+import androidx.core.i18n.messageformat_icu.simple.MessageFormat as IcuMessageFormat
 import java.util.Locale
 
 class MessageFormat private constructor() {
     companion object {
         /**
          * Formats a message pattern string with a variable number of name/value pair arguments.
-         * Creates an ICU MessageFormat for the locale and pattern,
-         * and formats with the arguments.
+         * Creates an ICU MessageFormat for the locale and pattern, or reuses the one created
+         * by a previous call, and formats with the arguments.
          *
          * @param context Android context object. Used to retrieve user preferences.
          * @param locale Locale for number formatting and plural selection etc.
@@ -38,9 +38,32 @@ class MessageFormat private constructor() {
             msg: String,
             namedArguments: Map<String, Any>
         ): String {
-            val result: StringBuffer = StringBuffer()
-            return MessageFormat(context, msg, locale)
-                .format(namedArguments, result, null).toString()
+            return formatTo(context, locale, msg, namedArguments, StringBuilder()).toString()
+        }
+
+        /**
+         * Formats a message pattern string with a variable number of name/value pair arguments,
+         * and appends the result to [destination].
+         *
+         * Use this to format many messages, for example the rows of a list, into a reused
+         * [StringBuilder] rather than creating a String for each of them.
+         *
+         * @param context Android context object. Used to retrieve user preferences.
+         * @param locale Locale for number formatting and plural selection etc.
+         * @param msg an ICU-MessageFormat-syntax string
+         * @param namedArguments map of argument name to argument value
+         * @param destination where the formatted message is appended
+         * @return [destination]
+         */
+        @JvmStatic
+        fun <A : Appendable> formatTo(
+            context: Context,
+            locale: Locale,
+            msg: String,
+            namedArguments: Map<String, Any>,
+            destination: A
+        ): A {
+            return IcuMessageFormat.format(context, locale, msg, namedArguments, destination)
         }
 
         /**
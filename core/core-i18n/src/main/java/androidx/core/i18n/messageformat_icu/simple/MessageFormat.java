@@ -44,9 +44,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -969,8 +971,10 @@ public class MessageFormat extends Format {
      * icu_annot::stable ICU 3.0
      */
     public static String format(Context context, String pattern, Object... arguments) {
-        MessageFormat temp = new MessageFormat(context, pattern);
-        return temp.format(arguments);
+        StringBuilder result = new StringBuilder();
+        formatCached(context, Locale.getDefault(), pattern, arguments,
+                new AppendableWrapper(result));
+        return result.toString();
     }
 
     /**
@@ -987,10 +991,115 @@ public class MessageFormat extends Format {
      * icu_annot::stable ICU 3.8
      */
     public static String format(Context context, String pattern, Map<String, Object> arguments) {
-        MessageFormat temp = new MessageFormat(context, pattern);
-        return temp.format(arguments);
+        StringBuilder result = new StringBuilder();
+        formatCached(context, Locale.getDefault(), pattern, arguments,
+                new AppendableWrapper(result));
+        return result.toString();
+    }
+
+    /**
+     * Formats the given arguments with a MessageFormat for the given locale and pattern,
+     * and appends the result to the given Appendable.
+     * <p>
+     * Unlike creating a MessageFormat for each message, the MessageFormat is shared
+     * with the other calls for the same locale and pattern, so that the pattern is only
+     * parsed, and its formatters and plural rules only created, once.
+     * <p>
+     * The pattern must identify arguments by name instead of by number.
+     *
+     * @param dest where text is appended.
+     * @return the passed-in Appendable
+     * @throws IllegalArgumentException if the pattern is invalid
+     * @throws IllegalArgumentException if a value in the
+     *         <code>arguments</code> map is not of the type
+     *         expected by the corresponding argument or custom Format object.
+     * @throws ICUUncheckedIOException if appending to the Appendable fails
+     * @see #format(Map, StringBuffer, FieldPosition)
+     */
+    public static <T extends Appendable> T format(Context context, Locale locale, String pattern,
+            Map<String, Object> arguments, T dest) {
+        formatCached(context, locale, pattern, arguments, new AppendableWrapper(dest));
+        return dest;
+    }
+
+    /**
+     * Formats with the shared MessageFormat of the locale and pattern, creating it if needed.
+     * Patterns with date or time arguments are formatted with a new MessageFormat each time,
+     * since their formatters are created from the user preferences read from the Context.
+     */
+    private static void formatCached(Context context, Locale locale, String pattern,
+            Object arguments, AppendableWrapper dest) {
+        CacheKey key = new CacheKey(locale, pattern);
+        MessageFormat msgFormat;
+        synchronized (formatCache) {
+            msgFormat = formatCache.get(key);
+        }
+        if (msgFormat == null) {
+            msgFormat = new MessageFormat(context, pattern, locale);
+            if (msgFormat.hasDateTimeFormats) {
+                msgFormat.format(arguments, dest, null);
+                return;
+            }
+            // The Context is only used to create the date and time formatters,
+            // don't keep it alive from the cache.
+            msgFormat.context_ = null;
+            synchronized (formatCache) {
+                formatCache.put(key, msgFormat);
+            }
+        }
+        // A MessageFormat is not thread-safe, it creates its stock formatters and plural rules
+        // lazily, and java.text formatters keep state while formatting.
+        synchronized (msgFormat) {
+            msgFormat.format(arguments, dest, null);
+            // The stock date formatter keeps the default time zone it was created with.
+            msgFormat.stockDateFormatter = null;
+        }
+    }
+
+    /**
+     * The key of the shared MessageFormats in {@link #formatCache}.
+     */
+    private static final class CacheKey {
+        private final Locale locale;
+        private final String pattern;
+
+        CacheKey(Locale locale, String pattern) {
+            this.locale = locale;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return locale.equals(other.locale) && pattern.equals(other.pattern);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(locale, pattern);
+        }
     }
 
+    private static final int FORMAT_CACHE_SIZE = 64;
+
+    /**
+     * The MessageFormats shared by the static format methods, with the least recently used
+     * ones evicted. Guarded by itself.
+     */
+    private static final Map<CacheKey, MessageFormat> formatCache =
+            new LinkedHashMap<CacheKey, MessageFormat>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, MessageFormat> eldest) {
+                    return size() > FORMAT_CACHE_SIZE;
+                }
+            };
+
     /**
      * {icu_annot::icu} Returns true if this MessageFormat uses named arguments,
      * and false otherwise.  See class description.
@@ -1504,6 +1613,10 @@ public class MessageFormat extends Format {
      * have been set via setFormat() or similar API.
      */
     private transient Set<Integer> customFormatArgStarts;
+    /**
+     * True if the pattern has date or time arguments, whose formatters depend on the Context.
+     */
+    private transient boolean hasDateTimeFormats;
 
     /**
      * Stock formatters. Those are used when a format is not explicitly mentioned in
@@ -2308,6 +2421,7 @@ public class MessageFormat extends Format {
             cachedFormatters.clear();
         }
         customFormatArgStarts = null;
+        hasDateTimeFormats = false;
         // The last two "parts" can at most be ARG_LIMIT and MSG_LIMIT
         // which we need not examine.
         int limit = msgPattern.countParts() - 2;
@@ -2331,6 +2445,9 @@ public class MessageFormat extends Format {
                 ++i;
             }
             Format formatter = createAppropriateFormat(explicitType, style);
+            if (formatter instanceof DateTimeFormatterAsFormat || formatter instanceof DateFormat) {
+                hasDateTimeFormats = true;
+            }
             setArgStartFormat(index, formatter);
         }
     }
@@ -2478,6 +2595,12 @@ public class MessageFormat extends Format {
             attributes = null;
         }
 
+        public AppendableWrapper(Appendable app) {
+            this.app = app;
+            length = app instanceof CharSequence ? ((CharSequence) app).length() : 0;
+            attributes = null;
+        }
+
         public void useAttributes() {
             attributes = new ArrayList<>();
         }
@@ -179,6 +179,15 @@ public class PluralRules implements Serializable {
     private final RuleList rules;
     private final transient Set<String> keywords;
 
+    /**
+     * The keywords selected for the small non-negative integers, which are most of the
+     * numbers messages are formatted with. Filled in lazily by {@link #select(double)}, the
+     * races are benign since the same keyword is always selected for a given number.
+     */
+    private final transient String[] smallIntegerKeywords;
+
+    private static final int SMALL_INTEGER_LIMIT = 128;
+
     /**
      * Provides a factory for returning plural rules
      *
@@ -1929,6 +1938,7 @@ public class PluralRules implements Serializable {
     private PluralRules(RuleList rules) {
         this.rules = rules;
         this.keywords = Collections.unmodifiableSet(rules.getKeywords());
+        this.smallIntegerKeywords = new String[SMALL_INTEGER_LIMIT];
     }
 
     /**
@@ -1949,6 +1959,15 @@ public class PluralRules implements Serializable {
      * icu_annot::stable ICU 4.0
      */
     public String select(double number) {
+        if (number >= 0 && number < SMALL_INTEGER_LIMIT && number == (int) number) {
+            int n = (int) number;
+            String keyword = smallIntegerKeywords[n];
+            if (keyword == null) {
+                keyword = rules.select(new FixedDecimal(n));
+                smallIntegerKeywords[n] = keyword;
+            }
+            return keyword;
+        }
         return rules.select(new FixedDecimal(number));
     }
 
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.emoji2.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import android.graphics.Typeface;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = 19)
+public class GlyphCacheTest {
+
+    private File mDirectory;
+    private CountingGlyphChecker mGlyphChecker;
+
+    @Before
+    public void setup() {
+        mDirectory = new File(ApplicationProvider.getApplicationContext().getCacheDir(),
+                "glyph_cache_test");
+        mDirectory.mkdirs();
+        new File(mDirectory, GlyphCache.FILE_NAME).delete();
+        mGlyphChecker = new CountingGlyphChecker();
+    }
+
+    @After
+    public void cleanup() {
+        new File(mDirectory, GlyphCache.FILE_NAME).delete();
+        mDirectory.delete();
+    }
+
+    @Test
+    public void testApply_checksAllEmojis() {
+        final MetadataRepo metadataRepo = createMetadataRepo(3);
+
+        GlyphCache.apply(mDirectory, metadataRepo, mGlyphChecker);
+
+        assertEquals(3, mGlyphChecker.mCount);
+        assertHasGlyph(metadataRepo);
+    }
+
+    @Test
+    public void testApply_readsCachedResults() {
+        GlyphCache.apply(mDirectory, createMetadataRepo(3), mGlyphChecker);
+        mGlyphChecker.mCount = 0;
+
+        final MetadataRepo metadataRepo = createMetadataRepo(3);
+        GlyphCache.apply(mDirectory, metadataRepo, mGlyphChecker);
+
+        assertEquals(0, mGlyphChecker.mCount);
+        assertHasGlyph(metadataRepo);
+    }
+
+    @Test
+    public void testApply_checksAgainWhenMetadataChanges() {
+        GlyphCache.apply(mDirectory, createMetadataRepo(3), mGlyphChecker);
+        mGlyphChecker.mCount = 0;
+
+        final MetadataRepo metadataRepo = createMetadataRepo(4);
+        GlyphCache.apply(mDirectory, metadataRepo, mGlyphChecker);
+
+        assertEquals(4, mGlyphChecker.mCount);
+        assertHasGlyph(metadataRepo);
+    }
+
+    @Test
+    public void testAppendEmoji_addsEmojiStyleToTextStyleEmojis() {
+        final StringBuilder builder = new StringBuilder("previous");
+
+        GlyphCache.appendEmoji(builder, new TestTypefaceEmojiRasterizer(new int[]{0x1F600}));
+        assertEquals(new String(Character.toChars(0x1F600)), builder.toString());
+
+        GlyphCache.appendEmoji(builder, new TextStyleRasterizer(new int[]{0x2764}));
+        assertEquals("\u2764\uFE0F", builder.toString());
+
+        GlyphCache.appendEmoji(builder, new TextStyleRasterizer(new int[]{0x0023, 0x20E3}));
+        assertEquals("#\uFE0F\u20E3", builder.toString());
+
+        GlyphCache.appendEmoji(builder, new TextStyleRasterizer(new int[]{0x0023, 0xFE0F, 0x20E3}));
+        assertEquals("#\uFE0F\u20E3", builder.toString());
+    }
+
+    private static MetadataRepo createMetadataRepo(int emojiCount) {
+        final MetadataRepo metadataRepo = MetadataRepo.create(mock(Typeface.class));
+        for (int i = 0; i < emojiCount; i++) {
+            metadataRepo.put(new TestTypefaceEmojiRasterizer(new int[]{0x1F600 + i}));
+        }
+        return metadataRepo;
+    }
+
+    private static void assertHasGlyph(MetadataRepo metadataRepo) {
+        for (TypefaceEmojiRasterizer rasterizer : metadataRepo.getRasterizers()) {
+            final int expected = rasterizer.getCodepointAt(0) % 2 == 0
+                    ? TypefaceEmojiRasterizer.HAS_GLYPH_EXISTS
+                    : TypefaceEmojiRasterizer.HAS_GLYPH_ABSENT;
+            assertEquals(expected, rasterizer.getHasGlyph());
+        }
+    }
+
+    /**
+     * Emoji which is text style by default, e.g. U+2764.
+     */
+    private static class TextStyleRasterizer extends TestTypefaceEmojiRasterizer {
+        TextStyleRasterizer(int[] codePoints) {
+            super(codePoints);
+        }
+
+        @Override
+        public boolean isDefaultEmoji() {
+            return false;
+        }
+    }
+
+    /**
+     * Reports the emojis with even codepoints as renderable.
+     */
+    private static class CountingGlyphChecker implements EmojiCompat.GlyphChecker {
+        int mCount;
+
+        @Override
+        public boolean hasGlyph(@NonNull CharSequence charSequence, int start, int end,
+                int sdkAdded) {
+            mCount++;
+            return Character.codePointAt(charSequence, start) % 2 == 0;
+        }
+    }
+}
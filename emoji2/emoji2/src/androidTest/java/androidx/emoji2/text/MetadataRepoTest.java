@@ -95,6 +95,41 @@ public class MetadataRepoTest {
         assertNull(getNode(new int[]{1, 2, 3, 4, 5}));
     }
 
+    @Test
+    public void testPut_sameCodePointsReplacesMapping() {
+        final int[] codePoint = new int[]{1, 2};
+        final TypefaceEmojiRasterizer metadata1 = new TestTypefaceEmojiRasterizer(codePoint);
+        final TypefaceEmojiRasterizer metadata2 = new TestTypefaceEmojiRasterizer(codePoint);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+
+        assertSame(metadata2, getNode(codePoint));
+    }
+
+    @Test
+    public void testPut_siblingCodePoints() {
+        final int[] codePoint1 = new int[]{0x1F469, 0x200D, 0x1F467};
+        final TypefaceEmojiRasterizer metadata1 = new TestTypefaceEmojiRasterizer(codePoint1);
+
+        final int[] codePoint2 = new int[]{0x1F469, 0x200D, 0x1F466};
+        final TypefaceEmojiRasterizer metadata2 = new TestTypefaceEmojiRasterizer(codePoint2);
+
+        final int[] codePoint3 = new int[]{0x1F468};
+        final TypefaceEmojiRasterizer metadata3 = new TestTypefaceEmojiRasterizer(codePoint3);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+        mMetadataRepo.put(metadata3);
+
+        assertSame(metadata1, getNode(codePoint1));
+        assertSame(metadata2, getNode(codePoint2));
+        assertSame(metadata3, getNode(codePoint3));
+
+        assertNull(getNode(new int[]{0x1F469}));
+        assertNull(getNode(new int[]{0x1F469, 0x200D, 0x1F468}));
+    }
+
     final TypefaceEmojiRasterizer getNode(final int[] codepoints) {
         return getNode(mMetadataRepo.getRootNode(), codepoints, 0);
     }
@@ -46,6 +46,7 @@ import androidx.annotation.VisibleForTesting;
 import androidx.collection.ArraySet;
 import androidx.core.util.Preconditions;
 
+import java.io.File;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
@@ -53,6 +54,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -415,6 +417,13 @@ public class EmojiCompat {
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     private final GlyphChecker mGlyphChecker;
 
+    /**
+     * @see Config#setGlyphCacheDirectory(File)
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    @Nullable
+    final File mGlyphCacheDirectory;
+
     private static final String NOT_INITIALIZED_ERROR_TEXT = "EmojiCompat is not initialized.\n"
             + "\n"
             + "You must initialize EmojiCompat prior to referencing the EmojiCompat instance.\n"
@@ -464,6 +473,7 @@ public class EmojiCompat {
         mMetadataLoader = config.mMetadataLoader;
         mMetadataLoadStrategy = config.mMetadataLoadStrategy;
         mGlyphChecker = config.mGlyphChecker;
+        mGlyphCacheDirectory = config.mGlyphCacheDirectory;
         mMainHandler = new Handler(Looper.getMainLooper());
         mInitCallbacks = new ArraySet<>();
         SpanFactory localSpanFactory = config.mSpanFactory;
@@ -1359,6 +1369,9 @@ public class EmojiCompat {
         @SuppressWarnings("WeakerAccess") /* synthetic access */
         @NonNull
         GlyphChecker mGlyphChecker = new DefaultGlyphChecker();
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        @Nullable
+        File mGlyphCacheDirectory;
 
         /**
          * Default constructor.
@@ -1567,6 +1580,27 @@ public class EmojiCompat {
             return this;
         }
 
+        /**
+         * Set a directory in which EmojiCompat persists whether the system can render each emoji,
+         * so that emojis don't have to be checked with the {@link GlyphChecker} again in every
+         * process.
+         * <p>
+         * When set, all emojis are checked at once on a background thread after the metadata is
+         * loaded, and the results are reused until the OS build or the emoji font changes. This
+         * is only done with the default {@link GlyphChecker}, and when
+         * {@link #setReplaceAll(boolean)} is {@code false}.
+         *
+         * @param directory directory to store the cache file in, e.g.
+         *                  {@link Context#getNoBackupFilesDir()}, or {@code null} to not
+         *                  persist the results
+         * @return EmojiCompat.Config instance
+         */
+        @NonNull
+        public Config setGlyphCacheDirectory(@Nullable File directory) {
+            mGlyphCacheDirectory = directory;
+            return this;
+        }
+
         /**
          * Returns the {@link MetadataRepoLoader}.
          */
@@ -1737,6 +1771,17 @@ public class EmojiCompat {
             );
 
             mEmojiCompat.onMetadataLoadSuccess();
+
+            final File glyphCacheDirectory = mEmojiCompat.mGlyphCacheDirectory;
+            if (glyphCacheDirectory != null && !mEmojiCompat.mReplaceAll
+                    && mEmojiCompat.mGlyphChecker instanceof DefaultGlyphChecker) {
+                // Emojis processed in the meantime are checked on first use, and then skipped.
+                final ThreadPoolExecutor executor = ConcurrencyHelpers
+                        .createBackgroundPriorityExecutor("EmojiCompatGlyphCache");
+                executor.execute(() -> GlyphCache.apply(glyphCacheDirectory, metadataRepo,
+                        mEmojiCompat.mGlyphChecker));
+                executor.shutdown();
+            }
         }
 
         @Override
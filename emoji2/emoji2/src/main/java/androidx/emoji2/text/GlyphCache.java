@@ -0,0 +1,239 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.emoji2.text;
+
+import android.graphics.fonts.Font;
+import android.graphics.fonts.SystemFonts;
+import android.os.Build;
+
+import androidx.annotation.DoNotInline;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Persists which emojis the system can render, so that they are checked with the
+ * {@link EmojiCompat.GlyphChecker} once per OS build and emoji font rather than once per process.
+ * <p>
+ * All emojis are checked at once, and the result of each is stored as one bit in a file along
+ * with a key identifying the OS build, the system emoji fonts and the emoji metadata. The file is
+ * ignored once the key doesn't match anymore.
+ * <p>
+ * Each emoji is checked as {@link EmojiProcessor} usually finds it in text: followed by the emoji
+ * style variation selector U+FE0F when it is not an emoji style codepoint by default.
+ *
+ * @see EmojiCompat.Config#setGlyphCacheDirectory(File)
+ */
+@RequiresApi(19)
+final class GlyphCache {
+    @VisibleForTesting
+    static final String FILE_NAME = "androidx.emoji2.glyph_cache";
+
+    /**
+     * int representation for "EGly"
+     */
+    private static final int MAGIC = 'E' << 24 | 'G' << 16 | 'l' << 8 | 'y';
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Emoji style standardized variation selector.
+     */
+    private static final int EMOJI_STYLE = 0xFE0F;
+
+    private static volatile @Nullable String sSystemKey;
+
+    private GlyphCache() {
+        // utility class, no instance.
+    }
+
+    /**
+     * Sets whether the system can render each emoji of the metadata repo, reading it from the
+     * cache file in the directory if it is up to date, or checking all emojis and writing the
+     * file otherwise.
+     */
+    @WorkerThread
+    static void apply(@NonNull File directory, @NonNull MetadataRepo metadataRepo,
+            @NonNull EmojiCompat.GlyphChecker glyphChecker) {
+        final TypefaceEmojiRasterizer[] rasterizers = metadataRepo.getRasterizers();
+        final File file = new File(directory, FILE_NAME);
+        final String key = createKey(metadataRepo);
+        byte[] hasGlyph = read(file, key, rasterizers.length);
+        if (hasGlyph == null) {
+            hasGlyph = checkGlyphs(rasterizers, glyphChecker);
+            write(file, key, rasterizers.length, hasGlyph);
+        }
+        for (int i = 0; i < rasterizers.length; i++) {
+            final TypefaceEmojiRasterizer rasterizer = rasterizers[i];
+            if (rasterizer.getHasGlyph() == TypefaceEmojiRasterizer.HAS_GLYPH_UNKNOWN) {
+                rasterizer.setHasGlyph((hasGlyph[i >> 3] & (1 << (i & 7))) != 0);
+            }
+        }
+    }
+
+    /**
+     * @return a key that changes whenever the OS build, the system emoji fonts or the emoji
+     * metadata do
+     */
+    private static String createKey(MetadataRepo metadataRepo) {
+        return getSystemKey()
+                + '/' + metadataRepo.getMetadataVersion()
+                + '/' + metadataRepo.getRasterizers().length
+                + '/' + Arrays.hashCode(metadataRepo.getEmojiCharArray());
+    }
+
+    /**
+     * @return the part of the key for the OS build and the system emoji fonts, which is only
+     * computed once per process since listing the system fonts is expensive
+     */
+    private static String getSystemKey() {
+        // Computing it more than once on concurrent calls is harmless, it's always the same.
+        String systemKey = sSystemKey;
+        if (systemKey == null) {
+            final StringBuilder key = new StringBuilder()
+                    .append(Build.FINGERPRINT)
+                    .append('/').append(Build.VERSION.SDK_INT);
+            if (Build.VERSION.SDK_INT >= 29) {
+                // The system fonts can only be listed since Q. Since S, the emoji font can also
+                // be updated without an OS update, which changes its file.
+                for (String font : SystemFonts29Impl.getEmojiFonts()) {
+                    key.append('/').append(font);
+                }
+            }
+            systemKey = key.toString();
+            sSystemKey = systemKey;
+        }
+        return systemKey;
+    }
+
+    private static byte[] checkGlyphs(TypefaceEmojiRasterizer[] rasterizers,
+            EmojiCompat.GlyphChecker glyphChecker) {
+        final byte[] hasGlyph = new byte[(rasterizers.length + 7) >> 3];
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < rasterizers.length; i++) {
+            final TypefaceEmojiRasterizer rasterizer = rasterizers[i];
+            final boolean exists;
+            if (rasterizer.getHasGlyph() != TypefaceEmojiRasterizer.HAS_GLYPH_UNKNOWN) {
+                exists = rasterizer.getHasGlyph() == TypefaceEmojiRasterizer.HAS_GLYPH_EXISTS;
+            } else {
+                appendEmoji(builder, rasterizer);
+                exists = glyphChecker.hasGlyph(builder, 0, builder.length(),
+                        rasterizer.getSdkAdded());
+            }
+            if (exists) {
+                hasGlyph[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        return hasGlyph;
+    }
+
+    /**
+     * Replaces the content of the builder with the emoji, adding the emoji style variation
+     * selector after its first codepoint unless it is an emoji style codepoint by default, e.g.
+     * U+2764 U+FE0F for red heart, or U+0023 U+FE0F U+20E3 for the # keycap.
+     */
+    @VisibleForTesting
+    static void appendEmoji(StringBuilder builder, TypefaceEmojiRasterizer rasterizer) {
+        builder.setLength(0);
+        final int length = rasterizer.getCodepointsLength();
+        for (int i = 0; i < length; i++) {
+            builder.appendCodePoint(rasterizer.getCodepointAt(i));
+            if (i == 0 && !rasterizer.isDefaultEmoji()
+                    && (length == 1 || rasterizer.getCodepointAt(1) != EMOJI_STYLE)) {
+                builder.appendCodePoint(EMOJI_STYLE);
+            }
+        }
+    }
+
+    @Nullable
+    private static byte[] read(File file, String key, int count) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                    || !key.equals(in.readUTF()) || in.readInt() != count) {
+                return null;
+            }
+            final byte[] hasGlyph = new byte[(count + 7) >> 3];
+            in.readFully(hasGlyph);
+            return hasGlyph;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void write(File file, String key, int count, byte[] hasGlyph) {
+        // Write to a temporary file first so that a partially written file is never read
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(key);
+                out.writeInt(count);
+                out.write(hasGlyph);
+            }
+            if (!tempFile.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            // The glyphs will be checked again next time
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+
+    @RequiresApi(29)
+    static class SystemFonts29Impl {
+        private SystemFonts29Impl() {
+            // Non-instantiable.
+        }
+
+        /**
+         * @return the path, size and modification time of each system emoji font, sorted
+         */
+        @DoNotInline
+        static List<String> getEmojiFonts() {
+            final List<String> fonts = new ArrayList<>();
+            for (Font font : SystemFonts.getAvailableFonts()) {
+                final File file = font.getFile();
+                if (file != null && file.getName().contains("Emoji")) {
+                    fonts.add(file.getPath() + ':' + file.length() + ':' + file.lastModified());
+                }
+            }
+            Collections.sort(fonts);
+            return fonts;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package androidx.emoji2.text;
 
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 
 import androidx.annotation.AnyThread;
@@ -24,10 +25,12 @@ import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.emoji2.text.flatbuffer.MetadataList;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 /**
  * Reads the emoji metadata from a given InputStream or ByteBuffer.
@@ -102,11 +105,51 @@ class MetadataListReader {
      */
     static MetadataList read(AssetManager assetManager, String assetPath)
             throws IOException {
+        final ByteBuffer mappedAsset = mapAsset(assetManager, assetPath);
+        if (mappedAsset != null) {
+            return read(mappedAsset);
+        }
         try (InputStream inputStream = assetManager.open(assetPath)) {
             return read(inputStream);
         }
     }
 
+    /**
+     * Memory maps an uncompressed asset, so that the metadata is read from the page cache
+     * shared with other processes rather than copied into the heap.
+     *
+     * @return the mapped asset, or {@code null} if the asset cannot be mapped
+     */
+    private static ByteBuffer mapAsset(AssetManager assetManager, String assetPath) {
+        final AssetFileDescriptor assetFileDescriptor;
+        try {
+            assetFileDescriptor = assetManager.openFd(assetPath);
+        } catch (IOException e) {
+            // Compressed assets cannot be opened as a file descriptor
+            return null;
+        }
+        try {
+            final long length = assetFileDescriptor.getLength();
+            if (length == AssetFileDescriptor.UNKNOWN_LENGTH) {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            try (FileInputStream inputStream = assetFileDescriptor.createInputStream();
+                 FileChannel channel = inputStream.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY,
+                        assetFileDescriptor.getStartOffset(), length);
+            }
+        } catch (IOException e) {
+            return null;
+        } finally {
+            try {
+                assetFileDescriptor.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
     /**
      * Finds the start offset and length of the emoji metadata in the font.
      *
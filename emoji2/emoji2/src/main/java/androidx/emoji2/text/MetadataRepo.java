@@ -19,20 +19,22 @@ import static androidx.annotation.RestrictTo.Scope.LIBRARY;
 
 import android.content.res.AssetManager;
 import android.graphics.Typeface;
-import android.util.SparseArray;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.os.TraceCompat;
 import androidx.core.util.Preconditions;
+import androidx.emoji2.text.flatbuffer.MetadataItem;
 import androidx.emoji2.text.flatbuffer.MetadataList;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Class to hold the emoji metadata required to process and draw emojis.
@@ -40,10 +42,6 @@ import java.nio.ByteBuffer;
 @AnyThread
 @RequiresApi(19)
 public final class MetadataRepo {
-    /**
-     * The default children size of the root node.
-     */
-    private static final int DEFAULT_ROOT_SIZE = 1024;
     private static final String S_TRACE_CREATE_REPO = "EmojiCompat.MetadataRepo.create";
 
     /**
@@ -59,9 +57,14 @@ public final class MetadataRepo {
     private final @NonNull char[] mEmojiCharArray;
 
     /**
-     * Empty root node of the trie.
+     * Trie that maps the codepoints of the emojis to their index in {@link #mRasterizers}.
+     */
+    private @NonNull MetadataTrie mTrie;
+
+    /**
+     * TypefaceEmojiRasterizer of each emoji in the trie.
      */
-    private final @NonNull Node mRootNode;
+    private @NonNull TypefaceEmojiRasterizer[] mRasterizers;
 
     /**
      * Typeface to be used to render emojis.
@@ -78,7 +81,6 @@ public final class MetadataRepo {
             @NonNull final MetadataList metadataList) {
         mTypeface = typeface;
         mMetadataList = metadataList;
-        mRootNode = new Node(DEFAULT_ROOT_SIZE);
         mEmojiCharArray = new char[mMetadataList.listLength() * 2];
         constructIndex(mMetadataList);
     }
@@ -160,15 +162,29 @@ public final class MetadataRepo {
      * Read emoji metadata list and construct the trie.
      */
     private void constructIndex(final MetadataList metadataList) {
-        int length = metadataList.listLength();
+        final int length = metadataList.listLength();
+        final TypefaceEmojiRasterizer[] rasterizers = new TypefaceEmojiRasterizer[length];
+        final int[][] codepoints = new int[length][];
+        // Read the metadata directly rather than through each TypefaceEmojiRasterizer, which
+        // would look up its thread local MetadataItem for every codepoint
+        final MetadataItem item = new MetadataItem();
         for (int i = 0; i < length; i++) {
-            final TypefaceEmojiRasterizer metadata = new TypefaceEmojiRasterizer(this, i);
+            rasterizers[i] = new TypefaceEmojiRasterizer(this, i);
+            metadataList.list(item, i);
             //since all emojis are mapped to a single codepoint in Private Use Area A they are 2
             //chars wide
             //noinspection ResultOfMethodCallIgnored
-            Character.toChars(metadata.getId(), mEmojiCharArray, i * 2);
-            put(metadata);
+            Character.toChars(item.id(), mEmojiCharArray, i * 2);
+            final int[] emojiCodepoints = new int[item.codepointsLength()];
+            Preconditions.checkArgument(emojiCodepoints.length > 0,
+                    "invalid metadata codepoint length");
+            for (int j = 0; j < emojiCodepoints.length; j++) {
+                emojiCodepoints[j] = item.codepoints(j);
+            }
+            codepoints[i] = emojiCodepoints;
         }
+        mRasterizers = rasterizers;
+        mTrie = MetadataTrie.compile(codepoints);
     }
 
     /**
@@ -186,12 +202,40 @@ public final class MetadataRepo {
         return mMetadataList.version();
     }
 
+    /**
+     */
+    @NonNull
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    MetadataTrie getTrie() {
+        return mTrie;
+    }
+
+    /**
+     * @return the TypefaceEmojiRasterizer of the emoji ending at the node of the trie, or
+     * {@code null}
+     */
+    @Nullable
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    TypefaceEmojiRasterizer getData(int node) {
+        final int dataIndex = mTrie.getDataIndex(node);
+        return dataIndex == MetadataTrie.NO_DATA ? null : mRasterizers[dataIndex];
+    }
+
+    /**
+     * @return the TypefaceEmojiRasterizer of each emoji in the trie
+     */
+    @NonNull
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    TypefaceEmojiRasterizer[] getRasterizers() {
+        return mRasterizers;
+    }
+
     /**
      */
     @NonNull
     @RestrictTo(RestrictTo.Scope.LIBRARY)
     Node getRootNode() {
-        return mRootNode;
+        return new Node(this, MetadataTrie.ROOT);
     }
 
     /**
@@ -212,7 +256,8 @@ public final class MetadataRepo {
 
     /**
      * Add a TypefaceEmojiRasterizer to the index.
-     *
+     * <p>
+     * This recompiles the whole trie, so should only be used from tests.
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY)
     @VisibleForTesting
@@ -221,50 +266,46 @@ public final class MetadataRepo {
         Preconditions.checkArgument(data.getCodepointsLength() > 0,
                 "invalid metadata codepoint length");
 
-        mRootNode.put(data, 0, data.getCodepointsLength() - 1);
+        final int length = mRasterizers.length;
+        final TypefaceEmojiRasterizer[] rasterizers = Arrays.copyOf(mRasterizers, length + 1);
+        rasterizers[length] = data;
+        final int[][] codepoints = new int[length + 1][];
+        for (int i = 0; i <= length; i++) {
+            final TypefaceEmojiRasterizer rasterizer = rasterizers[i];
+            codepoints[i] = new int[rasterizer.getCodepointsLength()];
+            for (int j = 0; j < codepoints[i].length; j++) {
+                codepoints[i][j] = rasterizer.getCodepointAt(j);
+            }
+        }
+        mRasterizers = rasterizers;
+        mTrie = MetadataTrie.compile(codepoints);
     }
 
     /**
-     * Trie node that holds mapping from emoji codepoint(s) to TypefaceEmojiRasterizer.
+     * View of a node of the trie that holds mapping from emoji codepoint(s) to
+     * TypefaceEmojiRasterizer.
      *
      * A single codepoint emoji is represented by a child of the root node.
      *
      */
     @RestrictTo(RestrictTo.Scope.LIBRARY)
     static class Node {
-        private final SparseArray<Node> mChildren;
-        private TypefaceEmojiRasterizer mData;
-
-        private Node() {
-            this(1);
-        }
+        private final MetadataRepo mMetadataRepo;
+        private final int mNode;
 
         @SuppressWarnings("WeakerAccess") /* synthetic access */
-        Node(final int defaultChildrenSize) {
-            mChildren = new SparseArray<>(defaultChildrenSize);
+        Node(final MetadataRepo metadataRepo, final int node) {
+            mMetadataRepo = metadataRepo;
+            mNode = node;
         }
 
         Node get(final int key) {
-            return mChildren == null ? null : mChildren.get(key);
+            final int child = mMetadataRepo.getTrie().getChild(mNode, key);
+            return child == MetadataTrie.NO_NODE ? null : new Node(mMetadataRepo, child);
         }
 
         final TypefaceEmojiRasterizer getData() {
-            return mData;
-        }
-
-        @SuppressWarnings("WeakerAccess") /* synthetic access */
-        void put(@NonNull final TypefaceEmojiRasterizer data, final int start, final int end) {
-            Node node = get(data.getCodepointAt(start));
-            if (node == null) {
-                node = new Node();
-                mChildren.put(data.getCodepointAt(start), node);
-            }
-
-            if (end > start) {
-                node.put(data, start + 1, end);
-            } else {
-                node.mData = data;
-            }
+            return mMetadataRepo.getData(mNode);
         }
     }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.emoji2.text;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Trie that maps emoji codepoint sequences to the index of their emoji, compiled into a single
+ * int array so that it can be walked without dereferencing an object per node.
+ * <p>
+ * A node is identified by its offset in the array, the root being at {@link #ROOT}. Each node is
+ * laid out as:
+ * <pre>
+ * [data index, child count n, n sorted child codepoints, n child node offsets]
+ * </pre>
+ * where the data index is {@link #NO_DATA} if no emoji ends at the node.
+ */
+@AnyThread
+final class MetadataTrie {
+    static final int ROOT = 0;
+    static final int NO_NODE = -1;
+    static final int NO_DATA = -1;
+
+    private static final int DATA_INDEX = 0;
+    private static final int CHILD_COUNT = 1;
+    private static final int CHILDREN = 2;
+
+    private final int[] mTrie;
+
+    private MetadataTrie(int[] trie) {
+        mTrie = trie;
+    }
+
+    /**
+     * @return the child of the node for the codepoint, or {@link #NO_NODE} if there is none
+     */
+    int getChild(int node, int codePoint) {
+        final int[] trie = mTrie;
+        final int childCount = trie[node + CHILD_COUNT];
+        int low = node + CHILDREN;
+        int high = low + childCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midCodePoint = trie[mid];
+            if (midCodePoint < codePoint) {
+                low = mid + 1;
+            } else if (midCodePoint > codePoint) {
+                high = mid - 1;
+            } else {
+                return trie[mid + childCount];
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * @return the index of the emoji which ends at the node, or {@link #NO_DATA}
+     */
+    int getDataIndex(int node) {
+        return mTrie[node + DATA_INDEX];
+    }
+
+    boolean hasData(int node) {
+        return mTrie[node + DATA_INDEX] != NO_DATA;
+    }
+
+    /**
+     * Compiles the trie for the given codepoint sequences. The data index of a sequence is its
+     * index in the array. If a sequence appears more than once, the last one is kept.
+     *
+     * @param codepoints the codepoint sequence of each emoji, none of them empty
+     */
+    @NonNull
+    static MetadataTrie compile(@NonNull final int[][] codepoints) {
+        // Sort the sequences so that the sequences sharing a prefix, i.e. the subtree of a node,
+        // are next to each other. Equal sequences are kept in their original order.
+        final Integer[] order = new Integer[codepoints.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                final int[] a = codepoints[lhs];
+                final int[] b = codepoints[rhs];
+                final int length = Math.min(a.length, b.length);
+                for (int i = 0; i < length; i++) {
+                    if (a[i] != b[i]) {
+                        return a[i] < b[i] ? -1 : 1;
+                    }
+                }
+                if (a.length != b.length) {
+                    return a.length < b.length ? -1 : 1;
+                }
+                return lhs.compareTo(rhs);
+            }
+        });
+
+        final int[] sorted = new int[order.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = order[i];
+        }
+        final Builder builder = new Builder(codepoints, sorted);
+        builder.addNode(0, sorted.length, 0);
+        return new MetadataTrie(builder.toArray());
+    }
+
+    private static final class Builder {
+        private final int[][] mCodepoints;
+        private final int[] mSorted;
+        private int[] mTrie = new int[1024];
+        private int mSize;
+
+        Builder(int[][] codepoints, int[] sorted) {
+            mCodepoints = codepoints;
+            mSorted = sorted;
+        }
+
+        /**
+         * Adds the node for the sorted sequences in [start, end), which all share their first
+         * depth codepoints.
+         *
+         * @return the offset of the node
+         */
+        int addNode(int start, int end, int depth) {
+            final int[][] codepoints = mCodepoints;
+            final int[] sorted = mSorted;
+
+            // Sequences ending at this node sort first, the last one wins
+            int dataIndex = NO_DATA;
+            while (start < end && codepoints[sorted[start]].length == depth) {
+                dataIndex = sorted[start];
+                start++;
+            }
+
+            int childCount = 0;
+            for (int i = start; i < end; i++) {
+                if (i == start || codepoints[sorted[i]][depth]
+                        != codepoints[sorted[i - 1]][depth]) {
+                    childCount++;
+                }
+            }
+
+            final int node = mSize;
+            ensureCapacity(CHILDREN + childCount * 2);
+            mSize += CHILDREN + childCount * 2;
+            mTrie[node + DATA_INDEX] = dataIndex;
+            mTrie[node + CHILD_COUNT] = childCount;
+
+            int child = 0;
+            int childStart = start;
+            for (int i = start + 1; i <= end; i++) {
+                final int codePoint = codepoints[sorted[childStart]][depth];
+                if (i == end || codepoints[sorted[i]][depth] != codePoint) {
+                    final int childNode = addNode(childStart, i, depth + 1);
+                    mTrie[node + CHILDREN + child] = codePoint;
+                    mTrie[node + CHILDREN + childCount + child] = childNode;
+                    child++;
+                    childStart = i;
+                }
+            }
+            return node;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (mSize + extra > mTrie.length) {
+                mTrie = Arrays.copyOf(mTrie, Math.max(mTrie.length * 2, mSize + extra));
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(mTrie, mSize);
+        }
+    }
+}
@@ -41,6 +41,7 @@ import android.system.OsConstants;
 import android.util.Log;
 import android.util.Pair;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 import androidx.exifinterface.test.R;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -68,10 +69,20 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -467,6 +478,105 @@ public class ExifInterfaceTest {
         writeToFilesWithExif(JPEG_WITH_EXIF_WITH_XMP, R.array.jpeg_with_exif_with_xmp);
     }
 
+    @Test
+    @LargeTest
+    public void testBatchReader() throws Throwable {
+        final List<File> files = new ArrayList<>();
+        for (String fileName : IMAGE_FILENAMES) {
+            files.add(getFileFromExternalDir(fileName));
+        }
+        files.add(getFileFromExternalDir("does_not_exist.jpg"));
+        final Set<String> tags = new HashSet<>(Arrays.asList(ExifInterface.TAG_MAKE,
+                ExifInterface.TAG_DATETIME, ExifInterface.TAG_ORIENTATION,
+                ExifInterface.TAG_GPS_LATITUDE));
+        final Map<Integer, Map<String, String>> results = new ConcurrentHashMap<>();
+        final Set<Integer> errors = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        final CountDownLatch latch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            new ExifBatchReader(executor, 3).readFiles(files, tags,
+                    new ExifBatchReader.Callback() {
+                        @Override
+                        public void onResult(int index, @NonNull Map<String, String> attributes) {
+                            results.put(index, attributes);
+                        }
+
+                        @Override
+                        public void onError(int index, @NonNull IOException exception) {
+                            errors.add(index);
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            latch.countDown();
+                        }
+                    });
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+
+        // Results match reading each file with its own ExifInterface.
+        assertEquals(Collections.singleton(files.size() - 1), errors);
+        assertEquals(files.size() - 1, results.size());
+        for (int i = 0; i < files.size() - 1; i++) {
+            ExifInterface exifInterface = new ExifInterface(files.get(i));
+            Map<String, String> expected = new HashMap<>();
+            for (String tag : tags) {
+                String value = exifInterface.getAttribute(tag);
+                if (value != null) {
+                    expected.put(tag, value);
+                }
+            }
+            assertEquals(files.get(i).getName(), expected, results.get(i));
+        }
+    }
+
+    @Test
+    @LargeTest
+    public void testJpegSaveAttributesInPlace() throws Throwable {
+        File srcFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        File imageFile = clone(srcFile);
+        ExifInterface exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+        exifInterface.saveAttributes();
+        long length = imageFile.length();
+
+        // A shorter value fits into the existing EXIF segment, so the file keeps its size.
+        exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+        exifInterface.setAttribute(ExifInterface.TAG_MAKE, "abc");
+        exifInterface.saveAttributes();
+        assertEquals(length, imageFile.length());
+
+        exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+        assertEquals("abc", exifInterface.getAttribute(ExifInterface.TAG_MAKE));
+        assertBitmapsEquivalent(srcFile, imageFile);
+    }
+
+    @Test
+    @LargeTest
+    public void testJpegSaveAttributesTwiceAfterSegmentGrows() throws Throwable {
+        File srcFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        File imageFile = clone(srcFile);
+        ExifInterface exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+        byte[] thumbnail = exifInterface.getThumbnailBytes();
+        assertNotNull(thumbnail);
+        // A long value doesn't fit into the existing EXIF segment, so the file is rewritten with
+        // a larger one.
+        char[] longValue = new char[4096];
+        Arrays.fill(longValue, 'a');
+        exifInterface.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, new String(longValue));
+        exifInterface.saveAttributes();
+        // The second save on the same instance is small enough to be done in place, and must
+        // keep the length of the rewritten segment rather than the one parsed originally.
+        exifInterface.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION, "abc");
+        exifInterface.saveAttributes();
+
+        exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+        assertEquals("abc", exifInterface.getAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION));
+        assertThat(exifInterface.getThumbnailBytes()).isEqualTo(thumbnail);
+        assertBitmapsEquivalent(srcFile, imageFile);
+    }
+
     // https://issuetracker.google.com/264729367
     @Test
     @LargeTest
@@ -578,6 +688,42 @@ public class ExifInterfaceTest {
         }
     }
 
+    /**
+     * HEIF files opened by path or file descriptor are read through a FileChannel, whose stream
+     * has to report the bytes left in the file for MediaMetadataRetriever to read them.
+     */
+    @Test
+    @LargeTest
+    public void testHeifFileByPathAndFileDescriptor() throws Throwable {
+        if (Build.VERSION.SDK_INT < 28) {
+            return;
+        }
+        File imageFile = getFileFromExternalDir(HEIF_WITH_EXIF);
+        ExifInterface expected;
+        try (InputStream in = new FileInputStream(imageFile)) {
+            expected = new ExifInterface(in);
+        }
+        assertNotNull(expected.getAttribute(ExifInterface.TAG_MAKE));
+
+        ExifInterface byPath = new ExifInterface(imageFile.getAbsolutePath());
+        assertEquals(expected.getAttribute(ExifInterface.TAG_MAKE),
+                byPath.getAttribute(ExifInterface.TAG_MAKE));
+        assertEquals(expected.getAttribute(ExifInterface.TAG_IMAGE_WIDTH),
+                byPath.getAttribute(ExifInterface.TAG_IMAGE_WIDTH));
+
+        FileDescriptor fd = Os.open(imageFile.getAbsolutePath(), OsConstants.O_RDONLY,
+                OsConstants.S_IRWXU);
+        try {
+            ExifInterface byFd = new ExifInterface(fd);
+            assertEquals(expected.getAttribute(ExifInterface.TAG_MAKE),
+                    byFd.getAttribute(ExifInterface.TAG_MAKE));
+            assertEquals(expected.getAttribute(ExifInterface.TAG_IMAGE_WIDTH),
+                    byFd.getAttribute(ExifInterface.TAG_IMAGE_WIDTH));
+        } finally {
+            closeQuietly(fd);
+        }
+    }
+
     @Test
     @SmallTest
     public void testDoNotFailOnCorruptedImage() throws Throwable {
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import static androidx.exifinterface.media.ExifInterfaceUtils.closeQuietly;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a set of Exif tags from many image files, e.g. to index a media library.
+ * <p>
+ * The files are read concurrently by up to {@code parallelism} tasks running on the given
+ * {@link Executor}. Each task reads one file after another, reusing its read buffers instead of
+ * allocating them for every file like separate {@link ExifInterface} instances would.
+ * <p>
+ * Results are delivered to the {@link Callback} as soon as each file is read, from the executor's
+ * threads. The callback may therefore be called concurrently and in any order.
+ */
+public final class ExifBatchReader {
+    // Large enough for the largest possible JPEG APP1 segment.
+    private static final int READ_BUFFER_SIZE = 0x10000;
+
+    private final Executor mExecutor;
+    private final int mParallelism;
+
+    /**
+     * Creates a reader that reads up to as many files at a time as there are available
+     * processors.
+     *
+     * @param executor the executor to read files on
+     */
+    public ExifBatchReader(@NonNull Executor executor) {
+        this(executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a reader that reads up to the given number of files at a time.
+     *
+     * @param executor    the executor to read files on
+     * @param parallelism the maximum number of tasks to run on the executor at a time
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public ExifBatchReader(@NonNull Executor executor, int parallelism) {
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        mExecutor = executor;
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Reads the given tags from the image files. Returns immediately, results are delivered to
+     * the callback with the index of each file in the given list.
+     *
+     * @param files    the image files to read
+     * @param tags     the names of the tags to read, e.g. {@link ExifInterface#TAG_DATETIME}
+     * @param callback the callback to deliver the results to
+     */
+    public void readFiles(@NonNull List<File> files, @NonNull Set<String> tags,
+            @NonNull Callback callback) {
+        read(new ArrayList<Object>(files), tags, callback);
+    }
+
+    /**
+     * Reads the given tags from the images of the given file descriptors. Returns immediately,
+     * results are delivered to the callback with the index of each file descriptor in the given
+     * list.
+     * <p>
+     * Like {@link ExifInterface#ExifInterface(FileDescriptor)}, the images are read from the
+     * current offset of the file descriptors. The file descriptors are not closed, developers
+     * should close them once {@link Callback#onComplete()} is called.
+     *
+     * @param fileDescriptors the file descriptors of the images to read
+     * @param tags            the names of the tags to read, e.g.
+     *                        {@link ExifInterface#TAG_DATETIME}
+     * @param callback        the callback to deliver the results to
+     */
+    public void readFileDescriptors(@NonNull List<FileDescriptor> fileDescriptors,
+            @NonNull Set<String> tags, @NonNull Callback callback) {
+        read(new ArrayList<Object>(fileDescriptors), tags, callback);
+    }
+
+    private void read(final List<Object> sources, Set<String> tags, final Callback callback) {
+        if (tags == null) {
+            throw new NullPointerException("tags cannot be null");
+        }
+        if (callback == null) {
+            throw new NullPointerException("callback cannot be null");
+        }
+        final String[] tagArray = tags.toArray(new String[0]);
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final int taskCount = Math.max(1, Math.min(mParallelism, sources.size()));
+        final AtomicInteger runningTasks = new AtomicInteger(taskCount);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+                    int index;
+                    while ((index = nextIndex.getAndIncrement()) < sources.size()) {
+                        readSource(index, sources.get(index), tagArray, readBuffer, callback);
+                    }
+                } finally {
+                    if (runningTasks.decrementAndGet() == 0) {
+                        callback.onComplete();
+                    }
+                }
+            }
+        };
+        for (int i = 0; i < taskCount; i++) {
+            try {
+                mExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (i == 0) {
+                    throw e;
+                }
+                // The tasks that did start will read the remaining files.
+                if (runningTasks.addAndGet(i - taskCount) == 0) {
+                    callback.onComplete();
+                }
+                return;
+            }
+        }
+    }
+
+    private static void readSource(int index, Object source, String[] tags, byte[] readBuffer,
+            Callback callback) {
+        FileInputStream in = null;
+        final Map<String, String> attributes;
+        try {
+            if (source instanceof File) {
+                in = new FileInputStream((File) source);
+            } else {
+                in = new FileInputStream((FileDescriptor) source);
+            }
+            ExifInterface exifInterface = new ExifInterface(in, readBuffer);
+            attributes = new HashMap<>();
+            // Read the values now, the attributes may reference the reused read buffer.
+            for (String tag : tags) {
+                String value = exifInterface.getAttribute(tag);
+                if (value != null) {
+                    attributes.put(tag, value);
+                }
+            }
+        } catch (IOException e) {
+            callback.onError(index, e);
+            return;
+        } finally {
+            if (source instanceof File) {
+                closeQuietly(in);
+            }
+        }
+        callback.onResult(index, attributes);
+    }
+
+    /**
+     * Callback for the results of an {@link ExifBatchReader}.
+     */
+    public interface Callback {
+        /**
+         * Called when the tags of an image were read.
+         *
+         * @param index      the index of the image in the list that was read
+         * @param attributes the values of the requested tags the image has, by tag name
+         */
+        void onResult(int index, @NonNull Map<String, String> attributes);
+
+        /**
+         * Called when an image couldn't be read.
+         *
+         * @param index     the index of the image in the list that was read
+         * @param exception the exception that occurred while opening the image
+         */
+        void onError(int index, @NonNull IOException exception);
+
+        /**
+         * Called once all images were read.
+         */
+        void onComplete();
+    }
+}
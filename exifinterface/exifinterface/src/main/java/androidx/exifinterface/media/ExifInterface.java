@@ -61,10 +61,12 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -3112,7 +3114,12 @@ public class ExifInterface {
         public final int format;
         public final int numberOfComponents;
         public final long bytesOffset;
-        public final byte[] bytes;
+        // The value bytes, or null until they are copied out of mSource on first use.
+        private byte[] mBytes;
+        // The EXIF data the value bytes are part of, if they weren't copied out yet.
+        private byte[] mSource;
+        private int mSourceOffset;
+        private int mLength;
 
         @SuppressWarnings("WeakerAccess") /* synthetic access */
         ExifAttribute(int format, int numberOfComponents, byte[] bytes) {
@@ -3124,7 +3131,32 @@ public class ExifInterface {
             this.format = format;
             this.numberOfComponents = numberOfComponents;
             this.bytesOffset = bytesOffset;
-            this.bytes = bytes;
+            mBytes = bytes;
+        }
+
+        /**
+         * Creates an attribute whose value bytes are the given range of {@code source}. The bytes
+         * are only copied when the value is used, so that reading the tags of an image doesn't
+         * allocate a copy of every value.
+         */
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        ExifAttribute(int format, int numberOfComponents, long bytesOffset, byte[] source,
+                int sourceOffset, int length) {
+            this.format = format;
+            this.numberOfComponents = numberOfComponents;
+            this.bytesOffset = bytesOffset;
+            mSource = source;
+            mSourceOffset = sourceOffset;
+            mLength = length;
+        }
+
+        @SuppressWarnings("WeakerAccess") /* synthetic access */
+        byte[] getBytes() {
+            if (mBytes == null) {
+                mBytes = Arrays.copyOfRange(mSource, mSourceOffset, mSourceOffset + mLength);
+                mSource = null;
+            }
+            return mBytes;
         }
 
         public static ExifAttribute createUShort(int[] values, ByteOrder byteOrder) {
@@ -3219,11 +3251,12 @@ public class ExifInterface {
         @NonNull
         @Override
         public String toString() {
-            return "(" + IFD_FORMAT_NAMES[format] + ", data length:" + bytes.length + ")";
+            return "(" + IFD_FORMAT_NAMES[format] + ", data length:" + getBytes().length + ")";
         }
 
         @SuppressWarnings("WeakerAccess") /* synthetic access */
         Object getValue(ByteOrder byteOrder) {
+            final byte[] bytes = getBytes();
             ByteOrderedDataInputStream inputStream = null;
             try {
                 inputStream = new ByteOrderedDataInputStream(bytes);
@@ -3893,6 +3926,13 @@ public class ExifInterface {
     private int mThumbnailCompression;
     // Used to indicate offset from the start of the original input stream to EXIF data
     private int mOffsetToExifData;
+    // Offset of the length field of the EXIF APP1 segment of a JPEG file and the value of that
+    // field, used to update the segment in place. 0 if there is no single EXIF APP1 segment.
+    private int mExifApp1Offset;
+    private int mExifApp1Length;
+    // Buffer to read the EXIF segment of a JPEG file into instead of allocating one, see
+    // ExifInterface(FileInputStream, byte[]). Cleared once attributes reference it.
+    private byte[] mReadBuffer;
     private int mOrfMakerNoteOffset;
     private int mOrfThumbnailOffset;
     private int mOrfThumbnailLength;
@@ -4039,6 +4079,21 @@ public class ExifInterface {
         loadAttributes(inputStream);
     }
 
+    /**
+     * Reads Exif tags from the specified file input stream, using the given buffer to read the
+     * EXIF segment of JPEG files if it's large enough. The attributes may reference the buffer,
+     * so it can only be reused once this instance is no longer used.
+     */
+    ExifInterface(@NonNull FileInputStream inputStream, @Nullable byte[] readBuffer)
+            throws IOException {
+        mFilename = null;
+        mAssetInputStream = null;
+        mSeekableFileDescriptor = isSeekableFD(inputStream.getFD()) ? inputStream.getFD() : null;
+        mReadBuffer = readBuffer;
+        loadAttributes(inputStream);
+        mReadBuffer = null;
+    }
+
     /**
      * Returns whether ExifInterface currently supports reading data from the specified mime type
      * or not.
@@ -4559,6 +4614,15 @@ public class ExifInterface {
                 mAttributes[i] = new HashMap<>();
             }
 
+            // Seekable files are parsed by repositioning the file, instead of buffering the data
+            // read since the start of the image in memory.
+            FileChannel seekableChannel = null;
+            long startPosition = 0;
+            if (in instanceof FileInputStream && mSeekableFileDescriptor != null) {
+                seekableChannel = ((FileInputStream) in).getChannel();
+                startPosition = seekableChannel.position();
+            }
+
             // Check file type
             if (!mIsExifDataOnly) {
                 in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
@@ -4567,7 +4631,9 @@ public class ExifInterface {
 
             if (shouldSupportSeek(mMimeType)) {
                 SeekableByteOrderedDataInputStream inputStream =
-                        new SeekableByteOrderedDataInputStream(in);
+                        new SeekableByteOrderedDataInputStream(seekableChannel != null
+                                ? new FileChannelInputStream(seekableChannel, startPosition)
+                                : in);
                 if (mIsExifDataOnly) {
                     if (!getStandaloneAttributes(inputStream)) {
                         return;
@@ -4683,6 +4749,11 @@ public class ExifInterface {
         // Keep the thumbnail in memory
         mThumbnailBytes = getThumbnail();
 
+        if (mMimeType == IMAGE_TYPE_JPEG && saveJpegAttributesInPlace()) {
+            mThumbnailBytes = null;
+            return;
+        }
+
         FileInputStream in = null;
         FileOutputStream out = null;
         File tempFile;
@@ -4961,7 +5032,7 @@ public class ExifInterface {
 
         final ExifAttribute attribute = getExifAttribute(tag);
         if (attribute != null) {
-            return new long[] { attribute.bytesOffset, attribute.bytes.length };
+            return new long[] { attribute.bytesOffset, attribute.getBytes().length };
         } else {
             return null;
         }
@@ -4981,7 +5052,7 @@ public class ExifInterface {
         }
         final ExifAttribute attribute = getExifAttribute(tag);
         if (attribute != null) {
-            return attribute.bytes;
+            return attribute.getBytes();
         } else {
             return null;
         }
@@ -5591,26 +5662,43 @@ public class ExifInterface {
             switch (marker) {
                 case MARKER_APP1: {
                     final int start = bytesRead;
-                    final byte[] bytes = new byte[length];
-                    in.readFully(bytes);
+                    final int segmentLength = length;
+                    final byte[] bytes = mReadBuffer != null && segmentLength <= mReadBuffer.length
+                            ? mReadBuffer : new byte[segmentLength];
+                    in.readFully(bytes, 0, segmentLength);
                     bytesRead += length;
                     length = 0;
 
-                    if (startsWith(bytes, IDENTIFIER_EXIF_APP1)) {
-                        final byte[] value = Arrays.copyOfRange(bytes, IDENTIFIER_EXIF_APP1.length,
-                                bytes.length);
+                    if (segmentLength >= IDENTIFIER_EXIF_APP1.length
+                            && startsWith(bytes, IDENTIFIER_EXIF_APP1)) {
+                        if (offsetToJpeg == 0 && mMimeType == IMAGE_TYPE_JPEG) {
+                            if (mOffsetToExifData == 0) {
+                                mExifApp1Offset = start - 2;
+                                mExifApp1Length = segmentLength + 2;
+                            } else {
+                                // Saving drops all but one EXIF segment, so it can't be in place.
+                                mExifApp1Offset = 0;
+                            }
+                        }
+                        if (bytes == mReadBuffer) {
+                            // The attributes reference the buffer now, it can't be reused.
+                            mReadBuffer = null;
+                        }
+                        final int exifLength = segmentLength - IDENTIFIER_EXIF_APP1.length;
                         // Save offset to EXIF data for handling thumbnail and attribute offsets.
                         mOffsetToExifData = offsetToJpeg
                                 + /* offset to EXIF from JPEG start */ start
                                 + IDENTIFIER_EXIF_APP1.length;
-                        readExifSegment(value, imageType);
+                        readExifSegment(bytes, IDENTIFIER_EXIF_APP1.length, exifLength, imageType);
 
-                        setThumbnailData(new ByteOrderedDataInputStream(value));
-                    } else if (startsWith(bytes, IDENTIFIER_XMP_APP1)) {
+                        setThumbnailData(new ByteOrderedDataInputStream(bytes,
+                                IDENTIFIER_EXIF_APP1.length, exifLength));
+                    } else if (segmentLength >= IDENTIFIER_XMP_APP1.length
+                            && startsWith(bytes, IDENTIFIER_XMP_APP1)) {
                         // See XMP Specification Part 3: Storage in Files, 1.1.3 JPEG, Table 6
                         final int offset = start + IDENTIFIER_XMP_APP1.length;
                         final byte[] value = Arrays.copyOfRange(bytes,
-                                IDENTIFIER_XMP_APP1.length, bytes.length);
+                                IDENTIFIER_XMP_APP1.length, segmentLength);
                         // TODO: check if ignoring separate XMP data when tag 700 already exists is
                         //  valid.
                         if (getAttribute(TAG_XMP) == null) {
@@ -5694,7 +5782,7 @@ public class ExifInterface {
             if (makerNoteAttribute != null) {
                 // Create an ordered DataInputStream for MakerNote
                 SeekableByteOrderedDataInputStream makerNoteDataInputStream =
-                        new SeekableByteOrderedDataInputStream(makerNoteAttribute.bytes);
+                        new SeekableByteOrderedDataInputStream(makerNoteAttribute.getBytes());
                 makerNoteDataInputStream.setByteOrder(mExifByteOrder);
 
                 // Skip to MakerNote data
@@ -5998,7 +6086,7 @@ public class ExifInterface {
         if (makerNoteAttribute != null) {
             // Create an ordered DataInputStream for MakerNote
             SeekableByteOrderedDataInputStream makerNoteDataInputStream =
-                    new SeekableByteOrderedDataInputStream(makerNoteAttribute.bytes);
+                    new SeekableByteOrderedDataInputStream(makerNoteAttribute.getBytes());
             makerNoteDataInputStream.setByteOrder(mExifByteOrder);
 
             // There are two types of headers for Olympus MakerNotes
@@ -6080,7 +6168,7 @@ public class ExifInterface {
                 mAttributes[IFD_TYPE_PRIMARY].get(TAG_RW2_JPG_FROM_RAW);
         if (jpgFromRawAttribute != null) {
             ByteOrderedDataInputStream jpegInputStream =
-                    new ByteOrderedDataInputStream(jpgFromRawAttribute.bytes);
+                    new ByteOrderedDataInputStream(jpgFromRawAttribute.getBytes());
             getJpegAttributes(jpegInputStream, (int) jpgFromRawAttribute.bytesOffset,
                     IFD_TYPE_PREVIEW);
         }
@@ -6249,6 +6337,102 @@ public class ExifInterface {
         }
     }
 
+    /**
+     * Overwrites the EXIF APP1 segment of the JPEG file if the new segment fits into it, padding
+     * the rest of the old segment with zeros. This avoids copying the whole image when only a few
+     * attributes change. The new segment is fully built in memory before the file is touched, and
+     * the original segment is written back if writing the new one fails.
+     *
+     * @return true if the attributes were saved, false if the file needs to be rewritten.
+     */
+    private boolean saveJpegAttributesInPlace() throws IOException {
+        if (mExifApp1Offset == 0) {
+            return false;
+        }
+
+        // Remove XMP data if it is from a separate marker, it stays in its own segment.
+        ExifAttribute xmpAttribute = null;
+        if (getAttribute(TAG_XMP) != null && mXmpIsFromSeparateMarker) {
+            xmpAttribute = mAttributes[IFD_TYPE_PRIMARY].remove(TAG_XMP);
+        }
+        ByteArrayOutputStream segmentStream = new ByteArrayOutputStream(mExifApp1Length);
+        int segmentLength;
+        try {
+            segmentLength = writeExifSegment(
+                    new ByteOrderedDataOutputStream(segmentStream, BIG_ENDIAN));
+        } catch (IllegalStateException e) {
+            // Too large for a JPEG segment, let the regular save report it.
+            return false;
+        } finally {
+            if (xmpAttribute != null) {
+                mAttributes[IFD_TYPE_PRIMARY].put(TAG_XMP, xmpAttribute);
+            }
+        }
+        if (segmentLength > mExifApp1Length) {
+            return false;
+        }
+
+        // Keep the length of the original segment, so that the rest of the file stays valid.
+        byte[] segment = Arrays.copyOf(segmentStream.toByteArray(), mExifApp1Length);
+        segment[0] = (byte) (mExifApp1Length >> 8);
+        segment[1] = (byte) mExifApp1Length;
+
+        FileInputStream in = null;
+        FileOutputStream out = null;
+        RandomAccessFile file = null;
+        try {
+            FileChannel readChannel;
+            FileChannel writeChannel;
+            if (mFilename != null) {
+                file = new RandomAccessFile(mFilename, "rw");
+                readChannel = file.getChannel();
+                writeChannel = readChannel;
+            } else {
+                in = new FileInputStream(mSeekableFileDescriptor);
+                out = new FileOutputStream(mSeekableFileDescriptor);
+                readChannel = in.getChannel();
+                writeChannel = out.getChannel();
+            }
+            // A single write isn't guaranteed to be all or nothing, so keep the original segment
+            // to restore it if the new one is only partially written.
+            byte[] original = new byte[mExifApp1Length];
+            ByteBuffer originalBuffer = ByteBuffer.wrap(original);
+            long position = mExifApp1Offset;
+            while (originalBuffer.hasRemaining()) {
+                int bytesRead = readChannel.read(originalBuffer, position);
+                if (bytesRead < 0) {
+                    // The file changed since it was read, let the regular save rewrite it.
+                    return false;
+                }
+                position += bytesRead;
+            }
+            try {
+                writeFully(writeChannel, segment, mExifApp1Offset);
+            } catch (Exception e) {
+                try {
+                    writeFully(writeChannel, original, mExifApp1Offset);
+                } catch (Exception exception) {
+                    throw new IOException("Failed to save new file. Original EXIF segment could "
+                            + "not be restored", exception);
+                }
+                throw new IOException("Failed to save new file", e);
+            }
+        } finally {
+            closeQuietly(file);
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes, long position)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
     // Stores a new JPEG image with EXIF attributes into a given output stream.
     private void saveJpegAttributes(InputStream inputStream, OutputStream outputStream)
             throws IOException {
@@ -6280,7 +6464,7 @@ public class ExifInterface {
         // Write EXIF APP1 segment
         dataOutputStream.writeByte(MARKER);
         dataOutputStream.writeByte(MARKER_APP1);
-        writeExifSegment(dataOutputStream);
+        int exifSegmentLength = writeExifSegment(dataOutputStream);
 
         // Re-add previously removed XMP data.
         if (xmpAttribute != null) {
@@ -6332,6 +6516,12 @@ public class ExifInterface {
                     dataOutputStream.writeByte(marker);
                     // Copy all the remaining data
                     copy(dataInputStream, dataOutputStream);
+                    // The EXIF APP1 segment is now the only one, right after SOI, so the next
+                    // save can update it in place. The thumbnail offset was already updated by
+                    // writeExifSegment, relative to the EXIF data which follows the identifier.
+                    mExifApp1Offset = 4;
+                    mExifApp1Length = exifSegmentLength;
+                    mOffsetToExifData = mExifApp1Offset + 2 + IDENTIFIER_EXIF_APP1.length;
                     return;
                 }
                 default: {
@@ -6683,8 +6873,14 @@ public class ExifInterface {
 
     // Reads the given EXIF byte area and save its tag data into attributes.
     private void readExifSegment(byte[] exifBytes, int imageType) throws IOException {
+        readExifSegment(exifBytes, 0, exifBytes.length, imageType);
+    }
+
+    // Reads the given range of a EXIF byte area and save its tag data into attributes.
+    private void readExifSegment(byte[] exifBytes, int offset, int length, int imageType)
+            throws IOException {
         SeekableByteOrderedDataInputStream dataInputStream =
-                new SeekableByteOrderedDataInputStream(exifBytes);
+                new SeekableByteOrderedDataInputStream(exifBytes, offset, length);
 
         // Parse TIFF Headers. See JEITA CP-3451C Section 4.5.2. Table 1.
         parseTiffHeaders(dataInputStream);
@@ -6931,11 +7127,19 @@ public class ExifInterface {
                 continue;
             }
 
-            final int bytesOffset = dataInputStream.position() + mOffsetToExifData;
-            final byte[] bytes = new byte[(int) byteCount];
-            dataInputStream.readFully(bytes);
-            ExifAttribute attribute = new ExifAttribute(dataFormat, numberOfComponents,
-                    bytesOffset, bytes);
+            final int position = dataInputStream.position();
+            final int bytesOffset = position + mOffsetToExifData;
+            final byte[] data = dataInputStream.getData();
+            ExifAttribute attribute;
+            if (data != null && position + byteCount <= dataInputStream.length()) {
+                // The EXIF data is in memory already, only index where the value is.
+                attribute = new ExifAttribute(dataFormat, numberOfComponents, bytesOffset, data,
+                        dataInputStream.getDataOffset() + position, (int) byteCount);
+            } else {
+                final byte[] bytes = new byte[(int) byteCount];
+                dataInputStream.readFully(bytes);
+                attribute = new ExifAttribute(dataFormat, numberOfComponents, bytesOffset, bytes);
+            }
             mAttributes[ifdType].put(tag.name, attribute);
 
             // DNG files have a DNG Version tag specifying the version of specifications that the
@@ -7533,7 +7737,7 @@ public class ExifInterface {
                         dataOutputStream.writeUnsignedInt(dataOffset);
                         dataOffset += size;
                     } else {
-                        dataOutputStream.write(attribute.bytes);
+                        dataOutputStream.write(attribute.getBytes());
                         // Fill zero up to 4 bytes
                         if (size < 4) {
                             for (int i = size; i < 4; ++i) {
@@ -7556,8 +7760,9 @@ public class ExifInterface {
                 for (Map.Entry<String, ExifAttribute> entry : mAttributes[ifdType].entrySet()) {
                     ExifAttribute attribute = entry.getValue();
 
-                    if (attribute.bytes.length > 4) {
-                        dataOutputStream.write(attribute.bytes, 0, attribute.bytes.length);
+                    final byte[] bytes = attribute.getBytes();
+                    if (bytes.length > 4) {
+                        dataOutputStream.write(bytes, 0, bytes.length);
                     }
                 }
             }
@@ -7664,11 +7869,21 @@ public class ExifInterface {
     // An input stream class that can parse both little and big endian order data and also
     // supports seeking to any position in the stream via mark/reset.
     private static class SeekableByteOrderedDataInputStream extends ByteOrderedDataInputStream {
+        private final byte[] mData;
+        private final int mDataOffset;
+
         SeekableByteOrderedDataInputStream(byte[] bytes) throws IOException {
-            super(bytes);
+            this(bytes, 0, bytes.length);
+        }
+
+        SeekableByteOrderedDataInputStream(byte[] bytes, int offset, int length)
+                throws IOException {
+            super(bytes, offset, length);
             // No need to check if mark is supported here since ByteOrderedDataInputStream will
             // create a ByteArrayInputStream, which supports mark by default.
             mDataInputStream.mark(Integer.MAX_VALUE);
+            mData = bytes;
+            mDataOffset = offset;
         }
 
         /**
@@ -7686,6 +7901,23 @@ public class ExifInterface {
             // stream for certain) so that InputStream.reset() may be called at any point in the
             // stream to reset the stream to an earlier position.
             mDataInputStream.mark(Integer.MAX_VALUE);
+            mData = null;
+            mDataOffset = 0;
+        }
+
+        /**
+         * Returns the byte array this stream reads from, or null if it reads from another stream.
+         */
+        @Nullable
+        public byte[] getData() {
+            return mData;
+        }
+
+        /**
+         * Returns the offset in {@link #getData()} this stream starts at.
+         */
+        public int getDataOffset() {
+            return mDataOffset;
         }
 
         /**
@@ -7703,6 +7935,102 @@ public class ExifInterface {
         }
     }
 
+    // An input stream that reads from a file channel. Unlike BufferedInputStream, it supports
+    // mark/reset by repositioning the channel, so seeking back to the start of a large image
+    // doesn't require buffering all data read since then.
+    private static class FileChannelInputStream extends InputStream {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final FileChannel mChannel;
+        private final ByteBuffer mBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        // Position of the channel the buffered data starts at.
+        private long mBufferPosition;
+        private long mMarkPosition;
+
+        FileChannelInputStream(FileChannel channel, long position) throws IOException {
+            mChannel = channel;
+            mMarkPosition = position;
+            seekTo(position);
+        }
+
+        private void seekTo(long position) throws IOException {
+            mChannel.position(position);
+            mBufferPosition = position;
+            mBuffer.clear();
+            mBuffer.limit(0);
+        }
+
+        private boolean fillBuffer() throws IOException {
+            mBufferPosition += mBuffer.limit();
+            mBuffer.clear();
+            int bytesRead = mChannel.read(mBuffer);
+            mBuffer.flip();
+            return bytesRead > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!mBuffer.hasRemaining() && !fillBuffer()) {
+                return -1;
+            }
+            return mBuffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining() && !fillBuffer()) {
+                return -1;
+            }
+            int bytesRead = Math.min(len, mBuffer.remaining());
+            mBuffer.get(b, off, bytesRead);
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            if (n <= mBuffer.remaining()) {
+                mBuffer.position(mBuffer.position() + (int) n);
+                return n;
+            }
+            long position = mBufferPosition + mBuffer.position();
+            long target = Math.min(position + n, mChannel.size());
+            if (target <= position) {
+                return 0;
+            }
+            seekTo(target);
+            return target - position;
+        }
+
+        @Override
+        public int available() throws IOException {
+            // Like FileInputStream, the bytes left in the file rather than in the buffer, which is
+            // empty after a seek. MediaDataSource.readAt in getHeifAttributes relies on this.
+            long remaining = mChannel.size() - (mBufferPosition + mBuffer.position());
+            return (int) Math.max(0, Math.min(remaining, Integer.MAX_VALUE));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            mMarkPosition = mBufferPosition + mBuffer.position();
+        }
+
+        @Override
+        public void reset() throws IOException {
+            seekTo(mMarkPosition);
+        }
+    }
+
     // An input stream class that can parse both little and big endian order data.
     private static class ByteOrderedDataInputStream extends InputStream implements DataInput {
 
@@ -7715,8 +8043,12 @@ public class ExifInterface {
         private int mLength;
 
         ByteOrderedDataInputStream(byte[] bytes) throws IOException {
-            this(new ByteArrayInputStream(bytes), BIG_ENDIAN);
-            this.mLength = bytes.length;
+            this(bytes, 0, bytes.length);
+        }
+
+        ByteOrderedDataInputStream(byte[] bytes, int offset, int length) throws IOException {
+            this(new ByteArrayInputStream(bytes, offset, length), BIG_ENDIAN);
+            this.mLength = length;
         }
 
         ByteOrderedDataInputStream(InputStream in) throws IOException {
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.lifecycle
+
+import androidx.annotation.RestrictTo
+
+/**
+ * Index of the [GeneratedAdapter]s of a module, generated by lifecycle-compiler as
+ * [Lifecycling.GENERATED_ADAPTER_REGISTRY_NAME] when the `lifecycle.generateAdapterRegistry`
+ * option is set.
+ *
+ * [Lifecycling] consults it before looking adapters up by name, so that observers it knows
+ * about don't cost a failed class lookup.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface GeneratedAdapterRegistry {
+    /**
+     * Returns `true` if the registry knows whether the observer class has a generated adapter.
+     *
+     * @param observerClassName The binary name of the observer class
+     */
+    public fun isKnownObserver(observerClassName: String): Boolean
+
+    /**
+     * Returns the adapter generated for the observer class, or `null` if it has none.
+     *
+     * @param observerClassName The binary name of the observer class
+     */
+    public fun getAdapterClass(observerClassName: String): Class<out GeneratedAdapter>?
+}
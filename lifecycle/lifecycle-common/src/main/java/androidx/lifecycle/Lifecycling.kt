@@ -18,6 +18,7 @@ package androidx.lifecycle
 import androidx.annotation.RestrictTo
 import java.lang.reflect.Constructor
 import java.lang.reflect.InvocationTargetException
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Internal class to handle lifecycle conversion etc.
@@ -26,9 +27,21 @@ import java.lang.reflect.InvocationTargetException
 public object Lifecycling {
     private const val REFLECTIVE_CALLBACK = 1
     private const val GENERATED_CALLBACK = 2
-    private val callbackCache: MutableMap<Class<*>, Int> = HashMap()
+
+    /**
+     * The name of the [GeneratedAdapterRegistry] generated in the application module.
+     */
+    public const val GENERATED_ADAPTER_REGISTRY_NAME: String =
+        "androidx.lifecycle.GeneratedAdapterRegistry_Impl"
+    // Observers can be added from any thread when the lifecycle doesn't enforce the main thread.
+    private val callbackCache: MutableMap<Class<*>, Int> = ConcurrentHashMap()
     private val classToAdapters: MutableMap<Class<*>, List<Constructor<out GeneratedAdapter>>> =
-        HashMap()
+        ConcurrentHashMap()
+
+    // The registry generated in the application module, if any.
+    private val generatedAdapterRegistry: GeneratedAdapterRegistry? by lazy {
+        loadGeneratedAdapterRegistry()
+    }
 
     @JvmStatic
     @Suppress("DEPRECATION")
@@ -80,8 +93,35 @@ public object Lifecycling {
         }
     }
 
-    @Suppress("DEPRECATION")
+    private fun loadGeneratedAdapterRegistry(): GeneratedAdapterRegistry? {
+        return try {
+            Class.forName(GENERATED_ADAPTER_REGISTRY_NAME)
+                .getDeclaredConstructor()
+                .newInstance() as GeneratedAdapterRegistry
+        } catch (e: ClassNotFoundException) {
+            null
+        } catch (e: NoSuchMethodException) {
+            throw RuntimeException(e)
+        } catch (e: IllegalAccessException) {
+            throw RuntimeException(e)
+        } catch (e: InstantiationException) {
+            throw RuntimeException(e)
+        } catch (e: InvocationTargetException) {
+            throw RuntimeException(e)
+        }
+    }
+
     private fun generatedConstructor(klass: Class<*>): Constructor<out GeneratedAdapter>? {
+        val registry = generatedAdapterRegistry
+        if (registry != null && registry.isKnownObserver(klass.name)) {
+            val adapterClass = registry.getAdapterClass(klass.name) ?: return null
+            return adapterConstructor(adapterClass, klass)
+        }
+        return lookUpGeneratedConstructor(klass)
+    }
+
+    @Suppress("DEPRECATION")
+    private fun lookUpGeneratedConstructor(klass: Class<*>): Constructor<out GeneratedAdapter>? {
         return try {
             val aPackage = klass.getPackage()
             val name = klass.canonicalName
@@ -95,13 +135,22 @@ public object Lifecycling {
             val aClass = Class.forName(
                 if (fullPackage.isEmpty()) adapterName else "$fullPackage.$adapterName"
             ) as Class<out GeneratedAdapter>
-            val constructor = aClass.getDeclaredConstructor(klass)
+            adapterConstructor(aClass, klass)
+        } catch (e: ClassNotFoundException) {
+            null
+        }
+    }
+
+    private fun adapterConstructor(
+        adapterClass: Class<out GeneratedAdapter>,
+        klass: Class<*>
+    ): Constructor<out GeneratedAdapter> {
+        return try {
+            val constructor = adapterClass.getDeclaredConstructor(klass)
             if (!constructor.isAccessible) {
                 constructor.isAccessible = true
             }
             constructor
-        } catch (e: ClassNotFoundException) {
-            null
         } catch (e: NoSuchMethodException) {
             // this should not happen
             throw RuntimeException(e)
@@ -123,6 +172,10 @@ public object Lifecycling {
         if (klass.canonicalName == null) {
             return REFLECTIVE_CALLBACK
         }
+        // It has neither an adapter nor methods, don't look for them.
+        if (klass == LifecycleObserver::class.java) {
+            return REFLECTIVE_CALLBACK
+        }
         val constructor = generatedConstructor(klass)
         if (constructor != null) {
             classToAdapters[klass] = listOf(constructor)
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle
+
+import androidx.lifecycle.observers.RegisteredBase
+import androidx.lifecycle.observers.RegisteredBaseAdapter
+import androidx.lifecycle.observers.RegisteredWithoutAdapter
+
+/**
+ * Stands for the registry lifecycle-compiler generates in the application module.
+ */
+@Suppress("ClassName")
+class GeneratedAdapterRegistry_Impl : GeneratedAdapterRegistry {
+    private val adapters: Map<String, Class<out GeneratedAdapter>?> = mapOf(
+        RegisteredBase::class.java.name to RegisteredBaseAdapter::class.java,
+        RegisteredWithoutAdapter::class.java.name to null
+    )
+
+    override fun isKnownObserver(observerClassName: String): Boolean {
+        return observerClassName in adapters
+    }
+
+    override fun getAdapterClass(observerClassName: String): Class<out GeneratedAdapter>? {
+        return adapters[observerClassName]
+    }
+}
@@ -16,6 +16,7 @@
 package androidx.lifecycle
 
 import androidx.lifecycle.Lifecycling.lifecycleEventObserver
+import androidx.lifecycle.observers.DerivedFromRegisteredBase
 import androidx.lifecycle.observers.DerivedSequence1
 import androidx.lifecycle.observers.DerivedSequence2
 import androidx.lifecycle.observers.DerivedWithNewMethods
@@ -25,6 +26,8 @@ import androidx.lifecycle.observers.InterfaceImpl1
 import androidx.lifecycle.observers.InterfaceImpl2
 import androidx.lifecycle.observers.InterfaceImpl3
 import androidx.lifecycle.observers.NoOpLifecycle
+import androidx.lifecycle.observers.RegisteredBase
+import androidx.lifecycle.observers.RegisteredWithoutAdapter
 import org.hamcrest.CoreMatchers.instanceOf
 import org.hamcrest.CoreMatchers.`is`
 import org.hamcrest.MatcherAssert.assertThat
@@ -114,6 +117,37 @@ class LifecyclingTest {
         )
     }
 
+    @Test
+    fun testAdapterFromRegistry() {
+        // The adapter doesn't follow the naming convention, only the registry knows about it.
+        val callback = lifecycleEventObserver(RegisteredBase())
+        assertThat(
+            callback, instanceOf(
+                SingleGeneratedAdapterObserver::class.java
+            )
+        )
+    }
+
+    @Test
+    fun testDerivedFromObserverWithAdapterFromRegistry() {
+        val callback = lifecycleEventObserver(DerivedFromRegisteredBase())
+        assertThat(
+            callback, instanceOf(
+                SingleGeneratedAdapterObserver::class.java
+            )
+        )
+    }
+
+    @Test
+    fun testNoAdapterFromRegistry() {
+        val callback = lifecycleEventObserver(RegisteredWithoutAdapter())
+        assertThat(
+            callback, instanceOf(
+                ReflectiveGenericLifecycleObserver::class.java
+            )
+        )
+    }
+
     // MUST BE HERE TILL Lifecycle 3.0.0 release for back-compatibility with other modules
     @Suppress("deprecation")
     @Test
@@ -13,27 +13,89 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package androidx.lifecycle
 
+import androidx.lifecycle.model.AdapterClass
+import androidx.lifecycle.model.InputModel
+import androidx.lifecycle.model.getAdapterName
+import com.squareup.javapoet.ClassName
 import javax.annotation.processing.AbstractProcessor
 import javax.annotation.processing.RoundEnvironment
 import javax.annotation.processing.SupportedAnnotationTypes
 import javax.lang.model.SourceVersion
 import javax.lang.model.element.TypeElement
 
+/**
+ * Generates the adapters of the lifecycle observers, and also their registry in the application
+ * module if [GENERATE_ADAPTER_REGISTRY_OPTION] is set.
+ */
 @SupportedAnnotationTypes("androidx.lifecycle.OnLifecycleEvent")
 class LifecycleProcessor : AbstractProcessor() {
+
+    // The adapter of each observer class seen so far, by binary name, or null if it has none.
+    private val registryEntries: MutableMap<String, ClassName?> = mutableMapOf()
+    private val registryOriginatingElements: MutableSet<TypeElement> = mutableSetOf()
+    private var registryWritten = false
+
+    private val generateAdapterRegistry: Boolean
+        get() = processingEnv.options[GENERATE_ADAPTER_REGISTRY_OPTION]?.toBoolean() == true
+
     override fun process(
         annotations: MutableSet<out TypeElement>,
         roundEnv: RoundEnvironment
     ): Boolean {
         val input = collectAndVerifyInput(processingEnv, roundEnv)
-        writeModels(transformToOutput(processingEnv, input), processingEnv)
+        val adapters = transformToOutput(processingEnv, input)
+        writeModels(adapters, processingEnv)
+        if (generateAdapterRegistry && !registryWritten) {
+            collectRegistryEntries(input, adapters)
+            // Written in the first round which generates no adapter rather than once processing
+            // is over, as javac warns about sources generated in the last round.
+            if (adapters.isEmpty()) {
+                writeRegistry(registryEntries, registryOriginatingElements, processingEnv)
+                registryWritten = true
+            }
+        }
         return true
     }
 
+    private fun collectRegistryEntries(input: InputModel, adapters: List<AdapterClass>) {
+        val adapterTypes = adapters.map { it.type }.toSet()
+        input.observersInfo.keys.forEach { type ->
+            val hasAdapter = type in adapterTypes || type in input.generatedAdapters
+            val adapterName = if (hasAdapter) {
+                ClassName.get(type.getPackageQName(), getAdapterName(type))
+            } else {
+                null
+            }
+            registryEntries[processingEnv.elementUtils.getBinaryName(type).toString()] =
+                adapterName
+            if (input.isRootType(type)) {
+                registryOriginatingElements.add(type)
+            }
+        }
+    }
+
     override fun getSupportedSourceVersion(): SourceVersion {
         return SourceVersion.latest()
     }
+
+    override fun getSupportedOptions(): Set<String> {
+        // The registry depends on all the observers of the module.
+        val incrementalType = if (generateAdapterRegistry) {
+            "org.gradle.annotation.processing.aggregating"
+        } else {
+            "org.gradle.annotation.processing.isolating"
+        }
+        return setOf(GENERATE_ADAPTER_REGISTRY_OPTION, incrementalType)
+    }
+
+    companion object {
+        /**
+         * Generates a registry of the observers of the module, so that Lifecycling doesn't look
+         * their adapters up by name. Only one module of an app can set it, usually the
+         * application module.
+         */
+        const val GENERATE_ADAPTER_REGISTRY_OPTION = "lifecycle.generateAdapterRegistry"
+    }
 }
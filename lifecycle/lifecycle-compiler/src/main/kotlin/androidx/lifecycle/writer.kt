@@ -25,8 +25,10 @@ import com.squareup.javapoet.FieldSpec
 import com.squareup.javapoet.JavaFile
 import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
 import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
+import com.squareup.javapoet.WildcardTypeName
 import javax.annotation.processing.ProcessingEnvironment
 import javax.lang.model.element.Modifier
 import javax.lang.model.element.TypeElement
@@ -138,6 +140,90 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
     generateKeepRule(adapter.type, processingEnv)
 }
 
+/**
+ * Writes the [GeneratedAdapterRegistry] of the module, mapping the binary name of each observer
+ * class to its adapter, or to null if it has none.
+ */
+fun writeRegistry(
+    entries: Map<String, ClassName?>,
+    originatingElements: Set<TypeElement>,
+    processingEnv: ProcessingEnvironment
+) {
+    val adapterClassType = ParameterizedTypeName.get(
+        ClassName.get(Class::class.java),
+        WildcardTypeName.subtypeOf(GeneratedAdapter::class.java)
+    )
+    val adaptersField = FieldSpec.builder(
+        ParameterizedTypeName.get(
+            ClassName.get(Map::class.java), ClassName.get(String::class.java), adapterClassType
+        ),
+        "mAdapters", Modifier.PRIVATE, Modifier.FINAL
+    ).initializer("new $T<>()", HashMap::class.java).build()
+    val constructor = MethodSpec.constructorBuilder().addModifiers(Modifier.PUBLIC).apply {
+        entries.toSortedMap().forEach { (observerName, adapterName) ->
+            if (adapterName == null) {
+                addStatement("$N.put($S, null)", adaptersField, observerName)
+            } else {
+                addStatement("$N.put($S, $T.class)", adaptersField, observerName, adapterName)
+            }
+        }
+    }.build()
+    val observerNameParam = ParameterSpec.builder(
+        ClassName.get(String::class.java), "observerClassName"
+    ).build()
+    val isKnownObserver = MethodSpec.methodBuilder("isKnownObserver")
+        .returns(TypeName.BOOLEAN)
+        .addParameter(observerNameParam)
+        .addModifiers(Modifier.PUBLIC)
+        .addAnnotation(Override::class.java)
+        .addStatement("return $N.containsKey($N)", adaptersField, observerNameParam)
+        .build()
+    val getAdapterClass = MethodSpec.methodBuilder("getAdapterClass")
+        .returns(adapterClassType)
+        .addParameter(observerNameParam)
+        .addModifiers(Modifier.PUBLIC)
+        .addAnnotation(Override::class.java)
+        .addStatement("return $N.get($N)", adaptersField, observerNameParam)
+        .build()
+
+    val registryName = ClassName.bestGuess(Lifecycling.GENERATED_ADAPTER_REGISTRY_NAME)
+    val registryTypeSpecBuilder = TypeSpec.classBuilder(registryName)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addSuperinterface(ClassName.get(GeneratedAdapterRegistry::class.java))
+        .addField(adaptersField)
+        .addMethod(constructor)
+        .addMethod(isKnownObserver)
+        .addMethod(getAdapterClass)
+    originatingElements.forEach { registryTypeSpecBuilder.addOriginatingElement(it) }
+
+    addGeneratedAnnotationIfAvailable(registryTypeSpecBuilder, processingEnv)
+
+    JavaFile.builder(registryName.packageName(), registryTypeSpecBuilder.build())
+        .build().writeTo(processingEnv.filer)
+
+    generateRegistryKeepRule(entries.keys, originatingElements, processingEnv)
+}
+
+private fun generateRegistryKeepRule(
+    observerNames: Set<String>,
+    originatingElements: Set<TypeElement>,
+    processingEnv: ProcessingEnvironment
+) {
+    // The registry is looked up by name, and keyed by the names of the observers.
+    val keepRule = StringBuilder().apply {
+        append("# Generated keep rule for Lifecycle adapter registry.\n")
+        append("-keep class ${Lifecycling.GENERATED_ADAPTER_REGISTRY_NAME} {\n")
+        append("    <init>();\n")
+        append("}\n")
+        observerNames.sorted().forEach { append("-keepnames class $it\n") }
+    }.toString()
+    val path = "META-INF/proguard/${Lifecycling.GENERATED_ADAPTER_REGISTRY_NAME}.pro"
+    val out = processingEnv.filer.createResource(
+        StandardLocation.CLASS_OUTPUT, "", path, *originatingElements.toTypedArray()
+    )
+    out.openWriter().use { it.write(keepRule) }
+}
+
 private fun addGeneratedAnnotationIfAvailable(
     adapterTypeSpecBuilder: TypeSpec.Builder,
     processingEnv: ProcessingEnvironment
@@ -139,6 +139,24 @@ class ValidCasesTest {
         doesntGenerateClass(compileTester, "foo", "DerivedFromJar1_LifecycleAdapter")
     }
 
+    @Test
+    fun testAdapterRegistry() {
+        JavaSourcesSubject.assertThat(
+            load("foo.DerivedFromJar", ""),
+            load("foo.DerivedFromJar1", "")
+        )
+            .withClasspath(libraryClasspathFiles())
+            .withCompilerOptions("-Alifecycle.generateAdapterRegistry=true")
+            .processedWith(LifecycleProcessor())
+            // No warning about the registry being generated in the last round.
+            .compilesWithoutWarnings().and()
+            .generatesSources(
+                load("foo.DerivedFromJar_LifecycleAdapter", "expected"),
+                load("androidx.lifecycle.GeneratedAdapterRegistry_Impl", "expected")
+            )
+            .and().generatesProGuardRule("androidx.lifecycle.GeneratedAdapterRegistry_Impl.pro")
+    }
+
     // compile-testing has fancy, but not always convenient API
     private fun doesntGenerateClass(
         compile: CompileTester.SuccessfulCompilationClause,
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import foo.DerivedFromJar_LifecycleAdapter;
+import java.lang.Class;
+import java.lang.Override;
+import java.lang.String;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Generated;
+import test.library.LibraryBaseObserver_LifecycleAdapter;
+
+@Generated("androidx.lifecycle.LifecycleProcessor")
+public final class GeneratedAdapterRegistry_Impl implements GeneratedAdapterRegistry {
+  private final Map<String, Class<? extends GeneratedAdapter>> mAdapters = new HashMap<>();
+
+  public GeneratedAdapterRegistry_Impl() {
+    mAdapters.put("foo.DerivedFromJar", DerivedFromJar_LifecycleAdapter.class);
+    mAdapters.put("foo.DerivedFromJar1", null);
+    mAdapters.put("test.library.LibraryBaseObserver", LibraryBaseObserver_LifecycleAdapter.class);
+    mAdapters.put("test.library.PPObserverNoAdapter", null);
+  }
+
+  @Override
+  public boolean isKnownObserver(String observerClassName) {
+    return mAdapters.containsKey(observerClassName);
+  }
+
+  @Override
+  public Class<? extends GeneratedAdapter> getAdapterClass(String observerClassName) {
+    return mAdapters.get(observerClassName);
+  }
+}
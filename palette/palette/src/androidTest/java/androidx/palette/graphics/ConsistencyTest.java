@@ -19,6 +19,7 @@ package androidx.palette.graphics;
 import static org.junit.Assert.assertEquals;
 
 import android.graphics.Bitmap;
+import android.graphics.Color;
 
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
@@ -26,6 +27,9 @@ import androidx.test.filters.SmallTest;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @RunWith(AndroidJUnit4.class)
 public class ConsistencyTest {
 
@@ -46,6 +50,46 @@ public class ConsistencyTest {
         }
     }
 
+    @Test
+    @SmallTest
+    public void testKMeansConsistency() {
+        Palette lastPalette = null;
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+
+        for (int i = 0; i < NUMBER_TRIALS; i++) {
+            Palette newPalette = Palette.from(bitmap)
+                    .setQuantizer(Palette.QUANTIZER_K_MEANS)
+                    .generate();
+            if (lastPalette != null) {
+                assetPalettesEqual(lastPalette, newPalette);
+            }
+            lastPalette = newPalette;
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testExecutorConsistency() {
+        // Large enough for the colors to be counted in parallel
+        final Bitmap bitmap = Bitmap.createBitmap(1024, 1024, Bitmap.Config.ARGB_8888);
+        for (int y = 0; y < bitmap.getHeight(); y++) {
+            for (int x = 0; x < bitmap.getWidth(); x++) {
+                bitmap.setPixel(x, y, Color.rgb(x / 4, y / 4, (x + y) / 8));
+            }
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Palette sequential = Palette.from(bitmap).resizeBitmapArea(0).generate();
+            Palette parallel = Palette.from(bitmap)
+                    .resizeBitmapArea(0)
+                    .setExecutor(executor)
+                    .generate();
+            assertEquals(sequential.getSwatches(), parallel.getSwatches());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private static void assetPalettesEqual(Palette p1, Palette p2) {
         assertEquals(p1.getVibrantSwatch(), p2.getVibrantSwatch());
         assertEquals(p1.getLightVibrantSwatch(), p2.getLightVibrantSwatch());
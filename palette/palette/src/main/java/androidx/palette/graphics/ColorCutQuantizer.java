@@ -18,15 +18,18 @@ package androidx.palette.graphics;
 
 import android.graphics.Color;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.graphics.ColorUtils;
 
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An color quantizer based on the Median-cut algorithm, but optimized for picking out distinct
@@ -40,6 +43,13 @@ import java.util.PriorityQueue;
  * have roughly the same population, where this quantizer divides boxes based on their color volume.
  * This means that the color space is divided into distinct colors, rather than representative
  * colors.
+ *
+ * With {@link Palette#QUANTIZER_K_MEANS}, the resulting boxes are used as the initial clusters of
+ * a k-means refinement, which moves each color to the cluster with the nearest mean.
+ *
+ * The boxes are stored in primitive arrays, and the histogram, color and box arrays are kept in a
+ * per-thread {@link Scratch} so that generating many palettes doesn't allocate them every time.
+ * It is softly referenced, so idle threads don't hold on to it when memory runs low.
  */
 final class ColorCutQuantizer {
     static final int COMPONENT_RED = -3;
@@ -48,9 +58,35 @@ final class ColorCutQuantizer {
 
     private static final int QUANTIZE_WORD_WIDTH = 5;
     private static final int QUANTIZE_WORD_MASK = (1 << QUANTIZE_WORD_WIDTH) - 1;
+    private static final int HISTOGRAM_SIZE = 1 << (QUANTIZE_WORD_WIDTH * 3);
+
+    // The number of pixels each stripe should have at least for a parallel histogram to be faster
+    // than a sequential one, given that the stripe histograms have to be merged afterwards.
+    private static final int MIN_PIXELS_PER_STRIPE = 1 << 16;
+
+    private static final int KMEANS_MAX_ITERATIONS = 8;
+
+    // Layout of a box in the boxes array. The lower and upper index are inclusive.
+    private static final int BOX_LOWER_INDEX = 0;
+    private static final int BOX_UPPER_INDEX = 1;
+    private static final int BOX_POPULATION = 2;
+    private static final int BOX_MIN_RED = 3;
+    private static final int BOX_MAX_RED = 4;
+    private static final int BOX_MIN_GREEN = 5;
+    private static final int BOX_MAX_GREEN = 6;
+    private static final int BOX_MIN_BLUE = 7;
+    private static final int BOX_MAX_BLUE = 8;
+    private static final int BOX_SIZE = 9;
+
+    private static final ThreadLocal<SoftReference<Scratch>> sScratch = new ThreadLocal<>();
 
+    // These reference the scratch arrays, so are only valid while quantizing.
     final int[] mColors;
     final int[] mHistogram;
+    private final int[] mBoxes;
+    private final int[] mQueue;
+    private final int mColorCount;
+
     final List<Palette.Swatch> mQuantizedColors;
     @Nullable final Palette.Filter[] mFilters;
 
@@ -59,23 +95,26 @@ final class ColorCutQuantizer {
     /**
      * Constructor.
      *
-     * @param pixels histogram representing an image's pixel data
+     * @param pixels array containing an image's pixel data
+     * @param pixelCount The number of pixels in {@code pixels} to use, starting from the first.
      * @param maxColors The maximum number of colors that should be in the result palette.
      * @param filters Set of filters to use in the quantization stage
+     * @param quantizer The quantization algorithm to use, one of {@link Palette.Quantizer}.
+     * @param executor Executor to build the histogram of large images on, or null to build it
+     *                 on the calling thread.
+     * @param scratch Scratch buffers to use, obtained from {@link #obtainScratch()}.
      */
-    ColorCutQuantizer(int[] pixels, int maxColors, @Nullable Palette.Filter[] filters) {
+    ColorCutQuantizer(int[] pixels, int pixelCount, int maxColors,
+            @Nullable Palette.Filter[] filters, @Palette.Quantizer int quantizer,
+            @Nullable Executor executor, @NonNull Scratch scratch) {
         mFilters = filters;
 
-        final int[] hist = mHistogram = new int[1 << (QUANTIZE_WORD_WIDTH * 3)];
-        for (int i = 0; i < pixels.length; i++) {
-            final int quantizedColor = quantizeFromRgb888(pixels[i]);
-            // Now update the pixel value to the quantized value
-            pixels[i] = quantizedColor;
-            // And update the histogram
-            hist[quantizedColor]++;
-        }
+        final int[] hist = mHistogram = scratch.mHistogram;
+        buildHistogram(pixels, pixelCount, hist, executor);
 
-        // Now let's count the number of distinct colors
+        // Now let's count the number of distinct colors, and create an array consisting of only
+        // distinct colors
+        final int[] colors = mColors = scratch.mColors;
         int distinctColorCount = 0;
         for (int color = 0; color < hist.length; color++) {
             if (hist[color] > 0 && shouldIgnoreColor(color)) {
@@ -83,29 +122,32 @@ final class ColorCutQuantizer {
                 hist[color] = 0;
             }
             if (hist[color] > 0) {
-                // If the color has population, increase the distinct color count
-                distinctColorCount++;
-            }
-        }
-
-        // Now lets go through create an array consisting of only distinct colors
-        final int[] colors = mColors = new int[distinctColorCount];
-        int distinctColorIndex = 0;
-        for (int color = 0; color < hist.length; color++) {
-            if (hist[color] > 0) {
-                colors[distinctColorIndex++] = color;
+                // If the color has population, add it to the distinct colors
+                colors[distinctColorCount++] = color;
             }
         }
+        mColorCount = distinctColorCount;
 
         if (distinctColorCount <= maxColors) {
             // The image has fewer colors than the maximum requested, so just return the colors
+            mBoxes = null;
+            mQueue = null;
             mQuantizedColors = new ArrayList<>();
-            for (int color : colors) {
+            for (int i = 0; i < distinctColorCount; i++) {
+                final int color = colors[i];
                 mQuantizedColors.add(new Palette.Swatch(approximateToRgb888(color), hist[color]));
             }
         } else {
             // We need use quantization to reduce the number of colors
-            mQuantizedColors = quantizePixels(maxColors);
+            final int boxCapacity = Math.max(maxColors, 1);
+            mBoxes = scratch.boxes(boxCapacity * BOX_SIZE);
+            mQueue = scratch.queue(boxCapacity);
+            final int boxCount = quantizePixels(maxColors);
+            if (quantizer == Palette.QUANTIZER_K_MEANS) {
+                mQuantizedColors = refineWithKMeans(boxCount, scratch);
+            } else {
+                mQuantizedColors = generateAverageColors(boxCount);
+            }
         }
     }
 
@@ -116,51 +158,196 @@ final class ColorCutQuantizer {
         return mQuantizedColors;
     }
 
-    private List<Palette.Swatch> quantizePixels(int maxColors) {
-        // Create the priority queue which is sorted by volume descending. This means we always
-        // split the largest box in the queue
-        final PriorityQueue<Vbox> pq = new PriorityQueue<>(maxColors, VBOX_COMPARATOR_VOLUME);
+    /**
+     * Returns the scratch buffers of the calling thread. They must be handed back with
+     * {@link #releaseScratch(Scratch)} once the quantizer has been created.
+     */
+    @NonNull
+    static Scratch obtainScratch() {
+        final SoftReference<Scratch> reference = sScratch.get();
+        final Scratch scratch = reference != null ? reference.get() : null;
+        if (scratch == null) {
+            return new Scratch();
+        }
+        // Remove it while in use, in case a filter generates a palette itself
+        sScratch.set(null);
+        return scratch;
+    }
+
+    static void releaseScratch(@NonNull Scratch scratch) {
+        sScratch.set(new SoftReference<>(scratch));
+    }
+
+    /**
+     * Fills the histogram with the populations of the quantized colors of the pixels. Large
+     * images are split in stripes which are counted in parallel on the executor and the calling
+     * thread.
+     */
+    private static void buildHistogram(final int[] pixels, final int pixelCount, final int[] hist,
+            @Nullable Executor executor) {
+        Arrays.fill(hist, 0);
+        final int stripeCount = executor == null ? 1 : Math.min(
+                Runtime.getRuntime().availableProcessors(), pixelCount / MIN_PIXELS_PER_STRIPE);
+        if (stripeCount <= 1) {
+            countColors(pixels, 0, pixelCount, hist);
+            return;
+        }
+
+        // The first stripe is counted straight into the result histogram
+        final int[][] stripeHistograms = new int[stripeCount][];
+        stripeHistograms[0] = hist;
+        for (int i = 1; i < stripeCount; i++) {
+            stripeHistograms[i] = new int[HISTOGRAM_SIZE];
+        }
+        final AtomicInteger nextStripe = new AtomicInteger();
+        final CountDownLatch countedStripes = new CountDownLatch(stripeCount);
+        final Runnable countStripes = new Runnable() {
+            @Override
+            public void run() {
+                int stripe;
+                while ((stripe = nextStripe.getAndIncrement()) < stripeCount) {
+                    final long start = (long) pixelCount * stripe / stripeCount;
+                    final long end = (long) pixelCount * (stripe + 1) / stripeCount;
+                    countColors(pixels, (int) start, (int) end, stripeHistograms[stripe]);
+                    countedStripes.countDown();
+                }
+            }
+        };
+        for (int i = 1; i < stripeCount; i++) {
+            try {
+                executor.execute(countStripes);
+            } catch (RejectedExecutionException e) {
+                // The calling thread will count the remaining stripes
+                break;
+            }
+        }
+        // Count stripes on the calling thread too, so that we never wait for a task which hasn't
+        // started yet. We only wait for the stripes which are being counted on other threads.
+        countStripes.run();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                countedStripes.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (int i = 1; i < stripeCount; i++) {
+            final int[] stripeHistogram = stripeHistograms[i];
+            for (int color = 0; color < HISTOGRAM_SIZE; color++) {
+                hist[color] += stripeHistogram[color];
+            }
+        }
+    }
+
+    private static void countColors(int[] pixels, int start, int end, int[] hist) {
+        for (int i = start; i < end; i++) {
+            hist[quantizeFromRgb888(pixels[i])]++;
+        }
+    }
 
+    /**
+     * Splits the colors into boxes.
+     *
+     * @return the number of boxes in the queue
+     */
+    private int quantizePixels(int maxColors) {
         // To start, offer a box which contains all of the colors
-        pq.offer(new Vbox(0, mColors.length - 1));
+        setBox(0, 0, mColorCount - 1);
+        mQueue[0] = 0;
 
         // Now go through the boxes, splitting them until we have reached maxColors or there are no
         // more boxes to split
-        splitBoxes(pq, maxColors);
-
-        // Finally, return the average colors of the color boxes
-        return generateAverageColors(pq);
+        return splitBoxes(1, maxColors);
     }
 
     /**
-     * Iterate through the {@link java.util.Queue}, popping
-     * {@link ColorCutQuantizer.Vbox} objects from the queue
-     * and splitting them. Once split, the new box and the remaining box are offered back to the
-     * queue.
+     * Iterate through the queue, which is a binary heap sorted by volume descending, polling
+     * boxes from it and splitting them. This means we always split the largest box in the queue.
+     * Once split, the new box and the remaining box are offered back to the queue.
+     * <p>
+     * The queue is kept in exactly the same order as a {@link java.util.PriorityQueue} would, so
+     * that the resulting colors are in the same order.
      *
-     * @param queue {@link java.util.PriorityQueue} to poll for boxes
+     * @param size Number of boxes in the queue
      * @param maxSize Maximum amount of boxes to split
+     * @return the number of boxes in the queue
      */
-    private void splitBoxes(final PriorityQueue<Vbox> queue, final int maxSize) {
-        while (queue.size() < maxSize) {
-            final Vbox vbox = queue.poll();
+    private int splitBoxes(int size, final int maxSize) {
+        final int[] queue = mQueue;
+        int boxCount = size;
+        while (size < maxSize) {
+            // Poll the box with the largest volume
+            final int box = queue[0];
+            final int last = queue[--size];
+            if (size != 0) {
+                siftDown(0, last, size);
+            }
 
-            if (vbox != null && vbox.canSplit()) {
+            if (canSplit(box)) {
                 // First split the box, and offer the result
-                queue.offer(vbox.splitBox());
+                final int newBox = boxCount++;
+                splitBox(box, newBox);
+                siftUp(size++, newBox);
                 // Then offer the box back
-                queue.offer(vbox);
+                siftUp(size++, box);
             } else {
                 // If we get here then there are no more boxes to split, so return
-                return;
+                return size;
             }
         }
+        return size;
     }
 
-    private List<Palette.Swatch> generateAverageColors(Collection<Vbox> vboxes) {
-        ArrayList<Palette.Swatch> colors = new ArrayList<>(vboxes.size());
-        for (Vbox vbox : vboxes) {
-            Palette.Swatch swatch = vbox.getAverageColor();
+    private void siftUp(int k, int box) {
+        final int[] queue = mQueue;
+        while (k > 0) {
+            final int parent = (k - 1) >>> 1;
+            final int e = queue[parent];
+            if (compareVolumes(box, e) >= 0) {
+                break;
+            }
+            queue[k] = e;
+            k = parent;
+        }
+        queue[k] = box;
+    }
+
+    private void siftDown(int k, int box, int size) {
+        final int[] queue = mQueue;
+        final int half = size >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int c = queue[child];
+            final int right = child + 1;
+            if (right < size && compareVolumes(c, queue[right]) > 0) {
+                c = queue[child = right];
+            }
+            if (compareVolumes(box, c) <= 0) {
+                break;
+            }
+            queue[k] = c;
+            k = child;
+        }
+        queue[k] = box;
+    }
+
+    /**
+     * Sorts boxes based on their volume, in descending order.
+     */
+    private int compareVolumes(int lhs, int rhs) {
+        return getVolume(rhs) - getVolume(lhs);
+    }
+
+    private List<Palette.Swatch> generateAverageColors(int boxCount) {
+        ArrayList<Palette.Swatch> colors = new ArrayList<>(boxCount);
+        for (int i = 0; i < boxCount; i++) {
+            Palette.Swatch swatch = getAverageColor(mQueue[i]);
             if (!shouldIgnoreColor(swatch)) {
                 // As we're averaging a color box, we can still get colors which we do not want, so
                 // we check again here
@@ -171,199 +358,299 @@ final class ColorCutQuantizer {
     }
 
     /**
-     * Represents a tightly fitting box around a color space.
+     * Runs k-means over the distinct colors, weighted by their population, using the averages of
+     * the boxes as the initial means.
      */
-    private class Vbox {
-        // lower and upper index are inclusive
-        private int mLowerIndex;
-        private int mUpperIndex;
-        // Population of colors within this box
-        private int mPopulation;
-
-        private int mMinRed, mMaxRed;
-        private int mMinGreen, mMaxGreen;
-        private int mMinBlue, mMaxBlue;
-
-        Vbox(int lowerIndex, int upperIndex) {
-            mLowerIndex = lowerIndex;
-            mUpperIndex = upperIndex;
-            fitBox();
-        }
-
-        final int getVolume() {
-            return (mMaxRed - mMinRed + 1) * (mMaxGreen - mMinGreen + 1) *
-                    (mMaxBlue - mMinBlue + 1);
-        }
-
-        final boolean canSplit() {
-            return getColorCount() > 1;
-        }
-
-        final int getColorCount() {
-            return 1 + mUpperIndex - mLowerIndex;
+    private List<Palette.Swatch> refineWithKMeans(int boxCount, Scratch scratch) {
+        final int[] colors = mColors;
+        final int[] hist = mHistogram;
+        final int colorCount = mColorCount;
+        final float[] means = scratch.means(boxCount * 3);
+        final long[] sums = scratch.sums(boxCount * 4);
+        final int[] clusters = scratch.clusters(colorCount);
+
+        for (int i = 0; i < boxCount; i++) {
+            computeBoxMean(mQueue[i], means, i * 3);
         }
+        Arrays.fill(clusters, 0, colorCount, -1);
 
-        /**
-         * Recomputes the boundaries of this box to tightly fit the colors within the box.
-         */
-        final void fitBox() {
-            final int[] colors = mColors;
-            final int[] hist = mHistogram;
-
-            // Reset the min and max to opposite values
-            int minRed, minGreen, minBlue;
-            minRed = minGreen = minBlue = Integer.MAX_VALUE;
-            int maxRed, maxGreen, maxBlue;
-            maxRed = maxGreen = maxBlue = Integer.MIN_VALUE;
-            int count = 0;
-
-            for (int i = mLowerIndex; i <= mUpperIndex; i++) {
+        for (int iteration = 0; iteration < KMEANS_MAX_ITERATIONS; iteration++) {
+            Arrays.fill(sums, 0, boxCount * 4, 0);
+            boolean changed = false;
+            for (int i = 0; i < colorCount; i++) {
                 final int color = colors[i];
-                count += hist[color];
-
                 final int r = quantizedRed(color);
                 final int g = quantizedGreen(color);
                 final int b = quantizedBlue(color);
-                if (r > maxRed) {
-                    maxRed = r;
-                }
-                if (r < minRed) {
-                    minRed = r;
-                }
-                if (g > maxGreen) {
-                    maxGreen = g;
-                }
-                if (g < minGreen) {
-                    minGreen = g;
+
+                int nearest = 0;
+                float nearestDistance = Float.MAX_VALUE;
+                for (int cluster = 0; cluster < boxCount; cluster++) {
+                    final float dr = r - means[cluster * 3];
+                    final float dg = g - means[cluster * 3 + 1];
+                    final float db = b - means[cluster * 3 + 2];
+                    final float distance = dr * dr + dg * dg + db * db;
+                    if (distance < nearestDistance) {
+                        nearest = cluster;
+                        nearestDistance = distance;
+                    }
                 }
-                if (b > maxBlue) {
-                    maxBlue = b;
+                if (clusters[i] != nearest) {
+                    clusters[i] = nearest;
+                    changed = true;
                 }
-                if (b < minBlue) {
-                    minBlue = b;
+
+                final int population = hist[color];
+                sums[nearest * 4] += population * r;
+                sums[nearest * 4 + 1] += population * g;
+                sums[nearest * 4 + 2] += population * b;
+                sums[nearest * 4 + 3] += population;
+            }
+
+            for (int cluster = 0; cluster < boxCount; cluster++) {
+                final long population = sums[cluster * 4 + 3];
+                // A cluster which lost all of its colors keeps its mean
+                if (population > 0) {
+                    means[cluster * 3] = sums[cluster * 4] / (float) population;
+                    means[cluster * 3 + 1] = sums[cluster * 4 + 1] / (float) population;
+                    means[cluster * 3 + 2] = sums[cluster * 4 + 2] / (float) population;
                 }
             }
+            if (!changed) {
+                break;
+            }
+        }
 
-            mMinRed = minRed;
-            mMaxRed = maxRed;
-            mMinGreen = minGreen;
-            mMaxGreen = maxGreen;
-            mMinBlue = minBlue;
-            mMaxBlue = maxBlue;
-            mPopulation = count;
+        ArrayList<Palette.Swatch> swatches = new ArrayList<>(boxCount);
+        for (int cluster = 0; cluster < boxCount; cluster++) {
+            final long population = sums[cluster * 4 + 3];
+            if (population == 0) {
+                continue;
+            }
+            Palette.Swatch swatch = new Palette.Swatch(approximateToRgb888(
+                    Math.round(means[cluster * 3]),
+                    Math.round(means[cluster * 3 + 1]),
+                    Math.round(means[cluster * 3 + 2])), (int) population);
+            if (!shouldIgnoreColor(swatch)) {
+                swatches.add(swatch);
+            }
         }
+        return swatches;
+    }
 
-        /**
-         * Split this color box at the mid-point along its longest dimension
-         *
-         * @return the new ColorBox
-         */
-        final Vbox splitBox() {
-            if (!canSplit()) {
-                throw new IllegalStateException("Can not split a box with only 1 color");
+    // The methods below operate on the box starting at index box * BOX_SIZE in mBoxes.
+
+    private void setBox(int box, int lowerIndex, int upperIndex) {
+        final int offset = box * BOX_SIZE;
+        mBoxes[offset + BOX_LOWER_INDEX] = lowerIndex;
+        mBoxes[offset + BOX_UPPER_INDEX] = upperIndex;
+        fitBox(box);
+    }
+
+    private int getVolume(int box) {
+        final int[] boxes = mBoxes;
+        final int offset = box * BOX_SIZE;
+        return (boxes[offset + BOX_MAX_RED] - boxes[offset + BOX_MIN_RED] + 1)
+                * (boxes[offset + BOX_MAX_GREEN] - boxes[offset + BOX_MIN_GREEN] + 1)
+                * (boxes[offset + BOX_MAX_BLUE] - boxes[offset + BOX_MIN_BLUE] + 1);
+    }
+
+    private boolean canSplit(int box) {
+        final int offset = box * BOX_SIZE;
+        // i.e. the box contains more than 1 color
+        return mBoxes[offset + BOX_UPPER_INDEX] > mBoxes[offset + BOX_LOWER_INDEX];
+    }
+
+    /**
+     * Recomputes the boundaries of the box to tightly fit the colors within the box.
+     */
+    private void fitBox(int box) {
+        final int[] colors = mColors;
+        final int[] hist = mHistogram;
+        final int[] boxes = mBoxes;
+        final int offset = box * BOX_SIZE;
+
+        // Reset the min and max to opposite values
+        int minRed, minGreen, minBlue;
+        minRed = minGreen = minBlue = Integer.MAX_VALUE;
+        int maxRed, maxGreen, maxBlue;
+        maxRed = maxGreen = maxBlue = Integer.MIN_VALUE;
+        int count = 0;
+
+        for (int i = boxes[offset + BOX_LOWER_INDEX], upper = boxes[offset + BOX_UPPER_INDEX];
+                i <= upper; i++) {
+            final int color = colors[i];
+            count += hist[color];
+
+            final int r = quantizedRed(color);
+            final int g = quantizedGreen(color);
+            final int b = quantizedBlue(color);
+            if (r > maxRed) {
+                maxRed = r;
+            }
+            if (r < minRed) {
+                minRed = r;
+            }
+            if (g > maxGreen) {
+                maxGreen = g;
+            }
+            if (g < minGreen) {
+                minGreen = g;
+            }
+            if (b > maxBlue) {
+                maxBlue = b;
+            }
+            if (b < minBlue) {
+                minBlue = b;
             }
+        }
+
+        boxes[offset + BOX_MIN_RED] = minRed;
+        boxes[offset + BOX_MAX_RED] = maxRed;
+        boxes[offset + BOX_MIN_GREEN] = minGreen;
+        boxes[offset + BOX_MAX_GREEN] = maxGreen;
+        boxes[offset + BOX_MIN_BLUE] = minBlue;
+        boxes[offset + BOX_MAX_BLUE] = maxBlue;
+        boxes[offset + BOX_POPULATION] = count;
+    }
 
-            // find median along the longest dimension
-            final int splitPoint = findSplitPoint();
+    /**
+     * Split the color box at the mid-point along its longest dimension, into itself and the new
+     * box.
+     */
+    private void splitBox(int box, int newBox) {
+        // find median along the longest dimension
+        final int splitPoint = findSplitPoint(box);
+        final int offset = box * BOX_SIZE;
 
-            Vbox newBox = new Vbox(splitPoint + 1, mUpperIndex);
+        setBox(newBox, splitPoint + 1, mBoxes[offset + BOX_UPPER_INDEX]);
 
-            // Now change this box's upperIndex and recompute the color boundaries
-            mUpperIndex = splitPoint;
-            fitBox();
+        // Now change this box's upperIndex and recompute the color boundaries
+        mBoxes[offset + BOX_UPPER_INDEX] = splitPoint;
+        fitBox(box);
+    }
 
-            return newBox;
+    /**
+     * @return the dimension which the box is largest in
+     */
+    private int getLongestColorDimension(int box) {
+        final int[] boxes = mBoxes;
+        final int offset = box * BOX_SIZE;
+        final int redLength = boxes[offset + BOX_MAX_RED] - boxes[offset + BOX_MIN_RED];
+        final int greenLength = boxes[offset + BOX_MAX_GREEN] - boxes[offset + BOX_MIN_GREEN];
+        final int blueLength = boxes[offset + BOX_MAX_BLUE] - boxes[offset + BOX_MIN_BLUE];
+
+        if (redLength >= greenLength && redLength >= blueLength) {
+            return COMPONENT_RED;
+        } else if (greenLength >= redLength && greenLength >= blueLength) {
+            return COMPONENT_GREEN;
+        } else {
+            return COMPONENT_BLUE;
         }
+    }
 
-        /**
-         * @return the dimension which this box is largest in
-         */
-        final int getLongestColorDimension() {
-            final int redLength = mMaxRed - mMinRed;
-            final int greenLength = mMaxGreen - mMinGreen;
-            final int blueLength = mMaxBlue - mMinBlue;
-
-            if (redLength >= greenLength && redLength >= blueLength) {
-                return COMPONENT_RED;
-            } else if (greenLength >= redLength && greenLength >= blueLength) {
-                return COMPONENT_GREEN;
-            } else {
-                return COMPONENT_BLUE;
+    /**
+     * Finds the point within the box's lowerIndex and upperIndex index of where to split.
+     *
+     * This is calculated by finding the longest color dimension, and then sorting the
+     * sub-array based on that dimension value in each color. The colors are then iterated over
+     * until a color is found with at least the midpoint of the whole box's dimension midpoint.
+     *
+     * @return the index of the colors array to split from
+     */
+    private int findSplitPoint(int box) {
+        final int longestDimension = getLongestColorDimension(box);
+        final int[] colors = mColors;
+        final int[] hist = mHistogram;
+        final int offset = box * BOX_SIZE;
+        final int lowerIndex = mBoxes[offset + BOX_LOWER_INDEX];
+        final int upperIndex = mBoxes[offset + BOX_UPPER_INDEX];
+
+        // We need to sort the colors in this box based on the longest color dimension.
+        // As we can't use a Comparator to define the sort logic, we modify each color so that
+        // its most significant is the desired dimension
+        modifySignificantOctet(colors, longestDimension, lowerIndex, upperIndex);
+
+        // Now sort... Arrays.sort uses a exclusive toIndex so we need to add 1
+        Arrays.sort(colors, lowerIndex, upperIndex + 1);
+
+        // Now revert all of the colors so that they are packed as RGB again
+        modifySignificantOctet(colors, longestDimension, lowerIndex, upperIndex);
+
+        final int midPoint = mBoxes[offset + BOX_POPULATION] / 2;
+        for (int i = lowerIndex, count = 0; i <= upperIndex; i++)  {
+            count += hist[colors[i]];
+            if (count >= midPoint) {
+                // we never want to split on the upperIndex, as this will result in the same
+                // box
+                return Math.min(upperIndex - 1, i);
             }
         }
 
-        /**
-         * Finds the point within this box's lowerIndex and upperIndex index of where to split.
-         *
-         * This is calculated by finding the longest color dimension, and then sorting the
-         * sub-array based on that dimension value in each color. The colors are then iterated over
-         * until a color is found with at least the midpoint of the whole box's dimension midpoint.
-         *
-         * @return the index of the colors array to split from
-         */
-        final int findSplitPoint() {
-            final int longestDimension = getLongestColorDimension();
-            final int[] colors = mColors;
-            final int[] hist = mHistogram;
-
-            // We need to sort the colors in this box based on the longest color dimension.
-            // As we can't use a Comparator to define the sort logic, we modify each color so that
-            // its most significant is the desired dimension
-            modifySignificantOctet(colors, longestDimension, mLowerIndex, mUpperIndex);
-
-            // Now sort... Arrays.sort uses a exclusive toIndex so we need to add 1
-            Arrays.sort(colors, mLowerIndex, mUpperIndex + 1);
-
-            // Now revert all of the colors so that they are packed as RGB again
-            modifySignificantOctet(colors, longestDimension, mLowerIndex, mUpperIndex);
-
-            final int midPoint = mPopulation / 2;
-            for (int i = mLowerIndex, count = 0; i <= mUpperIndex; i++)  {
-                count += hist[colors[i]];
-                if (count >= midPoint) {
-                    // we never want to split on the upperIndex, as this will result in the same
-                    // box
-                    return Math.min(mUpperIndex - 1, i);
-                }
-            }
+        return lowerIndex;
+    }
 
-            return mLowerIndex;
+    /**
+     * @return the average color of the box.
+     */
+    private Palette.Swatch getAverageColor(int box) {
+        final int[] colors = mColors;
+        final int[] hist = mHistogram;
+        final int offset = box * BOX_SIZE;
+        int redSum = 0;
+        int greenSum = 0;
+        int blueSum = 0;
+        int totalPopulation = 0;
+
+        for (int i = mBoxes[offset + BOX_LOWER_INDEX], upper = mBoxes[offset + BOX_UPPER_INDEX];
+                i <= upper; i++) {
+            final int color = colors[i];
+            final int colorPopulation = hist[color];
+
+            totalPopulation += colorPopulation;
+            redSum += colorPopulation * quantizedRed(color);
+            greenSum += colorPopulation * quantizedGreen(color);
+            blueSum += colorPopulation * quantizedBlue(color);
         }
 
-        /**
-         * @return the average color of this box.
-         */
-        final Palette.Swatch getAverageColor() {
-            final int[] colors = mColors;
-            final int[] hist = mHistogram;
-            int redSum = 0;
-            int greenSum = 0;
-            int blueSum = 0;
-            int totalPopulation = 0;
-
-            for (int i = mLowerIndex; i <= mUpperIndex; i++) {
-                final int color = colors[i];
-                final int colorPopulation = hist[color];
-
-                totalPopulation += colorPopulation;
-                redSum += colorPopulation * quantizedRed(color);
-                greenSum += colorPopulation * quantizedGreen(color);
-                blueSum += colorPopulation * quantizedBlue(color);
-            }
+        final int redMean = Math.round(redSum / (float) totalPopulation);
+        final int greenMean = Math.round(greenSum / (float) totalPopulation);
+        final int blueMean = Math.round(blueSum / (float) totalPopulation);
 
-            final int redMean = Math.round(redSum / (float) totalPopulation);
-            final int greenMean = Math.round(greenSum / (float) totalPopulation);
-            final int blueMean = Math.round(blueSum / (float) totalPopulation);
+        return new Palette.Swatch(approximateToRgb888(redMean, greenMean, blueMean), totalPopulation);
+    }
 
-            return new Palette.Swatch(approximateToRgb888(redMean, greenMean, blueMean), totalPopulation);
+    /**
+     * Writes the unrounded average color of the box to {@code means} at the given offset.
+     */
+    private void computeBoxMean(int box, float[] means, int meanOffset) {
+        final int[] colors = mColors;
+        final int[] hist = mHistogram;
+        final int offset = box * BOX_SIZE;
+        long redSum = 0;
+        long greenSum = 0;
+        long blueSum = 0;
+
+        for (int i = mBoxes[offset + BOX_LOWER_INDEX], upper = mBoxes[offset + BOX_UPPER_INDEX];
+                i <= upper; i++) {
+            final int color = colors[i];
+            final int colorPopulation = hist[color];
+            redSum += colorPopulation * quantizedRed(color);
+            greenSum += colorPopulation * quantizedGreen(color);
+            blueSum += colorPopulation * quantizedBlue(color);
         }
+
+        final float population = mBoxes[offset + BOX_POPULATION];
+        means[meanOffset] = redSum / population;
+        means[meanOffset + 1] = greenSum / population;
+        means[meanOffset + 2] = blueSum / population;
     }
 
     /**
      * Modify the significant octet in a packed color int. Allows sorting based on the value of a
      * single color component. This relies on all components being the same word size.
      *
-     * @see Vbox#findSplitPoint()
+     * @see #findSplitPoint(int)
      */
     static void modifySignificantOctet(final int[] a, final int dimension,
             final int lower, final int upper) {
@@ -413,16 +700,6 @@ final class ColorCutQuantizer {
         return false;
     }
 
-    /**
-     * Comparator which sorts {@link Vbox} instances based on their volume, in descending order
-     */
-    private static final Comparator<Vbox> VBOX_COMPARATOR_VOLUME = new Comparator<Vbox>() {
-        @Override
-        public int compare(Vbox lhs, Vbox rhs) {
-            return rhs.getVolume() - lhs.getVolume();
-        }
-    };
-
     /**
      * Quantized a RGB888 value to have a word width of {@value #QUANTIZE_WORD_WIDTH}.
      */
@@ -479,4 +756,71 @@ final class ColorCutQuantizer {
         return newValue & ((1 << targetWidth) - 1);
     }
 
+    /**
+     * Buffers which are reused by the quantizers created on the same thread.
+     */
+    static final class Scratch {
+        // Larger pixel buffers are not kept, to not hold on to the memory of large images
+        private static final int MAX_KEPT_PIXELS = Palette.DEFAULT_RESIZE_BITMAP_AREA;
+
+        final int[] mHistogram = new int[HISTOGRAM_SIZE];
+        final int[] mColors = new int[HISTOGRAM_SIZE];
+        // Only needed by k-means, so allocated on first use
+        private int[] mClusters = new int[0];
+        private int[] mPixels = new int[0];
+        private int[] mBoxes = new int[0];
+        private int[] mQueue = new int[0];
+        private float[] mMeans = new float[0];
+        private long[] mSums = new long[0];
+
+        /**
+         * @return an array of at least the given size to hold the pixels of an image. The
+         * contents are undefined.
+         */
+        @NonNull
+        int[] pixels(int size) {
+            if (size > MAX_KEPT_PIXELS) {
+                return new int[size];
+            }
+            if (mPixels.length < size) {
+                mPixels = new int[size];
+            }
+            return mPixels;
+        }
+
+        int[] boxes(int size) {
+            if (mBoxes.length < size) {
+                mBoxes = new int[size];
+            }
+            return mBoxes;
+        }
+
+        int[] queue(int size) {
+            if (mQueue.length < size) {
+                mQueue = new int[size];
+            }
+            return mQueue;
+        }
+
+        int[] clusters(int size) {
+            if (mClusters.length < size) {
+                mClusters = new int[size];
+            }
+            return mClusters;
+        }
+
+        float[] means(int size) {
+            if (mMeans.length < size) {
+                mMeans = new float[size];
+            }
+            return mMeans;
+        }
+
+        long[] sums(int size) {
+            if (mSums.length < size) {
+                mSums = new long[size];
+            }
+            return mSums;
+        }
+    }
 }
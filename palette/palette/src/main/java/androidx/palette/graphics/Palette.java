@@ -16,6 +16,8 @@
 
 package androidx.palette.graphics;
 
+import static androidx.annotation.RestrictTo.Scope.LIBRARY;
+
 import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.Rect;
@@ -23,17 +25,22 @@ import android.util.Log;
 import android.util.SparseBooleanArray;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.Px;
+import androidx.annotation.RestrictTo;
 import androidx.collection.SimpleArrayMap;
 import androidx.core.graphics.ColorUtils;
 import androidx.core.util.Preconditions;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A helper class to extract prominent colors from an image.
@@ -84,6 +91,29 @@ public final class Palette {
         void onGenerated(@Nullable Palette palette);
     }
 
+    /**
+     * Quantizer which repeatedly splits the box in RGB space with the largest volume, and uses the
+     * average color of each box. This picks out distinct colors rather than representative
+     * colors. This is the default.
+     *
+     * @see Builder#setQuantizer(int)
+     */
+    public static final int QUANTIZER_COLOR_CUT = 0;
+
+    /**
+     * Quantizer which refines the colors of {@link #QUANTIZER_COLOR_CUT} with k-means clustering,
+     * moving each color to the closest cluster until the clusters are stable. The resulting
+     * colors are more representative of the image, at a higher cost.
+     *
+     * @see Builder#setQuantizer(int)
+     */
+    public static final int QUANTIZER_K_MEANS = 1;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @RestrictTo(LIBRARY)
+    @IntDef({QUANTIZER_COLOR_CUT, QUANTIZER_K_MEANS})
+    @interface Quantizer {}
+
     static final int DEFAULT_RESIZE_BITMAP_AREA = 112 * 112;
     static final int DEFAULT_CALCULATE_NUMBER_COLORS = 16;
 
@@ -602,6 +632,9 @@ public final class Palette {
         private final List<Filter> mFilters = new ArrayList<>();
         @Nullable private Rect mRegion;
 
+        @Quantizer private int mQuantizer = QUANTIZER_COLOR_CUT;
+        @Nullable private Executor mExecutor;
+
         /**
          * Construct a new {@link Builder} using a source {@link Bitmap}
          */
@@ -689,6 +722,40 @@ public final class Palette {
             return this;
         }
 
+        /**
+         * Set the algorithm used to reduce the colors of the {@link android.graphics.Bitmap} to at
+         * most {@link #maximumColorCount(int)} colors. Defaults to
+         * {@link Palette#QUANTIZER_COLOR_CUT}.
+         *
+         * @param quantizer {@link Palette#QUANTIZER_COLOR_CUT} or
+         *                  {@link Palette#QUANTIZER_K_MEANS}.
+         */
+        @NonNull
+        public Builder setQuantizer(@Quantizer int quantizer) {
+            if (quantizer != QUANTIZER_COLOR_CUT && quantizer != QUANTIZER_K_MEANS) {
+                throw new IllegalArgumentException("Unknown quantizer: " + quantizer);
+            }
+            mQuantizer = quantizer;
+            return this;
+        }
+
+        /**
+         * Set an executor to use, in addition to the thread calling {@link #generate()}, to count
+         * the colors of large bitmaps in parallel. Bitmaps are only split between threads once
+         * they are large enough for this to be faster, which is not the case with the default
+         * {@link #resizeBitmapArea(int)}.
+         * <p>
+         * {@link #generate()} still blocks until all of the colors are counted.
+         *
+         * @param executor the executor to use, or {@code null} to count colors on the calling
+         *                 thread only.
+         */
+        @NonNull
+        public Builder setExecutor(@Nullable Executor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
         /**
          * Clear all added filters. This includes any default filters added automatically by
          * {@link Palette}.
@@ -797,11 +864,22 @@ public final class Palette {
                             bitmap.getHeight());
                 }
 
-                // Now generate a quantizer from the Bitmap
-                final ColorCutQuantizer quantizer = new ColorCutQuantizer(
-                        getPixelsFromBitmap(bitmap),
-                        mMaxColors,
-                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]));
+                // Now generate a quantizer from the Bitmap, reusing this thread's buffers
+                final ColorCutQuantizer.Scratch scratch = ColorCutQuantizer.obtainScratch();
+                final ColorCutQuantizer quantizer;
+                try {
+                    quantizer = new ColorCutQuantizer(
+                            getPixelsFromBitmap(bitmap, scratch),
+                            getPixelCount(bitmap),
+                            mMaxColors,
+                            mFilters.isEmpty()
+                                    ? null : mFilters.toArray(new Filter[mFilters.size()]),
+                            mQuantizer,
+                            mExecutor,
+                            scratch);
+                } finally {
+                    ColorCutQuantizer.releaseScratch(scratch);
+                }
 
                 // If created a new bitmap, recycle it
                 if (bitmap != mBitmap) {
@@ -859,29 +937,37 @@ public final class Palette {
             }.executeOnExecutor(android.os.AsyncTask.THREAD_POOL_EXECUTOR, mBitmap);
         }
 
-        private int[] getPixelsFromBitmap(Bitmap bitmap) {
+        private int getPixelCount(Bitmap bitmap) {
+            if (mRegion == null) {
+                return bitmap.getWidth() * bitmap.getHeight();
+            } else {
+                return mRegion.width() * mRegion.height();
+            }
+        }
+
+        /**
+         * Returns the pixels to quantize, the first {@link #getPixelCount(Bitmap)} elements of
+         * the returned array.
+         */
+        private int[] getPixelsFromBitmap(Bitmap bitmap, ColorCutQuantizer.Scratch scratch) {
             final int bitmapWidth = bitmap.getWidth();
             final int bitmapHeight = bitmap.getHeight();
-            final int[] pixels = new int[bitmapWidth * bitmapHeight];
+            final int[] pixels = scratch.pixels(bitmapWidth * bitmapHeight);
             bitmap.getPixels(pixels, 0, bitmapWidth, 0, 0, bitmapWidth, bitmapHeight);
 
-            if (mRegion == null) {
-                // If we don't have a region, return all of the pixels
-                return pixels;
-            } else {
-                // If we do have a region, lets create a subset array containing only the region's
-                // pixels
+            if (mRegion != null) {
+                // If we do have a region, move the region's pixels to the start of the array.
+                // pixels contains all of the pixels, so we need to iterate through each row and
+                // copy the regions pixels. Each row is moved towards the start, so this never
+                // overwrites pixels which still need to be copied.
                 final int regionWidth = mRegion.width();
                 final int regionHeight = mRegion.height();
-                // pixels contains all of the pixels, so we need to iterate through each row and
-                // copy the regions pixels into a new smaller array
-                final int[] subsetPixels = new int[regionWidth * regionHeight];
                 for (int row = 0; row < regionHeight; row++) {
                     System.arraycopy(pixels, ((row + mRegion.top) * bitmapWidth) + mRegion.left,
-                            subsetPixels, row * regionWidth, regionWidth);
+                            pixels, row * regionWidth, regionWidth);
                 }
-                return subsetPixels;
             }
+            return pixels;
         }
 
         /**
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.recyclerview.widget.DiffUtil
+import androidx.test.filters.LargeTest
+import java.util.Random
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import org.junit.AfterClass
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Compares [DiffUtil.calculateDiff] with the executor based variant across list sizes and edit
+ * ratios.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class ParallelDiffBenchmark(
+    private val size: Int,
+    private val editRatio: Float,
+    private val engine: Engine
+) {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val callback = createCallback(size, editRatio)
+
+    @Test
+    fun calculateDiff() {
+        benchmarkRule.measureRepeated {
+            when (engine) {
+                Engine.MYERS -> DiffUtil.calculateDiff(callback, false)
+                Engine.PRIMITIVE -> DiffUtil.calculateDiff(callback, false, null, null)
+                Engine.PARALLEL -> DiffUtil.calculateDiff(callback, false, executor, null)
+            }
+        }
+    }
+
+    enum class Engine {
+        /** The default, single threaded implementation. */
+        MYERS,
+        /** Primitive work arrays, everything on the calling thread. */
+        PRIMITIVE,
+        /** Primitive work arrays, sub-problems solved on [executor]. */
+        PARALLEL
+    }
+
+    companion object {
+        private val executor: ExecutorService = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors()
+        )
+
+        @JvmStatic
+        @AfterClass
+        fun shutdownExecutor() {
+            executor.shutdown()
+        }
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "size_{0}_editRatio_{1}_{2}")
+        fun params(): List<Array<Any>> {
+            val result = mutableListOf<Array<Any>>()
+            listOf(1_000, 10_000, 50_000).forEach { size ->
+                listOf(0.01f, 0.05f, 0.2f).forEach { editRatio ->
+                    Engine.values().forEach { engine ->
+                        result.add(arrayOf(size, editRatio, engine))
+                    }
+                }
+            }
+            return result
+        }
+
+        private fun createCallback(size: Int, editRatio: Float): DiffUtil.Callback {
+            // fixed seed so that all engines diff the same lists
+            val random = Random(size.toLong())
+            val before = (0 until size).toList()
+            val after = before.toMutableList()
+            var nextId = size
+            repeat((size * editRatio).toInt()) {
+                when (random.nextInt(3)) {
+                    0 -> after.add(random.nextInt(after.size + 1), nextId++)
+                    1 -> after.removeAt(random.nextInt(after.size))
+                    else -> after[random.nextInt(after.size)] = nextId++
+                }
+            }
+            return object : DiffUtil.Callback() {
+                override fun getOldListSize() = before.size
+
+                override fun getNewListSize() = after.size
+
+                override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                    before[oldItemPosition] == after[newItemPosition]
+
+                override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                    true
+            }
+        }
+    }
+}
@@ -346,6 +346,39 @@ class AsyncListDifferTest {
         verifyNoMoreInteractions(listener)
     }
 
+    @Test
+    fun submitListKeyed() {
+        val callback = mock(ListUpdateCallback::class.java)
+        val differ = AsyncListDiffer(
+            callback,
+            AsyncDifferConfig.Builder(STRING_DIFF_CALLBACK)
+                .setMainThreadExecutor(mMainThread)
+                .setBackgroundThreadExecutor(mBackgroundThread)
+                .setItemIdProvider { it[0].code.toLong() }
+                .build()
+        )
+        differ.submitList(listOf("a", "b", "c"))
+        verify(callback).onInserted(0, 3)
+        drain()
+        verifyNoMoreInteractions(callback)
+
+        // append and change in place
+        differ.submitList(listOf("a", "b2", "c", "d", "e"))
+        drain()
+        verify(callback).onInserted(3, 2)
+        verify(callback).onChanged(1, 1, null)
+        verifyNoMoreInteractions(callback)
+        assertEquals(listOf("a", "b2", "c", "d", "e"), differ.currentList)
+
+        // remove and move
+        differ.submitList(listOf("e", "a", "c", "d"))
+        drain()
+        verify(callback).onRemoved(1, 1)
+        verify(callback).onMoved(3, 0)
+        verifyNoMoreInteractions(callback)
+        assertEquals(listOf("e", "a", "c", "d"), differ.currentList)
+    }
+
     private fun drain() {
         var executed: Boolean
         do {
@@ -21,6 +21,7 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 import android.content.Context;
@@ -91,6 +92,88 @@ public class RecycledViewPoolTest {
         assertEquals(0, pool.getRecycledViewCount(3));
     }
 
+    @Test
+    public void statistics() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setMaxRecycledViews(1, 1);
+        pool.putRecycledView(makeHolder(1));
+        pool.putRecycledView(makeHolder(1));
+
+        assertNotNull(pool.getRecycledView(1));
+        assertNull(pool.getRecycledView(1));
+        assertNull(pool.getRecycledView(1));
+
+        assertEquals(1, pool.getRecycledViewHitCount(1));
+        assertEquals(2, pool.getRecycledViewMissCount(1));
+        assertEquals(1, pool.getRecycledViewEvictionCount(1));
+        assertEquals(0, pool.getRecycledViewHitCount(2));
+    }
+
+    @Test
+    public void getters_unknownViewType_doNotAddScrapData() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+
+        assertEquals(5, pool.getMaxRecycledViews(7));
+        assertEquals(0, pool.getRecycledViewCount(7));
+        assertEquals(0, pool.getRecycledViewHitCount(7));
+        assertEquals(0, pool.getRecycledViewMissCount(7));
+        assertEquals(0, pool.getRecycledViewEvictionCount(7));
+        assertNull(pool.mScrap.get(7));
+    }
+
+    @Test
+    public void adaptiveSizing_growsOnChurn() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        assertEquals(5, pool.getMaxRecycledViews(1));
+
+        // fill the pool and discard one, then drain it and miss
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(1));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(pool.getRecycledView(1));
+        }
+        assertNull(pool.getRecycledView(1));
+
+        assertEquals(6, pool.getMaxRecycledViews(1));
+        assertEquals(1, pool.mScrap.get(1).mPrewarmRequests);
+
+        // without another eviction, misses don't grow the pool
+        assertNull(pool.getRecycledView(1));
+        assertEquals(6, pool.getMaxRecycledViews(1));
+    }
+
+    @Test
+    public void adaptiveSizing_respectsExplicitMax() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        pool.setMaxRecycledViews(1, 1);
+        pool.putRecycledView(makeHolder(1));
+        pool.putRecycledView(makeHolder(1));
+        assertNotNull(pool.getRecycledView(1));
+        assertNull(pool.getRecycledView(1));
+
+        assertEquals(1, pool.getMaxRecycledViews(1));
+    }
+
+    @Test
+    public void adaptiveSizing_disableResetsMax() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveSizingEnabled(true);
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(1));
+        }
+        for (int i = 0; i < 6; i++) {
+            pool.getRecycledView(1);
+        }
+        assertEquals(6, pool.getMaxRecycledViews(1));
+
+        pool.setAdaptiveSizingEnabled(false);
+        assertEquals(5, pool.getMaxRecycledViews(1));
+        assertEquals(0, pool.mScrap.get(1).mPrewarmRequests);
+    }
+
     @Test
     public void onAdapterChanged_attachedToOneOldAdapterNotNullNotCompatWithPrev_clears() {
         onAdapterChanged(1, true, true, true);
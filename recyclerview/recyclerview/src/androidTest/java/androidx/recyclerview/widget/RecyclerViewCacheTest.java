@@ -890,6 +890,51 @@ public class RecyclerViewCacheTest {
         CacheUtils.verifyCacheContainsPrefetchedPositions(innerView, 0, 1, 2, 3);
     }
 
+    @Test
+    public void nestedPrefetchDepthZero() {
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        mRecyclerView.setAdapter(new OuterAdapter());
+        mRecyclerView.setNestedPrefetchDepth(0);
+
+        layout(200, 200);
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 1);
+
+        // outer item is prefetched, but not the items of its inner RecyclerView
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        RecyclerView.ViewHolder holder = CacheUtils.peekAtCachedViewForPosition(mRecyclerView, 2);
+        assertNotNull(holder);
+        RecyclerView innerView = holder.mNestedRecyclerView.get();
+        assertTrue(innerView.mRecycler.mCachedViews.isEmpty());
+    }
+
+    @Test
+    public void prefetchMetrics() {
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        mRecyclerView.setAdapter(new OuterAdapter());
+
+        layout(200, 200);
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 1);
+
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        RecyclerView.PrefetchMetrics metrics = mRecyclerView.getPrefetchMetrics();
+        assertEquals(1, metrics.getPrefetchedCount());
+        assertEquals(0, metrics.getUsedCount());
+
+        // prefetching again finds the item in the cache, so doesn't count it twice
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        assertEquals(1, metrics.getPrefetchedCount());
+
+        // scrolling lays out the prefetched item
+        mRecyclerView.scrollBy(0, 100);
+        assertEquals(1, metrics.getUsedCount());
+        assertEquals(0, metrics.getWastedCount());
+        assertEquals(0, metrics.getDeadlineMissedCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getPrefetchedCount());
+        assertEquals(0, metrics.getUsedCount());
+    }
+
     @Test
     public void nestedPrefetchNotClearInnerStructureChangeFlag() {
         LinearLayoutManager llm = new LinearLayoutManager(getContext());
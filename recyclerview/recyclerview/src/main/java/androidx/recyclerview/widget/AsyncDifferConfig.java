@@ -39,15 +39,19 @@ public final class AsyncDifferConfig<T> {
     private final Executor mBackgroundThreadExecutor;
     @NonNull
     private final DiffUtil.ItemCallback<T> mDiffCallback;
+    @Nullable
+    private final ItemIdProvider<T> mItemIdProvider;
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     AsyncDifferConfig(
             @Nullable Executor mainThreadExecutor,
             @NonNull Executor backgroundThreadExecutor,
-            @NonNull DiffUtil.ItemCallback<T> diffCallback) {
+            @NonNull DiffUtil.ItemCallback<T> diffCallback,
+            @Nullable ItemIdProvider<T> itemIdProvider) {
         mMainThreadExecutor = mainThreadExecutor;
         mBackgroundThreadExecutor = backgroundThreadExecutor;
         mDiffCallback = diffCallback;
+        mItemIdProvider = itemIdProvider;
     }
 
     @SuppressWarnings("WeakerAccess")
@@ -69,6 +73,36 @@ public final class AsyncDifferConfig<T> {
         return mDiffCallback;
     }
 
+    /**
+     * Returns the {@link ItemIdProvider} used for keyed diffing, or {@code null} if items are
+     * diffed with {@link DiffUtil#calculateDiff(DiffUtil.Callback)}.
+     *
+     * @see Builder#setItemIdProvider(ItemIdProvider)
+     */
+    @Nullable
+    public ItemIdProvider<T> getItemIdProvider() {
+        return mItemIdProvider;
+    }
+
+    /**
+     * Provides stable ids for the items in a list, enabling keyed diffing.
+     * <p>
+     * Two non-null items with the same id must be the same item per
+     * {@link DiffUtil.ItemCallback#areItemsTheSame(Object, Object)}.
+     *
+     * @param <T> Type of items in the lists.
+     * @see Builder#setItemIdProvider(ItemIdProvider)
+     */
+    public interface ItemIdProvider<T> {
+        /**
+         * Returns the stable id of the given item.
+         *
+         * @param item A non-null item in the old or the new list.
+         * @return The stable id of the item.
+         */
+        long getItemId(@NonNull T item);
+    }
+
     /**
      * Builder class for {@link AsyncDifferConfig}.
      *
@@ -79,6 +113,8 @@ public final class AsyncDifferConfig<T> {
         private Executor mMainThreadExecutor;
         private Executor mBackgroundThreadExecutor;
         private final DiffUtil.ItemCallback<T> mDiffCallback;
+        @Nullable
+        private ItemIdProvider<T> mItemIdProvider;
 
         public Builder(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
             mDiffCallback = diffCallback;
@@ -118,6 +154,28 @@ public final class AsyncDifferConfig<T> {
             return this;
         }
 
+        /**
+         * If provided, the diff is calculated using the stable ids of the items instead of
+         * running {@link DiffUtil#calculateDiff(DiffUtil.Callback)} over the whole lists.
+         * <p>
+         * Items that appear exactly once in both lists are matched by their ids first, and
+         * Myers' algorithm only runs inside the windows between them. This makes appends and in
+         * place edits of very long lists close to linear. The resulting updates are dispatched
+         * the same way, but may differ from the ones DiffUtil would compute when items move.
+         * <p>
+         * If a list contains {@code null} items, that diff falls back to
+         * {@link DiffUtil#calculateDiff(DiffUtil.Callback)}.
+         *
+         * @param itemIdProvider Provides the stable ids of the items, or null to disable keyed
+         *                       diffing.
+         * @return this
+         */
+        @NonNull
+        public Builder<T> setItemIdProvider(@Nullable ItemIdProvider<T> itemIdProvider) {
+            mItemIdProvider = itemIdProvider;
+            return this;
+        }
+
         /**
          * Creates a {@link AsyncListDiffer} with the given parameters.
          *
@@ -136,7 +194,8 @@ public final class AsyncDifferConfig<T> {
             return new AsyncDifferConfig<>(
                     mMainThreadExecutor,
                     mBackgroundThreadExecutor,
-                    mDiffCallback);
+                    mDiffCallback,
+                    mItemIdProvider);
         }
 
         // TODO: remove the below once supportlib has its own appropriate executors
@@ -289,7 +289,7 @@ public class AsyncListDiffer<T> {
         mConfig.getBackgroundThreadExecutor().execute(new Runnable() {
             @Override
             public void run() {
-                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                final DiffUtil.Callback callback = new DiffUtil.Callback() {
                     @Override
                     public int getOldListSize() {
                         return oldList.size();
@@ -342,7 +342,8 @@ public class AsyncListDiffer<T> {
                         // non-null which is the only case handled above.
                         throw new AssertionError();
                     }
-                });
+                };
+                final DiffUtil.DiffResult result = calculateDiff(oldList, newList, callback);
 
                 mMainThreadExecutor.execute(new Runnable() {
                     @Override
@@ -356,6 +357,39 @@ public class AsyncListDiffer<T> {
         });
     }
 
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    @NonNull
+    DiffUtil.DiffResult calculateDiff(@NonNull List<T> oldList, @NonNull List<T> newList,
+            @NonNull DiffUtil.Callback callback) {
+        final AsyncDifferConfig.ItemIdProvider<T> idProvider = mConfig.getItemIdProvider();
+        if (idProvider != null) {
+            final long[] oldIds = getItemIds(oldList, idProvider);
+            final long[] newIds = oldIds == null ? null : getItemIds(newList, idProvider);
+            if (newIds != null) {
+                return KeyedDiff.calculateDiff(callback, oldIds, newIds, true);
+            }
+        }
+        return DiffUtil.calculateDiff(callback);
+    }
+
+    /**
+     * Returns the ids of the items in the list, or null if the list contains null items.
+     */
+    @Nullable
+    private static <T> long[] getItemIds(@NonNull List<T> list,
+            @NonNull AsyncDifferConfig.ItemIdProvider<T> idProvider) {
+        final int size = list.size();
+        final long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            final T item = list.get(i);
+            if (item == null) {
+                return null;
+            }
+            ids[i] = idProvider.getItemId(item);
+        }
+        return ids;
+    }
+
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     void latchList(
             @NonNull List<T> newList,
@@ -19,6 +19,7 @@ package androidx.recyclerview.widget;
 import androidx.annotation.IntRange;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.os.CancellationSignal;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -28,6 +29,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * DiffUtil is a utility class that calculates the difference between two lists and outputs a
@@ -179,6 +181,40 @@ public class DiffUtil {
                 detectMoves);
     }
 
+    /**
+     * Calculates the list of update operations that can covert one list into the other one,
+     * optionally splitting the work across the threads of the given {@link Executor}.
+     * <p>
+     * Once Myers' algorithm finds a middle snake, the two sub-problems on either side of it are
+     * independent. When an executor is provided, large sub-problems are handed to it while the
+     * calling thread keeps solving the rest. The calling thread also picks up any handed over work
+     * the executor did not get to yet, so this method never deadlocks on a busy executor, even if
+     * it is the same executor that called this method. All intermediate state is kept in primitive
+     * arrays that are re-used across steps.
+     * <p>
+     * The returned {@link DiffResult} is identical to the one returned by
+     * {@link #calculateDiff(Callback, boolean)}.
+     * <p>
+     * If an executor is provided, {@link Callback#areItemsTheSame(int, int)} is called
+     * concurrently from multiple threads so it must be thread safe. This is usually the case if the
+     * lists are not modified while the diff is calculated, which DiffUtil already requires.
+     *
+     * @param cb                 The callback that acts as a gateway to the backing list data
+     * @param detectMoves        True if DiffUtil should try to detect moved items, false otherwise.
+     * @param executor           The executor to run parts of the calculation on, or {@code null}
+     *                           to run everything on the calling thread.
+     * @param cancellationSignal A signal to cancel the calculation, or {@code null}. If it is
+     *                           canceled, this method throws
+     *                           {@link androidx.core.os.OperationCanceledException}.
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list.
+     */
+    @NonNull
+    public static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves,
+            @Nullable Executor executor, @Nullable CancellationSignal cancellationSignal) {
+        return new ParallelDiff(cb, executor, cancellationSignal).calculate(detectMoves);
+    }
+
     /**
      * Finds a middle snake in the given range.
      */
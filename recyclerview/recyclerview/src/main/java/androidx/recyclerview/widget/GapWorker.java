@@ -20,6 +20,7 @@ import android.view.View;
 
 import androidx.annotation.Nullable;
 import androidx.core.os.TraceCompat;
+import androidx.core.view.ViewCompat;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,6 +35,28 @@ final class GapWorker implements Runnable {
     ArrayList<RecyclerView> mRecyclerViews = new ArrayList<>();
     long mPostTimeNs;
     long mFrameIntervalNs;
+    // True if the next run was posted to continue prefetch work that missed its deadline.
+    boolean mDeferredPass;
+    @Nullable
+    RecyclerView mDeferredView;
+
+    /**
+     * Runs at the start of the frame after a pass that missed its deadline, and posts the
+     * deferred pass so that it runs after that frame, like a pass posted from a traversal.
+     */
+    private final Runnable mPostDeferredPassRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final RecyclerView view = mDeferredView;
+            mDeferredView = null;
+            if (view != null && view.isAttachedToWindow()) {
+                view.post(GapWorker.this);
+            } else {
+                mDeferredPass = false;
+                mPostTimeNs = 0;
+            }
+        }
+    };
 
     static class Task {
         public boolean immediate;
@@ -70,9 +93,16 @@ final class GapWorker implements Runnable {
 
         int mCount;
 
+        // True if a prefetch for the view missed its deadline during the current pass.
+        boolean mMissedDeadline;
+        // Number of extra frames the prefetch work for the current prefetch vector was spread to.
+        int mDeferredFrameCount;
+
         void setPrefetchVector(int dx, int dy) {
             mPrefetchDx = dx;
             mPrefetchDy = dy;
+            // new scroll step, so a fresh set of frames to spread its work over
+            mDeferredFrameCount = 0;
         }
 
         void collectPrefetchPositionsFromView(RecyclerView view, boolean nested) {
@@ -274,12 +304,26 @@ final class GapWorker implements Runnable {
         return false;
     }
 
+    static boolean isPrefetchPositionCached(RecyclerView view, int position) {
+        final ArrayList<RecyclerView.ViewHolder> cachedViews = view.mRecycler.mCachedViews;
+        final int cachedCount = cachedViews.size();
+        for (int i = 0; i < cachedCount; i++) {
+            RecyclerView.ViewHolder holder = cachedViews.get(i);
+            if (holder.mPosition == position && !holder.isInvalid()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private RecyclerView.ViewHolder prefetchPositionWithDeadline(RecyclerView view,
             int position, long deadlineNs) {
         if (isPrefetchPositionAttached(view, position)) {
             // don't attempt to prefetch attached views
             return null;
         }
+        // a cached view was prefetched or laid out already, don't count it again
+        final boolean wasCached = isPrefetchPositionCached(view, position);
 
         RecyclerView.Recycler recycler = view.mRecycler;
         RecyclerView.ViewHolder holder;
@@ -288,8 +332,17 @@ final class GapWorker implements Runnable {
             holder = recycler.tryGetViewHolderForPositionByDeadline(
                     position, false, deadlineNs);
 
+            if (holder == null || !holder.isBound()) {
+                // couldn't create or bind before the deadline
+                view.mPrefetchMetrics.mDeadlineMissedCount++;
+                view.mPrefetchRegistry.mMissedDeadline = true;
+            }
             if (holder != null) {
                 if (holder.isBound() && !holder.isInvalid()) {
+                    if (!wasCached) {
+                        view.mPrefetchMetrics.mPrefetchedCount++;
+                        holder.addFlags(RecyclerView.ViewHolder.FLAG_PREFETCHED);
+                    }
                     // Only give the view a chance to go into the cache if binding succeeded
                     // Note that we must use public method, since item may need cleanup
                     recycler.recycleView(holder.itemView);
@@ -307,9 +360,13 @@ final class GapWorker implements Runnable {
         return holder;
     }
 
+    /**
+     * Prefetches the initial items of a nested RecyclerView and, if {@code depth} is greater than
+     * 1, of the RecyclerViews nested in those items.
+     */
     private void prefetchInnerRecyclerViewWithDeadline(@Nullable RecyclerView innerView,
-            long deadlineNs) {
-        if (innerView == null) {
+            long deadlineNs, int depth) {
+        if (innerView == null || depth < 1) {
             return;
         }
 
@@ -332,7 +389,11 @@ final class GapWorker implements Runnable {
                     // Note that we ignore immediate flag for inner items because
                     // we have lower confidence they're needed next frame.
                     final int innerPosition = innerPrefetchRegistry.mPrefetchArray[i];
-                    prefetchPositionWithDeadline(innerView, innerPosition, deadlineNs);
+                    final RecyclerView.ViewHolder holder = prefetchPositionWithDeadline(innerView,
+                            innerPosition, deadlineNs);
+                    if (depth > 1) {
+                        prefetchNestedRecyclerViewOf(holder, deadlineNs, depth - 1);
+                    }
                 }
             } finally {
                 TraceCompat.endSection();
@@ -340,18 +401,24 @@ final class GapWorker implements Runnable {
         }
     }
 
-    private void flushTaskWithDeadline(Task task, long deadlineNs) {
-        long taskDeadlineNs = task.immediate ? RecyclerView.FOREVER_NS : deadlineNs;
-        RecyclerView.ViewHolder holder = prefetchPositionWithDeadline(task.view,
-                task.position, taskDeadlineNs);
+    private void prefetchNestedRecyclerViewOf(@Nullable RecyclerView.ViewHolder holder,
+            long deadlineNs, int depth) {
         if (holder != null
                 && holder.mNestedRecyclerView != null
                 && holder.isBound()
                 && !holder.isInvalid()) {
-            prefetchInnerRecyclerViewWithDeadline(holder.mNestedRecyclerView.get(), deadlineNs);
+            prefetchInnerRecyclerViewWithDeadline(holder.mNestedRecyclerView.get(), deadlineNs,
+                    depth);
         }
     }
 
+    private void flushTaskWithDeadline(Task task, long deadlineNs) {
+        long taskDeadlineNs = task.immediate ? RecyclerView.FOREVER_NS : deadlineNs;
+        RecyclerView.ViewHolder holder = prefetchPositionWithDeadline(task.view,
+                task.position, taskDeadlineNs);
+        prefetchNestedRecyclerViewOf(holder, deadlineNs, task.view.mNestedPrefetchDepth);
+    }
+
     private void flushTasksWithDeadline(long deadlineNs) {
         for (int i = 0; i < mTasks.size(); i++) {
             final Task task = mTasks.get(i);
@@ -363,13 +430,52 @@ final class GapWorker implements Runnable {
         }
     }
 
+    /**
+     * Uses the time left before the deadline to refill adaptive RecycledViewPools, see
+     * {@link RecyclerView.RecycledViewPool#setAdaptiveSizingEnabled(boolean)}.
+     */
+    private void prewarmRecycledViewPools(long deadlineNs) {
+        final int viewCount = mRecyclerViews.size();
+        for (int i = 0; i < viewCount; i++) {
+            RecyclerView view = mRecyclerViews.get(i);
+            if (view.getWindowVisibility() == View.VISIBLE && view.mAdapter != null) {
+                view.mRecycler.prewarmRecycledViewPool(deadlineNs);
+            }
+        }
+    }
+
     void prefetch(long deadlineNs) {
         buildTaskList();
         flushTasksWithDeadline(deadlineNs);
+        prewarmRecycledViewPools(deadlineNs);
+    }
+
+    /**
+     * Returns a view whose prefetch work did not fit into the last pass and may be spread to
+     * another frame, see {@link RecyclerView#setPrefetchFrameCount(int)}, or null.
+     */
+    @Nullable
+    private RecyclerView findViewToDeferTo() {
+        RecyclerView deferTo = null;
+        final int viewCount = mRecyclerViews.size();
+        for (int i = 0; i < viewCount; i++) {
+            RecyclerView view = mRecyclerViews.get(i);
+            LayoutPrefetchRegistryImpl prefetchRegistry = view.mPrefetchRegistry;
+            if (prefetchRegistry.mMissedDeadline
+                    && prefetchRegistry.mDeferredFrameCount + 1 < view.mPrefetchFrameCount) {
+                prefetchRegistry.mDeferredFrameCount++;
+                deferTo = view;
+            }
+            prefetchRegistry.mMissedDeadline = false;
+        }
+        return deferTo;
     }
 
     @Override
     public void run() {
+        final boolean deferredPass = mDeferredPass;
+        mDeferredPass = false;
+        RecyclerView deferTo = null;
         try {
             TraceCompat.beginSection(RecyclerView.TRACE_PREFETCH_TAG);
 
@@ -395,13 +501,28 @@ final class GapWorker implements Runnable {
             }
 
             long nextFrameNs = TimeUnit.MILLISECONDS.toNanos(latestFrameVsyncMs) + mFrameIntervalNs;
+            if (deferredPass && mFrameIntervalNs > 0) {
+                // Deferred passes aren't posted from a traversal, so the last drawn frame may be
+                // a while ago. Predict the next vsync after now instead.
+                final long nowNs = mRecyclerViews.get(0).getNanoTime();
+                if (nextFrameNs < nowNs) {
+                    nextFrameNs += ((nowNs - nextFrameNs) / mFrameIntervalNs + 1)
+                            * mFrameIntervalNs;
+                }
+            }
 
             prefetch(nextFrameNs);
-
-            // TODO: consider rescheduling self, if there's more work to do
+            deferTo = findViewToDeferTo();
         } finally {
             mPostTimeNs = 0;
             TraceCompat.endSection();
         }
+        if (deferTo != null && mPostTimeNs == 0) {
+            // some prefetch work didn't fit, retry it in the idle time after the next frame
+            mDeferredPass = true;
+            mDeferredView = deferTo;
+            mPostTimeNs = deferTo.getNanoTime();
+            ViewCompat.postOnAnimation(deferTo, mPostDeferredPassRunnable);
+        }
     }
 }
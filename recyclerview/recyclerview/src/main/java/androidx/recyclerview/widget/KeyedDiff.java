@@ -0,0 +1,283 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Diff strategy for lists whose items have stable ids, used by {@link AsyncListDiffer} when an
+ * {@link AsyncDifferConfig.ItemIdProvider} is set.
+ * <p>
+ * Instead of running Myers' algorithm over the whole lists, this first anchors the unchanged
+ * parts of the lists using the ids, similar to a patience diff:
+ * <ol>
+ *     <li>The common prefix and suffix of the two lists are matched directly.</li>
+ *     <li>Ids that appear exactly once in both remaining parts become anchor candidates. They are
+ *     looked up through a primitive id to index hash map.</li>
+ *     <li>The longest increasing subsequence of the candidates (by new position, ordered by old
+ *     position) is kept as anchors, merging neighbouring anchors into diagonals.</li>
+ *     <li>Myers' algorithm only runs inside the windows between the anchors.</li>
+ * </ol>
+ * The diagonals are then turned into a regular {@link DiffUtil.DiffResult}, so moves, changes and
+ * payloads are detected and dispatched exactly the same way.
+ * <p>
+ * Appends, prepends and in place edits run in O(N) and other edits in O(N log N) plus the cost of
+ * Myers' algorithm inside the changed windows.
+ */
+final class KeyedDiff {
+    private KeyedDiff() {
+        // utility class, no instance.
+    }
+
+    /**
+     * Calculates the diff between two lists given the ids of their items.
+     *
+     * @param cb          The callback for the two lists. Items with equal ids must be the same
+     *                    per {@link DiffUtil.Callback#areItemsTheSame(int, int)}.
+     * @param oldIds      Ids of the items in the old list.
+     * @param newIds      Ids of the items in the new list.
+     * @param detectMoves True if moved items should be detected, false otherwise.
+     */
+    @NonNull
+    static DiffUtil.DiffResult calculateDiff(@NonNull DiffUtil.Callback cb,
+            @NonNull long[] oldIds, @NonNull long[] newIds, boolean detectMoves) {
+        final int oldSize = oldIds.length;
+        final int newSize = newIds.length;
+        final int minSize = Math.min(oldSize, newSize);
+        int prefix = 0;
+        while (prefix < minSize && oldIds[prefix] == newIds[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < minSize - prefix
+                && oldIds[oldSize - 1 - suffix] == newIds[newSize - 1 - suffix]) {
+            suffix++;
+        }
+        final int oldStart = prefix;
+        final int oldEnd = oldSize - suffix;
+        final int newStart = prefix;
+        final int newEnd = newSize - suffix;
+
+        final IntArray diagonals = new IntArray();
+        final IntArray ranges = new IntArray();
+        if (prefix > 0) {
+            diagonals.add(0, 0, prefix);
+        }
+        if (oldStart < oldEnd && newStart < newEnd) {
+            anchorMiddle(oldIds, newIds, oldStart, oldEnd, newStart, newEnd, diagonals, ranges);
+        }
+        if (suffix > 0) {
+            diagonals.add(oldEnd, newEnd, suffix);
+        }
+        return new ParallelDiff(cb, null, null).calculate(detectMoves, ranges.toArray(),
+                diagonals.toArray());
+    }
+
+    /**
+     * Finds the anchors between the given bounds, adding them to the diagonals and the windows
+     * between them to the ranges that still need to be searched.
+     */
+    private static void anchorMiddle(long[] oldIds, long[] newIds, int oldStart, int oldEnd,
+            int newStart, int newEnd, IntArray diagonals, IntArray ranges) {
+        final LongIntMap newIndices = indexUnique(newIds, newStart, newEnd);
+        final LongIntMap oldIndices = indexUnique(oldIds, oldStart, oldEnd);
+
+        // candidates ordered by old position: old index, new index
+        final int[] candidateOld = new int[oldEnd - oldStart];
+        final int[] candidateNew = new int[oldEnd - oldStart];
+        int candidateCount = 0;
+        for (int x = oldStart; x < oldEnd; x++) {
+            final long id = oldIds[x];
+            if (oldIndices.get(id) != x) {
+                continue;
+            }
+            final int y = newIndices.get(id);
+            if (y >= 0) {
+                candidateOld[candidateCount] = x;
+                candidateNew[candidateCount] = y;
+                candidateCount++;
+            }
+        }
+
+        final int[] anchors = longestIncreasingSubsequence(candidateNew, candidateCount);
+
+        int windowOldStart = oldStart;
+        int windowNewStart = newStart;
+        int runX = -1;
+        int runY = -1;
+        int runSize = 0;
+        for (int anchor : anchors) {
+            final int x = candidateOld[anchor];
+            final int y = candidateNew[anchor];
+            if (runSize > 0 && x == runX + runSize && y == runY + runSize) {
+                runSize++;
+                continue;
+            }
+            if (runSize > 0) {
+                diagonals.add(runX, runY, runSize);
+                windowOldStart = runX + runSize;
+                windowNewStart = runY + runSize;
+            }
+            addWindow(ranges, windowOldStart, x, windowNewStart, y);
+            runX = x;
+            runY = y;
+            runSize = 1;
+        }
+        if (runSize > 0) {
+            diagonals.add(runX, runY, runSize);
+            windowOldStart = runX + runSize;
+            windowNewStart = runY + runSize;
+        }
+        addWindow(ranges, windowOldStart, oldEnd, windowNewStart, newEnd);
+    }
+
+    private static void addWindow(IntArray ranges, int oldStart, int oldEnd, int newStart,
+            int newEnd) {
+        // windows with an empty side are pure additions or removals, no need to search them
+        if (oldStart < oldEnd && newStart < newEnd) {
+            ranges.add(oldStart, oldEnd, newStart, newEnd);
+        }
+    }
+
+    /**
+     * Maps each id in the given range to its index, or to {@link LongIntMap#DUPLICATE} if it
+     * appears more than once.
+     */
+    private static LongIntMap indexUnique(long[] ids, int start, int end) {
+        final LongIntMap map = new LongIntMap(end - start);
+        for (int i = start; i < end; i++) {
+            map.putOrMarkDuplicate(ids[i], i);
+        }
+        return map;
+    }
+
+    /**
+     * Returns the indices of the longest strictly increasing subsequence of the first
+     * {@code count} values, using patience sorting.
+     */
+    private static int[] longestIncreasingSubsequence(int[] values, int count) {
+        // tails[i] is the index of the smallest tail of all increasing subsequences of length i+1
+        final int[] tails = new int[count];
+        final int[] predecessors = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            final int value = values[i];
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        final int[] result = new int[length];
+        int index = length > 0 ? tails[length - 1] : -1;
+        for (int i = length - 1; i >= 0; i--) {
+            result[i] = index;
+            index = predecessors[index];
+        }
+        return result;
+    }
+
+    /**
+     * Open addressing hash map from long keys to non-negative int values.
+     */
+    static final class LongIntMap {
+        static final int NOT_FOUND = -1;
+        static final int DUPLICATE = -2;
+
+        private final long[] mKeys;
+        private final int[] mValues;
+        private final int mMask;
+
+        LongIntMap(int expectedSize) {
+            // keep the load factor below 0.5
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1;
+            mKeys = new long[capacity];
+            mValues = new int[capacity];
+            Arrays.fill(mValues, NOT_FOUND);
+            mMask = capacity - 1;
+        }
+
+        private int slot(long key) {
+            // mix the bits, ids are often sequential
+            long h = key * 0x9E3779B97F4A7C15L;
+            int index = (int) (h ^ (h >>> 32)) & mMask;
+            while (mValues[index] != NOT_FOUND && mKeys[index] != key) {
+                index = (index + 1) & mMask;
+            }
+            return index;
+        }
+
+        void putOrMarkDuplicate(long key, int value) {
+            final int index = slot(key);
+            if (mValues[index] == NOT_FOUND) {
+                mKeys[index] = key;
+                mValues[index] = value;
+            } else {
+                mValues[index] = DUPLICATE;
+            }
+        }
+
+        int get(long key) {
+            return mValues[slot(key)];
+        }
+    }
+
+    /**
+     * Growable int array.
+     */
+    private static final class IntArray {
+        private int[] mData = new int[16];
+        private int mSize;
+
+        void add(int a, int b, int c) {
+            ensureCapacity(3);
+            mData[mSize++] = a;
+            mData[mSize++] = b;
+            mData[mSize++] = c;
+        }
+
+        void add(int a, int b, int c, int d) {
+            ensureCapacity(4);
+            mData[mSize++] = a;
+            mData[mSize++] = b;
+            mData[mSize++] = c;
+            mData[mSize++] = d;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (mSize + extra > mData.length) {
+                mData = Arrays.copyOf(mData, mData.length * 2);
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(mData, mSize);
+        }
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.os.CancellationSignal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Driver for the Myers' search used by
+ * {@link DiffUtil#calculateDiff(DiffUtil.Callback, boolean, Executor, CancellationSignal)}.
+ * <p>
+ * Once a middle snake splits a range, the ranges on either side of it are independent of each
+ * other. This class hands the right hand side ranges to an {@link Executor} while the current
+ * thread keeps working on the left hand side. The calling thread also drains pending ranges
+ * itself, so the diff always completes even if the executor is busy or runs tasks inline.
+ * <p>
+ * All intermediate state (k-lines, range stack, found diagonals) lives in primitive arrays owned
+ * by a {@link Workspace}. Workspaces are pooled and re-used by every range a thread solves, so no
+ * objects are allocated per step of the algorithm. The produced diagonals are identical to the
+ * ones found by {@link DiffUtil#calculateDiff(DiffUtil.Callback, boolean)}, hence the resulting
+ * {@link DiffUtil.DiffResult} is the same.
+ */
+final class ParallelDiff {
+    // Ranges smaller than this (old size + new size) are always solved by the thread that found
+    // them, handing them over to another thread costs more than solving them.
+    private static final int MIN_FORK_SIZE = 1024;
+
+    private final DiffUtil.Callback mCallback;
+    @Nullable
+    private final Executor mExecutor;
+    @Nullable
+    private final CancellationSignal mCancellationSignal;
+
+    // Ranges that are waiting for a thread to pick them up, encoded as
+    // [oldListStart, oldListEnd, newListStart, newListEnd].
+    private final ConcurrentLinkedQueue<int[]> mPendingRanges = new ConcurrentLinkedQueue<>();
+
+    private final Object mLock = new Object();
+    // Number of ranges that were enqueued but are not completely solved yet. Guarded by mLock.
+    private int mUnfinishedRanges;
+    // Workspaces that are not used by any thread right now. Guarded by mLock.
+    private final List<Workspace> mIdleWorkspaces = new ArrayList<>();
+    // Every workspace that was ever created, used to collect the diagonals. Guarded by mLock.
+    private final List<Workspace> mAllWorkspaces = new ArrayList<>();
+    // The first exception thrown by any thread. Guarded by mLock.
+    private Throwable mFailure;
+    // Set once mFailure is set so that other threads can stop early without taking the lock.
+    private volatile boolean mAborted;
+
+    private final Runnable mDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    ParallelDiff(@NonNull DiffUtil.Callback callback, @Nullable Executor executor,
+            @Nullable CancellationSignal cancellationSignal) {
+        mCallback = callback;
+        mExecutor = executor;
+        mCancellationSignal = cancellationSignal;
+    }
+
+    @NonNull
+    DiffUtil.DiffResult calculate(boolean detectMoves) {
+        return calculate(detectMoves,
+                new int[]{0, mCallback.getOldListSize(), 0, mCallback.getNewListSize()},
+                new int[0]);
+    }
+
+    /**
+     * Runs the search only inside the given ranges and combines the found diagonals with the
+     * diagonals that are already known, e.g. the anchors found by {@link KeyedDiff}.
+     *
+     * @param ranges         Ranges to solve, encoded as
+     *                       [oldListStart, oldListEnd, newListStart, newListEnd] quadruples.
+     *                       Ranges must not overlap each other or the known diagonals.
+     * @param knownDiagonals Diagonals outside of the ranges, as (x, y, size) triplets.
+     */
+    @NonNull
+    DiffUtil.DiffResult calculate(boolean detectMoves, @NonNull int[] ranges,
+            @NonNull int[] knownDiagonals) {
+        final int oldSize = mCallback.getOldListSize();
+        final int newSize = mCallback.getNewListSize();
+        for (int i = 0; i + 3 < ranges.length; i += 4) {
+            enqueue(ranges[i], ranges[i + 1], ranges[i + 2], ranges[i + 3]);
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            drain();
+            synchronized (mLock) {
+                while (mUnfinishedRanges > 0 && mPendingRanges.isEmpty()) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        // workers still write into our workspaces, we have to wait for them.
+                        interrupted = true;
+                    }
+                }
+                if (mUnfinishedRanges == 0) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        final List<DiffUtil.Diagonal> diagonals;
+        synchronized (mLock) {
+            if (mFailure instanceof RuntimeException) {
+                throw (RuntimeException) mFailure;
+            } else if (mFailure instanceof Error) {
+                throw (Error) mFailure;
+            }
+            diagonals = collectSortedDiagonals(knownDiagonals);
+        }
+        return new DiffUtil.DiffResult(mCallback, diagonals, new int[oldSize], new int[newSize],
+                detectMoves);
+    }
+
+    private void enqueue(int oldListStart, int oldListEnd, int newListStart, int newListEnd) {
+        synchronized (mLock) {
+            mUnfinishedRanges++;
+            mPendingRanges.add(new int[]{oldListStart, oldListEnd, newListStart, newListEnd});
+            // wake up the calling thread in case it is waiting so that it can help.
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * Solves pending ranges on the current thread until there are none left.
+     */
+    void drain() {
+        Workspace workspace = null;
+        int[] range;
+        while ((range = mPendingRanges.poll()) != null) {
+            if (workspace == null) {
+                workspace = obtainWorkspace();
+            }
+            try {
+                if (!mAborted) {
+                    solve(range, workspace);
+                }
+            } catch (Throwable t) {
+                onFailure(t);
+            } finally {
+                synchronized (mLock) {
+                    mUnfinishedRanges--;
+                    if (mUnfinishedRanges == 0) {
+                        mLock.notifyAll();
+                    }
+                }
+            }
+        }
+        if (workspace != null) {
+            synchronized (mLock) {
+                mIdleWorkspaces.add(workspace);
+            }
+        }
+    }
+
+    private Workspace obtainWorkspace() {
+        synchronized (mLock) {
+            if (!mIdleWorkspaces.isEmpty()) {
+                return mIdleWorkspaces.remove(mIdleWorkspaces.size() - 1);
+            }
+            Workspace workspace = new Workspace();
+            mAllWorkspaces.add(workspace);
+            return workspace;
+        }
+    }
+
+    private void onFailure(Throwable t) {
+        synchronized (mLock) {
+            if (mFailure == null) {
+                mFailure = t;
+            }
+        }
+        mAborted = true;
+    }
+
+    private boolean shouldStop() {
+        if (mCancellationSignal != null) {
+            mCancellationSignal.throwIfCanceled();
+        }
+        return mAborted;
+    }
+
+    /**
+     * Solves the given range and all the ranges it is split into that are not forked to other
+     * threads. Same as {@link DiffUtil#calculateDiff(DiffUtil.Callback, boolean)}, we keep our own
+     * stack instead of recursing.
+     */
+    private void solve(int[] range, Workspace ws) {
+        final int max = (range[1] - range[0] + range[3] - range[2] + 1) / 2;
+        ws.ensureKLineCapacity(max * 2 + 1);
+        ws.push(range[0], range[1], range[2], range[3]);
+        final int[] stack = ws.mStack;
+        final int[] snake = ws.mSnake;
+        while (ws.mStackSize > 0 && !shouldStop()) {
+            ws.mStackSize -= 4;
+            final int oldListStart = stack[ws.mStackSize];
+            final int oldListEnd = stack[ws.mStackSize + 1];
+            final int newListStart = stack[ws.mStackSize + 2];
+            final int newListEnd = stack[ws.mStackSize + 3];
+            if (!midPoint(oldListStart, oldListEnd, newListStart, newListEnd, ws)) {
+                continue;
+            }
+            ws.addDiagonalOf(snake);
+            // left hand side always stays on this thread
+            ws.push(oldListStart, snake[0], newListStart, snake[1]);
+            final int rightOldStart = snake[2];
+            final int rightNewStart = snake[3];
+            if (mExecutor != null
+                    && (oldListEnd - rightOldStart) + (newListEnd - rightNewStart)
+                    >= MIN_FORK_SIZE) {
+                enqueue(rightOldStart, oldListEnd, rightNewStart, newListEnd);
+                try {
+                    mExecutor.execute(mDrainRunnable);
+                } catch (RejectedExecutionException ignored) {
+                    // the calling thread will pick up the range when it drains the queue.
+                }
+            } else {
+                ws.push(rightOldStart, oldListEnd, rightNewStart, newListEnd);
+            }
+        }
+        // drop whatever is left if we were aborted
+        ws.mStackSize = 0;
+    }
+
+    /**
+     * Finds a middle snake in the given range and writes it into {@link Workspace#mSnake}.
+     *
+     * @return True if a snake is found, false otherwise.
+     */
+    private boolean midPoint(int oldListStart, int oldListEnd, int newListStart, int newListEnd,
+            Workspace ws) {
+        final int oldSize = oldListEnd - oldListStart;
+        final int newSize = newListEnd - newListStart;
+        if (oldSize < 1 || newSize < 1) {
+            return false;
+        }
+        final int max = (oldSize + newSize + 1) / 2;
+        final int mid = ws.mMid;
+        ws.mForward[mid + 1] = oldListStart;
+        ws.mBackward[mid + 1] = oldListEnd;
+        for (int d = 0; d < max; d++) {
+            if (shouldStop()) {
+                return false;
+            }
+            if (forward(oldListStart, oldListEnd, newListStart, newListEnd, ws, d)) {
+                return true;
+            }
+            if (backward(oldListStart, oldListEnd, newListStart, newListEnd, ws, d)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@code DiffUtil.forward}, operating on the primitive k-lines of the workspace.
+     */
+    private boolean forward(int oldListStart, int oldListEnd, int newListStart, int newListEnd,
+            Workspace ws, int d) {
+        final int[] forward = ws.mForward;
+        final int[] backward = ws.mBackward;
+        final int mid = ws.mMid;
+        final int delta = (oldListEnd - oldListStart) - (newListEnd - newListStart);
+        final boolean checkForSnake = Math.abs(delta) % 2 == 1;
+        for (int k = -d; k <= d; k += 2) {
+            final int startX;
+            final int startY;
+            int x, y;
+            if (k == -d || (k != d && forward[mid + k + 1] > forward[mid + k - 1])) {
+                x = startX = forward[mid + k + 1];
+            } else {
+                startX = forward[mid + k - 1];
+                x = startX + 1;
+            }
+            y = newListStart + (x - oldListStart) - k;
+            startY = (d == 0 || x != startX) ? y : y - 1;
+            while (x < oldListEnd
+                    && y < newListEnd
+                    && mCallback.areItemsTheSame(x, y)) {
+                x++;
+                y++;
+            }
+            forward[mid + k] = x;
+            if (checkForSnake) {
+                final int backwardsK = delta - k;
+                if (backwardsK >= -d + 1
+                        && backwardsK <= d - 1
+                        && backward[mid + backwardsK] <= x) {
+                    ws.setSnake(startX, startY, x, y, false);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@code DiffUtil.backward}, operating on the primitive k-lines of the workspace.
+     */
+    private boolean backward(int oldListStart, int oldListEnd, int newListStart, int newListEnd,
+            Workspace ws, int d) {
+        final int[] forward = ws.mForward;
+        final int[] backward = ws.mBackward;
+        final int mid = ws.mMid;
+        final int delta = (oldListEnd - oldListStart) - (newListEnd - newListStart);
+        final boolean checkForSnake = delta % 2 == 0;
+        for (int k = -d; k <= d; k += 2) {
+            final int startX;
+            final int startY;
+            int x, y;
+            if (k == -d || (k != d && backward[mid + k + 1] < backward[mid + k - 1])) {
+                x = startX = backward[mid + k + 1];
+            } else {
+                startX = backward[mid + k - 1];
+                x = startX - 1;
+            }
+            y = newListEnd - ((oldListEnd - x) - k);
+            startY = (d == 0 || x != startX) ? y : y + 1;
+            while (x > oldListStart
+                    && y > newListStart
+                    && mCallback.areItemsTheSame(x - 1, y - 1)) {
+                x--;
+                y--;
+            }
+            backward[mid + k] = x;
+            if (checkForSnake) {
+                final int forwardsK = delta - k;
+                if (forwardsK >= -d
+                        && forwardsK <= d
+                        && forward[mid + forwardsK] >= x) {
+                    // assignments are reversed since this is a reverse snake
+                    ws.setSnake(x, y, startX, startY, true);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges the known diagonals and the ones found by all workspaces, sorted by their position
+     * in the old list.
+     * Must be called while holding mLock, after all ranges are solved.
+     */
+    private List<DiffUtil.Diagonal> collectSortedDiagonals(int[] knownDiagonals) {
+        int count = knownDiagonals.length / 3;
+        for (Workspace workspace : mAllWorkspaces) {
+            count += workspace.mDiagonalsSize / 3;
+        }
+        final int[] all = new int[count * 3];
+        System.arraycopy(knownDiagonals, 0, all, 0, knownDiagonals.length);
+        int offset = knownDiagonals.length;
+        for (Workspace workspace : mAllWorkspaces) {
+            System.arraycopy(workspace.mDiagonals, 0, all, offset, workspace.mDiagonalsSize);
+            offset += workspace.mDiagonalsSize;
+        }
+        // Diagonals never overlap, so their x values are unique. Sort (x, index) pairs packed in
+        // longs to avoid boxing.
+        final long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) all[i * 3] << 32) | i;
+        }
+        Arrays.sort(keys);
+        // +2 for the edge diagonals DiffResult adds
+        final List<DiffUtil.Diagonal> diagonals = new ArrayList<>(count + 2);
+        for (long key : keys) {
+            final int index = (int) key * 3;
+            diagonals.add(new DiffUtil.Diagonal(all[index], all[index + 1], all[index + 2]));
+        }
+        return diagonals;
+    }
+
+    /**
+     * Primitive scratch state used by a single thread while solving ranges.
+     */
+    static final class Workspace {
+        private static final int[] EMPTY = new int[0];
+
+        // k-lines, see DiffUtil.CenteredArray. Index k is stored at mMid + k.
+        int[] mForward = EMPTY;
+        int[] mBackward = EMPTY;
+        int mMid;
+
+        // ranges to solve, 4 ints each
+        int[] mStack = new int[4 * 16];
+        int mStackSize;
+
+        // found diagonals, (x, y, size) triplets
+        int[] mDiagonals = new int[3 * 16];
+        int mDiagonalsSize;
+
+        // last found snake: startX, startY, endX, endY, reverse (1 or 0)
+        final int[] mSnake = new int[5];
+
+        void ensureKLineCapacity(int size) {
+            if (mForward.length < size) {
+                mForward = new int[size];
+                mBackward = new int[size];
+                mMid = size / 2;
+            }
+        }
+
+        void push(int oldListStart, int oldListEnd, int newListStart, int newListEnd) {
+            if (mStackSize + 4 > mStack.length) {
+                mStack = Arrays.copyOf(mStack, mStack.length * 2);
+            }
+            mStack[mStackSize] = oldListStart;
+            mStack[mStackSize + 1] = oldListEnd;
+            mStack[mStackSize + 2] = newListStart;
+            mStack[mStackSize + 3] = newListEnd;
+            mStackSize += 4;
+        }
+
+        void setSnake(int startX, int startY, int endX, int endY, boolean reverse) {
+            mSnake[0] = startX;
+            mSnake[1] = startY;
+            mSnake[2] = endX;
+            mSnake[3] = endY;
+            mSnake[4] = reverse ? 1 : 0;
+        }
+
+        /**
+         * Same as {@code DiffUtil.Snake#toDiagonal()}, only records non-empty diagonals.
+         */
+        void addDiagonalOf(int[] snake) {
+            final int startX = snake[0];
+            final int startY = snake[1];
+            final int xSize = snake[2] - startX;
+            final int ySize = snake[3] - startY;
+            final int size = Math.min(xSize, ySize);
+            if (size <= 0) {
+                return;
+            }
+            if (xSize == ySize || snake[4] == 1) {
+                // pure diagonal or the edge is at the end of a reverse snake
+                addDiagonal(startX, startY, size);
+            } else if (ySize > xSize) {
+                addDiagonal(startX, startY + 1, size);
+            } else {
+                addDiagonal(startX + 1, startY, size);
+            }
+        }
+
+        private void addDiagonal(int x, int y, int size) {
+            if (mDiagonalsSize + 3 > mDiagonals.length) {
+                mDiagonals = Arrays.copyOf(mDiagonals, mDiagonals.length * 2);
+            }
+            mDiagonals[mDiagonalsSize] = x;
+            mDiagonals[mDiagonalsSize + 1] = y;
+            mDiagonals[mDiagonalsSize + 2] = size;
+            mDiagonalsSize += 3;
+        }
+    }
+}
@@ -384,6 +384,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
      */
     static final String TRACE_NESTED_PREFETCH_TAG = "RV Nested Prefetch";
 
+    /**
+     * RecyclerView is creating views ahead of time to refill an adaptive
+     * {@link RecycledViewPool}.
+     */
+    static final String TRACE_PREWARM_TAG = "RV Prewarm";
+
     /**
      * RecyclerView is creating a new View.
      * If too many of these present in Systrace:
@@ -627,6 +633,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
     GapWorker mGapWorker;
     GapWorker.LayoutPrefetchRegistryImpl mPrefetchRegistry =
             ALLOW_THREAD_GAP_WORK ? new GapWorker.LayoutPrefetchRegistryImpl() : null;
+    final PrefetchMetrics mPrefetchMetrics = new PrefetchMetrics();
+    int mNestedPrefetchDepth = 1;
+    int mPrefetchFrameCount = 1;
 
     final State mState = new State();
 
@@ -1732,6 +1741,74 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         mRecycler.setViewCacheSize(size);
     }
 
+    /**
+     * Sets how many levels of nested RecyclerViews are prefetched when this RecyclerView
+     * prefetches an item that contains a RecyclerView.
+     * <p>
+     * With the default of 1, the items of a nested RecyclerView (e.g. a horizontal carousel in a
+     * vertical feed) are prefetched along with the item containing it, but RecyclerViews nested
+     * inside those items are not. Set to 0 to disable nested prefetching entirely.
+     * <p>
+     * The number of items prefetched per nested RecyclerView is controlled by its
+     * LayoutManager, see {@link LinearLayoutManager#setInitialPrefetchItemCount(int)}.
+     *
+     * @param depth Number of nested RecyclerView levels to prefetch, 0 or greater.
+     */
+    public void setNestedPrefetchDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative: " + depth);
+        }
+        mNestedPrefetchDepth = depth;
+    }
+
+    /**
+     * Returns how many levels of nested RecyclerViews are prefetched.
+     *
+     * @see #setNestedPrefetchDepth(int)
+     */
+    public int getNestedPrefetchDepth() {
+        return mNestedPrefetchDepth;
+    }
+
+    /**
+     * Sets over how many frames prefetch work of a single scroll step may be spread.
+     * <p>
+     * RecyclerView prefetches items in the idle time between frames. Items whose expected create
+     * and bind time, learned per view type, does not fit into the time left before the next
+     * frame are skipped. With a frame count greater than 1, skipped items are retried in the
+     * idle time of up to that many frames in total, until they fit or the list scrolls again.
+     * <p>
+     * The default is 1, which only uses the idle time before the next frame.
+     *
+     * @param frameCount Number of frames to spread prefetch work over, 1 or greater.
+     */
+    public void setPrefetchFrameCount(int frameCount) {
+        if (frameCount < 1) {
+            throw new IllegalArgumentException("frameCount must be positive: " + frameCount);
+        }
+        mPrefetchFrameCount = frameCount;
+    }
+
+    /**
+     * Returns over how many frames prefetch work may be spread.
+     *
+     * @see #setPrefetchFrameCount(int)
+     */
+    public int getPrefetchFrameCount() {
+        return mPrefetchFrameCount;
+    }
+
+    /**
+     * Returns the metrics of the prefetch work done for this RecyclerView.
+     * <p>
+     * The returned object is updated live as RecyclerView prefetches, and can be
+     * {@link PrefetchMetrics#reset() reset}.
+     */
+    @NonNull
+    public PrefetchMetrics getPrefetchMetrics() {
+        return mPrefetchMetrics;
+    }
+
     /**
      * Return the current scrolling state of the RecyclerView.
      *
@@ -6342,6 +6419,65 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         }
     }
 
+    /**
+     * Counters describing the prefetch work done for a RecyclerView.
+     * <p>
+     * A prefetched item is <em>used</em> if RecyclerView later lays it out, and <em>wasted</em> if
+     * it is evicted from the view cache before that. Items that could not be prefetched because
+     * their expected create or bind time did not fit into the idle time before the next frame
+     * count as deadline misses.
+     *
+     * @see RecyclerView#getPrefetchMetrics()
+     */
+    public static final class PrefetchMetrics {
+        long mPrefetchedCount;
+        long mUsedCount;
+        long mWastedCount;
+        long mDeadlineMissedCount;
+
+        PrefetchMetrics() {
+        }
+
+        /**
+         * Returns the number of items that were created or bound ahead of time.
+         */
+        public long getPrefetchedCount() {
+            return mPrefetchedCount;
+        }
+
+        /**
+         * Returns the number of prefetched items that were later laid out.
+         */
+        public long getUsedCount() {
+            return mUsedCount;
+        }
+
+        /**
+         * Returns the number of prefetched items that were evicted from the view cache without
+         * being laid out.
+         */
+        public long getWastedCount() {
+            return mWastedCount;
+        }
+
+        /**
+         * Returns the number of items that could not be prefetched in time before a frame.
+         */
+        public long getDeadlineMissedCount() {
+            return mDeadlineMissedCount;
+        }
+
+        /**
+         * Resets all counters to 0.
+         */
+        public void reset() {
+            mPrefetchedCount = 0;
+            mUsedCount = 0;
+            mWastedCount = 0;
+            mDeadlineMissedCount = 0;
+        }
+    }
+
     /**
      * RecycledViewPool lets you share Views between multiple RecyclerViews.
      * <p>
@@ -6349,10 +6485,26 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
      * and use {@link RecyclerView#setRecycledViewPool(RecycledViewPool)}.
      * <p>
      * RecyclerView automatically creates a pool for itself if you don't provide one.
+     * <p>
+     * By default the pool keeps up to 5 ViewHolders per view type, see
+     * {@link #setMaxRecycledViews(int, int)}. If {@link #setAdaptiveSizingEnabled(boolean) adaptive
+     * sizing} is enabled, the pool instead grows the limit of view types that churn, and refills
+     * them ahead of time while RecyclerView prefetches.
      */
     public static class RecycledViewPool {
         private static final int DEFAULT_MAX_SCRAP = 5;
 
+        /**
+         * Upper bound of the maximum number of ViewHolders per view type in adaptive mode.
+         */
+        private static final int ADAPTIVE_MAX_SCRAP_LIMIT = DEFAULT_MAX_SCRAP * 4;
+
+        /**
+         * In adaptive mode, every this many nanoseconds of average create time allow the pool to
+         * keep one more ViewHolder of that type, so that expensive types are kept around longer.
+         */
+        private static final long ADAPTIVE_CREATE_NS_PER_EXTRA_SCRAP = 250_000;
+
         /**
          * Tracks both pooled holders, as well as create/bind timing metadata for the given type.
          *
@@ -6372,10 +6524,21 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             int mMaxScrap = DEFAULT_MAX_SCRAP;
             long mCreateRunningAverageNs = 0;
             long mBindRunningAverageNs = 0;
+            // true if the max was set via setMaxRecycledViews, adaptive sizing leaves it alone.
+            boolean mMaxScrapSetExplicitly = false;
+            long mHitCount = 0;
+            long mMissCount = 0;
+            long mEvictionCount = 0;
+            // true if a ViewHolder was discarded because the heap was full since the last miss.
+            boolean mEvictedSinceLastMiss = false;
+            // number of ViewHolders adaptive sizing wants to be created ahead of time.
+            int mPrewarmRequests = 0;
         }
 
         SparseArray<ScrapData> mScrap = new SparseArray<>();
 
+        boolean mAdaptiveSizingEnabled = false;
+
         /**
          * Attach counts for clearing (that is, emptying the pool when there are no adapters
          * attached) and for PoolingContainer release are tracked separately to maintain the
@@ -6425,18 +6588,115 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         public void setMaxRecycledViews(int viewType, int max) {
             ScrapData scrapData = getScrapDataForType(viewType);
+            scrapData.mMaxScrapSetExplicitly = true;
+            setMaxScrap(scrapData, max);
+        }
+
+        private static void setMaxScrap(ScrapData scrapData, int max) {
             scrapData.mMaxScrap = max;
+            scrapData.mPrewarmRequests = Math.min(scrapData.mPrewarmRequests, max);
             final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
             while (scrapHeap.size() > max) {
                 scrapHeap.remove(scrapHeap.size() - 1);
             }
         }
 
+        /**
+         * Returns the maximum number of ViewHolders of the given type the pool holds before
+         * discarding.
+         * <p>
+         * This is either the value set by {@link #setMaxRecycledViews(int, int)} or, if
+         * {@link #setAdaptiveSizingEnabled(boolean) adaptive sizing} is enabled, the limit the
+         * pool picked for that view type.
+         *
+         * @param viewType ViewHolder Type
+         */
+        public int getMaxRecycledViews(int viewType) {
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mMaxScrap : DEFAULT_MAX_SCRAP;
+        }
+
+        /**
+         * Enables or disables adaptive sizing of the pool.
+         * <p>
+         * When enabled, each view type the pool has to discard ViewHolders of, and then create new
+         * ones for because the pool ran out of them, gets a bigger limit. View types that are more
+         * expensive to create are allowed to grow larger. The pool also asks RecyclerView to
+         * create such ViewHolders ahead of time, using the idle time of its prefetch passes.
+         * ViewHolders are only created ahead of time while a single adapter uses the pool.
+         * <p>
+         * View types whose limit was set via {@link #setMaxRecycledViews(int, int)} are not
+         * affected. Disabling adaptive sizing resets all other view types to the default limit.
+         * <p>
+         * Adaptive sizing is disabled by default.
+         *
+         * @param enabled True to size the pool adaptively, false to use fixed limits.
+         * @see #getMaxRecycledViews(int)
+         */
+        public void setAdaptiveSizingEnabled(boolean enabled) {
+            if (mAdaptiveSizingEnabled == enabled) {
+                return;
+            }
+            mAdaptiveSizingEnabled = enabled;
+            if (!enabled) {
+                for (int i = 0; i < mScrap.size(); i++) {
+                    ScrapData scrapData = mScrap.valueAt(i);
+                    scrapData.mPrewarmRequests = 0;
+                    if (!scrapData.mMaxScrapSetExplicitly) {
+                        setMaxScrap(scrapData, DEFAULT_MAX_SCRAP);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns whether adaptive sizing is enabled.
+         *
+         * @see #setAdaptiveSizingEnabled(boolean)
+         */
+        public boolean isAdaptiveSizingEnabled() {
+            return mAdaptiveSizingEnabled;
+        }
+
+        /**
+         * Returns how many times a ViewHolder of the given type was successfully acquired from the
+         * pool.
+         *
+         * @param viewType ViewHolder Type
+         */
+        public long getRecycledViewHitCount(int viewType) {
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mHitCount : 0;
+        }
+
+        /**
+         * Returns how many times a ViewHolder of the given type was requested from the pool while
+         * the pool had none, in which case RecyclerView had to create a new one.
+         *
+         * @param viewType ViewHolder Type
+         */
+        public long getRecycledViewMissCount(int viewType) {
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mMissCount : 0;
+        }
+
+        /**
+         * Returns how many ViewHolders of the given type were discarded because the pool was
+         * already full for that type.
+         *
+         * @param viewType ViewHolder Type
+         */
+        public long getRecycledViewEvictionCount(int viewType) {
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mEvictionCount : 0;
+        }
+
         /**
          * Returns the current number of Views held by the RecycledViewPool of the given view type.
          */
         public int getRecycledViewCount(int viewType) {
-            return getScrapDataForType(viewType).mScrapHeap.size();
+            ScrapData scrapData = mScrap.get(viewType);
+            return scrapData != null ? scrapData.mScrapHeap.size() : 0;
         }
 
         /**
@@ -6449,18 +6709,52 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         @Nullable
         public ViewHolder getRecycledView(int viewType) {
-            final ScrapData scrapData = mScrap.get(viewType);
-            if (scrapData != null && !scrapData.mScrapHeap.isEmpty()) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            if (!scrapData.mScrapHeap.isEmpty()) {
                 final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
                 for (int i = scrapHeap.size() - 1; i >= 0; i--) {
                     if (!scrapHeap.get(i).isAttachedToTransitionOverlay()) {
+                        scrapData.mHitCount++;
                         return scrapHeap.remove(i);
                     }
                 }
             }
+            onMiss(scrapData);
             return null;
         }
 
+        private void onMiss(ScrapData scrapData) {
+            scrapData.mMissCount++;
+            if (!mAdaptiveSizingEnabled || scrapData.mMaxScrapSetExplicitly) {
+                return;
+            }
+            if (scrapData.mEvictedSinceLastMiss) {
+                // We had to discard a ViewHolder of this type and now have to create one, the pool
+                // is too small for how much this type churns.
+                final int limit = (int) Math.min(ADAPTIVE_MAX_SCRAP_LIMIT,
+                        DEFAULT_MAX_SCRAP + 1
+                                + scrapData.mCreateRunningAverageNs
+                                / ADAPTIVE_CREATE_NS_PER_EXTRA_SCRAP);
+                if (scrapData.mMaxScrap < limit) {
+                    scrapData.mMaxScrap++;
+                }
+                scrapData.mPrewarmRequests = Math.min(scrapData.mPrewarmRequests + 1,
+                        scrapData.mMaxScrap);
+                scrapData.mEvictedSinceLastMiss = false;
+            }
+        }
+
+        /**
+         * Returns true if ViewHolders can be created ahead of time for this pool using the given
+         * adapter, which is the case if adaptive sizing is enabled and the adapter is the only one
+         * using this pool, so that all view types in the pool belong to it.
+         */
+        boolean canPrewarmFor(@NonNull Adapter<?> adapter) {
+            return mAdaptiveSizingEnabled
+                    && mAttachedAdaptersForPoolingContainer.size() == 1
+                    && mAttachedAdaptersForPoolingContainer.contains(adapter);
+        }
+
         /**
          * Total number of ViewHolders held by the pool.
          *
@@ -6486,8 +6780,11 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         public void putRecycledView(ViewHolder scrap) {
             final int viewType = scrap.getItemViewType();
-            final ArrayList<ViewHolder> scrapHeap = getScrapDataForType(viewType).mScrapHeap;
-            if (mScrap.get(viewType).mMaxScrap <= scrapHeap.size()) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            if (scrapData.mMaxScrap <= scrapHeap.size()) {
+                scrapData.mEvictionCount++;
+                scrapData.mEvictedSinceLastMiss = true;
                 PoolingContainer.callPoolingContainerOnRelease(scrap.itemView);
                 return;
             }
@@ -7225,6 +7522,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             if (sVerboseLoggingEnabled) {
                 Log.d(TAG, "CachedViewHolder to be recycled: " + viewHolder);
             }
+            if (viewHolder.hasAnyOfTheFlags(ViewHolder.FLAG_PREFETCHED)) {
+                mPrefetchMetrics.mWastedCount++;
+            }
             addViewHolderToRecycledViewPool(viewHolder, true);
             mCachedViews.remove(cachedViewIndex);
         }
@@ -7725,6 +8025,45 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             return mRecyclerPool;
         }
 
+        /**
+         * Creates the ViewHolders an adaptive {@link RecycledViewPool} asked for ahead of time,
+         * as long as they are expected to be created before the deadline.
+         *
+         * @param deadlineNs Time, relative to getNanoTime(), by which creation must complete.
+         */
+        void prewarmRecycledViewPool(long deadlineNs) {
+            final RecycledViewPool pool = getRecycledViewPool();
+            if (mAdapter == null || !pool.canPrewarmFor(mAdapter)) {
+                return;
+            }
+            try {
+                TraceCompat.beginSection(TRACE_PREWARM_TAG);
+                for (int i = 0; i < pool.mScrap.size(); i++) {
+                    final int type = pool.mScrap.keyAt(i);
+                    final RecycledViewPool.ScrapData scrapData = pool.mScrap.valueAt(i);
+                    while (scrapData.mPrewarmRequests > 0
+                            && scrapData.mScrapHeap.size() < scrapData.mMaxScrap) {
+                        final long start = getNanoTime();
+                        if (!pool.willCreateInTime(type, start, deadlineNs)) {
+                            // abort - we have a deadline we can't meet
+                            break;
+                        }
+                        final ViewHolder holder = mAdapter.createViewHolder(RecyclerView.this,
+                                type);
+                        final RecyclerView innerView = findNestedRecyclerView(holder.itemView);
+                        if (innerView != null) {
+                            holder.mNestedRecyclerView = new WeakReference<>(innerView);
+                        }
+                        pool.factorInCreateTime(type, getNanoTime() - start);
+                        scrapData.mPrewarmRequests--;
+                        pool.putRecycledView(holder);
+                    }
+                }
+            } finally {
+                TraceCompat.endSection();
+            }
+        }
+
         void viewRangeUpdate(int positionStart, int itemCount) {
             final int positionEnd = positionStart + itemCount;
             final int cachedCount = mCachedViews.size();
@@ -9571,6 +9910,10 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
 
         private void addViewInt(View child, int index, boolean disappearing) {
             final ViewHolder holder = getChildViewHolderInt(child);
+            if (holder.hasAnyOfTheFlags(ViewHolder.FLAG_PREFETCHED)) {
+                holder.setFlags(0, ViewHolder.FLAG_PREFETCHED);
+                mRecyclerView.mPrefetchMetrics.mUsedCount++;
+            }
             if (disappearing || holder.isRemoved()) {
                 // these views will be hidden at the end of the layout pass.
                 mRecyclerView.mViewInfoStore.addToDisappearedInLayout(holder);
@@ -12110,6 +12453,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         static final int FLAG_BOUNCED_FROM_HIDDEN_LIST = 1 << 13;
 
+        /**
+         * Set when GapWorker prefetches this ViewHolder into the view cache. Cleared when it is
+         * laid out, used to track {@link PrefetchMetrics}.
+         */
+        static final int FLAG_PREFETCHED = 1 << 14;
+
         int mFlags;
 
         private static final List<Object> FULLUPDATE_PAYLOADS = Collections.emptyList();
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.recyclerview.widget
+
+import java.util.Random
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class KeyedDiffTest {
+    private val random = Random(System.nanoTime())
+
+    @Test
+    fun append() {
+        val before = (0L until 1000L).toList()
+        val after = before + (1000L until 1010L)
+        assertEquals(listOf("insert(1000, 10)"), diff(before, after))
+    }
+
+    @Test
+    fun prepend() {
+        val before = (0L until 1000L).toList()
+        val after = (-10L until 0L).toList() + before
+        assertEquals(listOf("insert(0, 10)"), diff(before, after))
+    }
+
+    @Test
+    fun changeInPlace() {
+        val before = (0L until 1000L).toList()
+        assertEquals(
+            listOf("change(500, 1)"),
+            diff(before, before, changed = setOf(500L))
+        )
+    }
+
+    @Test
+    fun removeFromMiddle() {
+        val before = (0L until 1000L).toList()
+        val after = before.filter { it !in 200L until 300L }
+        assertEquals(listOf("remove(200, 100)"), diff(before, after))
+    }
+
+    @Test
+    fun move() {
+        val before = (0L until 10L).toList()
+        val after = listOf(9L) + (0L until 9L)
+        assertEquals(listOf("move(9, 0)"), diff(before, after))
+    }
+
+    @Test
+    fun duplicateIds() {
+        val before = listOf(1L, 2L, 2L, 3L, 1L)
+        val after = listOf(2L, 1L, 3L, 2L, 2L, 4L)
+        diff(before, after)
+    }
+
+    @Test
+    fun random() {
+        repeat(500) {
+            val size = random.nextInt(200)
+            // ids are only sometimes unique so that both anchors and Myers' windows are covered
+            val before = (0 until size).map {
+                if (random.nextBoolean()) it.toLong() else random.nextInt(size + 1).toLong()
+            }
+            val after = before.toMutableList()
+            var nextId = size.toLong() + 1
+            repeat(random.nextInt(size / 4 + 2)) {
+                when (random.nextInt(3)) {
+                    0 -> after.add(random.nextInt(after.size + 1), nextId++)
+                    1 -> if (after.isNotEmpty()) {
+                        after.removeAt(random.nextInt(after.size))
+                    }
+                    else -> if (after.isNotEmpty()) {
+                        val item = after.removeAt(random.nextInt(after.size))
+                        after.add(random.nextInt(after.size + 1), item)
+                    }
+                }
+            }
+            diff(before, after)
+        }
+    }
+
+    @Test
+    fun longIntMap() {
+        val map = KeyedDiff.LongIntMap(4)
+        map.putOrMarkDuplicate(Long.MIN_VALUE, 0)
+        map.putOrMarkDuplicate(0L, 1)
+        map.putOrMarkDuplicate(Long.MAX_VALUE, 2)
+        map.putOrMarkDuplicate(0L, 3)
+        assertEquals(0, map.get(Long.MIN_VALUE))
+        assertEquals(KeyedDiff.LongIntMap.DUPLICATE, map.get(0L))
+        assertEquals(2, map.get(Long.MAX_VALUE))
+        assertEquals(KeyedDiff.LongIntMap.NOT_FOUND, map.get(42L))
+    }
+
+    /**
+     * Diffs the two lists of ids, asserts that applying the updates to the old list results in the
+     * new one and returns the dispatched updates.
+     */
+    private fun diff(
+        before: List<Long>,
+        after: List<Long>,
+        changed: Set<Long> = emptySet()
+    ): List<String> {
+        val callback = object : DiffUtil.Callback() {
+            override fun getOldListSize() = before.size
+
+            override fun getNewListSize() = after.size
+
+            override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                before[oldItemPosition] == after[newItemPosition]
+
+            override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                before[oldItemPosition] !in changed
+        }
+        val result = KeyedDiff.calculateDiff(
+            callback,
+            before.toLongArray(),
+            after.toLongArray(),
+            true
+        )
+        val log = mutableListOf<String>()
+        val applied = before.toMutableList<Long?>()
+        result.dispatchUpdatesTo(object : ListUpdateCallback {
+            override fun onInserted(position: Int, count: Int) {
+                log.add("insert($position, $count)")
+                repeat(count) { applied.add(position, null) }
+            }
+
+            override fun onRemoved(position: Int, count: Int) {
+                log.add("remove($position, $count)")
+                repeat(count) { applied.removeAt(position) }
+            }
+
+            override fun onMoved(fromPosition: Int, toPosition: Int) {
+                log.add("move($fromPosition, $toPosition)")
+                applied.add(toPosition, applied.removeAt(fromPosition))
+            }
+
+            override fun onChanged(position: Int, count: Int, payload: Any?) {
+                log.add("change($position, $count)")
+            }
+        })
+        assertEquals(after.size, applied.size)
+        applied.forEachIndexed { position, id ->
+            val oldPosition = result.convertNewPositionToOld(position)
+            if (id == null) {
+                assertEquals(DiffUtil.DiffResult.NO_POSITION, oldPosition)
+            } else {
+                assertEquals(after[position], id)
+                assertEquals(before[oldPosition], id)
+            }
+        }
+        return log
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.recyclerview.widget
+
+import androidx.core.os.CancellationSignal
+import androidx.core.os.OperationCanceledException
+import java.util.Random
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class ParallelDiffTest {
+    // Part of the assertion messages so that a failing run of random lists can be reproduced
+    private val seed = System.nanoTime()
+    private val random = Random(seed)
+    private val pool: ExecutorService = Executors.newFixedThreadPool(4)
+
+    @After
+    fun shutdown() {
+        pool.shutdownNow()
+    }
+
+    @Test
+    fun empty() {
+        assertSameAsSequential(emptyList(), emptyList())
+        assertSameAsSequential(emptyList(), (0 until 10).toList())
+        assertSameAsSequential((0 until 10).toList(), emptyList())
+    }
+
+    @Test
+    fun noChanges() {
+        val list = (0 until 5000).toList()
+        assertSameAsSequential(list, list)
+    }
+
+    @Test
+    fun smallRandom() {
+        repeat(200) {
+            randomTest(size = random.nextInt(100), editRatio = random.nextFloat())
+        }
+    }
+
+    @Test
+    fun largeRandom() {
+        repeat(10) {
+            randomTest(size = 5000 + random.nextInt(5000), editRatio = random.nextFloat() / 4)
+        }
+    }
+
+    @Test(expected = OperationCanceledException::class)
+    fun canceled() {
+        val signal = CancellationSignal()
+        signal.cancel()
+        DiffUtil.calculateDiff(
+            IntListCallback((0 until 1000).toList(), (0 until 1000).reversed()),
+            true,
+            pool,
+            signal
+        )
+    }
+
+    @Test
+    fun callbackException() {
+        val before = (0 until 5000).toList()
+        val after = before.shuffled(random)
+        val callback = object : DiffUtil.Callback() {
+            override fun getOldListSize() = before.size
+            override fun getNewListSize() = after.size
+            override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int): Boolean {
+                throw IllegalStateException("boom")
+            }
+            override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) = true
+        }
+        val thrown = runCatching {
+            DiffUtil.calculateDiff(callback, true, pool, null)
+        }.exceptionOrNull()
+        assertEquals("boom", thrown?.message)
+    }
+
+    private fun randomTest(size: Int, editRatio: Float) {
+        val before = (0 until size).map { random.nextInt(size + 1) }
+        val after = before.toMutableList()
+        repeat((size * editRatio).toInt()) {
+            when (random.nextInt(3)) {
+                0 -> after.add(random.nextInt(after.size + 1), random.nextInt(size + 1))
+                1 -> if (after.isNotEmpty()) {
+                    after.removeAt(random.nextInt(after.size))
+                }
+                else -> if (after.isNotEmpty()) {
+                    val item = after.removeAt(random.nextInt(after.size))
+                    after.add(random.nextInt(after.size + 1), item)
+                }
+            }
+        }
+        assertSameAsSequential(before, after)
+    }
+
+    private fun assertSameAsSequential(before: List<Int>, after: List<Int>) {
+        val callback = IntListCallback(before, after)
+        listOf(true, false).forEach { detectMoves ->
+            val expected = DiffUtil.calculateDiff(callback, detectMoves).log()
+            val executors = listOf<Executor?>(null, Executor { it.run() }, pool)
+            executors.forEach { executor ->
+                assertEquals(
+                    "seed: $seed, executor: $executor, detectMoves: $detectMoves",
+                    expected,
+                    DiffUtil.calculateDiff(callback, detectMoves, executor, null).log()
+                )
+            }
+        }
+    }
+
+    private fun DiffUtil.DiffResult.log(): String {
+        val log = StringBuilder()
+        dispatchUpdatesTo(object : ListUpdateCallback {
+            override fun onInserted(position: Int, count: Int) {
+                log.append("insert($position, $count)\n")
+            }
+
+            override fun onRemoved(position: Int, count: Int) {
+                log.append("remove($position, $count)\n")
+            }
+
+            override fun onMoved(fromPosition: Int, toPosition: Int) {
+                log.append("move($fromPosition, $toPosition)\n")
+            }
+
+            override fun onChanged(position: Int, count: Int, payload: Any?) {
+                log.append("change($position, $count, $payload)\n")
+            }
+        })
+        return log.toString()
+    }
+
+    private class IntListCallback(
+        private val before: List<Int>,
+        private val after: List<Int>
+    ) : DiffUtil.Callback() {
+        override fun getOldListSize() = before.size
+
+        override fun getNewListSize() = after.size
+
+        override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+            before[oldItemPosition] == after[newItemPosition]
+
+        // report every third match as a change so that change dispatching is covered as well
+        override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+            (oldItemPosition + newItemPosition) % 3 != 0
+    }
+}
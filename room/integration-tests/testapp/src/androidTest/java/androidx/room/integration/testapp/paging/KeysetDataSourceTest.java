@@ -0,0 +1,216 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.integration.testapp.paging;
+
+import static junit.framework.Assert.assertFalse;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.room.integration.testapp.test.TestDatabaseTest;
+import androidx.room.integration.testapp.test.TestUtil;
+import androidx.room.paging.KeysetDataSource;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class KeysetDataSourceTest extends TestDatabaseTest {
+
+    @After
+    public void teardown() {
+        mUserDao.deleteEverything();
+    }
+
+    @Test
+    public void emptyPage() {
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false);
+        assertThat(dataSource.countItems(), is(0));
+        assertFalse(dataSource.loadRange(0, 10).iterator().hasNext());
+    }
+
+    @Test
+    public void loadAll() {
+        List<Integer> ids = createUsers(10);
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false);
+        assertThat(dataSource.countItems(), is(10));
+        assertThat(dataSource.loadRange(0, 10), is(ids));
+    }
+
+    @Test
+    public void loadAfter() {
+        List<Integer> ids = createUsers(20);
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false);
+        for (int start = 0; start < 20; start += 3) {
+            List<Integer> page = dataSource.loadRange(start, 3);
+            assertThat(page, is(ids.subList(start, Math.min(start + 3, 20))));
+        }
+    }
+
+    @Test
+    public void loadBefore() {
+        List<Integer> ids = createUsers(20);
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false);
+        assertThat(dataSource.loadRange(12, 4), is(ids.subList(12, 16)));
+        assertThat(dataSource.loadRange(8, 4), is(ids.subList(8, 12)));
+        assertThat(dataSource.loadRange(4, 4), is(ids.subList(4, 8)));
+    }
+
+    @Test
+    public void loadAfterJump() {
+        List<Integer> ids = createUsers(20);
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false);
+        assertThat(dataSource.loadRange(0, 5), is(ids.subList(0, 5)));
+        assertThat(dataSource.loadRange(15, 5), is(ids.subList(15, 20)));
+        assertThat(dataSource.loadRange(5, 5), is(ids.subList(5, 10)));
+        assertThat(dataSource.loadRange(10, 5), is(ids.subList(10, 15)));
+    }
+
+    @Test
+    public void loadDescending() {
+        List<Integer> ids = createUsers(10);
+        Collections.reverse(ids);
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, true);
+        assertThat(dataSource.loadRange(0, 4), is(ids.subList(0, 4)));
+        assertThat(dataSource.loadRange(4, 4), is(ids.subList(4, 8)));
+        assertThat(dataSource.loadRange(8, 4), is(ids.subList(8, 10)));
+        assertThat(dataSource.loadRange(2, 2), is(ids.subList(2, 4)));
+    }
+
+    @Test
+    public void loadAfterGap() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(i * 7);
+            mUserDao.insert(TestUtil.createUser(i * 7));
+        }
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false);
+        assertThat(dataSource.loadRange(0, 3), is(ids.subList(0, 3)));
+        assertThat(dataSource.loadRange(3, 3), is(ids.subList(3, 6)));
+        assertThat(dataSource.loadRange(6, 10), is(ids.subList(6, 10)));
+    }
+
+    @Test
+    public void loadInitialWithoutCount_startsAtRequestedPage() {
+        List<Integer> ids = createUsers(20);
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false, false);
+        InitialResult result = loadInitial(dataSource, 13, 5, 5, false);
+        assertThat(result.mData, is(ids.subList(10, 15)));
+        assertThat(result.mPosition, is(10));
+        assertThat(result.mTotalCount, is(-1));
+    }
+
+    @Test
+    public void loadInitialWithoutCount_startsFromTopPastTheEnd() {
+        List<Integer> ids = createUsers(5);
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false, false);
+        InitialResult result = loadInitial(dataSource, 40, 10, 10, false);
+        assertThat(result.mData, is(ids));
+        assertThat(result.mPosition, is(0));
+    }
+
+    @Test
+    public void loadInitialWithoutCount_countsForPlaceholders() {
+        List<Integer> ids = createUsers(20);
+        UserIdDataSource dataSource = new UserIdDataSource(mDatabase, false, false);
+        InitialResult result = loadInitial(dataSource, 10, 5, 5, true);
+        assertThat(result.mData, is(ids.subList(10, 15)));
+        assertThat(result.mPosition, is(10));
+        assertThat(result.mTotalCount, is(20));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static InitialResult loadInitial(UserIdDataSource dataSource, int startPosition,
+            int pageSize, int loadSize, boolean placeholdersEnabled) {
+        InitialResult result = new InitialResult();
+        dataSource.loadInitial(
+                new androidx.paging.PositionalDataSource.LoadInitialParams(startPosition, loadSize,
+                        pageSize, placeholdersEnabled),
+                new androidx.paging.PositionalDataSource.LoadInitialCallback<Integer>() {
+                    @Override
+                    public void onResult(@NonNull List<Integer> data, int position,
+                            int totalCount) {
+                        result.mData = data;
+                        result.mPosition = position;
+                        result.mTotalCount = totalCount;
+                    }
+
+                    @Override
+                    public void onResult(@NonNull List<Integer> data, int position) {
+                        result.mData = data;
+                        result.mPosition = position;
+                    }
+                });
+        return result;
+    }
+
+    @NonNull
+    private List<Integer> createUsers(int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            mUserDao.insert(TestUtil.createUser(i));
+            ids.add(i);
+        }
+        return ids;
+    }
+
+    private static class InitialResult {
+        List<Integer> mData;
+        int mPosition = -1;
+        int mTotalCount = -1;
+    }
+
+    private static class UserIdDataSource extends KeysetDataSource<Integer> {
+        UserIdDataSource(RoomDatabase db, boolean descending) {
+            this(db, descending, true);
+        }
+
+        UserIdDataSource(RoomDatabase db, boolean descending, boolean countItems) {
+            super(db, new SimpleSQLiteQuery("SELECT * FROM user"), "mId",
+                    new KeysetDataSource.Options.Builder()
+                            .setDescending(descending)
+                            .setCountItems(countItems)
+                            .setRegisterObserverImmediately(true)
+                            .build(),
+                    "user");
+        }
+
+        @NonNull
+        @Override
+        protected List<Integer> convertRows(@NonNull Cursor cursor) {
+            List<Integer> ids = new ArrayList<>();
+            int index = cursor.getColumnIndexOrThrow("mId");
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(index));
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.paging;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+import androidx.room.RoomSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A data source that pages a query by the value of a unique key column, also known as keyset or
+ * seek pagination.
+ * <p>
+ * Unlike {@link LimitOffsetDataSource}, which skips {@code OFFSET} rows for every page, this
+ * remembers the key of the first and last row of each loaded page, and loads the next page with
+ * {@code WHERE key > ? ORDER BY key LIMIT ?} (or the previous one with {@code key < ?}). With an
+ * index on the key, loading a page costs the same no matter how deep into the results it is.
+ * Only a page which isn't adjacent to an already loaded page, e.g. after a jump, falls back to
+ * {@code LIMIT ? OFFSET ?}.
+ * <p>
+ * The rows are always ordered by the key column, so the key must be a unique and non null
+ * column which the query selects explicitly, e.g. the primary key. The query is paged as a
+ * subquery, so {@code rowid} can only be used if the query selects it under another name, e.g.
+ * {@code SELECT rowid AS row_id, * FROM user}. Any {@code ORDER BY} of the given query is
+ * overridden.
+ * <p>
+ * Counting the rows of a large query is expensive as well, and done on every invalidation. When
+ * counting is disabled with {@link Options.Builder#setCountItems(boolean)}, the initial load
+ * starts at the page of the requested position and doesn't report a total count. Placeholders
+ * need that count though, so the rows are still counted when the {@code PagedList.Config}
+ * enables them.
+ * <p>
+ * Room doesn't generate this data source for {@code DataSource.Factory} return types, so
+ * extend it and return it from your own factory, with {@code androidx.paging:paging-common} on
+ * the classpath:
+ * <pre>
+ * class UserDataSource extends KeysetDataSource&lt;User&gt; {
+ *     UserDataSource(UserDatabase db) {
+ *         super(db, new SimpleSQLiteQuery("SELECT * FROM user"), "id",
+ *                 new KeysetDataSource.Options.Builder().setCountItems(false).build(), "user");
+ *     }
+ *
+ *     protected List&lt;User&gt; convertRows(Cursor cursor) { ... }
+ * }
+ * </pre>
+ *
+ * @param <T> Data type returned by the data source.
+ */
+@SuppressWarnings("deprecation")
+public abstract class KeysetDataSource<T> extends androidx.paging.PositionalDataSource<T> {
+    private final RoomSQLiteQuery mSourceQuery;
+    private final String mKeyColumn;
+    private final String mCountQuery;
+    private final String mFirstQuery;
+    private final String mAfterQuery;
+    private final String mBeforeQuery;
+    private final String mLimitOffsetQuery;
+    private final boolean mCountItems;
+    private final RoomDatabase mDb;
+    @SuppressWarnings("FieldCanBeLocal")
+    private final InvalidationTracker.Observer mObserver;
+    private final boolean mInTransaction;
+    private final AtomicBoolean mRegisteredObserver = new AtomicBoolean(false);
+
+    /**
+     * Keys of the rows at the boundaries of the loaded pages, by position.
+     */
+    private final Map<Integer, Object> mKeys = new ConcurrentHashMap<>();
+
+    /**
+     * @param db the database to query
+     * @param query the query to page
+     * @param keyColumn name of the unique, non null column of the query's result to page by
+     * @param options how to page the query
+     * @param tables the tables the query reads from, to invalidate the data source when they
+     *               change
+     */
+    protected KeysetDataSource(
+            @NonNull RoomDatabase db,
+            @NonNull SupportSQLiteQuery query,
+            @NonNull String keyColumn,
+            @NonNull Options options,
+            @NonNull String... tables) {
+        this(db, RoomSQLiteQuery.copyFrom(query), keyColumn, options, tables);
+    }
+
+    /**
+     * @param db the database to query
+     * @param query the query to page
+     * @param keyColumn name of the unique, non null column of the query's result to page by
+     * @param options how to page the query
+     * @param tables the tables the query reads from, to invalidate the data source when they
+     *               change
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+    protected KeysetDataSource(
+            @NonNull RoomDatabase db,
+            @NonNull RoomSQLiteQuery query,
+            @NonNull String keyColumn,
+            @NonNull Options options,
+            @NonNull String... tables) {
+        mDb = db;
+        mSourceQuery = query;
+        mKeyColumn = keyColumn;
+        mCountItems = options.mCountItems;
+        mInTransaction = options.mInTransaction;
+        final boolean descending = options.mDescending;
+        final String source = "SELECT * FROM ( " + mSourceQuery.getSql() + " )";
+        final String key = "`" + keyColumn + "`";
+        final String order = descending ? " DESC" : " ASC";
+        final String reverseOrder = descending ? " ASC" : " DESC";
+        mCountQuery = "SELECT COUNT(*) FROM ( " + mSourceQuery.getSql() + " )";
+        mFirstQuery = source + " ORDER BY " + key + order + " LIMIT ?";
+        mAfterQuery = source + " WHERE " + key + (descending ? " < ?" : " > ?")
+                + " ORDER BY " + key + order + " LIMIT ?";
+        // Loads the rows before the key closest first, then puts them back in order
+        mBeforeQuery = "SELECT * FROM ( " + source + " WHERE " + key
+                + (descending ? " > ?" : " < ?") + " ORDER BY " + key + reverseOrder
+                + " LIMIT ? ) ORDER BY " + key + order;
+        mLimitOffsetQuery = source + " ORDER BY " + key + order + " LIMIT ? OFFSET ?";
+        mObserver = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        if (options.mRegisterObserverImmediately) {
+            registerObserverIfNecessary();
+        }
+    }
+
+    private void registerObserverIfNecessary() {
+        if (mRegisteredObserver.compareAndSet(false, true)) {
+            mDb.getInvalidationTracker().addWeakObserver(mObserver);
+        }
+    }
+
+    /**
+     * Count number of rows query can return
+     */
+    public int countItems() {
+        registerObserverIfNecessary();
+        final RoomSQLiteQuery sqLiteQuery = RoomSQLiteQuery.acquire(mCountQuery,
+                mSourceQuery.getArgCount());
+        sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+        Cursor cursor = mDb.query(sqLiteQuery);
+        try {
+            if (cursor.moveToFirst()) {
+                return cursor.getInt(0);
+            }
+            return 0;
+        } finally {
+            cursor.close();
+            sqLiteQuery.release();
+        }
+    }
+
+    @Override
+    public boolean isInvalid() {
+        registerObserverIfNecessary();
+        mDb.getInvalidationTracker().refreshVersionsSync();
+        return super.isInvalid();
+    }
+
+    @NonNull
+    protected abstract List<T> convertRows(@NonNull Cursor cursor);
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams params,
+            @NonNull LoadInitialCallback<T> callback) {
+        registerObserverIfNecessary();
+        if (!mCountItems && !params.placeholdersEnabled) {
+            // Without a count, start at the page of the requested position, or from the top if
+            // there are no rows left there
+            int position = Math.max(0,
+                    params.requestedStartPosition / params.pageSize * params.pageSize);
+            List<T> list = loadRange(position, params.requestedLoadSize);
+            if (list.isEmpty() && position != 0) {
+                position = 0;
+                list = loadRange(0, params.requestedLoadSize);
+            }
+            callback.onResult(list, position);
+            return;
+        }
+        List<T> list = Collections.emptyList();
+        int totalCount;
+        int firstLoadPosition = 0;
+        mDb.beginTransaction();
+        try {
+            totalCount = countItems();
+            if (totalCount != 0) {
+                // bound the size requested, based on known count
+                firstLoadPosition = computeInitialLoadPosition(params, totalCount);
+                int firstLoadSize = computeInitialLoadSize(params, firstLoadPosition, totalCount);
+                list = queryRange(firstLoadPosition, firstLoadSize);
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+
+        callback.onResult(list, firstLoadPosition, totalCount);
+    }
+
+    @Override
+    public void loadRange(@NonNull LoadRangeParams params,
+            @NonNull LoadRangeCallback<T> callback) {
+        callback.onResult(loadRange(params.startPosition, params.loadSize));
+    }
+
+    /**
+     * Return the rows from startPos to startPos + loadCount
+     */
+    @NonNull
+    public List<T> loadRange(int startPosition, int loadCount) {
+        if (mInTransaction) {
+            mDb.beginTransaction();
+            try {
+                List<T> rows = queryRange(startPosition, loadCount);
+                mDb.setTransactionSuccessful();
+                return rows;
+            } finally {
+                mDb.endTransaction();
+            }
+        } else {
+            return queryRange(startPosition, loadCount);
+        }
+    }
+
+    private List<T> queryRange(int startPosition, int loadCount) {
+        if (loadCount <= 0) {
+            return Collections.emptyList();
+        }
+        final RoomSQLiteQuery sqLiteQuery = getSQLiteQuery(startPosition, loadCount);
+        final Cursor cursor = mDb.query(sqLiteQuery);
+        //noinspection TryFinallyCanBeTryWithResources
+        try {
+            rememberKeys(cursor, startPosition);
+            return convertRows(cursor);
+        } finally {
+            cursor.close();
+            sqLiteQuery.release();
+        }
+    }
+
+    /**
+     * Returns the query that loads the rows in the range, seeking from the key of the row right
+     * before or after it when it is known.
+     */
+    private RoomSQLiteQuery getSQLiteQuery(int startPosition, int loadCount) {
+        final int argCount = mSourceQuery.getArgCount();
+        if (startPosition == 0) {
+            final RoomSQLiteQuery sqLiteQuery = RoomSQLiteQuery.acquire(mFirstQuery,
+                    argCount + 1);
+            sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+            sqLiteQuery.bindLong(argCount + 1, loadCount);
+            return sqLiteQuery;
+        }
+        Object key = mKeys.get(startPosition - 1);
+        String sql = mAfterQuery;
+        if (key == null) {
+            key = mKeys.get(startPosition + loadCount);
+            sql = mBeforeQuery;
+        }
+        final RoomSQLiteQuery sqLiteQuery;
+        if (key != null) {
+            sqLiteQuery = RoomSQLiteQuery.acquire(sql, argCount + 2);
+            sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+            bindKey(sqLiteQuery, argCount + 1, key);
+            sqLiteQuery.bindLong(argCount + 2, loadCount);
+        } else {
+            // Not adjacent to a loaded page, skip the rows before it
+            sqLiteQuery = RoomSQLiteQuery.acquire(mLimitOffsetQuery, argCount + 2);
+            sqLiteQuery.copyArgumentsFrom(mSourceQuery);
+            sqLiteQuery.bindLong(argCount + 1, loadCount);
+            sqLiteQuery.bindLong(argCount + 2, startPosition);
+        }
+        return sqLiteQuery;
+    }
+
+    /**
+     * Remembers the keys of the first and last row of the cursor, leaving the cursor before its
+     * first row.
+     */
+    private void rememberKeys(Cursor cursor, int startPosition) {
+        final int count = cursor.getCount();
+        if (count > 0) {
+            final int keyIndex = cursor.getColumnIndexOrThrow(mKeyColumn);
+            cursor.moveToFirst();
+            putKey(startPosition, readKey(cursor, keyIndex));
+            cursor.moveToLast();
+            putKey(startPosition + count - 1, readKey(cursor, keyIndex));
+        }
+        cursor.moveToPosition(-1);
+    }
+
+    private void putKey(int position, @Nullable Object key) {
+        if (key != null) {
+            mKeys.put(position, key);
+        }
+    }
+
+    @Nullable
+    private static Object readKey(Cursor cursor, int index) {
+        switch (cursor.getType(index)) {
+            case Cursor.FIELD_TYPE_INTEGER:
+                return cursor.getLong(index);
+            case Cursor.FIELD_TYPE_FLOAT:
+                return cursor.getDouble(index);
+            case Cursor.FIELD_TYPE_STRING:
+                return cursor.getString(index);
+            case Cursor.FIELD_TYPE_BLOB:
+                return cursor.getBlob(index);
+            case Cursor.FIELD_TYPE_NULL:
+            default:
+                // Rows cannot be found by a null key
+                return null;
+        }
+    }
+
+    private static void bindKey(RoomSQLiteQuery query, int index, Object key) {
+        if (key instanceof Long) {
+            query.bindLong(index, (Long) key);
+        } else if (key instanceof Double) {
+            query.bindDouble(index, (Double) key);
+        } else if (key instanceof String) {
+            query.bindString(index, (String) key);
+        } else {
+            query.bindBlob(index, (byte[]) key);
+        }
+    }
+
+    /**
+     * How a {@link KeysetDataSource} pages its query.
+     */
+    public static final class Options {
+        final boolean mDescending;
+        final boolean mCountItems;
+        final boolean mInTransaction;
+        final boolean mRegisterObserverImmediately;
+
+        Options(@NonNull Builder builder) {
+            mDescending = builder.mDescending;
+            mCountItems = builder.mCountItems;
+            mInTransaction = builder.mInTransaction;
+            mRegisterObserverImmediately = builder.mRegisterObserverImmediately;
+        }
+
+        /**
+         * Builder for {@link Options}.
+         */
+        public static final class Builder {
+            boolean mDescending = false;
+            boolean mCountItems = true;
+            boolean mInTransaction = false;
+            boolean mRegisterObserverImmediately = false;
+
+            /**
+             * Sets whether the rows are ordered by descending key. Defaults to {@code false}.
+             *
+             * @param descending whether the rows are ordered by descending key
+             * @return this {@link Builder}
+             */
+            @NonNull
+            public Builder setDescending(boolean descending) {
+                mDescending = descending;
+                return this;
+            }
+
+            /**
+             * Sets whether to count the rows for the initial load even when placeholders are
+             * disabled. Defaults to {@code true}.
+             *
+             * @param countItems whether to count the rows when placeholders are disabled
+             * @return this {@link Builder}
+             */
+            @NonNull
+            public Builder setCountItems(boolean countItems) {
+                mCountItems = countItems;
+                return this;
+            }
+
+            /**
+             * Sets whether to load each page in a transaction. Defaults to {@code false}.
+             *
+             * @param inTransaction whether to load each page in a transaction
+             * @return this {@link Builder}
+             */
+            @NonNull
+            public Builder setInTransaction(boolean inTransaction) {
+                mInTransaction = inTransaction;
+                return this;
+            }
+
+            /**
+             * Sets whether to observe the tables as soon as the data source is created, rather
+             * than on the first load. Defaults to {@code false}.
+             *
+             * @param registerObserverImmediately whether to observe the tables right away
+             * @return this {@link Builder}
+             */
+            @NonNull
+            public Builder setRegisterObserverImmediately(boolean registerObserverImmediately) {
+                mRegisterObserverImmediately = registerObserverImmediately;
+                return this;
+            }
+
+            /**
+             * @return the {@link Options}
+             */
+            @NonNull
+            public Options build() {
+                return new Options(this);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package androidx.startup
 
 import android.content.Context
+import android.os.Bundle
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.MediumTest
@@ -75,4 +76,60 @@ class AppInitializerTest {
             assertThat(exception.localizedMessage, containsString("Cycle detected."))
         }
     }
+
+    @Test
+    fun parallelInitialization() {
+        val metadata = createMetadata(
+            InitializerWithDependency::class.java,
+            BackgroundInitializer::class.java
+        )
+        appInitializer.discoverAndInitialize(metadata)
+        assertThat(appInitializer.mDiscovered.size, `is`(2))
+        assertThat(appInitializer.mInitialized.size, `is`(3))
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerNoDependencies::class.java))
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerWithDependency::class.java))
+        val backgroundThread = appInitializer.mInitialized[BackgroundInitializer::class.java]
+        assertTrue(backgroundThread is Thread && backgroundThread !== Thread.currentThread())
+    }
+
+    @Test
+    fun parallelInitializationWithLazyLookup() {
+        LazyLookupInitializer.appInitializer = appInitializer
+        MainThreadInitializer.createCount.set(0)
+        val metadata = createMetadata(
+            LazyLookupInitializer::class.java,
+            MainThreadInitializer::class.java
+        )
+        appInitializer.discoverAndInitialize(metadata)
+        // The lookup waits for the node, which runs once and on the calling thread.
+        assertThat(MainThreadInitializer.createCount.get(), `is`(1))
+        assertTrue(
+            appInitializer.mInitialized[MainThreadInitializer::class.java] ===
+                Thread.currentThread()
+        )
+        assertTrue(
+            appInitializer.mInitialized[LazyLookupInitializer::class.java] ===
+                Thread.currentThread()
+        )
+    }
+
+    @Test
+    fun parallelInitializationWithCyclicDependencies() {
+        try {
+            appInitializer.discoverAndInitialize(
+                createMetadata(CyclicDependencyInitializer::class.java)
+            )
+            fail()
+        } catch (exception: StartupException) {
+            assertThat(exception.localizedMessage, containsString("Cycle detected."))
+        }
+    }
+
+    private fun createMetadata(vararg components: Class<out Initializer<*>>): Bundle {
+        val metadata = Bundle()
+        val startup = context.getString(R.string.androidx_startup)
+        components.forEach { metadata.putString(it.name, startup) }
+        metadata.putBoolean(AppInitializer.PARALLEL_INITIALIZATION, true)
+        return metadata
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup
+
+import android.content.Context
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Initializer which requires the main thread, with a dependency on [InitializerNoDependencies].
+ * Returns the thread it was initialized on.
+ */
+class MainThreadInitializer : Initializer<Thread> {
+    override fun create(context: Context): Thread {
+        createCount.incrementAndGet()
+        return Thread.currentThread()
+    }
+
+    override fun dependencies(): List<Class<out Initializer<*>>> {
+        return listOf(InitializerNoDependencies::class.java)
+    }
+
+    companion object {
+        val createCount = AtomicInteger()
+    }
+}
@@ -24,6 +24,7 @@ import android.content.pm.PackageManager;
 import android.content.pm.ProviderInfo;
 import android.os.Bundle;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.tracing.Trace;
@@ -39,6 +40,13 @@ import java.util.Set;
  * <code>ComponentInitializer</code>s. The discovery mechanism is via
  * <code>&lt;meta-data&gt;</code> entries in the merged
  * <code>AndroidManifest.xml</code>.
+ * <p>
+ * Discovered initializers are initialized one after the other on the main thread. Adding
+ * <code>&lt;meta-data android:name="androidx.startup.PARALLEL_INITIALIZATION"
+ * android:value="true" /&gt;</code> to the <code>InitializationProvider</code> initializes them
+ * as soon as their dependencies are initialized instead, and the ones which don't
+ * {@link Initializer#requiresMainThread() require the main thread} on background threads.
+ * Each initializer is then traced, and their timings are logged.
  */
 @SuppressWarnings("WeakerAccess")
 public final class AppInitializer {
@@ -46,6 +54,11 @@ public final class AppInitializer {
     // Tracing
     private static final String SECTION_NAME = "Startup";
 
+    /**
+     * The <code>&lt;meta-data&gt;</code> which enables parallel initialization.
+     */
+    static final String PARALLEL_INITIALIZATION = "androidx.startup.PARALLEL_INITIALIZATION";
+
     /**
      * The {@link AppInitializer} instance.
      */
@@ -54,7 +67,7 @@ public final class AppInitializer {
     /**
      * Guards app initialization.
      */
-    private static final Object sLock = new Object();
+    static final Object sLock = new Object();
 
     @NonNull
     final Map<Class<?>, Object> mInitialized;
@@ -65,6 +78,13 @@ public final class AppInitializer {
     @NonNull
     final Context mContext;
 
+    /**
+     * The {@link ParallelInitializer} initializing the discovered components, if any.
+     */
+    @GuardedBy("sLock")
+    @Nullable
+    ParallelInitializer mParallelInitializer;
+
     /**
      * Creates an instance of {@link AppInitializer}
      *
@@ -128,6 +148,15 @@ public final class AppInitializer {
         return mDiscovered.contains(component);
     }
 
+    /**
+     * Returns <code>true</code> if the {@link Initializer} is already initialized.
+     */
+    boolean isInitialized(@NonNull Class<?> component) {
+        synchronized (sLock) {
+            return mInitialized.containsKey(component);
+        }
+    }
+
     @NonNull
     @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
     <T> T doInitialize(@NonNull Class<? extends Initializer<?>> component) {
@@ -159,8 +188,11 @@ public final class AppInitializer {
                 throw new IllegalStateException(message);
             }
             Object result;
-            if (!mInitialized.containsKey(component)) {
+            ParallelInitializer parallelInitializer = mParallelInitializer;
+            if (!mInitialized.containsKey(component) && (parallelInitializer == null
+                    || !parallelInitializer.awaitNode(component))) {
                 initializing.add(component);
+                Throwable failure = null;
                 try {
                     Object instance = component.getDeclaredConstructor().newInstance();
                     Initializer<?> initializer = (Initializer<?>) instance;
@@ -184,7 +216,12 @@ public final class AppInitializer {
                     initializing.remove(component);
                     mInitialized.put(component, result);
                 } catch (Throwable throwable) {
+                    failure = throwable;
                     throw new StartupException(throwable);
+                } finally {
+                    if (parallelInitializer != null) {
+                        parallelInitializer.onLazilyInitialized(component, failure);
+                    }
                 }
             } else {
                 result = mInitialized.get(component);
@@ -220,6 +257,9 @@ public final class AppInitializer {
                 Set<Class<?>> initializing = new HashSet<>();
                 Set<String> keys = metadata.keySet();
                 for (String key : keys) {
+                    if (PARALLEL_INITIALIZATION.equals(key)) {
+                        continue;
+                    }
                     String value = metadata.getString(key, null);
                     if (startup.equals(value)) {
                         Class<?> clazz = Class.forName(key);
@@ -235,8 +275,12 @@ public final class AppInitializer {
                 }
                 // Initialize only after discovery is complete. This way, the check for
                 // isEagerlyInitialized is correct.
-                for (Class<? extends Initializer<?>> component : mDiscovered) {
-                    doInitialize(component, initializing);
+                if (metadata.getBoolean(PARALLEL_INITIALIZATION, false)) {
+                    new ParallelInitializer(this).initialize(mDiscovered);
+                } else {
+                    for (Class<? extends Initializer<?>> component : mDiscovered) {
+                        doInitialize(component, initializing);
+                    }
                 }
             }
         } catch (ClassNotFoundException exception) {
@@ -50,4 +50,19 @@ public interface Initializer<T> {
      */
     @NonNull
     List<Class<? extends Initializer<?>>> dependencies();
+
+    /**
+     * Returns whether {@link #create(Context)} must be called on the main thread.
+     *
+     * Only used when initializers are discovered and initialized in parallel, see
+     * {@link AppInitializer}. Initializers which don't use thread-confined state, such as
+     * {@link android.os.Handler}s bound to the current looper, can return <code>false</code> to
+     * be initialized on a background thread, concurrently with the initializers they don't
+     * depend on.
+     *
+     * @return <code>true</code> by default.
+     */
+    default boolean requiresMainThread() {
+        return true;
+    }
 }
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+import android.content.Context;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.tracing.Trace;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Initializes a set of {@link Initializer}s and their dependencies, running each one as soon as
+ * its dependencies are initialized.
+ *
+ * <p>Initializers which don't require the main thread run concurrently on a small pool of
+ * background threads. The other ones run on the calling thread, which waits for the background
+ * initializers in between.
+ *
+ * <p>Components of the graph which are initialized lazily in the meantime, with
+ * {@link AppInitializer#initializeComponent(Class)}, are initialized only once: lazy lookups of a
+ * node which is already running, or which requires the calling thread, wait for it instead.
+ */
+final class ParallelInitializer {
+
+    // Leaves some cores to the main thread and the rest of the app startup.
+    private static final int MAX_BACKGROUND_THREADS = 4;
+
+    // Wakes the calling thread up once all the initializers are done, or one of them failed.
+    private static final Runnable WAKE_UP = () -> {
+    };
+
+    @NonNull
+    private final AppInitializer mAppInitializer;
+
+    @NonNull
+    private final Context mContext;
+
+    @NonNull
+    private final Map<Class<?>, Node> mNodes = new HashMap<>();
+
+    /**
+     * The initializers ready to run on the calling thread.
+     */
+    @NonNull
+    private final BlockingQueue<Runnable> mCallingThreadQueue = new LinkedBlockingQueue<>();
+
+    // The node states are guarded by AppInitializer#sLock, as the initialized components are.
+    @GuardedBy("AppInitializer.sLock")
+    private int mRemaining;
+
+    @GuardedBy("AppInitializer.sLock")
+    @Nullable
+    private Throwable mFailure;
+
+    @Nullable
+    private Thread mCallingThread;
+
+    @Nullable
+    private ExecutorService mExecutor;
+
+    ParallelInitializer(@NonNull AppInitializer appInitializer) {
+        mAppInitializer = appInitializer;
+        mContext = appInitializer.mContext;
+    }
+
+    /**
+     * Initializes the given components and their dependencies, and returns once they are all
+     * initialized.
+     *
+     * @param components The {@link Initializer}s to initialize.
+     * @throws StartupException if an {@link Initializer} fails, or the dependencies have a cycle.
+     */
+    void initialize(@NonNull Collection<Class<? extends Initializer<?>>> components) {
+        Set<Class<?>> initializing = new HashSet<>();
+        for (Class<? extends Initializer<?>> component : components) {
+            if (!mAppInitializer.isInitialized(component)) {
+                addNode(component, initializing);
+            }
+        }
+        if (mNodes.isEmpty()) {
+            return;
+        }
+
+        // Collect the initial nodes before dispatching any, as the dispatched ones can complete
+        // and make their dependents ready concurrently.
+        List<Node> ready = new ArrayList<>();
+        boolean needsBackgroundThreads = false;
+        for (Node node : mNodes.values()) {
+            if (node.mPendingDependencies == 0) {
+                ready.add(node);
+            }
+            needsBackgroundThreads |= !node.mRequiresMainThread;
+        }
+        mCallingThread = Thread.currentThread();
+        synchronized (AppInitializer.sLock) {
+            mRemaining = mNodes.size();
+            mAppInitializer.mParallelInitializer = this;
+        }
+        if (needsBackgroundThreads) {
+            mExecutor = createExecutor();
+        }
+        long startNanos = System.nanoTime();
+        try {
+            for (Node node : ready) {
+                dispatch(node);
+            }
+            runCallingThreadNodes();
+        } finally {
+            synchronized (AppInitializer.sLock) {
+                mAppInitializer.mParallelInitializer = null;
+            }
+            if (mExecutor != null) {
+                mExecutor.shutdown();
+            }
+        }
+        if (StartupLogger.DEBUG) {
+            logReport(startNanos, System.nanoTime());
+        }
+    }
+
+    /**
+     * Called by {@link AppInitializer} with {@link AppInitializer#sLock} held, before it
+     * initializes a component lazily.
+     *
+     * <p>Waits for the node of the component if it is already running, or if it requires the
+     * calling thread and this is another thread. The calling thread keeps running its initializers
+     * while it waits.
+     *
+     * @return <code>true</code> if the node of the component is done, <code>false</code> if the
+     * caller needs to initialize the component, and then call {@link #onLazilyInitialized}.
+     * @throws StartupException if an {@link Initializer} of the graph failed.
+     */
+    @GuardedBy("AppInitializer.sLock")
+    boolean awaitNode(@NonNull Class<?> component) {
+        Node node = mNodes.get(component);
+        if (node == null) {
+            return false;
+        }
+        Thread thread = Thread.currentThread();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                if (mFailure != null) {
+                    throw new StartupException(mFailure);
+                }
+                if (node.mDone) {
+                    return true;
+                }
+                if (node.mClaimingThread == thread) {
+                    String message = String.format(
+                            "Cannot initialize %s. Cycle detected.", component.getName()
+                    );
+                    throw new StartupException(message);
+                }
+                if (!node.mClaimed && (!node.mRequiresMainThread || thread == mCallingThread)) {
+                    // The caller initializes the component instead of the node.
+                    node.mClaimed = true;
+                    node.mClaimingThread = thread;
+                    node.mThreadName = thread.getName();
+                    node.mStartNanos = System.nanoTime();
+                    return false;
+                }
+                Runnable runnable = thread == mCallingThread ? mCallingThreadQueue.poll() : null;
+                if (runnable != null) {
+                    runnable.run();
+                    continue;
+                }
+                try {
+                    AppInitializer.sLock.wait();
+                } catch (InterruptedException exception) {
+                    // Initializers can't be left half done, so keep waiting.
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Called by {@link AppInitializer} with {@link AppInitializer#sLock} held, once it
+     * initialized a component for which {@link #awaitNode} returned <code>false</code>.
+     */
+    @GuardedBy("AppInitializer.sLock")
+    void onLazilyInitialized(@NonNull Class<?> component, @Nullable Throwable failure) {
+        Node node = mNodes.get(component);
+        if (node != null) {
+            node.mDurationNanos = System.nanoTime() - node.mStartNanos;
+            onNodeDone(node, failure);
+        }
+    }
+
+    /**
+     * Adds the node of the component, after the nodes of its dependencies which are not yet
+     * initialized.
+     */
+    @NonNull
+    private Node addNode(
+            @NonNull Class<? extends Initializer<?>> component,
+            @NonNull Set<Class<?>> initializing) {
+        Node node = mNodes.get(component);
+        if (node != null) {
+            return node;
+        }
+        if (initializing.contains(component)) {
+            String message = String.format(
+                    "Cannot initialize %s. Cycle detected.", component.getName()
+            );
+            throw new StartupException(message);
+        }
+        initializing.add(component);
+        Initializer<?> initializer;
+        try {
+            initializer = (Initializer<?>) component.getDeclaredConstructor().newInstance();
+        } catch (Throwable throwable) {
+            throw new StartupException(throwable);
+        }
+        node = new Node(component, initializer);
+        for (Class<? extends Initializer<?>> dependency : initializer.dependencies()) {
+            if (!mAppInitializer.isInitialized(dependency)) {
+                addNode(dependency, initializing).mDependents.add(node);
+                node.mPendingDependencies++;
+            }
+        }
+        initializing.remove(component);
+        mNodes.put(component, node);
+        return node;
+    }
+
+    private void dispatch(@NonNull Node node) {
+        if (node.mRequiresMainThread) {
+            mCallingThreadQueue.add(() -> initialize(node));
+            synchronized (AppInitializer.sLock) {
+                // Wakes up the calling thread if it waits in awaitNode.
+                AppInitializer.sLock.notifyAll();
+            }
+            return;
+        }
+        try {
+            mExecutor.execute(() -> initialize(node));
+        } catch (RejectedExecutionException exception) {
+            // The executor is only shut down once the initialization is over, i.e. after a
+            // failure. The node won't be waited for anymore.
+        }
+    }
+
+    /**
+     * Runs the initializers which require the calling thread as they become ready, until all the
+     * initializers are done.
+     */
+    private void runCallingThreadNodes() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                synchronized (AppInitializer.sLock) {
+                    if (mFailure != null) {
+                        throw new StartupException(mFailure);
+                    }
+                    if (mRemaining == 0) {
+                        return;
+                    }
+                }
+                try {
+                    mCallingThreadQueue.take().run();
+                } catch (InterruptedException exception) {
+                    // Initializers can't be left half done, so keep waiting.
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void initialize(@NonNull Node node) {
+        boolean initialized;
+        synchronized (AppInitializer.sLock) {
+            if (node.mClaimed) {
+                // Initialized lazily, which also completes the node.
+                return;
+            }
+            node.mClaimed = true;
+            node.mClaimingThread = Thread.currentThread();
+            // The component may have been initialized lazily before the graph was registered.
+            initialized = mAppInitializer.mInitialized.containsKey(node.mComponent);
+        }
+        Throwable failure = null;
+        boolean isTracingEnabled = Trace.isEnabled();
+        try {
+            if (isTracingEnabled) {
+                // Use the simpleName here because section names would get too big otherwise.
+                Trace.beginSection(node.mComponent.getSimpleName());
+            }
+            node.mThreadName = Thread.currentThread().getName();
+            node.mStartNanos = System.nanoTime();
+            if (!initialized) {
+                if (StartupLogger.DEBUG) {
+                    StartupLogger.i(String.format("Initializing %s", node.mComponent.getName()));
+                }
+                Object result = node.mInitializer.create(mContext);
+                synchronized (AppInitializer.sLock) {
+                    mAppInitializer.mInitialized.put(node.mComponent, result);
+                }
+            }
+            node.mDurationNanos = System.nanoTime() - node.mStartNanos;
+        } catch (Throwable throwable) {
+            failure = throwable;
+        } finally {
+            if (isTracingEnabled) {
+                Trace.endSection();
+            }
+        }
+        onNodeDone(node, failure);
+    }
+
+    private void onNodeDone(@NonNull Node node, @Nullable Throwable failure) {
+        List<Node> ready = new ArrayList<>();
+        boolean done;
+        synchronized (AppInitializer.sLock) {
+            if (failure != null && mFailure == null) {
+                mFailure = failure;
+            }
+            node.mDone = true;
+            AppInitializer.sLock.notifyAll();
+            mRemaining--;
+            if (mFailure == null) {
+                for (Node dependent : node.mDependents) {
+                    if (--dependent.mPendingDependencies == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+            done = mRemaining == 0 || mFailure != null;
+        }
+        for (Node dependent : ready) {
+            dispatch(dependent);
+        }
+        if (done) {
+            mCallingThreadQueue.add(WAKE_UP);
+        }
+    }
+
+    private void logReport(long startNanos, long endNanos) {
+        List<Node> nodes = new ArrayList<>(mNodes.values());
+        Collections.sort(nodes, (first, second) ->
+                Long.compare(first.mStartNanos, second.mStartNanos));
+        StringBuilder report = new StringBuilder(String.format(Locale.US,
+                "Initialized %d components in %d us", nodes.size(), toMicros(endNanos - startNanos)
+        ));
+        for (Node node : nodes) {
+            report.append(String.format(Locale.US, "\n  %s: started at %d us, took %d us on %s",
+                    node.mComponent.getName(),
+                    toMicros(node.mStartNanos - startNanos),
+                    toMicros(node.mDurationNanos),
+                    node.mThreadName));
+        }
+        StartupLogger.i(report.toString());
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @NonNull
+    private static ExecutorService createExecutor() {
+        int threadCount = Math.max(1,
+                Math.min(Runtime.getRuntime().availableProcessors() - 1, MAX_BACKGROUND_THREADS));
+        return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private final AtomicInteger mThreadId = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable);
+                thread.setName(String.format(Locale.US, "Startup-%d",
+                        mThreadId.getAndIncrement()));
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * An {@link Initializer} of the dependency graph.
+     */
+    private static final class Node {
+        @NonNull
+        final Class<? extends Initializer<?>> mComponent;
+
+        @NonNull
+        final Initializer<?> mInitializer;
+
+        final boolean mRequiresMainThread;
+
+        /**
+         * The nodes which depend on this one.
+         */
+        @NonNull
+        final List<Node> mDependents = new ArrayList<>();
+
+        // Guarded by AppInitializer#sLock once the graph is built.
+        int mPendingDependencies;
+
+        /**
+         * Whether the node, or a lazy initialization of the component, started initializing it.
+         */
+        @GuardedBy("AppInitializer.sLock")
+        boolean mClaimed;
+
+        @GuardedBy("AppInitializer.sLock")
+        @Nullable
+        Thread mClaimingThread;
+
+        @GuardedBy("AppInitializer.sLock")
+        boolean mDone;
+
+        // Timing, written by the thread which initializes the component.
+        long mStartNanos;
+        long mDurationNanos;
+        @Nullable
+        String mThreadName;
+
+        Node(@NonNull Class<? extends Initializer<?>> component,
+                @NonNull Initializer<?> initializer) {
+            mComponent = component;
+            mInitializer = initializer;
+            mRequiresMainThread = initializer.requiresMainThread();
+        }
+    }
+}
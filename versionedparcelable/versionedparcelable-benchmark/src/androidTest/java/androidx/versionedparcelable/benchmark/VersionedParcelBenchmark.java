@@ -0,0 +1,167 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable.benchmark;
+
+import static org.junit.Assert.assertEquals;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.versionedparcelable.ParcelField;
+import androidx.versionedparcelable.ParcelUtils;
+import androidx.versionedparcelable.VersionedParcelable;
+import androidx.versionedparcelable.VersionedParcelize;
+import androidx.versionedparcelable.VersionedParcelizerRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares parceling VersionedParcelables through their Parcelizers looked up by reflection with
+ * parceling them through the generated registry.
+ *
+ * <p>The items look like the ones media sessions send to their controllers: a few scalar fields,
+ * and a list of nested VersionedParcelables.
+ */
+@LargeTest
+@RunWith(Parameterized.class)
+public class VersionedParcelBenchmark {
+
+    private static final int METADATA_COUNT = 8;
+
+    @Parameterized.Parameters(name = "registry={0}")
+    public static Iterable<? extends Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final boolean mUseRegistry;
+
+    private final SampleItem mItem = createItem();
+
+    public VersionedParcelBenchmark(boolean useRegistry) {
+        mUseRegistry = useRegistry;
+    }
+
+    @Before
+    public void setUp() {
+        if (mUseRegistry) {
+            BenchmarkParcelizers.register();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        VersionedParcelizerRegistry.clear();
+    }
+
+    @Test
+    public void parcelRoundTrip() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        Parcel parcel = Parcel.obtain();
+        SampleItem item = null;
+        while (state.keepRunning()) {
+            parcel.setDataPosition(0);
+            parcel.writeParcelable(ParcelUtils.toParcelable(mItem), 0);
+            parcel.setDataPosition(0);
+            Parcelable parcelable = parcel.readParcelable(getClass().getClassLoader());
+            item = ParcelUtils.fromParcelable(parcelable);
+        }
+        parcel.recycle();
+        assertEquals(mItem.mMediaId, item.mMediaId);
+    }
+
+    @Test
+    public void streamWrite() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        while (state.keepRunning()) {
+            output.reset();
+            ParcelUtils.toOutputStream(mItem, output);
+        }
+    }
+
+    @Test
+    public void streamRead() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ParcelUtils.toOutputStream(mItem, output);
+        ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+        SampleItem item = null;
+        while (state.keepRunning()) {
+            input.reset();
+            item = ParcelUtils.fromInputStream(input);
+        }
+        assertEquals(mItem.mMetadata.size(), item.mMetadata.size());
+    }
+
+    private static SampleItem createItem() {
+        SampleItem item = new SampleItem();
+        item.mMediaId = "media_id";
+        item.mStartPosition = 1000;
+        item.mEndPosition = 60000;
+        item.mFlags = 3;
+        item.mMetadata = new ArrayList<>();
+        for (int i = 0; i < METADATA_COUNT; i++) {
+            SampleMetadata metadata = new SampleMetadata();
+            metadata.mKey = "key_" + i;
+            metadata.mValue = "value_" + i;
+            metadata.mRating = i / 2f;
+            item.mMetadata.add(metadata);
+        }
+        return item;
+    }
+
+    @VersionedParcelize(allowSerialization = true)
+    public static class SampleItem implements VersionedParcelable {
+        @ParcelField(1)
+        public String mMediaId;
+        @ParcelField(2)
+        public long mStartPosition;
+        @ParcelField(3)
+        public long mEndPosition;
+        @ParcelField(4)
+        public int mFlags;
+        @ParcelField(5)
+        public List<SampleMetadata> mMetadata;
+    }
+
+    @VersionedParcelize(allowSerialization = true)
+    public static class SampleMetadata implements VersionedParcelable {
+        @ParcelField(1)
+        public String mKey;
+        @ParcelField(2)
+        public String mValue;
+        @ParcelField(3)
+        public float mRating;
+    }
+}
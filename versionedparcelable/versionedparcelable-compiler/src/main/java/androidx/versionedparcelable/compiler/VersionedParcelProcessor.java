@@ -20,6 +20,7 @@ import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
@@ -41,6 +42,7 @@ import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.AnnotationMirror;
@@ -56,23 +58,36 @@ import javax.tools.Diagnostic;
 
 /**
  * Processes annotations from VersionedParcelables.
+ *
+ * <p>When the {@value #REGISTRY_OPTION} option is set to a class name, also generates that class
+ * with a static {@code register()} method, which registers the Parcelizers of the module in
+ * VersionedParcelizerRegistry so that they are called without reflection.
  */
 @SupportedAnnotationTypes({
         VersionedParcelProcessor.VERSIONED_PARCELIZE,
         VersionedParcelProcessor.PARCEL_FIELD,
         VersionedParcelProcessor.NON_PARCEL_FIELD
 })
+@SupportedOptions(VersionedParcelProcessor.REGISTRY_OPTION)
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public class VersionedParcelProcessor extends AbstractProcessor {
 
     static final String VERSIONED_PARCELIZE = "androidx.versionedparcelable.VersionedParcelize";
     static final String PARCEL_FIELD = "androidx.versionedparcelable.ParcelField";
     static final String NON_PARCEL_FIELD = "androidx.versionedparcelable.NonParcelField";
+    static final String REGISTRY_OPTION = "androidx.versionedparcelable.registry";
 
     private static final ClassName RESTRICT_TO = ClassName.get("androidx.annotation", "RestrictTo");
     private static final ClassName RESTRICT_TO_SCOPE = RESTRICT_TO.nestedClass("Scope");
     private static final ClassName VERSIONED_PARCEL =
             ClassName.get("androidx.versionedparcelable", "VersionedParcel");
+    private static final ClassName VERSIONED_PARCELIZER =
+            ClassName.get("androidx.versionedparcelable", "VersionedParcelizer");
+    private static final ClassName VERSIONED_PARCELIZER_REGISTRY =
+            ClassName.get("androidx.versionedparcelable", "VersionedParcelizerRegistry");
+    private static final AnnotationSpec RESTRICT_TO_LIBRARY = AnnotationSpec.builder(RESTRICT_TO)
+            .addMember("value", "$T.LIBRARY", RESTRICT_TO_SCOPE)
+            .build();
 
     private static final String GEN_SUFFIX = "Parcelizer";
     private static final String READ = "read";
@@ -81,12 +96,16 @@ public class VersionedParcelProcessor extends AbstractProcessor {
     private Messager mMessager;
     private ProcessingEnvironment mEnv;
     private Map<Pattern, String> mMethodLookup = new HashMap<>();
+    private String mRegistryName;
+    private final List<Registration> mRegistrations = new ArrayList<>();
+    private boolean mRegistryGenerated;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnvironment) {
         super.init(processingEnvironment);
         mEnv = processingEnvironment;
         mMessager = processingEnvironment.getMessager();
+        mRegistryName = processingEnvironment.getOptions().get(REGISTRY_OPTION);
         mMethodLookup.put(Pattern.compile("^boolean$"), "Boolean");
         mMethodLookup.put(Pattern.compile("^int$"), "Int");
         mMethodLookup.put(Pattern.compile("^long$"), "Long");
@@ -120,7 +139,12 @@ public class VersionedParcelProcessor extends AbstractProcessor {
 
     @Override
     public boolean process(Set<? extends TypeElement> set, RoundEnvironment roundEnvironment) {
-        if (set.isEmpty()) return true;
+        if (set.isEmpty()) {
+            // The Parcelizers generated in the previous round start a round without annotations,
+            // so the registry can be generated before the last round, which javac warns about.
+            generateRegistry();
+            return true;
+        }
         TypeElement cls = findAnnotation(set, VERSIONED_PARCELIZE);
         TypeElement field = findAnnotation(set, PARCEL_FIELD);
         TypeElement nonField = findAnnotation(set, NON_PARCEL_FIELD);
@@ -214,13 +238,10 @@ public class VersionedParcelProcessor extends AbstractProcessor {
             String allowSerialization, String ignoreParcelables, String isCustom,
             String jetifyAs, String factoryClass) {
         boolean custom = "true".equals(isCustom);
-        AnnotationSpec restrictTo = AnnotationSpec.builder(RESTRICT_TO)
-                .addMember("value", "$T.LIBRARY", RESTRICT_TO_SCOPE)
-                .build();
         TypeSpec.Builder genClass = TypeSpec
                 .classBuilder(versionedParcelable.getSimpleName() + GEN_SUFFIX)
                 .addOriginatingElement(versionedParcelable)
-                .addAnnotation(restrictTo)
+                .addAnnotation(RESTRICT_TO_LIBRARY)
                 .addModifiers(Modifier.PUBLIC);
         if (jetifyAs == null || jetifyAs.length() == 0) {
             genClass.addModifiers(Modifier.FINAL);
@@ -310,6 +331,9 @@ public class VersionedParcelProcessor extends AbstractProcessor {
             String pkg = getPkg(versionedParcelable);
             JavaFile.builder(pkg,
                     typeSpec).build().writeTo(mEnv.getFiler());
+            Registration registration = new Registration(versionedParcelable, type,
+                    ClassName.get(pkg, typeSpec.name));
+            mRegistrations.add(registration);
             if (jetifyAs != null && jetifyAs.length() > 0) {
                 int index = jetifyAs.lastIndexOf('.');
                 String jetPkg = jetifyAs.substring(1, index);
@@ -317,7 +341,7 @@ public class VersionedParcelProcessor extends AbstractProcessor {
                 TypeSpec.Builder jetifyClass = TypeSpec
                         .classBuilder(jetifyAs.substring(index + 1, jetifyAs.length() - 1)
                                 + GEN_SUFFIX)
-                        .addAnnotation(restrictTo)
+                        .addAnnotation(RESTRICT_TO_LIBRARY)
                         .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
                         // The empty package here is a hack to avoid an import,
                         // since the classes have the same name.
@@ -338,10 +362,84 @@ public class VersionedParcelProcessor extends AbstractProcessor {
                         .build());
                 TypeSpec jetified = jetifyClass.build();
                 JavaFile.builder(jetPkg, jetified).build().writeTo(mEnv.getFiler());
+                registration.mJetifiedParcelizer = jetPkg + "." + jetified.name;
+            }
+        } catch (IOException e) {
+            error("Exception writing " + e);
+        }
+    }
+
+    private void generateRegistry() {
+        if (mRegistryName == null || mRegistrations.isEmpty()) {
+            return;
+        }
+        if (mRegistryGenerated) {
+            mMessager.printMessage(Diagnostic.Kind.WARNING, "VersionedParcelProcessor - "
+                    + "Parcelizers generated after " + mRegistryName + " aren't registered");
+            mRegistrations.clear();
+            return;
+        }
+        mRegistryGenerated = true;
+        // Keep the output stable across builds.
+        mRegistrations.sort(Comparator.comparing(r -> r.mParcelizer.reflectionName()));
+        ClassName registryName = ClassName.bestGuess(mRegistryName);
+        TypeSpec.Builder registry = TypeSpec.classBuilder(registryName)
+                .addAnnotation(RESTRICT_TO_LIBRARY)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .build());
+        MethodSpec.Builder register = MethodSpec
+                .methodBuilder("register")
+                .addJavadoc("Registers the Parcelizers of this module, so that they are called "
+                        + "without reflection.\n")
+                .addAnnotation(AnnotationSpec.builder(
+                        ClassName.get("java.lang", "SuppressWarnings"))
+                        .addMember("value", "{$S, $S}", "unchecked", "rawtypes")
+                        .build())
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC);
+        for (int i = 0; i < mRegistrations.size(); i++) {
+            Registration registration = mRegistrations.get(i);
+            registry.addOriginatingElement(registration.mVersionedParcelable);
+            TypeName parcelizerType = ParameterizedTypeName.get(VERSIONED_PARCELIZER,
+                    registration.mType);
+            TypeSpec parcelizer = TypeSpec.anonymousClassBuilder("")
+                    .addSuperinterface(parcelizerType)
+                    .addMethod(MethodSpec
+                            .methodBuilder(READ)
+                            .addAnnotation(Override.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(registration.mType)
+                            .addParameter(VERSIONED_PARCEL, "parcel")
+                            .addStatement("return $T.read(parcel)", registration.mParcelizer)
+                            .build())
+                    .addMethod(MethodSpec
+                            .methodBuilder(WRITE)
+                            .addAnnotation(Override.class)
+                            .addModifiers(Modifier.PUBLIC)
+                            .addParameter(registration.mType, "obj")
+                            .addParameter(VERSIONED_PARCEL, "parcel")
+                            .addStatement("$T.write(obj, parcel)", registration.mParcelizer)
+                            .build())
+                    .build();
+            String variable = "parcelizer" + i;
+            register.addStatement("$T $L = $L", parcelizerType, variable, parcelizer);
+            register.addStatement("$T.register($T.class, $S, $L)", VERSIONED_PARCELIZER_REGISTRY,
+                    registration.mType, registration.mParcelizer.reflectionName(), variable);
+            if (registration.mJetifiedParcelizer != null) {
+                register.addStatement("$T.registerReader($S, $L)", VERSIONED_PARCELIZER_REGISTRY,
+                        registration.mJetifiedParcelizer, variable);
             }
+        }
+        registry.addMethod(register.build());
+        try {
+            JavaFile.builder(registryName.packageName(), registry.build()).build()
+                    .writeTo(mEnv.getFiler());
         } catch (IOException e) {
             error("Exception writing " + e);
         }
+        // Only the Parcelizers generated from now on are missing from the registry.
+        mRegistrations.clear();
     }
 
     private String strip(String s) {
@@ -523,5 +621,21 @@ public class VersionedParcelProcessor extends AbstractProcessor {
     private void error(String error) {
         mMessager.printMessage(Diagnostic.Kind.ERROR, "VersionedParcelProcessor - " + error);
     }
+
+    /**
+     * A generated Parcelizer to add to the registry.
+     */
+    private static class Registration {
+        final Element mVersionedParcelable;
+        final TypeName mType;
+        final ClassName mParcelizer;
+        String mJetifiedParcelizer;
+
+        Registration(Element versionedParcelable, TypeName type, ClassName parcelizer) {
+            mVersionedParcelable = versionedParcelable;
+            mType = type;
+            mParcelizer = parcelizer;
+        }
+    }
 }
 
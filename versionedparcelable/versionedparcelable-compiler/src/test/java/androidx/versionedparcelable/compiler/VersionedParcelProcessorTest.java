@@ -0,0 +1,126 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable.compiler;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.tools.JavaFileObject;
+
+@RunWith(JUnit4.class)
+public class VersionedParcelProcessorTest {
+
+    // Minimal versions of the library classes the generated code depends on.
+    private static final JavaFileObject[] LIBRARY = {
+            JavaFileObjects.forSourceLines("androidx.annotation.RestrictTo",
+                    "package androidx.annotation;",
+                    "public @interface RestrictTo {",
+                    "    Scope[] value();",
+                    "    enum Scope { LIBRARY }",
+                    "}"),
+            JavaFileObjects.forSourceLines("androidx.versionedparcelable.VersionedParcelize",
+                    "package androidx.versionedparcelable;",
+                    "public @interface VersionedParcelize {",
+                    "    boolean allowSerialization() default false;",
+                    "    boolean ignoreParcelables() default false;",
+                    "    boolean isCustom() default false;",
+                    "    int[] deprecatedIds() default {};",
+                    "    String jetifyAs() default \"\";",
+                    "    Class<?> factory() default void.class;",
+                    "}"),
+            JavaFileObjects.forSourceLines("androidx.versionedparcelable.ParcelField",
+                    "package androidx.versionedparcelable;",
+                    "public @interface ParcelField {",
+                    "    int value();",
+                    "    String defaultValue() default \"\";",
+                    "}"),
+            JavaFileObjects.forSourceLines("androidx.versionedparcelable.VersionedParcelable",
+                    "package androidx.versionedparcelable;",
+                    "public interface VersionedParcelable {",
+                    "}"),
+            JavaFileObjects.forSourceLines("androidx.versionedparcelable.VersionedParcel",
+                    "package androidx.versionedparcelable;",
+                    "public abstract class VersionedParcel {",
+                    "    public void setSerializationFlags(boolean allowSerialization,",
+                    "            boolean ignoreParcelables) {",
+                    "    }",
+                    "    public int readInt(int def, int fieldId) {",
+                    "        return def;",
+                    "    }",
+                    "    public void writeInt(int val, int fieldId) {",
+                    "    }",
+                    "}"),
+            JavaFileObjects.forSourceLines("androidx.versionedparcelable.VersionedParcelizer",
+                    "package androidx.versionedparcelable;",
+                    "public interface VersionedParcelizer<T extends VersionedParcelable> {",
+                    "    T read(VersionedParcel parcel);",
+                    "    void write(T obj, VersionedParcel parcel);",
+                    "}"),
+            JavaFileObjects.forSourceLines(
+                    "androidx.versionedparcelable.VersionedParcelizerRegistry",
+                    "package androidx.versionedparcelable;",
+                    "public final class VersionedParcelizerRegistry {",
+                    "    public static <T extends VersionedParcelable> void register(",
+                    "            Class<T> cls, String parcelizerName,",
+                    "            VersionedParcelizer<T> parcelizer) {",
+                    "    }",
+                    "    public static void registerReader(String parcelizerName,",
+                    "            VersionedParcelizer<?> parcelizer) {",
+                    "    }",
+                    "}"),
+    };
+
+    private static final JavaFileObject POINT = JavaFileObjects.forSourceLines(
+            "test.Point",
+            "package test;",
+            "import androidx.versionedparcelable.ParcelField;",
+            "import androidx.versionedparcelable.VersionedParcelable;",
+            "import androidx.versionedparcelable.VersionedParcelize;",
+            "@VersionedParcelize",
+            "public class Point implements VersionedParcelable {",
+            "    @ParcelField(1) public int mX;",
+            "    @ParcelField(2) public int mY;",
+            "}");
+
+    @Test
+    public void registry_generatedWithoutWarnings() {
+        JavaFileObject[] sources = new JavaFileObject[LIBRARY.length + 1];
+        System.arraycopy(LIBRARY, 0, sources, 0, LIBRARY.length);
+        sources[LIBRARY.length] = POINT;
+
+        Compilation compilation = javac()
+                .withProcessors(new VersionedParcelProcessor())
+                // The processor supports Java 8 sources, javac warns about it otherwise.
+                .withOptions("--release", "8", "-Xlint:-options",
+                        "-A" + VersionedParcelProcessor.REGISTRY_OPTION + "=test.TestRegistry")
+                .compile(sources);
+
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation).generatedSourceFile("test.PointParcelizer");
+        assertThat(compilation).generatedSourceFile("test.TestRegistry")
+                .contentsAsUtf8String()
+                .contains("VersionedParcelizerRegistry.register(Point.class, "
+                        + "\"test.PointParcelizer\", parcelizer0)");
+    }
+}
@@ -16,6 +16,7 @@
 
 package androidx.versionedparcelable;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -26,6 +27,7 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 
 @SmallTest
 public class VersionedParcelStreamTest {
@@ -76,6 +78,55 @@ public class VersionedParcelStreamTest {
                 createInputParcel().readException(null, 0).getClass());
     }
 
+    @Test
+    public void testMultipleFields() {
+        mOutputParcel.writeInt(42, 1);
+        mOutputParcel.writeString("My string", 2);
+        mOutputParcel.writeLong(68, 3);
+        VersionedParcelStream inputParcel = createInputParcel();
+        assertEquals(42, inputParcel.readInt(0, 1));
+        assertEquals("My string", inputParcel.readString(null, 2));
+        assertEquals(68, inputParcel.readLong(0, 3));
+    }
+
+    @Test
+    public void testSkippedField() {
+        mOutputParcel.writeInt(42, 1);
+        mOutputParcel.writeString("My string", 2);
+        mOutputParcel.writeLong(68, 3);
+        VersionedParcelStream inputParcel = createInputParcel();
+        assertEquals(68, inputParcel.readLong(0, 3));
+    }
+
+    @Test
+    public void testLargeField() {
+        byte[] bytes = new byte[0x10000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        mOutputParcel.writeByteArray(bytes, 0);
+        mOutputParcel.writeInt(42, 1);
+        VersionedParcelStream inputParcel = createInputParcel();
+        assertArrayEquals(bytes, inputParcel.readByteArray(null, 0));
+        assertEquals(42, inputParcel.readInt(0, 1));
+    }
+
+    @Test
+    public void testFieldHeaders() {
+        mOutputParcel.writeInt(42, 1);
+        mOutputParcel.writeByteArray(new byte[0xffff - 4], 2);
+        mOutputParcel.closeField();
+        ByteBuffer output = ByteBuffer.wrap(mOutput.toByteArray());
+        // The id and the size of each field are written before its content, and sizes which
+        // don't fit in 16 bits are written separately.
+        assertEquals((1 << 16) | 4, output.getInt());
+        assertEquals(42, output.getInt());
+        assertEquals((2 << 16) | 0xffff, output.getInt());
+        assertEquals(0xffff, output.getInt());
+        assertEquals(0xffff - 4, output.getInt());
+        assertEquals(0xffff - 4, output.remaining());
+    }
+
     private VersionedParcelStream createInputParcel() {
         mOutputParcel.closeField();
         return new VersionedParcelStream(new ByteArrayInputStream(mOutput.toByteArray()), null);
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import static androidx.versionedparcelable.ParcelUtils.fromInputStream;
+import static androidx.versionedparcelable.ParcelUtils.fromParcelable;
+import static androidx.versionedparcelable.ParcelUtils.toOutputStream;
+import static androidx.versionedparcelable.ParcelUtils.toParcelable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.test.filters.SmallTest;
+import androidx.versionedparcelable.VersionedParcelIntegTest.GenericType;
+import androidx.versionedparcelable.VersionedParcelIntegTest.ParcelizableImpl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+@RunWith(Parameterized.class)
+@SmallTest
+public class VersionedParcelizerRegistryTest {
+
+    @Parameterized.Parameters
+    public static Iterable<? extends Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private boolean mUseStream;
+
+    public VersionedParcelizerRegistryTest(boolean useStream) {
+        mUseStream = useStream;
+    }
+
+    @After
+    public void tearDown() {
+        VersionedParcelizerRegistry.clear();
+    }
+
+    @SuppressWarnings({"deprecation", "TypeParameterUnusedInFormals"})
+    private <T extends VersionedParcelable> T parcelCopy(VersionedParcelable obj) {
+        if (mUseStream) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            toOutputStream(obj, outputStream);
+            byte[] buf = outputStream.toByteArray();
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(buf);
+            return fromInputStream(inputStream);
+        } else {
+            Parcel p = Parcel.obtain();
+            p.writeParcelable(toParcelable(obj), 0);
+            p.setDataPosition(0);
+            return fromParcelable(p.readParcelable(getClass().getClassLoader()));
+        }
+    }
+
+    @Test
+    public void testGeneratedRegistry() {
+        TestParcelizers.register();
+        assertNotNull(VersionedParcelizerRegistry.getRegistration(ParcelizableImpl.class));
+        assertNotNull(VersionedParcelizerRegistry.getReader(
+                ParcelizableImplParcelizer.class.getName()));
+
+        ParcelizableImpl obj = new ParcelizableImpl();
+        obj.mInt = 42;
+        obj.mString = "my_string_123";
+        obj.mGenericType = new GenericType<>("generic");
+        ParcelizableImpl other = parcelCopy(obj);
+
+        assertEquals(obj.mInt, other.mInt);
+        assertEquals(obj.mString, other.mString);
+        assertEquals(obj.mGenericType.mValue, other.mGenericType.mValue);
+    }
+
+    @Test
+    public void testRegisteredParcelizerIsCalled() {
+        CountingParcelizer parcelizer = new CountingParcelizer();
+        VersionedParcelizerRegistry.register(GenericType.class,
+                GenericTypeParcelizer.class.getName(), parcelizer);
+
+        GenericType<String> other = parcelCopy(new GenericType<>("generic"));
+
+        assertEquals("generic", other.mValue);
+        assertEquals(1, parcelizer.mReadCount);
+        assertEquals(1, parcelizer.mWriteCount);
+    }
+
+    @Test
+    public void testRegistrationIsCompatibleWithReflection() {
+        ParcelizableImpl obj = new ParcelizableImpl();
+        obj.mInt = 42;
+        byte[] reflectionBytes = toBytes(obj);
+
+        TestParcelizers.register();
+
+        assertTrue(Arrays.equals(reflectionBytes, toBytes(obj)));
+    }
+
+    @Test
+    public void testClear() {
+        TestParcelizers.register();
+        VersionedParcelizerRegistry.clear();
+
+        assertNull(VersionedParcelizerRegistry.getRegistration(ParcelizableImpl.class));
+        ParcelizableImpl obj = new ParcelizableImpl();
+        obj.mInt = 42;
+        ParcelizableImpl other = parcelCopy(obj);
+        assertEquals(obj.mInt, other.mInt);
+    }
+
+    private byte[] toBytes(VersionedParcelable obj) {
+        if (mUseStream) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            toOutputStream(obj, outputStream);
+            return outputStream.toByteArray();
+        }
+        Parcel p = Parcel.obtain();
+        try {
+            p.writeParcelable(toParcelable(obj), 0);
+            return p.marshall();
+        } finally {
+            p.recycle();
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static class CountingParcelizer implements VersionedParcelizer<GenericType> {
+        int mReadCount;
+        int mWriteCount;
+
+        @NonNull
+        @Override
+        public GenericType read(@NonNull VersionedParcel parcel) {
+            mReadCount++;
+            return GenericTypeParcelizer.read(parcel);
+        }
+
+        @Override
+        public void write(@NonNull GenericType obj, @NonNull VersionedParcel parcel) {
+            mWriteCount++;
+            GenericTypeParcelizer.write(obj, parcel);
+        }
+    }
+}
@@ -1060,6 +1060,12 @@ public abstract class VersionedParcel {
     }
 
     private void writeVersionedParcelableCreator(@NonNull VersionedParcelable p) {
+        VersionedParcelizerRegistry.Registration registration =
+                VersionedParcelizerRegistry.getRegistration(p.getClass());
+        if (registration != null) {
+            writeString(registration.mParcelizerName);
+            return;
+        }
         Class<?> name;
         try {
             name = findParcelClass(p.getClass());
@@ -1591,6 +1597,10 @@ public abstract class VersionedParcel {
             @NonNull String parcelCls,
             @NonNull VersionedParcel versionedParcel
     ) {
+        VersionedParcelizer<?> parcelizer = VersionedParcelizerRegistry.getReader(parcelCls);
+        if (parcelizer != null) {
+            return (T) parcelizer.read(versionedParcel);
+        }
         try {
             Method m = getReadMethod(parcelCls);
             return (T) m.invoke(null, versionedParcel);
@@ -1614,10 +1624,17 @@ public abstract class VersionedParcel {
 
     /**
      */
+    @SuppressWarnings("unchecked")
     protected <T extends VersionedParcelable> void writeToParcel(
             @NonNull T val,
             @NonNull VersionedParcel versionedParcel
     ) {
+        VersionedParcelizerRegistry.Registration registration =
+                VersionedParcelizerRegistry.getRegistration(val.getClass());
+        if (registration != null) {
+            ((VersionedParcelizer<T>) registration.mParcelizer).write(val, versionedParcel);
+            return;
+        }
         try {
             Method m = getWriteMethod(val.getClass());
             m.invoke(null, val, versionedParcel);
@@ -26,15 +26,14 @@ import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.collection.SimpleArrayMap;
 
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
@@ -64,15 +63,17 @@ class VersionedParcelStream extends VersionedParcel {
 
     @Nullable
     private final DataInputStream mMasterInput;
+    // Only set on the root stream, which flushes the writer to it.
     @Nullable
-    private final DataOutputStream mMasterOutput;
+    private final OutputStream mMasterOutput;
 
     @Nullable
     private DataInputStream mCurrentInput;
+    // Shared by the root stream and its sub-parcels.
     @Nullable
-    private DataOutputStream mCurrentOutput;
-    @Nullable
-    private FieldBuffer mFieldBuffer;
+    private FieldWriter mWriter;
+    private int mOutputFieldId;
+    private int mOutputFieldStart = -1;
     private boolean mIgnoreParcelables;
 
     int mCount = 0;
@@ -80,13 +81,14 @@ class VersionedParcelStream extends VersionedParcel {
     int mFieldSize = -1;
 
     VersionedParcelStream(@Nullable InputStream input, @Nullable OutputStream output) {
-        this(input, output, new SimpleArrayMap<String, Method>(),
+        this(input, output, null, new SimpleArrayMap<String, Method>(),
                 new SimpleArrayMap<String, Method>(), new SimpleArrayMap<String, Class<?>>());
     }
 
     private VersionedParcelStream(
             @Nullable InputStream input,
             @Nullable OutputStream output,
+            @Nullable FieldWriter writer,
             @NonNull SimpleArrayMap<String, Method> readCache,
             @NonNull SimpleArrayMap<String, Method> writeCache,
             @NonNull SimpleArrayMap<String, Class<?>> parcelizerCache
@@ -127,9 +129,20 @@ class VersionedParcelStream extends VersionedParcel {
                 return skip;
             }
         }) : null;
-        mMasterOutput = output != null ? new DataOutputStream(output) : null;
+        mMasterOutput = output;
+        mWriter = writer;
         mCurrentInput = mMasterInput;
-        mCurrentOutput = mMasterOutput;
+    }
+
+    @NonNull
+    private FieldWriter getWriter() {
+        if (mWriter == null) {
+            if (mMasterOutput == null) {
+                throw new IllegalStateException("VersionedParcelStream has no OutputStream");
+            }
+            mWriter = FieldWriter.acquire();
+        }
+        return mWriter;
     }
 
     @Override
@@ -149,21 +162,28 @@ class VersionedParcelStream extends VersionedParcel {
 
     @Override
     public void closeField() {
-        if (mFieldBuffer != null) {
+        if (mOutputFieldStart != -1) {
+            mWriter.endField(mOutputFieldId, mOutputFieldStart);
+            mOutputFieldStart = -1;
+        }
+        if (mMasterOutput != null && mWriter != null) {
+            // Sub-parcels write into the fields of their parent, so only the root stream has
+            // complete fields to flush.
             try {
-                if (mFieldBuffer.mOutput.size() != 0) {
-                    mFieldBuffer.flushField();
-                }
+                mWriter.writeTo(mMasterOutput);
             } catch (IOException e) {
                 throw new ParcelException(e);
+            } finally {
+                FieldWriter.release(mWriter);
+                mWriter = null;
             }
-            mFieldBuffer = null;
         }
     }
 
     @Override
     protected @NonNull VersionedParcel createSubParcel() {
-        return new VersionedParcelStream(mCurrentInput, mCurrentOutput, mReadCache, mWriteCache,
+        return new VersionedParcelStream(mCurrentInput, null,
+                mMasterOutput != null ? getWriter() : mWriter, mReadCache, mWriteCache,
                 mParcelizerCache);
     }
 
@@ -199,35 +219,27 @@ class VersionedParcelStream extends VersionedParcel {
     @Override
     public void setOutputField(int fieldId) {
         closeField();
-        mFieldBuffer = new FieldBuffer(fieldId, mMasterOutput);
-        mCurrentOutput = mFieldBuffer.mDataStream;
+        mOutputFieldId = fieldId;
+        mOutputFieldStart = getWriter().startField();
     }
 
     @Override
     public void writeByteArray(@Nullable byte[] b) {
-        try {
-            if (b != null) {
-                mCurrentOutput.writeInt(b.length);
-                mCurrentOutput.write(b);
-            } else {
-                mCurrentOutput.writeInt(-1);
-            }
-        } catch (IOException e) {
-            throw new ParcelException(e);
+        if (b != null) {
+            getWriter().writeInt(b.length);
+            getWriter().write(b, 0, b.length);
+        } else {
+            getWriter().writeInt(-1);
         }
     }
 
     @Override
     public void writeByteArray(@Nullable byte[] b, int offset, int len) {
-        try {
-            if (b != null) {
-                mCurrentOutput.writeInt(len);
-                mCurrentOutput.write(b, offset, len);
-            } else {
-                mCurrentOutput.writeInt(-1);
-            }
-        } catch (IOException e) {
-            throw new ParcelException(e);
+        if (b != null) {
+            getWriter().writeInt(len);
+            getWriter().write(b, offset, len);
+        } else {
+            getWriter().writeInt(-1);
         }
     }
 
@@ -240,65 +252,38 @@ class VersionedParcelStream extends VersionedParcel {
 
     @Override
     public void writeInt(int val) {
-        try {
-            mCurrentOutput.writeInt(val);
-        } catch (IOException e) {
-            throw new ParcelException(e);
-        }
+        getWriter().writeInt(val);
     }
 
     @Override
     public void writeLong(long val) {
-        try {
-            mCurrentOutput.writeLong(val);
-        } catch (IOException e) {
-            throw new ParcelException(e);
-        }
-
+        getWriter().writeLong(val);
     }
 
     @Override
     public void writeFloat(float val) {
-        try {
-            mCurrentOutput.writeFloat(val);
-        } catch (IOException e) {
-            throw new ParcelException(e);
-        }
-
+        getWriter().writeInt(Float.floatToIntBits(val));
     }
 
     @Override
     public void writeDouble(double val) {
-        try {
-            mCurrentOutput.writeDouble(val);
-        } catch (IOException e) {
-            throw new ParcelException(e);
-        }
-
+        getWriter().writeLong(Double.doubleToLongBits(val));
     }
 
     @Override
     public void writeString(@Nullable String val) {
-        try {
-            if (val != null) {
-                byte[] bytes = val.getBytes(UTF_16);
-                mCurrentOutput.writeInt(bytes.length);
-                mCurrentOutput.write(bytes);
-            } else {
-                mCurrentOutput.writeInt(-1);
-            }
-        } catch (IOException e) {
-            throw new ParcelException(e);
+        if (val != null) {
+            byte[] bytes = val.getBytes(UTF_16);
+            getWriter().writeInt(bytes.length);
+            getWriter().write(bytes, 0, bytes.length);
+        } else {
+            getWriter().writeInt(-1);
         }
     }
 
     @Override
     public void writeBoolean(boolean val) {
-        try {
-            mCurrentOutput.writeBoolean(val);
-        } catch (IOException e) {
-            throw new ParcelException(e);
-        }
+        getWriter().writeByte(val ? 1 : 0);
     }
 
     @Override
@@ -423,20 +408,16 @@ class VersionedParcelStream extends VersionedParcel {
     @Override
     @SuppressWarnings("deprecation")
     public void writeBundle(Bundle val) {
-        try {
-            if (val != null) {
-                Set<String> keys = val.keySet();
-                mCurrentOutput.writeInt(keys.size());
-                for (String key : keys) {
-                    writeString(key);
-                    Object o = val.get(key);
-                    writeObject(o);
-                }
-            } else {
-                mCurrentOutput.writeInt(-1);
+        if (val != null) {
+            Set<String> keys = val.keySet();
+            writeInt(keys.size());
+            for (String key : keys) {
+                writeString(key);
+                Object o = val.get(key);
+                writeObject(o);
             }
-        } catch (IOException e) {
-            throw new ParcelException(e);
+        } else {
+            writeInt(-1);
         }
     }
 
@@ -554,33 +535,126 @@ class VersionedParcelStream extends VersionedParcel {
         }
     }
 
-    // This uses extra buffers at the moment, but makes the code really clean.
-    // TODO: Use less buffers
-    private static class FieldBuffer {
+    /**
+     * Holds the output of a root stream and of its sub-parcels in a single buffer, so that the
+     * size of each field can be written before its content without a buffer per field.
+     *
+     * <p>The header of a field is reserved when the field starts, and filled in once it ends.
+     * Fields of sub-parcels end before the field of their parent, which contains them.
+     */
+    private static final class FieldWriter {
+
+        private static final int INITIAL_CAPACITY = 256;
+        // Larger buffers are left to the garbage collector rather than held by the pool.
+        private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+        private static final int MAX_POOL_SIZE = 4;
+
+        private static final Object sPoolLock = new Object();
+        // Guarded by sPoolLock.
+        private static final FieldWriter[] sPool = new FieldWriter[MAX_POOL_SIZE];
+        // Guarded by sPoolLock.
+        private static int sPoolSize;
 
         @NonNull
-        final ByteArrayOutputStream mOutput = new ByteArrayOutputStream();
-        @NonNull
-        final DataOutputStream mDataStream = new DataOutputStream(mOutput);
-        private final int mFieldId;
+        private byte[] mBuffer = new byte[INITIAL_CAPACITY];
+        private int mSize;
+
         @NonNull
-        private final DataOutputStream mTarget;
+        static FieldWriter acquire() {
+            synchronized (sPoolLock) {
+                if (sPoolSize > 0) {
+                    FieldWriter writer = sPool[--sPoolSize];
+                    sPool[sPoolSize] = null;
+                    return writer;
+                }
+            }
+            return new FieldWriter();
+        }
 
-        FieldBuffer(int fieldId, @NonNull DataOutputStream target) {
-            mFieldId = fieldId;
-            mTarget = target;
+        static void release(@NonNull FieldWriter writer) {
+            writer.mSize = 0;
+            if (writer.mBuffer.length > MAX_POOLED_CAPACITY) {
+                return;
+            }
+            synchronized (sPoolLock) {
+                if (sPoolSize < MAX_POOL_SIZE) {
+                    sPool[sPoolSize++] = writer;
+                }
+            }
+        }
+
+        /**
+         * Reserves the header of a field.
+         *
+         * @return The start of the field, to pass to {@link #endField}.
+         */
+        int startField() {
+            int start = mSize;
+            writeInt(0);
+            return start;
         }
 
-        void flushField() throws IOException {
-            mDataStream.flush();
-            int size = mOutput.size();
-            int fieldInfo = (mFieldId << 16) | (size >= 0xffff ? 0xffff : size);
-            mTarget.writeInt(fieldInfo);
+        /**
+         * Writes the header of the field started at the given position, or removes the field if
+         * nothing was written to it.
+         */
+        void endField(int fieldId, int start) {
+            int size = mSize - start - 4;
+            if (size == 0) {
+                mSize = start;
+                return;
+            }
+            int fieldInfo = (fieldId << 16) | (size >= 0xffff ? 0xffff : size);
+            putInt(start, fieldInfo);
             if (size >= 0xffff) {
-                mTarget.writeInt(size);
+                // Large fields have their size in an extra int after the header, so the content
+                // needs to move. This is rare enough not to reserve it for every field.
+                ensureCapacity(4);
+                System.arraycopy(mBuffer, start + 4, mBuffer, start + 8, size);
+                mSize += 4;
+                putInt(start + 4, size);
             }
-            mOutput.writeTo(mTarget);
         }
-    }
 
+        void writeByte(int val) {
+            ensureCapacity(1);
+            mBuffer[mSize++] = (byte) val;
+        }
+
+        void writeInt(int val) {
+            ensureCapacity(4);
+            putInt(mSize, val);
+            mSize += 4;
+        }
+
+        void writeLong(long val) {
+            writeInt((int) (val >>> 32));
+            writeInt((int) val);
+        }
+
+        void write(@NonNull byte[] b, int offset, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, offset, mBuffer, mSize, len);
+            mSize += len;
+        }
+
+        void writeTo(@NonNull OutputStream output) throws IOException {
+            output.write(mBuffer, 0, mSize);
+            mSize = 0;
+        }
+
+        // Big-endian, like DataOutputStream.
+        private void putInt(int position, int val) {
+            mBuffer[position] = (byte) (val >>> 24);
+            mBuffer[position + 1] = (byte) (val >>> 16);
+            mBuffer[position + 2] = (byte) (val >>> 8);
+            mBuffer[position + 3] = (byte) val;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (mSize + extra > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mSize + extra));
+            }
+        }
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Reads and writes the fields of a {@link VersionedParcelable} by calling its generated
+ * Parcelizer directly.
+ *
+ * @param <T> The VersionedParcelable this reads and writes.
+ * @see VersionedParcelizerRegistry
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface VersionedParcelizer<T extends VersionedParcelable> {
+
+    /**
+     * Creates a new VersionedParcelable and reads its fields from the parcel.
+     */
+    @NonNull
+    T read(@NonNull VersionedParcel parcel);
+
+    /**
+     * Writes the fields of the VersionedParcelable to the parcel.
+     */
+    void write(@NonNull T obj, @NonNull VersionedParcel parcel);
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.versionedparcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the {@link VersionedParcelizer}s of VersionedParcelables, so that {@link VersionedParcel}
+ * can read and write them without looking their Parcelizer up by reflection.
+ *
+ * <p>The registrations are generated by the VersionedParcelable compiler when the
+ * {@code androidx.versionedparcelable.registry} option is set to the name of the class to
+ * generate, and installed by calling its static {@code register()} method once, before the
+ * VersionedParcelables are parceled. The VersionedParcelables which aren't registered are still
+ * looked up by reflection.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public final class VersionedParcelizerRegistry {
+
+    // Keyed by the name of the Parcelizer, as written in the parcel.
+    private static final ConcurrentHashMap<String, VersionedParcelizer<?>> sReaders =
+            new ConcurrentHashMap<>();
+    // Keyed by the class of the VersionedParcelable.
+    private static final ConcurrentHashMap<Class<?>, Registration> sWriters =
+            new ConcurrentHashMap<>();
+
+    private VersionedParcelizerRegistry() {
+    }
+
+    /**
+     * Registers the Parcelizer of a VersionedParcelable.
+     *
+     * @param cls The VersionedParcelable class. Its subclasses need their own registration.
+     * @param parcelizerName The name of the generated Parcelizer class, which is written in the
+     *                       parcel to identify the VersionedParcelable.
+     * @param parcelizer Calls the generated Parcelizer.
+     */
+    public static <T extends VersionedParcelable> void register(
+            @NonNull Class<T> cls,
+            @NonNull String parcelizerName,
+            @NonNull VersionedParcelizer<T> parcelizer
+    ) {
+        sReaders.put(parcelizerName, parcelizer);
+        sWriters.put(cls, new Registration(parcelizerName, parcelizer));
+    }
+
+    /**
+     * Registers an additional Parcelizer name to read a VersionedParcelable with, e.g. the name
+     * its Parcelizer had before jetification.
+     */
+    public static void registerReader(
+            @NonNull String parcelizerName,
+            @NonNull VersionedParcelizer<?> parcelizer
+    ) {
+        sReaders.put(parcelizerName, parcelizer);
+    }
+
+    /**
+     * Removes all the registrations, so that all the VersionedParcelables are looked up by
+     * reflection again.
+     */
+    @VisibleForTesting
+    public static void clear() {
+        sReaders.clear();
+        sWriters.clear();
+    }
+
+    @Nullable
+    static VersionedParcelizer<?> getReader(@NonNull String parcelizerName) {
+        return sReaders.get(parcelizerName);
+    }
+
+    @Nullable
+    static Registration getRegistration(@NonNull Class<?> cls) {
+        return sWriters.get(cls);
+    }
+
+    /**
+     * A registered VersionedParcelable class.
+     */
+    static final class Registration {
+        @NonNull
+        final String mParcelizerName;
+        @NonNull
+        final VersionedParcelizer<?> mParcelizer;
+
+        Registration(@NonNull String parcelizerName, @NonNull VersionedParcelizer<?> parcelizer) {
+            mParcelizerName = parcelizerName;
+            mParcelizer = parcelizer;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import androidx.work.impl.WorkDatabase
 import androidx.work.impl.WorkDatabasePathHelper
 import androidx.work.impl.WorkManagerImpl
 import androidx.work.impl.utils.SerialExecutorImpl
+import androidx.work.impl.utils.WorkPruner
 import androidx.work.impl.utils.taskexecutor.SerialExecutor
 import androidx.work.impl.utils.taskexecutor.TaskExecutor
 import java.util.concurrent.Executor
@@ -113,7 +114,7 @@ class InitializeBenchmark {
             runWithTimingDisabled {
                 executor.runAllCommands()
                 with(database) {
-                    workSpecDao().pruneFinishedWorkWithZeroDependentsIgnoringKeepForAtLeast()
+                    WorkPruner(openHelper.writableDatabase).pruneAll(null)
                     close()
                 }
                 context.deleteDatabase(databasePath)
@@ -49,6 +49,9 @@ class MarshallingBenchmark {
     lateinit var request: WorkRequest
     lateinit var parcelledWorkRequest: ParcelableWorkRequest
 
+    lateinit var data: Data
+    lateinit var serializedData: ByteArray
+
     @Before
     fun setUp() {
         val uri = Uri.parse("test://foo")
@@ -80,6 +83,16 @@ class MarshallingBenchmark {
             )
             .build()
 
+        data = Data.Builder()
+            .putString("url", "https://example.com/upload")
+            .putLong("size", 1_000_000L)
+            .putInt("retries", 3)
+            .putBoolean("metered", false)
+            .putStringArray("tags", arrayOf("photo", "backup", "photo"))
+            .putLongArray("ids", longArrayOf(1L, 2L, 3L, 4L, 5L))
+            .build()
+        serializedData = Data.toByteArrayInternal(data)
+
         parcelledConstraints = ParcelableConstraints(constraints)
         parcelledWorkRequest = ParcelableWorkRequest(request)
     }
@@ -103,4 +116,19 @@ class MarshallingBenchmark {
             )
         }
     }
+
+    @Test
+    fun dataSerializationBenchmark() {
+        val values = data.keyValueMap
+        benchmarkRule.measureRepeated {
+            Data.toByteArrayInternal(Data.Builder().putAll(values).build())
+        }
+    }
+
+    @Test
+    fun dataDeserializationBenchmark() {
+        benchmarkRule.measureRepeated {
+            Data.fromByteArray(serializedData).getString("url")
+        }
+    }
 }
@@ -43,6 +43,8 @@ import androidx.work.impl.utils.taskexecutor.TaskExecutor
 import androidx.work.worker.LatchWorker
 import androidx.work.worker.StopAwareWorker
 import androidx.work.worker.StopLatchWorker
+import java.util.concurrent.Callable
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.CountDownLatch
 import java.util.concurrent.Executor
 import java.util.concurrent.ExecutorService
@@ -270,6 +272,57 @@ class ProcessorTests : DatabaseTest() {
         assertTrue(called)
     }
 
+    @Test
+    @MediumTest
+    fun testConcurrentStartForegroundAndStopOfDifferentWork() {
+        // Enough work for several ids to share a lock, and for others to use different locks
+        val requests = List(32) { OneTimeWorkRequest.Builder(StopAwareWorker::class.java).build() }
+        requests.forEach { insertWork(it) }
+        val tokens = requests.map { StartStopToken(it.workSpec.generationalId()) }
+        val foregroundTokens = tokens.filterIndexed { index, _ -> index % 2 == 0 }
+        val backgroundTokens = tokens - foregroundTokens.toSet()
+        val info = foregroundInfo
+        val executionFinished = CountDownLatch(tokens.size)
+        processor.addExecutionListener { _, _ -> executionFinished.countDown() }
+        val threads = Executors.newFixedThreadPool(8)
+        try {
+            tokens.map { token -> threads.submit(Callable { processor.startWork(token) }) }
+                .forEach { assertTrue(it.get(3, TimeUnit.SECONDS)) }
+
+            // Half of the work moves to the foreground while the other half is stopped
+            val promoted = foregroundTokens.map { token ->
+                threads.submit(Runnable { processor.startForeground(token.id.workSpecId, info) })
+            }
+            val stopped = backgroundTokens.map { token ->
+                threads.submit(Callable { processor.stopWork(token, 0) })
+            }
+            promoted.forEach { it.get(3, TimeUnit.SECONDS) }
+            stopped.forEach { assertTrue(it.get(3, TimeUnit.SECONDS)) }
+            foregroundTokens.forEach { assertTrue(processor.isEnqueued(it.id.workSpecId)) }
+            backgroundTokens.forEach { assertFalse(processor.isEnqueued(it.id.workSpecId)) }
+            // stopWork() ignores the work in the foreground
+            foregroundTokens.forEach { assertFalse(processor.stopWork(it, 0)) }
+
+            foregroundTokens.map { token ->
+                threads.submit(Callable {
+                    processor.stopForegroundWork(token, STOP_REASON_CONSTRAINT_CONNECTIVITY)
+                })
+            }.forEach { assertTrue(it.get(3, TimeUnit.SECONDS)) }
+        } finally {
+            threads.shutdown()
+        }
+        assertFalse(processor.hasWork())
+        assertTrue(executionFinished.await(3, TimeUnit.SECONDS))
+        // The foreground service is started for every work, and stopped once all of it stopped
+        val stopIntent = createStopForegroundIntent(context)
+        assertEquals(
+            foregroundTokens.size,
+            context.intents.count { !it.filterEquals(stopIntent) }
+        )
+        assertEquals(1, context.intents.count { it.filterEquals(stopIntent) })
+        assertTrue(context.intents.last().filterEquals(stopIntent))
+    }
+
     @After
     fun tearDown() {
         defaultExecutor.shutdownNow()
@@ -279,7 +332,7 @@ class ProcessorTests : DatabaseTest() {
     }
 
     private class TrackingContext(base: Context) : ContextWrapper(base) {
-        val intents = mutableListOf<Intent>()
+        val intents: MutableList<Intent> = CopyOnWriteArrayList()
         override fun startService(service: Intent): ComponentName? {
             // don't start anything, simply track requests
             intents.add(service)
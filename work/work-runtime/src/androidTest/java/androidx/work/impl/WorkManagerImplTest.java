@@ -268,6 +268,52 @@ public class WorkManagerImplTest {
         assertThat(workSpecDao.getWorkSpec(work3.getStringId()), is(notNullValue()));
     }
 
+    @Test
+    @MediumTest
+    public void testEnqueueAll_insertsIndependentContinuations()
+            throws ExecutionException, InterruptedException {
+        OneTimeWorkRequest work1 = new OneTimeWorkRequest.Builder(TestWorker.class)
+                .addTag("tag")
+                .build();
+        OneTimeWorkRequest work2 = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        OneTimeWorkRequest work3 = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+
+        mWorkManagerImpl.enqueueAll(Arrays.asList(
+                mWorkManagerImpl.beginUniqueWork("name1", REPLACE, work1),
+                mWorkManagerImpl.beginUniqueWork("name2", REPLACE, work2).then(work3)))
+                .getResult().get();
+
+        WorkSpecDao workSpecDao = mDatabase.workSpecDao();
+        assertThat(workSpecDao.getWorkSpec(work1.getStringId()).state, is(ENQUEUED));
+        assertThat(workSpecDao.getWorkSpec(work2.getStringId()).state, is(ENQUEUED));
+        assertThat(workSpecDao.getWorkSpec(work3.getStringId()).state, is(BLOCKED));
+        assertThat(mDatabase.workNameDao().getWorkSpecIdsWithName("name1"),
+                contains(work1.getStringId()));
+        assertThat(mDatabase.workNameDao().getWorkSpecIdsWithName("name2"),
+                containsInAnyOrder(work2.getStringId(), work3.getStringId()));
+        assertThat(mDatabase.workTagDao().getTagsForWorkSpecId(work1.getStringId()),
+                containsInAnyOrder("tag", TestWorker.class.getName()));
+        assertThat(mDatabase.dependencyDao().getPrerequisites(work3.getStringId()),
+                contains(work2.getStringId()));
+    }
+
+    @Test
+    @MediumTest
+    public void testEnqueueAll_sameUniqueNameIsReplaced()
+            throws ExecutionException, InterruptedException {
+        OneTimeWorkRequest work1 = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        OneTimeWorkRequest work2 = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+
+        mWorkManagerImpl.enqueueAll(Arrays.asList(
+                mWorkManagerImpl.beginUniqueWork("name", REPLACE, work1),
+                mWorkManagerImpl.beginUniqueWork("name", REPLACE, work2)))
+                .getResult().get();
+
+        WorkSpecDao workSpecDao = mDatabase.workSpecDao();
+        assertThat(workSpecDao.getWorkSpec(work1.getStringId()), is(nullValue()));
+        assertThat(workSpecDao.getWorkSpec(work2.getStringId()), is(notNullValue()));
+    }
+
     @Test
     @MediumTest
     public void testEnqueue_insertMultipleWork_continuationBlocking()
@@ -1998,7 +2044,7 @@ public class WorkManagerImplTest {
         SupportSQLiteOpenHelper openHelper = mDatabase.getOpenHelper();
         SupportSQLiteDatabase db = openHelper.getWritableDatabase();
 
-        new CleanupCallback(mClock).onOpen(db);
+        new CleanupCallback(mClock, Runnable::run).onOpen(db);
 
         WorkSpecDao workSpecDao = mDatabase.workSpecDao();
         assertThat(workSpecDao.getWorkSpec(work1.getStringId()), is(nullValue()));
@@ -2038,7 +2084,7 @@ public class WorkManagerImplTest {
         SupportSQLiteOpenHelper openHelper = mDatabase.getOpenHelper();
         SupportSQLiteDatabase db = openHelper.getWritableDatabase();
 
-        new CleanupCallback(mClock).onOpen(db);
+        new CleanupCallback(mClock, Runnable::run).onOpen(db);
 
         WorkSpecDao workSpecDao = mDatabase.workSpecDao();
         assertThat(workSpecDao.getWorkSpec(work0.getStringId()), is(nullValue()));
@@ -49,6 +49,7 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.util.Consumer;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.LargeTest;
@@ -69,6 +70,7 @@ import androidx.work.ProgressUpdater;
 import androidx.work.WorkRequest;
 import androidx.work.Worker;
 import androidx.work.WorkerFactory;
+import androidx.work.WorkerMetrics;
 import androidx.work.WorkerParameters;
 import androidx.work.impl.foreground.ForegroundProcessor;
 import androidx.work.impl.model.Dependency;
@@ -101,6 +103,8 @@ import org.junit.runner.RunWith;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -1288,6 +1292,94 @@ public class WorkerWrapperTest extends DatabaseTest {
         assertThat(mWorkSpecDao.getState(work.getStringId()), is(FAILED));
     }
 
+    @Test
+    @MediumTest
+    public void testWorkerMetrics_succeeded() throws InterruptedException {
+        MetricsRecorder recorder = new MetricsRecorder();
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(LatchWorker.class)
+                .setLastEnqueueTime(1000, TimeUnit.MILLISECONDS)
+                .build();
+        insertWork(work);
+        mTestClock.currentTimeMillis = 1300;
+        LatchWorker worker = getLatchWorker(work);
+        WorkerWrapper workerWrapper = createBuilder(work.getStringId(), recorder)
+                .withWorker(worker)
+                .build();
+        workerWrapper.run();
+        assertThat(worker.mEntrySignal.await(3, TimeUnit.SECONDS), is(true));
+        Thread.sleep(50);
+        worker.mLatch.countDown();
+
+        WorkerMetrics metrics = recorder.await();
+        assertThat(mWorkSpecDao.getState(work.getStringId()), is(SUCCEEDED));
+        assertThat(metrics.getId(), is(work.getId()));
+        assertThat(metrics.getWorkerClassName(), is(LatchWorker.class.getName()));
+        assertThat(metrics.getRunMillis(), greaterThanOrEqualTo(50L));
+        assertThat(metrics.getQueueWaitMillis(), greaterThanOrEqualTo(0L));
+        assertThat(metrics.getDatabaseMillis(), greaterThanOrEqualTo(0L));
+        assertThat(metrics.getSchedulingLatencyMillis(), is(300L));
+        assertThat(recorder.mMetrics.size(), is(1));
+    }
+
+    @Test
+    @MediumTest
+    public void testWorkerMetrics_failed() throws InterruptedException {
+        MetricsRecorder recorder = new MetricsRecorder();
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(LatchWorker.class).build();
+        insertWork(work);
+        LatchWorker worker = getLatchWorker(work);
+        worker.returnResult = ListenableWorker.Result.failure();
+        WorkerWrapper workerWrapper = createBuilder(work.getStringId(), recorder)
+                .withWorker(worker)
+                .build();
+        workerWrapper.run();
+        assertThat(worker.mEntrySignal.await(3, TimeUnit.SECONDS), is(true));
+        Thread.sleep(50);
+        worker.mLatch.countDown();
+
+        WorkerMetrics metrics = recorder.await();
+        assertThat(mWorkSpecDao.getState(work.getStringId()), is(FAILED));
+        assertThat(metrics.getId(), is(work.getId()));
+        assertThat(metrics.getRunMillis(), greaterThanOrEqualTo(50L));
+        assertThat(recorder.mMetrics.size(), is(1));
+    }
+
+    @Test
+    @MediumTest
+    public void testWorkerMetrics_cancelled() throws InterruptedException {
+        MetricsRecorder recorder = new MetricsRecorder();
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(LatchWorker.class).build();
+        insertWork(work);
+        LatchWorker worker = getLatchWorker(work);
+        WorkerWrapper workerWrapper = createBuilder(work.getStringId(), recorder)
+                .withWorker(worker)
+                .build();
+        workerWrapper.run();
+        assertThat(worker.mEntrySignal.await(3, TimeUnit.SECONDS), is(true));
+        Thread.sleep(50);
+        mWorkSpecDao.setCancelledState(work.getStringId());
+        workerWrapper.interrupt(0);
+
+        WorkerMetrics metrics = recorder.await();
+        assertThat(mWorkSpecDao.getState(work.getStringId()), is(CANCELLED));
+        assertThat(metrics.getId(), is(work.getId()));
+        // The run ends when the worker is stopped, not when it returns
+        assertThat(metrics.getRunMillis(), greaterThanOrEqualTo(50L));
+        worker.mLatch.countDown();
+        assertThat(recorder.mMetrics.size(), is(1));
+    }
+
+    @Test
+    @SmallTest
+    public void testWorkerMetrics_notReportedForWorkWhichDidNotRun() {
+        MetricsRecorder recorder = new MetricsRecorder();
+        OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(TestWorker.class).build();
+        insertWork(work);
+        WorkerWrapper workerWrapper = createBuilder(work.getStringId(), recorder).build();
+        workerWrapper.interrupt(0);
+        assertThat(recorder.mMetrics.isEmpty(), is(true));
+    }
+
     private WorkerWrapper.Builder createBuilder(String workSpecId) {
         return new WorkerWrapper.Builder(
                 mContext,
@@ -1300,6 +1392,22 @@ public class WorkerWrapperTest extends DatabaseTest {
         );
     }
 
+    private WorkerWrapper.Builder createBuilder(String workSpecId,
+            Consumer<WorkerMetrics> workerMetricsListener) {
+        Configuration configuration = new Configuration.Builder(mConfiguration)
+                .setWorkerMetricsListener(workerMetricsListener)
+                .build();
+        return new WorkerWrapper.Builder(
+                mContext,
+                configuration,
+                mWorkTaskExecutor,
+                mMockForegroundProcessor,
+                mDatabase,
+                mWorkSpecDao.getWorkSpec(workSpecId),
+                mDatabase.workTagDao().getWorkSpecIdsWithTag(workSpecId)
+        );
+    }
+
     @Nullable
     private LatchWorker getLatchWorker(WorkRequest work) {
         return getLatchWorker(work, mExecutorService);
@@ -1331,6 +1439,23 @@ public class WorkerWrapperTest extends DatabaseTest {
         return listener;
     }
 
+    private static class MetricsRecorder implements Consumer<WorkerMetrics> {
+
+        final List<WorkerMetrics> mMetrics = new CopyOnWriteArrayList<>();
+        private final CountDownLatch mReported = new CountDownLatch(1);
+
+        @Override
+        public void accept(WorkerMetrics metrics) {
+            mMetrics.add(metrics);
+            mReported.countDown();
+        }
+
+        WorkerMetrics await() throws InterruptedException {
+            assertThat(mReported.await(3, TimeUnit.SECONDS), is(true));
+            return mMetrics.get(0);
+        }
+    }
+
     private static class FutureListener implements Runnable {
 
         ListenableFuture<Boolean> mFuture;
@@ -18,10 +18,14 @@ package androidx.work.impl.background.greedy
 
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.MediumTest
+import androidx.work.Clock
 import androidx.work.OneTimeWorkRequest
 import androidx.work.RunnableScheduler
 import androidx.work.SystemClock
+import androidx.work.impl.Scheduler
+import androidx.work.impl.model.WorkSpec
 import androidx.work.worker.TestWorker
+import com.google.common.truth.Truth.assertThat
 import java.util.concurrent.TimeUnit
 import org.junit.Before
 import org.junit.Test
@@ -61,6 +65,106 @@ class DelayedWorkTrackerTest {
         )
     }
 
+    @Test
+    @MediumTest
+    fun testSameRunTime_scheduledTogether() {
+        val runnableScheduler = FakeRunnableScheduler()
+        val scheduler = RecordingScheduler()
+        val tracker = DelayedWorkTracker(scheduler, runnableScheduler, runnableScheduler)
+        val runTime = runnableScheduler.now + TimeUnit.MINUTES.toMillis(5)
+        val workSpecs = List(10) { newWorkRequestBuilder().build().workSpec }
+        workSpecs.forEach { tracker.schedule(it, runTime) }
+        assertThat(runnableScheduler.scheduledCount).isEqualTo(1)
+
+        runnableScheduler.advanceTo(runTime - 1)
+        assertThat(scheduler.batches).isEmpty()
+
+        runnableScheduler.advanceTo(runTime)
+        assertThat(scheduler.batches).hasSize(1)
+        assertThat(scheduler.batches[0]).containsExactlyElementsIn(workSpecs)
+    }
+
+    @Test
+    @MediumTest
+    fun testUnschedule() {
+        val runnableScheduler = FakeRunnableScheduler()
+        val scheduler = RecordingScheduler()
+        val tracker = DelayedWorkTracker(scheduler, runnableScheduler, runnableScheduler)
+        val runTime = runnableScheduler.now + TimeUnit.HOURS.toMillis(3)
+        val first = newWorkRequestBuilder().build().workSpec
+        val second = newWorkRequestBuilder().build().workSpec
+        tracker.schedule(first, runTime)
+        tracker.schedule(second, runTime + 1)
+        tracker.unschedule(first.id)
+
+        runnableScheduler.advanceTo(runTime + 1)
+        assertThat(scheduler.batches).hasSize(1)
+        assertThat(scheduler.batches[0]).containsExactly(second)
+    }
+
+    @Test
+    @MediumTest
+    fun testManyDueWorkSpecs_scheduledInBatches() {
+        val runnableScheduler = FakeRunnableScheduler()
+        val scheduler = RecordingScheduler()
+        val tracker = DelayedWorkTracker(scheduler, runnableScheduler, runnableScheduler)
+        val count = DelayedWorkTracker.MAX_BATCH_SIZE * 2 + 1
+        val runTime = runnableScheduler.now + TimeUnit.SECONDS.toMillis(1)
+        repeat(count) {
+            tracker.schedule(newWorkRequestBuilder().build().workSpec, runTime)
+        }
+
+        runnableScheduler.advanceTo(runTime)
+        assertThat(scheduler.batches.map { it.size })
+            .containsExactly(DelayedWorkTracker.MAX_BATCH_SIZE,
+                DelayedWorkTracker.MAX_BATCH_SIZE, 1).inOrder()
+    }
+
+    private class RecordingScheduler : Scheduler {
+        val batches = mutableListOf<List<WorkSpec>>()
+
+        override fun schedule(vararg workSpecs: WorkSpec) {
+            batches.add(workSpecs.toList())
+        }
+
+        override fun cancel(workSpecId: String) {}
+
+        override fun hasLimitedSchedulingSlots() = false
+    }
+
+    /**
+     * Runs the scheduled [Runnable]s as [advanceTo] moves its [Clock] forward.
+     */
+    private class FakeRunnableScheduler : RunnableScheduler, Clock {
+        var now = 1_000_000L
+        var scheduledCount = 0
+        private val runnables = mutableMapOf<Runnable, Long>()
+
+        override fun currentTimeMillis() = now
+
+        override fun scheduleWithDelay(delayInMillis: Long, runnable: Runnable) {
+            scheduledCount++
+            runnables[runnable] = now + delayInMillis
+        }
+
+        override fun cancel(runnable: Runnable) {
+            runnables.remove(runnable)
+        }
+
+        fun advanceTo(time: Long) {
+            while (true) {
+                val next = runnables.minByOrNull { it.value }
+                if (next == null || next.value > time) {
+                    break
+                }
+                runnables.remove(next.key)
+                now = maxOf(now, next.value)
+                next.key.run()
+            }
+            now = time
+        }
+    }
+
     private fun newWorkRequestBuilder(): OneTimeWorkRequest.Builder {
         return OneTimeWorkRequest.Builder(TestWorker::class.java)
     }
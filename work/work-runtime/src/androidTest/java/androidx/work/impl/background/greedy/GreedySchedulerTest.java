@@ -55,6 +55,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 
@@ -90,9 +91,23 @@ public class GreedySchedulerTest extends WorkManagerTest {
         WorkSpec workSpec = work.getWorkSpec();
         workSpec.lastEnqueueTime = System.currentTimeMillis();
         mGreedyScheduler.schedule(workSpec);
-        ArgumentCaptor<StartStopToken> captor = ArgumentCaptor.forClass(StartStopToken.class);
-        verify(mWorkLauncher).startWork(captor.capture());
-        assertThat(captor.getValue().getId().getWorkSpecId()).isEqualTo(workSpec.id);
+        List<StartStopToken> tokens = captureStartedTokens();
+        assertThat(tokens).hasSize(1);
+        assertThat(tokens.get(0).getId().getWorkSpecId()).isEqualTo(workSpec.id);
+    }
+
+    @Test
+    @SmallTest
+    public void testGreedyScheduler_startsUnconstrainedWorkAtOnce() {
+        WorkSpec first = new OneTimeWorkRequest.Builder(TestWorker.class).build().getWorkSpec();
+        WorkSpec second = new OneTimeWorkRequest.Builder(TestWorker.class).build().getWorkSpec();
+        first.lastEnqueueTime = System.currentTimeMillis();
+        second.lastEnqueueTime = System.currentTimeMillis();
+        mGreedyScheduler.schedule(first, second);
+        List<StartStopToken> tokens = captureStartedTokens();
+        assertThat(tokens).hasSize(2);
+        assertThat(tokens.get(0).getId().getWorkSpecId()).isEqualTo(first.id);
+        assertThat(tokens.get(1).getId().getWorkSpecId()).isEqualTo(second.id);
     }
 
     @Test
@@ -105,9 +120,9 @@ public class GreedySchedulerTest extends WorkManagerTest {
         // PeriodicWorkRequests are special because their periodStartTime is set to 0.
         // So the first invocation will always result in startWork(). Subsequent runs will
         // use `delayedStartWork()`.
-        ArgumentCaptor<StartStopToken> captor = ArgumentCaptor.forClass(StartStopToken.class);
-        verify(mWorkLauncher).startWork(captor.capture());
-        assertThat(captor.getValue().getId().getWorkSpecId()).isEqualTo(periodicWork.getStringId());
+        List<StartStopToken> tokens = captureStartedTokens();
+        assertThat(tokens).hasSize(1);
+        assertThat(tokens.get(0).getId().getWorkSpecId()).isEqualTo(periodicWork.getStringId());
     }
 
     @Test
@@ -237,4 +252,11 @@ public class GreedySchedulerTest extends WorkManagerTest {
         verify(mDelayedWorkTracker).schedule(eq(updatedRunAttemptCount), delayCapture.capture());
         assertThat(delayCapture.getValue()).isAtLeast(before + 5 * DEFAULT_BACKOFF_DELAY_MILLIS);
     }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<StartStopToken> captureStartedTokens() {
+        ArgumentCaptor<List<StartStopToken>> captor = ArgumentCaptor.forClass((Class) List.class);
+        verify(mWorkLauncher).startWork(captor.capture());
+        return captor.getValue();
+    }
 }
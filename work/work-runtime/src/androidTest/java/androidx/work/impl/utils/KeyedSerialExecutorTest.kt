@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.utils
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.`is`
+import org.hamcrest.Matchers.greaterThanOrEqualTo
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class KeyedSerialExecutorTest {
+
+    lateinit var executor: KeyedSerialExecutor
+
+    @Before
+    fun setUp() {
+        executor = KeyedSerialExecutor(Executors.newCachedThreadPool())
+    }
+
+    @Test
+    fun testSameKeyRunsSerially() {
+        val latch = CountDownLatch(3)
+        val commands = List(3) { SerialExecutorTest.Companion.TimestampTrackingRunnable(latch) }
+        commands.forEach { executor.execute("key", it) }
+        assertThat(latch.await(5, TimeUnit.SECONDS), `is`(true))
+        var lastStart = 0L
+        for (runnable in commands) {
+            assertThat(runnable.start, greaterThanOrEqualTo(lastStart))
+            lastStart = runnable.end
+        }
+        assertThat(executor.hasPendingTasks(), `is`(false))
+    }
+
+    @Test
+    fun testDifferentKeysRunInParallel() {
+        val blocked = CountDownLatch(1)
+        val done = CountDownLatch(1)
+        executor.execute("first") { blocked.await(5, TimeUnit.SECONDS) }
+        // Would never run while the first key is blocked if the keys were serialized
+        executor.execute("second") { done.countDown() }
+        assertThat(done.await(5, TimeUnit.SECONDS), `is`(true))
+        blocked.countDown()
+    }
+}
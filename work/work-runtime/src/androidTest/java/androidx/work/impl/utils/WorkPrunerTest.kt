@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.utils
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.MediumTest
+import androidx.work.DatabaseTest
+import androidx.work.OneTimeWorkRequest
+import androidx.work.WorkInfo
+import androidx.work.impl.model.WorkProgress
+import androidx.work.workDataOf
+import androidx.work.worker.TestWorker
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
+import java.util.concurrent.TimeUnit
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+@MediumTest
+class WorkPrunerTest : DatabaseTest() {
+
+    @Test
+    fun testPruneAll_deletesFinishedWorkInChunks() {
+        val finished = List(5) { newWork(WorkInfo.State.SUCCEEDED, tag = "finished") }
+        val enqueued = newWork(WorkInfo.State.ENQUEUED, tag = "enqueued")
+        (finished + enqueued).forEach { insertWork(it); insertTags(it) }
+
+        val pruner = WorkPruner(mDatabase.openHelper.writableDatabase, 2)
+        pruner.pruneAll(null)
+
+        assertThat(pruner.prunedWorkCount).isEqualTo(5)
+        finished.forEach { assertThat(mDatabase.workSpecDao().getWorkSpec(it.stringId)).isNull() }
+        assertThat(mDatabase.workSpecDao().getWorkSpec(enqueued.stringId)).isNotNull()
+        assertThat(mDatabase.workTagDao().getWorkSpecIdsWithTag("finished")).isEmpty()
+    }
+
+    @Test
+    fun testPruneChunk_keepsWorkWithinRetention() {
+        val now = TimeUnit.DAYS.toMillis(30)
+        val old = newWork(WorkInfo.State.FAILED, lastEnqueueTime = now - 2)
+        val recent = newWork(WorkInfo.State.FAILED, lastEnqueueTime = now)
+        insertWork(old)
+        insertWork(recent)
+
+        val pruner = WorkPruner(mDatabase.openHelper.writableDatabase)
+        assertThat(pruner.pruneChunk(now - 1)).isFalse()
+
+        assertThat(mDatabase.workSpecDao().getWorkSpec(old.stringId)).isNull()
+        assertThat(mDatabase.workSpecDao().getWorkSpec(recent.stringId)).isNotNull()
+    }
+
+    @Test
+    fun testCompactChunk_rewritesLegacyOutput() {
+        val work = newWork(WorkInfo.State.SUCCEEDED)
+        insertWork(work)
+        val legacyOutput = legacyBytes(mapOf("key" to "value", "count" to 3))
+        mDatabase.openHelper.writableDatabase.execSQL(
+            "UPDATE workspec SET output=? WHERE id=?", arrayOf(legacyOutput, work.stringId)
+        )
+
+        val pruner = WorkPruner(mDatabase.openHelper.writableDatabase)
+        assertThat(pruner.compactChunk()).isFalse()
+
+        assertThat(pruner.compactedWorkCount).isEqualTo(1)
+        assertThat(pruner.bytesReclaimed).isGreaterThan(0L)
+        val output = mDatabase.workSpecDao().getWorkSpec(work.stringId)!!.output
+        assertThat(output).isEqualTo(workDataOf("key" to "value", "count" to 3))
+        assertThat(output.toByteArray().size).isLessThan(legacyOutput.size)
+    }
+
+    @Test
+    fun testCompactChunk_deletesProgressOfFinishedWork() {
+        val finished = newWork(WorkInfo.State.SUCCEEDED)
+        val running = newWork(WorkInfo.State.RUNNING)
+        insertWork(finished)
+        insertWork(running)
+        val progress = workDataOf("progress" to 50)
+        mDatabase.workProgressDao().insert(WorkProgress(finished.stringId, progress))
+        mDatabase.workProgressDao().insert(WorkProgress(running.stringId, progress))
+
+        val pruner = WorkPruner(mDatabase.openHelper.writableDatabase)
+        pruner.compactChunk()
+
+        assertThat(mDatabase.workProgressDao().getProgressForWorkSpecId(finished.stringId))
+            .isNull()
+        assertThat(mDatabase.workProgressDao().getProgressForWorkSpecId(running.stringId))
+            .isEqualTo(progress)
+    }
+
+    private fun newWork(
+        state: WorkInfo.State,
+        tag: String? = null,
+        lastEnqueueTime: Long = 0
+    ): OneTimeWorkRequest {
+        val builder = OneTimeWorkRequest.Builder(TestWorker::class.java)
+            .setInitialState(state)
+            .setLastEnqueueTime(lastEnqueueTime, TimeUnit.MILLISECONDS)
+        if (tag != null) {
+            builder.addTag(tag)
+        }
+        return builder.build()
+    }
+
+    /**
+     * Writes the values in the format [androidx.work.Data] used before its compact format.
+     */
+    private fun legacyBytes(values: Map<String, Any>): ByteArray {
+        val outputStream = ByteArrayOutputStream()
+        ObjectOutputStream(outputStream).use { objectOutputStream ->
+            objectOutputStream.writeInt(values.size)
+            for ((key, value) in values) {
+                objectOutputStream.writeUTF(key)
+                objectOutputStream.writeObject(value)
+            }
+        }
+        return outputStream.toByteArray()
+    }
+}
@@ -87,6 +87,17 @@ class Configuration internal constructor(builder: Builder) {
      */
     val defaultProcessName: String?
 
+    /**
+     * The listener that receives the [WorkerMetrics] of each run of a [ListenableWorker].
+     */
+    val workerMetricsListener: Consumer<WorkerMetrics>?
+
+    /**
+     * Whether [WorkManager] may start the [ListenableWorker]s of different [WorkRequest]s in
+     * parallel on the [Configuration.taskExecutor].
+     */
+    val isParallelWorkerStartEnabled: Boolean
+
     /**
      * The minimum logging level, corresponding to the constants found in [android.util.Log]
      */
@@ -161,6 +172,8 @@ class Configuration internal constructor(builder: Builder) {
         schedulingExceptionHandler = builder.schedulingExceptionHandler
         defaultProcessName = builder.defaultProcessName
         contentUriTriggerWorkersLimit = builder.contentUriTriggerWorkersLimit
+        workerMetricsListener = builder.workerMetricsListener
+        isParallelWorkerStartEnabled = builder.isParallelWorkerStartEnabled
     }
 
     /**
@@ -181,6 +194,8 @@ class Configuration internal constructor(builder: Builder) {
         internal var maxJobSchedulerId: Int = Int.MAX_VALUE
         internal var maxSchedulerLimit: Int = MIN_SCHEDULER_LIMIT
         internal var contentUriTriggerWorkersLimit: Int = DEFAULT_CONTENT_URI_TRIGGERS_WORKERS_LIMIT
+        internal var workerMetricsListener: Consumer<WorkerMetrics>? = null
+        internal var isParallelWorkerStartEnabled: Boolean = false
 
         /**
          * Creates a new [Configuration.Builder].
@@ -210,6 +225,8 @@ class Configuration internal constructor(builder: Builder) {
             initializationExceptionHandler = configuration.initializationExceptionHandler
             schedulingExceptionHandler = configuration.schedulingExceptionHandler
             defaultProcessName = configuration.defaultProcessName
+            workerMetricsListener = configuration.workerMetricsListener
+            isParallelWorkerStartEnabled = configuration.isParallelWorkerStartEnabled
         }
 
         /**
@@ -408,6 +425,40 @@ class Configuration internal constructor(builder: Builder) {
             return this
         }
 
+        /**
+         * Specifies a `Consumer<WorkerMetrics>` that receives the [WorkerMetrics] of each run
+         * of a [ListenableWorker], e.g. to track how long work waits before it runs.
+         *
+         * This listener will be invoked on a thread bound to [Configuration.taskExecutor], and
+         * should return quickly.
+         *
+         * @param workerMetricsListener an instance to receive the metrics
+         * @return This [Builder] instance
+         */
+        fun setWorkerMetricsListener(workerMetricsListener: Consumer<WorkerMetrics>): Builder {
+            this.workerMetricsListener = workerMetricsListener
+            return this
+        }
+
+        /**
+         * Specifies whether [WorkManager] may start the [ListenableWorker]s of different
+         * [WorkRequest]s in parallel.
+         *
+         * By default, the book-keeping done before and after each [ListenableWorker] runs is
+         * serialized with all other internal tasks, so that a large number of workers becoming
+         * eligible at once are started one after the other. When enabled, it is only serialized
+         * with the other tasks of the same [WorkRequest], and runs in parallel on the
+         * [Configuration.taskExecutor] otherwise. The [Configuration.taskExecutor] must then
+         * not be single threaded for this to have an effect.
+         *
+         * @param enabled `true` to start workers in parallel
+         * @return This [Builder] instance
+         */
+        fun setParallelWorkerStartEnabled(enabled: Boolean): Builder {
+            isParallelWorkerStartEnabled = enabled
+            return this
+        }
+
         /**
          * Designates the primary process that [WorkManager] should schedule work in.
          *
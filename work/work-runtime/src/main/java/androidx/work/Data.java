@@ -66,9 +66,21 @@ public final class Data {
     @SuppressWarnings("WeakerAccess") /* synthetic access */
             Map<String, Object> mValues;
 
+    /**
+     * The serialized form of this Data, kept once computed so that it isn't serialized again
+     * when it is persisted.
+     */
+    @Nullable
+    private volatile byte[] mBytes;
+
     Data() {    // stub required for room
     }
 
+    private Data(@NonNull Map<String, Object> values, @NonNull byte[] bytes) {
+        mValues = values;
+        mBytes = bytes;
+    }
+
     public Data(@NonNull Data other) {
         mValues = new HashMap<>(other.mValues);
     }
@@ -332,7 +344,7 @@ public final class Data {
      */
     @NonNull
     public byte[] toByteArray() {
-        return Data.toByteArrayInternal(this);
+        return Data.toByteArrayInternal(this).clone();
     }
 
     /**
@@ -371,6 +383,24 @@ public final class Data {
     @TypeConverter
     @NonNull
     public static byte[] toByteArrayInternal(@NonNull Data data) {
+        byte[] bytes = data.mBytes;
+        if (bytes == null) {
+            bytes = DataSerializer.serialize(data.mValues);
+            if (bytes == null) {
+                // Some value can only be written by an ObjectOutputStream
+                bytes = toLegacyByteArray(data);
+            }
+            if (bytes.length > MAX_DATA_BYTES) {
+                throw new IllegalStateException(
+                        "Data cannot occupy more than " + MAX_DATA_BYTES
+                                + " bytes when serialized");
+            }
+            data.mBytes = bytes;
+        }
+        return bytes;
+    }
+
+    private static byte[] toLegacyByteArray(@NonNull Data data) {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         ObjectOutputStream objectOutputStream = null;
         try {
@@ -399,17 +429,14 @@ public final class Data {
                 Log.e(TAG, "Error in Data#toByteArray: ", e);
             }
         }
-
-        if (outputStream.size() > MAX_DATA_BYTES) {
-            throw new IllegalStateException(
-                    "Data cannot occupy more than " + MAX_DATA_BYTES
-                            + " bytes when serialized");
-        }
         return outputStream.toByteArray();
     }
 
     /**
      * Converts a byte array to {@link Data}.
+     * <p>
+     * Byte arrays in the compact format aren't read right away: single values are looked up in
+     * the byte array, and all values are only read once they are iterated.
      *
      * @param bytes The byte array representation to convert
      * @return An {@link Data} object built from the input
@@ -423,6 +450,14 @@ public final class Data {
                     "Data cannot occupy more than " + MAX_DATA_BYTES + " bytes when serialized");
         }
 
+        if (DataSerializer.isSerialized(bytes)) {
+            if (DataSerializer.isValid(bytes)) {
+                return new Data(new DataSerializer.LazyMap(bytes), bytes);
+            }
+            Log.e(TAG, "Error in Data#fromByteArray: malformed payload");
+            return new Data(new HashMap<String, Object>());
+        }
+
         Map<String, Object> map = new HashMap<>();
         ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
         ObjectInputStream objectInputStream = null;
@@ -0,0 +1,661 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The compact binary format of {@link Data}.
+ * <p>
+ * A payload is laid out as:
+ * <pre>
+ * magic (2 bytes), version (1 byte),
+ * string count, [utf-8 byte length, utf-8 bytes]...,
+ * entry count, [key string index, tag (1 byte), value]...
+ * </pre>
+ * All counts, lengths and indices are unsigned varints. Keys and string values are stored once
+ * in the string table and referenced by index. Values are encoded by tag:
+ * <ul>
+ *     <li>booleans and bytes as a single byte</li>
+ *     <li>ints and longs as zigzag varints</li>
+ *     <li>floats and doubles as their little-endian IEEE 754 bits</li>
+ *     <li>strings as their string index plus one, {@code 0} being {@code null}</li>
+ *     <li>arrays, whose tag has {@link #TAG_ARRAY} set, as their length followed by their
+ *     elements</li>
+ * </ul>
+ * Payloads never start with the stream magic of {@link java.io.ObjectOutputStream}, which the
+ * previous format was written with, so both can be told apart.
+ */
+final class DataSerializer {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte MAGIC_0 = (byte) 0xDA;
+    private static final byte MAGIC_1 = (byte) 0x7A;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 3;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_BOOLEAN = 1;
+    private static final int TAG_BYTE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_STRING = 7;
+    private static final int TAG_ARRAY = 0x10;
+
+    private DataSerializer() {
+        // utility class, no instance.
+    }
+
+    /**
+     * @return whether the bytes are in this format, rather than the previous one
+     */
+    static boolean isSerialized(@NonNull byte[] bytes) {
+        return bytes.length >= HEADER_SIZE && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    /**
+     * @return the values in this format, or {@code null} if some value cannot be represented,
+     * e.g. a {@code null} element of a {@code Integer[]}
+     */
+    @Nullable
+    static byte[] serialize(@NonNull Map<String, ?> values) {
+        final Map<String, Integer> stringIndices = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            addString(entry.getKey(), stringIndices, strings);
+            final Object value = entry.getValue();
+            if (value instanceof String) {
+                addString((String) value, stringIndices, strings);
+            } else if (value instanceof String[]) {
+                for (String element : (String[]) value) {
+                    if (element != null) {
+                        addString(element, stringIndices, strings);
+                    }
+                }
+            }
+        }
+
+        final Writer writer = new Writer();
+        writer.writeByte(MAGIC_0);
+        writer.writeByte(MAGIC_1);
+        writer.writeByte(VERSION);
+        writer.writeVarInt(strings.size());
+        for (String string : strings) {
+            final byte[] utf8 = string.getBytes(UTF_8);
+            writer.writeVarInt(utf8.length);
+            writer.writeBytes(utf8);
+        }
+        writer.writeVarInt(values.size());
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            writer.writeVarInt(stringIndices.get(entry.getKey()));
+            if (!writeValue(writer, entry.getValue(), stringIndices)) {
+                return null;
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    private static void addString(String string, Map<String, Integer> stringIndices,
+            List<String> strings) {
+        if (!stringIndices.containsKey(string)) {
+            stringIndices.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static boolean writeValue(Writer writer, Object value,
+            Map<String, Integer> stringIndices) {
+        if (value == null) {
+            writer.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            writer.writeByte(TAG_BOOLEAN);
+            writer.writeByte((Boolean) value ? 1 : 0);
+        } else if (value instanceof Byte) {
+            writer.writeByte(TAG_BYTE);
+            writer.writeByte((Byte) value);
+        } else if (value instanceof Integer) {
+            writer.writeByte(TAG_INT);
+            writer.writeZigZag((Integer) value);
+        } else if (value instanceof Long) {
+            writer.writeByte(TAG_LONG);
+            writer.writeZigZag((Long) value);
+        } else if (value instanceof Float) {
+            writer.writeByte(TAG_FLOAT);
+            writer.writeFixed(Float.floatToIntBits((Float) value), 4);
+        } else if (value instanceof Double) {
+            writer.writeByte(TAG_DOUBLE);
+            writer.writeFixed(Double.doubleToLongBits((Double) value), 8);
+        } else if (value instanceof String) {
+            writer.writeByte(TAG_STRING);
+            writer.writeVarInt(stringIndices.get(value) + 1);
+        } else if (value instanceof Object[]) {
+            final Object[] array = (Object[]) value;
+            final int tag = arrayTag(array);
+            if (tag == TAG_NULL) {
+                return false;
+            }
+            writer.writeByte(TAG_ARRAY | tag);
+            writer.writeVarInt(array.length);
+            for (Object element : array) {
+                writeElement(writer, tag, element, stringIndices);
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the tag of the elements of the array, or {@link #TAG_NULL} if it cannot be written
+     */
+    private static int arrayTag(Object[] array) {
+        final int tag;
+        if (array instanceof Boolean[]) {
+            tag = TAG_BOOLEAN;
+        } else if (array instanceof Byte[]) {
+            tag = TAG_BYTE;
+        } else if (array instanceof Integer[]) {
+            tag = TAG_INT;
+        } else if (array instanceof Long[]) {
+            tag = TAG_LONG;
+        } else if (array instanceof Float[]) {
+            tag = TAG_FLOAT;
+        } else if (array instanceof Double[]) {
+            tag = TAG_DOUBLE;
+        } else if (array instanceof String[]) {
+            return TAG_STRING;
+        } else {
+            return TAG_NULL;
+        }
+        // Only string elements can be null
+        for (Object element : array) {
+            if (element == null) {
+                return TAG_NULL;
+            }
+        }
+        return tag;
+    }
+
+    private static void writeElement(Writer writer, int tag, Object element,
+            Map<String, Integer> stringIndices) {
+        switch (tag) {
+            case TAG_BOOLEAN:
+                writer.writeByte((Boolean) element ? 1 : 0);
+                break;
+            case TAG_BYTE:
+                writer.writeByte((Byte) element);
+                break;
+            case TAG_INT:
+                writer.writeZigZag((Integer) element);
+                break;
+            case TAG_LONG:
+                writer.writeZigZag((Long) element);
+                break;
+            case TAG_FLOAT:
+                writer.writeFixed(Float.floatToIntBits((Float) element), 4);
+                break;
+            case TAG_DOUBLE:
+                writer.writeFixed(Double.doubleToLongBits((Double) element), 8);
+                break;
+            default:
+                writer.writeVarInt(element == null ? 0 : stringIndices.get(element) + 1);
+                break;
+        }
+    }
+
+    /**
+     * Reads all the values of a payload in this format.
+     *
+     * @throws IllegalArgumentException if the payload is malformed
+     */
+    @NonNull
+    static Map<String, Object> deserialize(@NonNull byte[] bytes) {
+        final Reader reader = new Reader(bytes);
+        final String[] strings = readStrings(reader);
+        final int count = reader.readVarInt();
+        final Map<String, Object> values = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            final String key = strings[reader.readVarInt()];
+            values.put(key, readValue(reader, strings));
+        }
+        return values;
+    }
+
+    /**
+     * @return whether a payload in this format is well formed, without reading its values
+     */
+    static boolean isValid(@NonNull byte[] bytes) {
+        try {
+            final Reader reader = new Reader(bytes);
+            final int stringCount = reader.readVarInt();
+            for (int i = 0; i < stringCount; i++) {
+                reader.skip(reader.readVarInt());
+            }
+            for (int i = reader.readVarInt(); i > 0; i--) {
+                if (reader.readVarInt() >= stringCount) {
+                    return false;
+                }
+                skipValue(reader, stringCount);
+            }
+            return reader.mPosition == bytes.length;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of values of a payload in this format, without reading them
+     */
+    static int size(@NonNull byte[] bytes) {
+        final Reader reader = new Reader(bytes);
+        skipStrings(reader);
+        return reader.readVarInt();
+    }
+
+    /**
+     * Finds the entry for the key in a payload in this format, without reading the other values.
+     *
+     * @param values an array of one element, set to the value of the key if it is found
+     * @return whether the key was found
+     * @throws IllegalArgumentException if the payload is malformed
+     */
+    static boolean find(@NonNull byte[] bytes, @NonNull String key, @NonNull Object[] values) {
+        final Reader reader = new Reader(bytes);
+        final byte[] utf8Key = key.getBytes(UTF_8);
+        final int stringCount = reader.readVarInt();
+        final int[] offsets = new int[stringCount];
+        final int[] lengths = new int[stringCount];
+        int keyIndex = -1;
+        for (int i = 0; i < stringCount; i++) {
+            lengths[i] = reader.readVarInt();
+            offsets[i] = reader.mPosition;
+            if (keyIndex == -1 && reader.matches(utf8Key, lengths[i])) {
+                keyIndex = i;
+            }
+            reader.skip(lengths[i]);
+        }
+        if (keyIndex == -1) {
+            return false;
+        }
+
+        final int count = reader.readVarInt();
+        for (int i = 0; i < count; i++) {
+            if (reader.readVarInt() == keyIndex) {
+                values[0] = readValue(reader, new LazyStrings(bytes, offsets, lengths));
+                return true;
+            }
+            skipValue(reader, stringCount);
+        }
+        return false;
+    }
+
+    private static String[] readStrings(Reader reader) {
+        final String[] strings = new String[reader.readVarInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = reader.readString(reader.readVarInt());
+        }
+        return strings;
+    }
+
+    private static void skipStrings(Reader reader) {
+        for (int i = reader.readVarInt(); i > 0; i--) {
+            reader.skip(reader.readVarInt());
+        }
+    }
+
+    private static Object readValue(Reader reader, Object strings) {
+        final int tag = reader.readByte();
+        if ((tag & TAG_ARRAY) == 0) {
+            return tag == TAG_NULL ? null : readElement(reader, tag, strings);
+        }
+        final int elementTag = tag & ~TAG_ARRAY;
+        final int length = reader.readVarInt();
+        final Object[] array;
+        switch (elementTag) {
+            case TAG_BOOLEAN:
+                array = new Boolean[length];
+                break;
+            case TAG_BYTE:
+                array = new Byte[length];
+                break;
+            case TAG_INT:
+                array = new Integer[length];
+                break;
+            case TAG_LONG:
+                array = new Long[length];
+                break;
+            case TAG_FLOAT:
+                array = new Float[length];
+                break;
+            case TAG_DOUBLE:
+                array = new Double[length];
+                break;
+            case TAG_STRING:
+                array = new String[length];
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+        for (int i = 0; i < length; i++) {
+            array[i] = readElement(reader, elementTag, strings);
+        }
+        return array;
+    }
+
+    /**
+     * @param strings the string table, either a {@code String[]} or {@link LazyStrings}
+     */
+    private static Object readElement(Reader reader, int tag, Object strings) {
+        switch (tag) {
+            case TAG_BOOLEAN:
+                return reader.readByte() != 0;
+            case TAG_BYTE:
+                return (byte) reader.readByte();
+            case TAG_INT:
+                return (int) reader.readZigZag();
+            case TAG_LONG:
+                return reader.readZigZag();
+            case TAG_FLOAT:
+                return Float.intBitsToFloat((int) reader.readFixed(4));
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(reader.readFixed(8));
+            case TAG_STRING:
+                final int index = reader.readVarInt() - 1;
+                if (index < 0) {
+                    return null;
+                }
+                return strings instanceof String[]
+                        ? ((String[]) strings)[index]
+                        : ((LazyStrings) strings).get(index);
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+
+    /**
+     * @param stringCount the size of the string table, which the string indices are checked
+     *                    against
+     */
+    private static void skipValue(Reader reader, int stringCount) {
+        final int tag = reader.readByte();
+        if ((tag & TAG_ARRAY) == 0) {
+            if (tag != TAG_NULL) {
+                skipElement(reader, tag, stringCount);
+            }
+            return;
+        }
+        final int elementTag = tag & ~TAG_ARRAY;
+        final int length = reader.readVarInt();
+        final int fixedSize = fixedSize(elementTag);
+        if (fixedSize > 0) {
+            reader.skip(length * fixedSize);
+        } else {
+            for (int i = 0; i < length; i++) {
+                skipElement(reader, elementTag, stringCount);
+            }
+        }
+    }
+
+    private static void skipElement(Reader reader, int tag, int stringCount) {
+        final int fixedSize = fixedSize(tag);
+        if (fixedSize > 0) {
+            reader.skip(fixedSize);
+        } else if (tag == TAG_INT || tag == TAG_LONG) {
+            reader.readVarLong();
+        } else if (tag == TAG_STRING) {
+            // 0 is null, and the strings are 1-based
+            final long index = reader.readVarLong();
+            if (index < 0 || index > stringCount) {
+                throw new IllegalArgumentException("String index out of range");
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+
+    private static int fixedSize(int tag) {
+        switch (tag) {
+            case TAG_BOOLEAN:
+            case TAG_BYTE:
+                return 1;
+            case TAG_FLOAT:
+                return 4;
+            case TAG_DOUBLE:
+                return 8;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * A map over a payload in this format, which looks up single keys in the payload and only
+     * reads all values once they are iterated.
+     */
+    static final class LazyMap extends AbstractMap<String, Object> {
+        private final byte[] mBytes;
+        private volatile Map<String, Object> mValues;
+
+        LazyMap(@NonNull byte[] bytes) {
+            mBytes = bytes;
+        }
+
+        @Override
+        public Object get(Object key) {
+            final Map<String, Object> values = mValues;
+            if (values != null) {
+                return values.get(key);
+            }
+            if (!(key instanceof String)) {
+                return null;
+            }
+            final Object[] value = new Object[1];
+            find(mBytes, (String) key, value);
+            return value[0];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            final Map<String, Object> values = mValues;
+            if (values != null) {
+                return values.containsKey(key);
+            }
+            return key instanceof String && find(mBytes, (String) key, new Object[1]);
+        }
+
+        @Override
+        public int size() {
+            final Map<String, Object> values = mValues;
+            return values != null ? values.size() : DataSerializer.size(mBytes);
+        }
+
+        @NonNull
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Map<String, Object> values = mValues;
+            if (values == null) {
+                values = deserialize(mBytes);
+                mValues = values;
+            }
+            return values.entrySet();
+        }
+    }
+
+    /**
+     * The string table of a payload, decoding each string on first use.
+     */
+    private static final class LazyStrings {
+        private final byte[] mBytes;
+        private final int[] mOffsets;
+        private final int[] mLengths;
+        private final String[] mStrings;
+
+        LazyStrings(byte[] bytes, int[] offsets, int[] lengths) {
+            mBytes = bytes;
+            mOffsets = offsets;
+            mLengths = lengths;
+            mStrings = new String[offsets.length];
+        }
+
+        String get(int index) {
+            if (mStrings[index] == null) {
+                mStrings[index] = new String(mBytes, mOffsets[index], mLengths[index], UTF_8);
+            }
+            return mStrings[index];
+        }
+    }
+
+    private static final class Writer {
+        private byte[] mBuffer = new byte[64];
+        private int mSize;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, mBuffer, mSize, bytes.length);
+            mSize += bytes.length;
+        }
+
+        void writeVarInt(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                mBuffer[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mSize++] = (byte) value;
+        }
+
+        void writeZigZag(long value) {
+            writeVarInt((value << 1) ^ (value >> 63));
+        }
+
+        void writeFixed(long value, int size) {
+            ensureCapacity(size);
+            for (int i = 0; i < size; i++) {
+                mBuffer[mSize++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        private void ensureCapacity(int extra) {
+            if (mSize + extra > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mSize + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer, mSize);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] mBytes;
+        int mPosition;
+
+        Reader(byte[] bytes) {
+            if (!isSerialized(bytes) || bytes[2] != VERSION) {
+                throw new IllegalArgumentException("Unsupported Data format");
+            }
+            mBytes = bytes;
+            mPosition = HEADER_SIZE;
+        }
+
+        int readByte() {
+            checkAvailable(1);
+            return mBytes[mPosition++] & 0xFF;
+        }
+
+        int readVarInt() {
+            final long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Malformed Data");
+            }
+            return (int) value;
+        }
+
+        long readZigZag() {
+            final long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed Data");
+        }
+
+        long readFixed(int size) {
+            checkAvailable(size);
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value |= (long) (mBytes[mPosition++] & 0xFF) << (i * 8);
+            }
+            return value;
+        }
+
+        String readString(int length) {
+            checkAvailable(length);
+            final String string = new String(mBytes, mPosition, length, UTF_8);
+            mPosition += length;
+            return string;
+        }
+
+        boolean matches(byte[] utf8, int length) {
+            checkAvailable(length);
+            if (utf8.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (mBytes[mPosition + i] != utf8[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void skip(int length) {
+            checkAvailable(length);
+            mPosition += length;
+        }
+
+        private void checkAvailable(int length) {
+            if (length < 0 || length > mBytes.length - mPosition) {
+                throw new IllegalArgumentException("Malformed Data");
+            }
+        }
+    }
+}
@@ -247,6 +247,21 @@ public abstract class WorkManager {
     @NonNull
     public abstract Operation enqueue(@NonNull List<? extends WorkRequest> requests);
 
+    /**
+     * Enqueues several independent {@link WorkContinuation}s at once, e.g. ones created with
+     * {@link #beginUniqueWork(String, ExistingWorkPolicy, List)} for different names.
+     * <p>
+     * This is equivalent to calling {@link WorkContinuation#enqueue()} on each of them, but all
+     * the work is persisted in a single database transaction and scheduled in a single pass,
+     * which is much cheaper when enqueuing a large number of continuations.  Continuations which
+     * are already enqueued are skipped.
+     *
+     * @param continuations One or more {@link WorkContinuation}s to enqueue
+     * @return An {@link Operation} that can be used to determine when the enqueue has completed
+     */
+    @NonNull
+    public abstract Operation enqueueAll(@NonNull List<? extends WorkContinuation> continuations);
+
     /**
      * Begins a chain with one or more {@link OneTimeWorkRequest}s, which can be enqueued together
      * in the future using {@link WorkContinuation#enqueue()}.
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work
+
+import java.util.UUID
+
+/**
+ * The timings of a single run of a [ListenableWorker], reported to
+ * [Configuration.workerMetricsListener] once WorkManager is done with the run.
+ */
+class WorkerMetrics(
+    /**
+     * The identifier of the [WorkRequest] which ran
+     */
+    val id: UUID,
+    /**
+     * The class name of the [ListenableWorker]
+     */
+    val workerClassName: String,
+    /**
+     * The time between the moment WorkManager decided to run the work, and the moment it
+     * started preparing the run on the [Configuration.taskExecutor]
+     */
+    val queueWaitMillis: Long,
+    /**
+     * The time between [ListenableWorker.startWork] and the completion of its result, or the
+     * moment it was stopped, or `0` if the worker didn't start
+     */
+    val runMillis: Long,
+    /**
+     * The time WorkManager spent reading and updating its database to prepare the run and to
+     * record its result
+     */
+    val databaseMillis: Long,
+    /**
+     * The time between the moment the work was eligible to run according to its schedule, and
+     * the moment it started preparing the run
+     */
+    val schedulingLatencyMillis: Long
+) {
+    override fun toString(): String {
+        return "WorkerMetrics{id='$id', workerClassName='$workerClassName', " +
+            "queueWaitMillis=$queueWaitMillis, runMillis=$runMillis, " +
+            "databaseMillis=$databaseMillis, schedulingLatencyMillis=$schedulingLatencyMillis}"
+    }
+}
@@ -22,6 +22,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.PowerManager;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
@@ -39,21 +40,31 @@ import androidx.work.impl.utils.taskexecutor.TaskExecutor;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 
 /**
  * A Processor can intelligently schedule and execute work on demand.
+ * <p>
+ * The state of each work is guarded by one of a fixed set of locks picked by its id, so that
+ * starting and stopping unrelated work doesn't contend. The foreground state is shared by all
+ * work and guarded by its own lock, which is only ever acquired while holding a work lock or
+ * none at all.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class Processor implements ForegroundProcessor {
     private static final String TAG = Logger.tagWithPrefix("Processor");
     private static final String FOREGROUND_WAKELOCK_TAG = "ProcessorForegroundLck";
+    // Must be a power of two
+    private static final int LOCK_STRIPES = 16;
 
+    @GuardedBy("mForegroundStateLock")
     @Nullable
     private PowerManager.WakeLock mForegroundLock;
 
@@ -68,7 +79,8 @@ public class Processor implements ForegroundProcessor {
     private Set<String> mCancelledIds;
 
     private final List<ExecutionListener> mOuterListeners;
-    private final Object mLock;
+    private final Object[] mLocks;
+    private final Object mForegroundStateLock;
 
     public Processor(
             @NonNull Context appContext,
@@ -79,13 +91,17 @@ public class Processor implements ForegroundProcessor {
         mConfiguration = configuration;
         mWorkTaskExecutor = workTaskExecutor;
         mWorkDatabase = workDatabase;
-        mEnqueuedWorkMap = new HashMap<>();
-        mForegroundWorkMap = new HashMap<>();
-        mCancelledIds = new HashSet<>();
-        mOuterListeners = new ArrayList<>();
+        mEnqueuedWorkMap = new ConcurrentHashMap<>();
+        mForegroundWorkMap = new ConcurrentHashMap<>();
+        mCancelledIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        mOuterListeners = new CopyOnWriteArrayList<>();
         mForegroundLock = null;
-        mLock = new Object();
-        mWorkRuns = new HashMap<>();
+        mLocks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            mLocks[i] = new Object();
+        }
+        mForegroundStateLock = new Object();
+        mWorkRuns = new ConcurrentHashMap<>();
     }
 
     /**
@@ -124,7 +140,7 @@ public class Processor implements ForegroundProcessor {
             return false;
         }
         WorkerWrapper workWrapper;
-        synchronized (mLock) {
+        synchronized (lockFor(workSpecId)) {
             // Work may get triggered multiple times if they have passing constraints
             // and new work with those constraints are added.
             if (isEnqueued(workSpecId)) {
@@ -184,7 +200,7 @@ public class Processor implements ForegroundProcessor {
             set.add(startStopToken);
             mWorkRuns.put(workSpecId, set);
         }
-        mWorkTaskExecutor.getSerialTaskExecutor().execute(workWrapper);
+        mWorkTaskExecutor.executeOnTaskThread(workSpecId, workWrapper);
         Logger.get().debug(TAG, getClass().getSimpleName() + ": processing " + id);
         return true;
     }
@@ -192,15 +208,21 @@ public class Processor implements ForegroundProcessor {
     @Override
     public void startForeground(@NonNull String workSpecId,
             @NonNull ForegroundInfo foregroundInfo) {
-        synchronized (mLock) {
+        synchronized (lockFor(workSpecId)) {
             Logger.get().info(TAG, "Moving WorkSpec (" + workSpecId + ") to the foreground");
-            WorkerWrapper wrapper = mEnqueuedWorkMap.remove(workSpecId);
+            WorkerWrapper wrapper = mEnqueuedWorkMap.get(workSpecId);
             if (wrapper != null) {
-                if (mForegroundLock == null) {
-                    mForegroundLock = WakeLocks.newWakeLock(mAppContext, FOREGROUND_WAKELOCK_TAG);
-                    mForegroundLock.acquire();
+                synchronized (mForegroundStateLock) {
+                    if (mForegroundLock == null) {
+                        mForegroundLock = WakeLocks.newWakeLock(mAppContext,
+                                FOREGROUND_WAKELOCK_TAG);
+                        mForegroundLock.acquire();
+                    }
+                    mForegroundWorkMap.put(workSpecId, wrapper);
                 }
-                mForegroundWorkMap.put(workSpecId, wrapper);
+                // Remove after adding to the foreground map, so that hasWork() never observes
+                // the work in neither map.
+                mEnqueuedWorkMap.remove(workSpecId);
                 Intent intent = createStartForegroundIntent(mAppContext,
                         wrapper.getWorkGenerationalId(), foregroundInfo);
                 ContextCompat.startForegroundService(mAppContext, intent);
@@ -217,7 +239,7 @@ public class Processor implements ForegroundProcessor {
     public boolean stopForegroundWork(@NonNull StartStopToken token, int reason) {
         String id = token.getId().getWorkSpecId();
         WorkerWrapper wrapper;
-        synchronized (mLock) {
+        synchronized (lockFor(id)) {
             // TODO: race, we can cancel next run of the worker.
             wrapper = cleanUpWorkerUnsafe(id);
         }
@@ -237,7 +259,7 @@ public class Processor implements ForegroundProcessor {
     public boolean stopWork(@NonNull StartStopToken runId, int reason) {
         String id = runId.getId().getWorkSpecId();
         WorkerWrapper wrapper;
-        synchronized (mLock) {
+        synchronized (lockFor(id)) {
             if (mForegroundWorkMap.get(id) != null) {
                 Logger.get().debug(TAG,
                         "Ignored stopWork. WorkerWrapper " + id + " is in foreground");
@@ -268,7 +290,7 @@ public class Processor implements ForegroundProcessor {
      */
     public boolean stopAndCancelWork(@NonNull String id, int reason) {
         WorkerWrapper wrapper;
-        synchronized (mLock) {
+        synchronized (lockFor(id)) {
             Logger.get().debug(TAG, "Processor cancelling " + id);
             mCancelledIds.add(id);
             // Check if running in the context of a foreground service
@@ -288,19 +310,16 @@ public class Processor implements ForegroundProcessor {
      * @return {@code true} if the id has already been marked as cancelled
      */
     public boolean isCancelled(@NonNull String id) {
-        synchronized (mLock) {
-            return mCancelledIds.contains(id);
-        }
+        return mCancelledIds.contains(id);
     }
 
     /**
      * @return {@code true} if the processor has work to process.
      */
     public boolean hasWork() {
-        synchronized (mLock) {
-            return !(mEnqueuedWorkMap.isEmpty()
-                    && mForegroundWorkMap.isEmpty());
-        }
+        // Read the enqueued work first, since work moves from there to the foreground
+        return !(mEnqueuedWorkMap.isEmpty()
+                && mForegroundWorkMap.isEmpty());
     }
 
     /**
@@ -308,7 +327,7 @@ public class Processor implements ForegroundProcessor {
      * @return {@code true} if the id was enqueued in the processor.
      */
     public boolean isEnqueued(@NonNull String workSpecId) {
-        synchronized (mLock) {
+        synchronized (lockFor(workSpecId)) {
             return getWorkerWrapperUnsafe(workSpecId) != null;
         }
     }
@@ -319,9 +338,7 @@ public class Processor implements ForegroundProcessor {
      * @param executionListener The {@link ExecutionListener} to add
      */
     public void addExecutionListener(@NonNull ExecutionListener executionListener) {
-        synchronized (mLock) {
-            mOuterListeners.add(executionListener);
-        }
+        mOuterListeners.add(executionListener);
     }
 
     /**
@@ -330,26 +347,25 @@ public class Processor implements ForegroundProcessor {
      * @param executionListener The {@link ExecutionListener} to remove
      */
     public void removeExecutionListener(@NonNull ExecutionListener executionListener) {
-        synchronized (mLock) {
-            mOuterListeners.remove(executionListener);
-        }
+        mOuterListeners.remove(executionListener);
     }
 
     private void onExecuted(@NonNull WorkerWrapper wrapper, boolean needsReschedule) {
-        synchronized (mLock) {
-            WorkGenerationalId id = wrapper.getWorkGenerationalId();
-            String workSpecId = id.getWorkSpecId();
+        WorkGenerationalId id = wrapper.getWorkGenerationalId();
+        String workSpecId = id.getWorkSpecId();
+        synchronized (lockFor(workSpecId)) {
             WorkerWrapper workerWrapper = getWorkerWrapperUnsafe(workSpecId);
             // can be called for another generation, so we shouldn't remove it
             if (workerWrapper == wrapper) {
                 cleanUpWorkerUnsafe(workSpecId);
             }
-            Logger.get().debug(TAG,
-                    getClass().getSimpleName() + " " + workSpecId
-                            + " executed; reschedule = " + needsReschedule);
-            for (ExecutionListener executionListener : mOuterListeners) {
-                executionListener.onExecuted(id, needsReschedule);
-            }
+        }
+        Logger.get().debug(TAG,
+                getClass().getSimpleName() + " " + workSpecId
+                        + " executed; reschedule = " + needsReschedule);
+        // Listeners are only ever called on the main thread, so they don't need the work lock.
+        for (ExecutionListener executionListener : mOuterListeners) {
+            executionListener.onExecuted(id, needsReschedule);
         }
     }
 
@@ -369,7 +385,7 @@ public class Processor implements ForegroundProcessor {
      */
     @Nullable
     public WorkSpec getRunningWorkSpec(@NonNull String workSpecId) {
-        synchronized (mLock) {
+        synchronized (lockFor(workSpecId)) {
             WorkerWrapper workerWrapper = getWorkerWrapperUnsafe(workSpecId);
             if (workerWrapper != null) {
                 return workerWrapper.getWorkSpec();
@@ -382,51 +398,59 @@ public class Processor implements ForegroundProcessor {
     private void runOnExecuted(@NonNull final WorkGenerationalId id, boolean needsReschedule) {
         mWorkTaskExecutor.getMainThreadExecutor().execute(
                 () -> {
-                    synchronized (mLock) {
-                        for (ExecutionListener executionListener : mOuterListeners) {
-                            executionListener.onExecuted(id, needsReschedule);
-                        }
+                    for (ExecutionListener executionListener : mOuterListeners) {
+                        executionListener.onExecuted(id, needsReschedule);
                     }
                 }
         );
     }
 
-    private void stopForegroundService() {
-        synchronized (mLock) {
-            boolean hasForegroundWork = !mForegroundWorkMap.isEmpty();
-            if (!hasForegroundWork) {
-                Intent intent = createStopForegroundIntent(mAppContext);
-                try {
-                    // Wrapping this inside a try..catch, because there are bugs the platform
-                    // that cause an IllegalStateException when an intent is dispatched to stop
-                    // the foreground service that is running.
-                    mAppContext.startService(intent);
-                } catch (Throwable throwable) {
-                    Logger.get().error(TAG, "Unable to stop foreground service", throwable);
-                }
-                // Release wake lock if there is no more pending work.
-                if (mForegroundLock != null) {
-                    mForegroundLock.release();
-                    mForegroundLock = null;
-                }
+    @GuardedBy("mForegroundStateLock")
+    private void stopForegroundServiceUnsafe() {
+        boolean hasForegroundWork = !mForegroundWorkMap.isEmpty();
+        if (!hasForegroundWork) {
+            Intent intent = createStopForegroundIntent(mAppContext);
+            try {
+                // Wrapping this inside a try..catch, because there are bugs the platform
+                // that cause an IllegalStateException when an intent is dispatched to stop
+                // the foreground service that is running.
+                mAppContext.startService(intent);
+            } catch (Throwable throwable) {
+                Logger.get().error(TAG, "Unable to stop foreground service", throwable);
+            }
+            // Release wake lock if there is no more pending work.
+            if (mForegroundLock != null) {
+                mForegroundLock.release();
+                mForegroundLock = null;
             }
         }
     }
 
+    /**
+     * Must be called while holding the lock of the given id.
+     */
     @Nullable
     private WorkerWrapper cleanUpWorkerUnsafe(@NonNull String id) {
-        WorkerWrapper wrapper = mForegroundWorkMap.remove(id);
-        boolean wasForeground = wrapper != null;
-        if (!wasForeground) {
+        WorkerWrapper wrapper;
+        synchronized (mForegroundStateLock) {
+            wrapper = mForegroundWorkMap.remove(id);
+            if (wrapper != null) {
+                stopForegroundServiceUnsafe();
+            }
+        }
+        if (wrapper == null) {
             wrapper = mEnqueuedWorkMap.remove(id);
         }
         mWorkRuns.remove(id);
-        if (wasForeground) {
-            stopForegroundService();
-        }
         return wrapper;
     }
 
+    @NonNull
+    private Object lockFor(@NonNull String workSpecId) {
+        int hash = workSpecId.hashCode();
+        return mLocks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
     /**
      * Interrupts a unit of work.
      *
@@ -203,6 +203,35 @@ public class WorkContinuationImpl extends WorkContinuation {
         return mOperation;
     }
 
+    /**
+     * Enqueues the continuations which aren't enqueued yet with a single {@link EnqueueRunnable}.
+     */
+    @NonNull
+    static Operation enqueueAll(
+            @NonNull WorkManagerImpl workManagerImpl,
+            @NonNull List<WorkContinuationImpl> continuations) {
+        List<WorkContinuationImpl> pending = new ArrayList<>(continuations.size());
+        for (WorkContinuationImpl continuation : continuations) {
+            if (!continuation.mEnqueued) {
+                pending.add(continuation);
+            } else {
+                Logger.get().warning(TAG, "Already enqueued work ids ("
+                        + TextUtils.join(", ", continuation.mIds) + ")");
+            }
+        }
+        OperationImpl operation = new OperationImpl();
+        if (pending.isEmpty()) {
+            operation.markState(Operation.SUCCESS);
+            return operation;
+        }
+        EnqueueRunnable runnable = new EnqueueRunnable(pending, operation);
+        workManagerImpl.getWorkTaskExecutor().executeOnTaskThread(runnable);
+        for (WorkContinuationImpl continuation : pending) {
+            continuation.mOperation = operation;
+        }
+        return operation;
+    }
+
     @Override
     protected @NonNull WorkContinuation combineInternal(
             @NonNull List<WorkContinuation> continuations) {
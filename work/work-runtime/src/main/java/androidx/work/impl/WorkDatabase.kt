@@ -27,6 +27,7 @@ import androidx.sqlite.db.SupportSQLiteOpenHelper
 import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
 import androidx.work.Clock
 import androidx.work.Data
+import androidx.work.Logger
 import androidx.work.impl.WorkDatabaseVersions.VERSION_10
 import androidx.work.impl.WorkDatabaseVersions.VERSION_11
 import androidx.work.impl.WorkDatabaseVersions.VERSION_2
@@ -49,7 +50,7 @@ import androidx.work.impl.model.WorkSpecDao
 import androidx.work.impl.model.WorkTag
 import androidx.work.impl.model.WorkTagDao
 import androidx.work.impl.model.WorkTypeConverters
-import androidx.work.impl.model.WorkTypeConverters.StateIds.COMPLETED_STATES
+import androidx.work.impl.utils.WorkPruner
 import java.util.concurrent.Executor
 import java.util.concurrent.TimeUnit
 
@@ -147,7 +148,7 @@ abstract class WorkDatabase : RoomDatabase() {
                     }
             }
             return builder.setQueryExecutor(queryExecutor)
-                .addCallback(CleanupCallback(clock))
+                .addCallback(CleanupCallback(clock, queryExecutor))
                 .addMigrations(Migration_1_2)
                 .addMigrations(RescheduleMigration(context, VERSION_2, VERSION_3))
                 .addMigrations(Migration_3_4)
@@ -168,41 +169,37 @@ abstract class WorkDatabase : RoomDatabase() {
     }
 }
 
-// Delete rows in the workspec table that...
-private const val PRUNE_SQL_FORMAT_PREFIX =
-    // are completed...
-    "DELETE FROM workspec WHERE state IN $COMPLETED_STATES AND " +
-        // and the minimum retention time has expired...
-        "(last_enqueue_time + minimum_retention_duration) < "
-
-// and all dependents are completed.
-private const val PRUNE_SQL_FORMAT_SUFFIX = " AND " +
-    "(SELECT COUNT(*)=0 FROM dependency WHERE " +
-    "    prerequisite_id=id AND " +
-    "    work_spec_id NOT IN " +
-    "        (SELECT id FROM workspec WHERE state IN $COMPLETED_STATES))"
-
 @JvmField
 val PRUNE_THRESHOLD_MILLIS: Long = TimeUnit.DAYS.toMillis(1)
 
-internal class CleanupCallback(val clock: Clock) : RoomDatabase.Callback() {
-
-    private val pruneSQL: String
-        get() = "$PRUNE_SQL_FORMAT_PREFIX$pruneDate$PRUNE_SQL_FORMAT_SUFFIX"
+internal class CleanupCallback(
+    val clock: Clock,
+    private val executor: Executor
+) : RoomDatabase.Callback() {
 
     private val pruneDate: Long
         get() = clock.currentTimeMillis() - PRUNE_THRESHOLD_MILLIS
 
     override fun onOpen(db: SupportSQLiteDatabase) {
         super.onOpen(db)
-        db.beginTransaction()
-        try {
-            // Prune everything that is completed, has an expired retention time, and has no
-            // active dependents:
-            db.execSQL(pruneSQL)
-            db.setTransactionSuccessful()
-        } finally {
-            db.endTransaction()
-        }
+        // Prune everything that is completed, has an expired retention time, and has no
+        // active dependents, one bounded transaction at a time. This is done on the executor
+        // so that opening the database doesn't wait for it.
+        val pruner = WorkPruner(db)
+        val cutoff = pruneDate
+        executor.execute(object : Runnable {
+            override fun run() {
+                try {
+                    if (pruner.pruneChunk(cutoff)) {
+                        // Lets other tasks run between chunks
+                        executor.execute(this)
+                    }
+                } catch (exception: Exception) {
+                    Logger.get().error(TAG, "Unable to prune finished work", exception)
+                }
+            }
+        })
     }
 }
+
+private val TAG = Logger.tagWithPrefix("CleanupCallback")
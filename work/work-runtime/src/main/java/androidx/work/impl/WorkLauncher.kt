@@ -37,6 +37,15 @@ interface WorkLauncher {
      */
     fun startWork(workSpecId: StartStopToken, runtimeExtras: RuntimeExtras?)
 
+    /**
+     * Starts all the given work at once, e.g. the work which became due at the same time.
+     *
+     * @param workSpecIds The [WorkSpec] ids to start
+     */
+    fun startWork(workSpecIds: List<StartStopToken>) {
+        workSpecIds.forEach { startWork(it) }
+    }
+
     /**
      * @param workSpecId The [WorkSpec] id to stop
      */
@@ -59,6 +68,12 @@ class WorkLauncherImpl(
         workTaskExecutor.executeOnTaskThread(startWork)
     }
 
+    override fun startWork(workSpecIds: List<StartStopToken>) {
+        // A single task starts all the work, instead of one task per work
+        val startWorks = workSpecIds.map { StartWorkRunnable(processor, it, null) }
+        workTaskExecutor.executeOnTaskThread { startWorks.forEach { it.run() } }
+    }
+
     override fun stopWork(workSpecId: StartStopToken, @StopReason reason: Int) {
         workTaskExecutor.executeOnTaskThread(
             StopWorkRunnable(processor, workSpecId, false, reason)
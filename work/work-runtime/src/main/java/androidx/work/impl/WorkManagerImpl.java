@@ -74,6 +74,7 @@ import androidx.work.multiprocess.RemoteWorkManager;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -335,6 +336,20 @@ public class WorkManagerImpl extends WorkManager {
         return new WorkContinuationImpl(this, requests).enqueue();
     }
 
+    @Override
+    @NonNull
+    public Operation enqueueAll(@NonNull List<? extends WorkContinuation> continuations) {
+        if (continuations.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "enqueueAll needs at least one WorkContinuation.");
+        }
+        List<WorkContinuationImpl> workContinuations = new ArrayList<>(continuations.size());
+        for (WorkContinuation continuation : continuations) {
+            workContinuations.add((WorkContinuationImpl) continuation);
+        }
+        return WorkContinuationImpl.enqueueAll(this, workContinuations);
+    }
+
     @Override
     public @NonNull WorkContinuation beginWith(@NonNull List<OneTimeWorkRequest> work) {
         if (work.isEmpty()) {
@@ -29,7 +29,10 @@ import androidx.work.impl.utils.taskexecutor.WorkManagerTaskExecutor
 fun WorkManagerImpl(
     context: Context,
     configuration: Configuration,
-    workTaskExecutor: TaskExecutor = WorkManagerTaskExecutor(configuration.taskExecutor),
+    workTaskExecutor: TaskExecutor = WorkManagerTaskExecutor(
+        configuration.taskExecutor,
+        configuration.isParallelWorkerStartEnabled
+    ),
     workDatabase: WorkDatabase =
         WorkDatabase.create(
             context.applicationContext, workTaskExecutor.serialTaskExecutor,
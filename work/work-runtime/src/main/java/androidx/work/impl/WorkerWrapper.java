@@ -27,12 +27,14 @@ import static androidx.work.impl.model.WorkSpecKt.generationalId;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
+import androidx.core.util.Consumer;
 import androidx.work.Clock;
 import androidx.work.Configuration;
 import androidx.work.Data;
@@ -42,6 +44,7 @@ import androidx.work.ListenableWorker;
 import androidx.work.Logger;
 import androidx.work.WorkInfo;
 import androidx.work.Worker;
+import androidx.work.WorkerMetrics;
 import androidx.work.WorkerParameters;
 import androidx.work.impl.background.systemalarm.RescheduleReceiver;
 import androidx.work.impl.foreground.ForegroundProcessor;
@@ -109,6 +112,16 @@ public class WorkerWrapper implements Runnable {
 
     private volatile int mInterrupted = WorkInfo.STOP_REASON_NOT_STOPPED;
 
+    // Timings reported as WorkerMetrics, in SystemClock#elapsedRealtime() milliseconds.
+    private final long mCreatedMillis;
+    private volatile long mRunMillis;
+    private volatile long mSchedulingLatencyMillis;
+    private volatile long mDatabaseMillis;
+    // Package-private for synthetic accessor.
+    volatile long mWorkerStartMillis;
+    volatile long mWorkerEndMillis;
+    private volatile long mFinishMillis;
+
     // Package-private for synthetic accessor.
     WorkerWrapper(@NonNull Builder builder) {
         mAppContext = builder.mAppContext;
@@ -125,6 +138,7 @@ public class WorkerWrapper implements Runnable {
         mWorkSpecDao = mWorkDatabase.workSpecDao();
         mDependencyDao = mWorkDatabase.dependencyDao();
         mTags = builder.mTags;
+        mCreatedMillis = SystemClock.elapsedRealtime();
     }
 
     @NonNull
@@ -140,6 +154,9 @@ public class WorkerWrapper implements Runnable {
     @WorkerThread
     @Override
     public void run() {
+        mRunMillis = SystemClock.elapsedRealtime();
+        mSchedulingLatencyMillis = Math.max(0,
+                mClock.currentTimeMillis() - mWorkSpec.calculateNextRunTime());
         mWorkDescription = createWorkDescription(mTags);
         runWorker();
     }
@@ -154,6 +171,7 @@ public class WorkerWrapper implements Runnable {
             return;
         }
 
+        long databaseStartMillis = SystemClock.elapsedRealtime();
         mWorkDatabase.beginTransaction();
         try {
             // Do a quick check to make sure we don't need to bail out in case this work is already
@@ -200,6 +218,7 @@ public class WorkerWrapper implements Runnable {
             mWorkDatabase.setTransactionSuccessful();
         } finally {
             mWorkDatabase.endTransaction();
+            mDatabaseMillis += SystemClock.elapsedRealtime() - databaseStartMillis;
         }
 
         // Merge inputs.  This can be potentially expensive code, so this should not be done inside
@@ -299,6 +318,7 @@ public class WorkerWrapper implements Runnable {
                         Logger.get().debug(TAG,
                                 "Starting work for " + mWorkSpec.workerClassName);
                         // Call mWorker.startWork() on the main thread.
+                        mWorkerStartMillis = SystemClock.elapsedRealtime();
                         mWorkerResultFuture.setFuture(mWorker.startWork());
                     } catch (Throwable e) {
                         mWorkerResultFuture.setException(e);
@@ -311,6 +331,7 @@ public class WorkerWrapper implements Runnable {
             mWorkerResultFuture.addListener(new Runnable() {
                 @Override
                 public void run() {
+                    mWorkerEndMillis = SystemClock.elapsedRealtime();
                     try {
                         // If the ListenableWorker returns a null result treat it as a failure.
                         ListenableWorker.Result result = mWorkerResultFuture.get();
@@ -342,6 +363,7 @@ public class WorkerWrapper implements Runnable {
 
     // Package-private for synthetic accessor.
     void onWorkFinished() {
+        mFinishMillis = SystemClock.elapsedRealtime();
         if (!tryCheckForInterruptionAndResolve()) {
             mWorkDatabase.beginTransaction();
             try {
@@ -451,7 +473,40 @@ public class WorkerWrapper implements Runnable {
         } finally {
             mWorkDatabase.endTransaction();
         }
-        mFuture.set(needsReschedule);
+        if (mFuture.set(needsReschedule)) {
+            reportMetrics();
+        }
+    }
+
+    private void reportMetrics() {
+        Consumer<WorkerMetrics> listener = mConfiguration.getWorkerMetricsListener();
+        if (listener == null || mRunMillis == 0) {
+            // Only report work which actually got to run
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        long databaseMillis = mDatabaseMillis;
+        if (mFinishMillis != 0) {
+            // Recording the result is still in progress
+            databaseMillis += now - mFinishMillis;
+        }
+        long runMillis = 0;
+        if (mWorkerStartMillis != 0) {
+            // Work which is stopped is resolved before its result completes
+            long workerEndMillis = mWorkerEndMillis != 0 ? mWorkerEndMillis : now;
+            runMillis = workerEndMillis - mWorkerStartMillis;
+        }
+        try {
+            listener.accept(new WorkerMetrics(
+                    UUID.fromString(mWorkSpecId),
+                    mWorkSpec.workerClassName,
+                    mRunMillis - mCreatedMillis,
+                    runMillis,
+                    databaseMillis,
+                    mSchedulingLatencyMillis));
+        } catch (Throwable throwable) {
+            Logger.get().error(TAG, "Unable to report metrics for " + mWorkSpecId, throwable);
+        }
     }
 
     private void handleResult(ListenableWorker.Result result) {
@@ -484,6 +539,7 @@ public class WorkerWrapper implements Runnable {
 
     private boolean trySetRunning() {
         boolean setToRunning = false;
+        long databaseStartMillis = SystemClock.elapsedRealtime();
         mWorkDatabase.beginTransaction();
         try {
             WorkInfo.State currentState = mWorkSpecDao.getState(mWorkSpecId);
@@ -496,6 +552,7 @@ public class WorkerWrapper implements Runnable {
             mWorkDatabase.setTransactionSuccessful();
         } finally {
             mWorkDatabase.endTransaction();
+            mDatabaseMillis += SystemClock.elapsedRealtime() - databaseStartMillis;
         }
         return setToRunning;
     }
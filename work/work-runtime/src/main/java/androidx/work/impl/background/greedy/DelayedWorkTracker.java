@@ -16,22 +16,32 @@
 
 package androidx.work.impl.background.greedy;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 import androidx.work.Clock;
 import androidx.work.Logger;
 import androidx.work.RunnableScheduler;
 import androidx.work.impl.Scheduler;
 import androidx.work.impl.model.WorkSpec;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 
 /**
  * Keeps track of {@link androidx.work.WorkRequest}s that have a timing component in a
  * {@link GreedyScheduler}.
- *
+ * <p>
+ * The {@link WorkSpec}s are kept in a hierarchical timing wheel with a millisecond resolution,
+ * and a single {@link Runnable} is scheduled on the {@link RunnableScheduler} for the earliest
+ * one. When it runs, all the {@link WorkSpec}s which are due are handed to the immediate
+ * {@link Scheduler} together, in batches of at most {@link #MAX_BATCH_SIZE}.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class DelayedWorkTracker {
@@ -40,13 +50,48 @@ public class DelayedWorkTracker {
     @SuppressWarnings("WeakerAccess")
     static final String TAG = Logger.tagWithPrefix("DelayedWorkTracker");
 
+    /**
+     * The maximum number of {@link WorkSpec}s handed to the immediate {@link Scheduler} at once.
+     */
+    @VisibleForTesting
+    static final int MAX_BATCH_SIZE = 100;
+
+    // Each level of the wheel has 64 buckets, each 64 times larger than the ones of the level
+    // below; 6 levels cover about 2 years. Later work is kept in the last bucket of the top level
+    // and tracked again once it expires.
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int LEVELS = 6;
+
     // Synthetic access
     @SuppressWarnings("WeakerAccess")
     final Scheduler mImmediateScheduler;
 
     private final RunnableScheduler mRunnableScheduler;
     private final Clock mClock;
-    private final Map<String, Runnable> mRunnables;
+    private final Object mLock = new Object();
+    private final Runnable mWakeup = new Runnable() {
+        @Override
+        public void run() {
+            onWakeup();
+        }
+    };
+
+    @GuardedBy("mLock")
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    @GuardedBy("mLock")
+    private final Bucket[][] mWheel = new Bucket[LEVELS][WHEEL_SIZE];
+    // The buckets which have entries, by expiration
+    @GuardedBy("mLock")
+    private final PriorityQueue<Bucket> mBuckets = new PriorityQueue<>();
+    // The entries which are due but haven't been handed to the immediate scheduler yet
+    @GuardedBy("mLock")
+    private final Bucket mDue = new Bucket();
+    // The time up to which the wheel has expired its buckets
+    @GuardedBy("mLock")
+    private long mCurrentTime;
+    @GuardedBy("mLock")
+    private long mWakeupTime = Long.MAX_VALUE;
 
     public DelayedWorkTracker(
             @NonNull Scheduler immediateScheduler,
@@ -55,46 +100,238 @@ public class DelayedWorkTracker {
         mImmediateScheduler = immediateScheduler;
         mRunnableScheduler = runnableScheduler;
         mClock = clock;
-        mRunnables = new HashMap<>();
+        for (Bucket[] level : mWheel) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new Bucket();
+            }
+        }
     }
 
     /**
-     * Cancels the existing instance of a {@link Runnable} if any, and schedules a new
-     * {@link Runnable}; which eventually calls {@link GreedyScheduler#schedule(WorkSpec...)} at
-     * the {@link WorkSpec}'s scheduled run time.
+     * Replaces the existing schedule of the {@link WorkSpec} if any, so that it eventually gets
+     * passed to {@link GreedyScheduler#schedule(WorkSpec...)} at the {@link WorkSpec}'s scheduled
+     * run time.
      *
      * @param workSpec The {@link WorkSpec} corresponding to the {@link androidx.work.WorkRequest}
      * @param nextRunTime time when work should be executed
      */
     public void schedule(@NonNull final WorkSpec workSpec, long nextRunTime) {
-        Runnable existing = mRunnables.remove(workSpec.id);
-        if (existing != null) {
-            mRunnableScheduler.cancel(existing);
-        }
-
-        Runnable runnable = new Runnable() {
-            @Override
-            public void run() {
-                Logger.get().debug(TAG, "Scheduling work " + workSpec.id);
-                mImmediateScheduler.schedule(workSpec);
+        synchronized (mLock) {
+            long now = mClock.currentTimeMillis();
+            if (mEntries.isEmpty()) {
+                mCurrentTime = now;
+            } else {
+                rebaseIfClockWentBack(now);
             }
-        };
-
-        mRunnables.put(workSpec.id, runnable);
-        long now = mClock.currentTimeMillis();
-        long delay = nextRunTime - now;
-        mRunnableScheduler.scheduleWithDelay(delay, runnable);
+            Entry entry = mEntries.get(workSpec.id);
+            if (entry == null) {
+                entry = new Entry();
+                mEntries.put(workSpec.id, entry);
+            } else {
+                entry.unlink();
+            }
+            entry.mWorkSpec = workSpec;
+            entry.mDeadline = nextRunTime;
+            if (nextRunTime > mCurrentTime) {
+                insert(entry);
+            } else {
+                mDue.add(entry);
+            }
+            scheduleWakeup(now);
+        }
     }
 
     /**
-     * Cancels the existing instance of a {@link Runnable} if any.
+     * Stops tracking the {@link WorkSpec} if it was.
      *
      * @param workSpecId The {@link androidx.work.WorkRequest} id
      */
     public void unschedule(@NonNull String workSpecId) {
-        Runnable runnable = mRunnables.remove(workSpecId);
-        if (runnable != null) {
-            mRunnableScheduler.cancel(runnable);
+        synchronized (mLock) {
+            Entry entry = mEntries.remove(workSpecId);
+            if (entry != null) {
+                entry.unlink();
+                scheduleWakeup(mClock.currentTimeMillis());
+            }
+        }
+    }
+
+    // Synthetic access
+    void onWakeup() {
+        List<WorkSpec> workSpecs = new ArrayList<>();
+        synchronized (mLock) {
+            mWakeupTime = Long.MAX_VALUE;
+            long now = mClock.currentTimeMillis();
+            rebaseIfClockWentBack(now);
+            expire(now);
+            while (mDue.mHead != null && workSpecs.size() < MAX_BATCH_SIZE) {
+                Entry entry = mDue.mHead;
+                entry.unlink();
+                mEntries.remove(entry.mWorkSpec.id);
+                workSpecs.add(entry.mWorkSpec);
+            }
+            // Picks up the rest of the due entries right away, after letting other tasks run.
+            scheduleWakeup(now);
+        }
+        if (!workSpecs.isEmpty()) {
+            Logger.get().debug(TAG, "Scheduling " + workSpecs.size() + " delayed work");
+            mImmediateScheduler.schedule(workSpecs.toArray(new WorkSpec[0]));
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void expire(long now) {
+        Bucket bucket;
+        while ((bucket = mBuckets.peek()) != null && bucket.mExpiration <= now) {
+            mBuckets.poll();
+            mCurrentTime = Math.max(mCurrentTime, bucket.mExpiration);
+            bucket.mExpiration = -1;
+            Entry entry;
+            while ((entry = bucket.mHead) != null) {
+                entry.unlink();
+                if (entry.mDeadline <= now) {
+                    mDue.add(entry);
+                } else {
+                    // Moves down to a finer level
+                    insert(entry);
+                }
+            }
+        }
+        // All the buckets up to now expired, so the wheel can move to now.
+        mCurrentTime = Math.max(mCurrentTime, now);
+    }
+
+    @GuardedBy("mLock")
+    private void insert(@NonNull Entry entry) {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = WHEEL_BITS * level;
+            long levelTime = (mCurrentTime >>> shift) << shift;
+            long levelEnd = levelTime + (1L << (shift + WHEEL_BITS));
+            if (entry.mDeadline < levelEnd || level == LEVELS - 1) {
+                long virtualId = Math.min(entry.mDeadline, levelEnd - 1) >>> shift;
+                Bucket bucket = mWheel[level][(int) (virtualId & (WHEEL_SIZE - 1))];
+                bucket.add(entry);
+                long expiration = virtualId << shift;
+                if (bucket.mExpiration != expiration) {
+                    bucket.mExpiration = expiration;
+                    mBuckets.add(bucket);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * The wheel only moves forward, so tracks all the entries again from the current time if the
+     * {@link Clock} went back.
+     */
+    @GuardedBy("mLock")
+    private void rebaseIfClockWentBack(long now) {
+        if (now >= mCurrentTime) {
+            return;
+        }
+        mBuckets.clear();
+        for (Bucket[] level : mWheel) {
+            for (Bucket bucket : level) {
+                bucket.mExpiration = -1;
+                while (bucket.mHead != null) {
+                    bucket.mHead.unlink();
+                }
+            }
+        }
+        mCurrentTime = now;
+        for (Entry entry : mEntries.values()) {
+            if (entry.mBucket == null) {
+                insert(entry);
+            }
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void scheduleWakeup(long now) {
+        long wakeupTime;
+        if (mDue.mHead != null) {
+            wakeupTime = now;
+        } else if (!mEntries.isEmpty()) {
+            // Buckets emptied by unschedule() stay queued, and only cause a spurious wakeup.
+            wakeupTime = mBuckets.peek().mExpiration;
+        } else {
+            wakeupTime = Long.MAX_VALUE;
+            mBuckets.clear();
+            for (Bucket[] level : mWheel) {
+                for (Bucket bucket : level) {
+                    bucket.mExpiration = -1;
+                }
+            }
+        }
+        if (wakeupTime == mWakeupTime
+                || (wakeupTime > mWakeupTime && wakeupTime != Long.MAX_VALUE)) {
+            // The wakeup that's already scheduled will do.
+            return;
+        }
+        if (mWakeupTime != Long.MAX_VALUE) {
+            mRunnableScheduler.cancel(mWakeup);
+        }
+        mWakeupTime = wakeupTime;
+        if (wakeupTime != Long.MAX_VALUE) {
+            mRunnableScheduler.scheduleWithDelay(Math.max(0, wakeupTime - now), mWakeup);
+        }
+    }
+
+    /**
+     * A {@link WorkSpec} tracked by the wheel.
+     */
+    private static final class Entry {
+        WorkSpec mWorkSpec;
+        long mDeadline;
+        @Nullable Bucket mBucket;
+        @Nullable Entry mPrevious;
+        @Nullable Entry mNext;
+
+        void unlink() {
+            Bucket bucket = mBucket;
+            if (bucket == null) {
+                return;
+            }
+            if (mPrevious != null) {
+                mPrevious.mNext = mNext;
+            } else {
+                bucket.mHead = mNext;
+            }
+            if (mNext != null) {
+                mNext.mPrevious = mPrevious;
+            } else {
+                bucket.mTail = mPrevious;
+            }
+            mBucket = null;
+            mPrevious = null;
+            mNext = null;
+        }
+    }
+
+    /**
+     * A doubly linked list of {@link Entry}s expiring at the same time, in insertion order.
+     */
+    private static final class Bucket implements Comparable<Bucket> {
+        long mExpiration = -1;
+        @Nullable Entry mHead;
+        @Nullable Entry mTail;
+
+        void add(@NonNull Entry entry) {
+            entry.mBucket = this;
+            entry.mPrevious = mTail;
+            entry.mNext = null;
+            if (mTail != null) {
+                mTail.mNext = entry;
+            } else {
+                mHead = entry;
+            }
+            mTail = entry;
+        }
+
+        @Override
+        public int compareTo(@NonNull Bucket other) {
+            return Long.compare(mExpiration, other.mExpiration);
         }
     }
 }
@@ -49,8 +49,10 @@ import androidx.work.impl.model.WorkSpec;
 import androidx.work.impl.utils.ProcessUtils;
 import androidx.work.impl.utils.taskexecutor.TaskExecutor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -141,6 +143,8 @@ public class GreedyScheduler implements Scheduler, OnConstraintsStateChangedList
         // are updating mConstrainedWorkSpecs.
         Set<WorkSpec> constrainedWorkSpecs = new HashSet<>();
         Set<String> constrainedWorkSpecIds = new HashSet<>();
+        // The work which can start right away is handed to the launcher at once.
+        List<StartStopToken> startTokens = new ArrayList<>();
 
         for (WorkSpec workSpec : workSpecs) {
             // it doesn't help against races, but reduces useless load in the system
@@ -176,11 +180,14 @@ public class GreedyScheduler implements Scheduler, OnConstraintsStateChangedList
                         Logger.get().debug(TAG, "Starting work for " + workSpec.id);
                         StartStopToken token = mStartStopTokens.tokenFor(workSpec);
                         mTimeLimiter.track(token);
-                        mWorkLauncher.startWork(token);
+                        startTokens.add(token);
                     }
                 }
             }
         }
+        if (!startTokens.isEmpty()) {
+            mWorkLauncher.startWork(startTokens);
+        }
 
         // onExecuted() which is called on the main thread also modifies the list of mConstrained
         // WorkSpecs. Therefore we need to lock here.
@@ -33,6 +33,14 @@ interface DependencyDao {
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     fun insertDependency(dependency: Dependency)
 
+    /**
+     * Attempts to insert [Dependency]s into the database, reusing a single statement.
+     *
+     * @param dependencies The [Dependency]s to insert
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    fun insertDependencies(dependencies: List<Dependency>)
+
     /**
      * Determines if a [WorkSpec] has completed all prerequisites.
      *
@@ -53,6 +53,14 @@ interface WorkSpecDao {
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     fun insertWorkSpec(workSpec: WorkSpec)
 
+    /**
+     * Attempts to insert [WorkSpec]s into the database, reusing a single statement.
+     *
+     * @param workSpecs The WorkSpecs to insert.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    fun insertWorkSpecs(workSpecs: List<WorkSpec>)
+
     /**
      * Deletes [WorkSpec]s from the database.
      *
@@ -453,21 +461,6 @@ interface WorkSpecDao {
     )
     fun getRecentlyCompletedWork(startingAt: Long): List<WorkSpec>
 
-    /**
-     * Immediately prunes eligible work from the database meeting the following criteria:
-     * - Is finished (succeeded, failed, or cancelled)
-     * - Has zero unfinished dependents
-     */
-    @Query(
-        "DELETE FROM workspec WHERE " +
-            "state IN " + COMPLETED_STATES +
-            " AND (SELECT COUNT(*)=0 FROM dependency WHERE " +
-            "    prerequisite_id=id AND " +
-            "    work_spec_id NOT IN " +
-            "        (SELECT id FROM workspec WHERE state IN " + COMPLETED_STATES + "))"
-    )
-    fun pruneFinishedWorkWithZeroDependentsIgnoringKeepForAtLeast()
-
     @Query("UPDATE workspec SET generation=generation+1 WHERE id=:id")
     fun incrementGeneration(id: String)
 
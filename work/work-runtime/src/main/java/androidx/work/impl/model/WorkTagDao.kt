@@ -34,6 +34,14 @@ interface WorkTagDao {
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     fun insert(workTag: WorkTag)
 
+    /**
+     * Inserts [WorkTag]s into the table, reusing a single statement.
+     *
+     * @param workTags The [WorkTag]s to insert
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    fun insertAll(workTags: List<WorkTag>)
+
     /**
      * Deletes [WorkSpec]s from the database.
      *
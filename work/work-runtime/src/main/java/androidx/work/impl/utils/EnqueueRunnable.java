@@ -50,6 +50,7 @@ import androidx.work.impl.model.DependencyDao;
 import androidx.work.impl.model.WorkName;
 import androidx.work.impl.model.WorkSpec;
 import androidx.work.impl.model.WorkSpecDao;
+import androidx.work.impl.model.WorkTag;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -57,15 +58,18 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * Manages the enqueuing of a {@link WorkContinuationImpl}.
- *
+ * Manages the enqueuing of one or more {@link WorkContinuationImpl}s.
+ * <p>
+ * All the continuations are added to the database in a single transaction, and the work is
+ * then scheduled in a single pass.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class EnqueueRunnable implements Runnable {
 
     private static final String TAG = Logger.tagWithPrefix("EnqueueRunnable");
 
-    private final WorkContinuationImpl mWorkContinuation;
+    private final List<WorkContinuationImpl> mWorkContinuations;
+    private final WorkManagerImpl mWorkManagerImpl;
     private final OperationImpl mOperation;
 
     public EnqueueRunnable(@NonNull WorkContinuationImpl workContinuation) {
@@ -75,22 +79,46 @@ public class EnqueueRunnable implements Runnable {
     public EnqueueRunnable(
             @NonNull WorkContinuationImpl workContinuation,
             @NonNull OperationImpl result) {
-        mWorkContinuation = workContinuation;
+        this(Collections.singletonList(workContinuation), result);
+    }
+
+    /**
+     * Creates a runnable which enqueues several independent continuations at once.
+     *
+     * @param workContinuations The continuations to enqueue, all of the same
+     *                          {@link WorkManagerImpl}
+     * @param result            The {@link OperationImpl} to report the result to
+     */
+    public EnqueueRunnable(
+            @NonNull List<WorkContinuationImpl> workContinuations,
+            @NonNull OperationImpl result) {
+        if (workContinuations.isEmpty()) {
+            throw new IllegalArgumentException("EnqueueRunnable needs at least one continuation");
+        }
+        mWorkContinuations = workContinuations;
+        mWorkManagerImpl = workContinuations.get(0).getWorkManagerImpl();
+        for (WorkContinuationImpl workContinuation : workContinuations) {
+            if (workContinuation.getWorkManagerImpl() != mWorkManagerImpl) {
+                throw new IllegalArgumentException(
+                        "Continuations must belong to the same WorkManager");
+            }
+        }
         mOperation = result;
     }
 
     @Override
     public void run() {
         try {
-            if (mWorkContinuation.hasCycles()) {
-                throw new IllegalStateException(
-                        "WorkContinuation has cycles (" + mWorkContinuation + ")");
+            for (WorkContinuationImpl workContinuation : mWorkContinuations) {
+                if (workContinuation.hasCycles()) {
+                    throw new IllegalStateException(
+                            "WorkContinuation has cycles (" + workContinuation + ")");
+                }
             }
             boolean needsScheduling = addToDatabase();
             if (needsScheduling) {
                 // Enable RescheduleReceiver, only when there are Worker's that need scheduling.
-                final Context context =
-                        mWorkContinuation.getWorkManagerImpl().getApplicationContext();
+                final Context context = mWorkManagerImpl.getApplicationContext();
                 PackageManagerHelper.setComponentEnabled(context, RescheduleReceiver.class, true);
                 scheduleWorkInBackground();
             }
@@ -114,13 +142,16 @@ public class EnqueueRunnable implements Runnable {
      */
     @VisibleForTesting
     public boolean addToDatabase() {
-        WorkManagerImpl workManagerImpl = mWorkContinuation.getWorkManagerImpl();
+        WorkManagerImpl workManagerImpl = mWorkManagerImpl;
         WorkDatabase workDatabase = workManagerImpl.getWorkDatabase();
         workDatabase.beginTransaction();
         try {
-            checkContentUriTriggerWorkerLimits(workDatabase,
-                    workManagerImpl.getConfiguration(), mWorkContinuation);
-            boolean needsScheduling = processContinuation(mWorkContinuation);
+            boolean needsScheduling = false;
+            for (WorkContinuationImpl workContinuation : mWorkContinuations) {
+                checkContentUriTriggerWorkerLimits(workDatabase,
+                        workManagerImpl.getConfiguration(), workContinuation);
+                needsScheduling |= processContinuation(workContinuation);
+            }
             workDatabase.setTransactionSuccessful();
             return needsScheduling;
         } finally {
@@ -133,7 +164,7 @@ public class EnqueueRunnable implements Runnable {
      */
     @VisibleForTesting
     public void scheduleWorkInBackground() {
-        WorkManagerImpl workManager = mWorkContinuation.getWorkManagerImpl();
+        WorkManagerImpl workManager = mWorkManagerImpl;
         Schedulers.schedule(
                 workManager.getConfiguration(),
                 workManager.getWorkDatabase(),
@@ -291,6 +322,11 @@ public class EnqueueRunnable implements Runnable {
             }
         }
 
+        // Insert the rows of all the work at once, reusing a single statement for each table
+        List<WorkSpec> workSpecs = new ArrayList<>(workList.size());
+        List<Dependency> dependencies = new ArrayList<>();
+        List<WorkTag> workTags = new ArrayList<>();
+        List<WorkName> workNames = new ArrayList<>();
         for (WorkRequest work : workList) {
             WorkSpec workSpec = work.getWorkSpec();
 
@@ -314,7 +350,7 @@ public class EnqueueRunnable implements Runnable {
                 needsScheduling = true;
             }
 
-            workDatabase.workSpecDao().insertWorkSpec(
+            workSpecs.add(
                     wrapInConstraintTrackingWorkerIfNeeded(
                             workManagerImpl.getSchedulers(),
                             workSpec
@@ -323,16 +359,28 @@ public class EnqueueRunnable implements Runnable {
 
             if (hasPrerequisite) {
                 for (String prerequisiteId : prerequisiteIds) {
-                    Dependency dep = new Dependency(work.getStringId(), prerequisiteId);
-                    workDatabase.dependencyDao().insertDependency(dep);
+                    dependencies.add(new Dependency(work.getStringId(), prerequisiteId));
                 }
             }
 
-            workDatabase.workTagDao().insertTags(work.getStringId(), work.getTags());
+            for (String tag : work.getTags()) {
+                workTags.add(new WorkTag(tag, work.getStringId()));
+            }
             if (isNamed) {
-                workDatabase.workNameDao().insert(new WorkName(name, work.getStringId()));
+                workNames.add(new WorkName(name, work.getStringId()));
             }
         }
+
+        workDatabase.workSpecDao().insertWorkSpecs(workSpecs);
+        if (!dependencies.isEmpty()) {
+            workDatabase.dependencyDao().insertDependencies(dependencies);
+        }
+        if (!workTags.isEmpty()) {
+            workDatabase.workTagDao().insertAll(workTags);
+        }
+        if (!workNames.isEmpty()) {
+            workDatabase.workNameDao().insertAll(workNames);
+        }
         return needsScheduling;
     }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.utils;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.RestrictTo;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * An executor which delegates to another {@link Executor}, and runs the tasks submitted with the
+ * same key serially, but the tasks of different keys in parallel.
+ * <p>
+ * Unlike {@link SerialExecutorImpl}, a slow task only holds back the tasks of its own key.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public class KeyedSerialExecutor {
+    private final Executor mExecutor;
+    private final Object mLock = new Object();
+
+    /**
+     * The pending tasks of each key which has a task running.
+     */
+    @GuardedBy("mLock")
+    private final Map<String, ArrayDeque<Runnable>> mQueues = new HashMap<>();
+
+    public KeyedSerialExecutor(@NonNull Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Executes the runnable once all the runnables previously submitted with the same key have
+     * run.
+     */
+    public void execute(@NonNull String key, @NonNull Runnable runnable) {
+        synchronized (mLock) {
+            ArrayDeque<Runnable> queue = mQueues.get(key);
+            if (queue != null) {
+                queue.add(runnable);
+                return;
+            }
+            mQueues.put(key, new ArrayDeque<Runnable>());
+        }
+        mExecutor.execute(new Task(key, runnable));
+    }
+
+    /**
+     * @return {@code true} if some key has tasks waiting to run.
+     */
+    public boolean hasPendingTasks() {
+        synchronized (mLock) {
+            for (ArrayDeque<Runnable> queue : mQueues.values()) {
+                if (!queue.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Synthetic access
+    void scheduleNext(@NonNull String key) {
+        Runnable next;
+        synchronized (mLock) {
+            ArrayDeque<Runnable> queue = mQueues.get(key);
+            next = queue.poll();
+            if (next == null) {
+                mQueues.remove(key);
+                return;
+            }
+        }
+        mExecutor.execute(new Task(key, next));
+    }
+
+    private class Task implements Runnable {
+        private final String mKey;
+        private final Runnable mRunnable;
+
+        Task(@NonNull String key, @NonNull Runnable runnable) {
+            mKey = key;
+            mRunnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mRunnable.run();
+            } finally {
+                scheduleNext(mKey);
+            }
+        }
+    }
+}
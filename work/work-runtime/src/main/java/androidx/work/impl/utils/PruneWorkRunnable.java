@@ -18,23 +18,30 @@ package androidx.work.impl.utils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RestrictTo;
+import androidx.work.Logger;
 import androidx.work.Operation;
 import androidx.work.impl.OperationImpl;
 import androidx.work.impl.WorkDatabase;
 import androidx.work.impl.WorkManagerImpl;
-import androidx.work.impl.model.WorkSpecDao;
 
 /**
  * A Runnable that prunes work in the background.  Pruned work meets the following criteria:
  * - Is finished (succeeded, failed, or cancelled)
  * - Has zero unfinished dependents
- *
+ * <p>
+ * The finished work which is kept is then compacted. Both are done a chunk at a time through
+ * {@link WorkPruner}, and the runnable posts itself back to the task executor between chunks so
+ * that other tasks don't wait for the whole database to be pruned.
  */
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
 public class PruneWorkRunnable implements Runnable {
 
+    private static final String TAG = Logger.tagWithPrefix("PruneWorkRunnable");
+
     private final WorkManagerImpl mWorkManagerImpl;
     private final OperationImpl mOperation;
+    private WorkPruner mPruner;
+    private boolean mPruned;
 
     public PruneWorkRunnable(@NonNull WorkManagerImpl workManagerImpl) {
         mWorkManagerImpl = workManagerImpl;
@@ -54,11 +61,32 @@ public class PruneWorkRunnable implements Runnable {
     public void run() {
         try {
             WorkDatabase workDatabase = mWorkManagerImpl.getWorkDatabase();
-            WorkSpecDao workSpecDao = workDatabase.workSpecDao();
-            workSpecDao.pruneFinishedWorkWithZeroDependentsIgnoringKeepForAtLeast();
+            if (mPruner == null) {
+                mPruner = new WorkPruner(workDatabase.getOpenHelper().getWritableDatabase());
+            }
+            // Going through a Room transaction notifies the observers of the pruned work
+            boolean more = workDatabase.runInTransaction(this::runChunk);
+            if (more) {
+                mWorkManagerImpl.getWorkTaskExecutor().executeOnTaskThread(this);
+                return;
+            }
+            Logger.get().debug(TAG, "Pruned " + mPruner.getPrunedWorkCount() + " and compacted "
+                    + mPruner.getCompactedWorkCount() + " work, reclaiming "
+                    + mPruner.getBytesReclaimed() + " bytes");
             mOperation.markState(Operation.SUCCESS);
         } catch (Throwable exception) {
             mOperation.markState(new Operation.State.FAILURE(exception));
         }
     }
+
+    /**
+     * @return {@code true} if there are more chunks to prune or compact
+     */
+    private boolean runChunk() {
+        if (!mPruned) {
+            mPruned = !mPruner.pruneChunk(null);
+            return true;
+        }
+        return mPruner.compactChunk();
+    }
 }
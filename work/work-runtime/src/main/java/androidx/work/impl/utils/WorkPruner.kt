@@ -0,0 +1,241 @@
+/*
+ * Copyright 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.impl.utils
+
+import androidx.annotation.RestrictTo
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.work.Data
+import androidx.work.impl.model.WorkTypeConverters.StateIds.COMPLETED_STATES
+
+// Finished work without unfinished dependents, oldest first. Ordering by last_enqueue_time walks
+// its index, and the dependents are looked up through the index on prerequisite_id.
+private const val PRUNABLE_WORK_SQL_PREFIX =
+    "SELECT id FROM workspec AS prunable WHERE state IN $COMPLETED_STATES"
+
+// whose minimum retention time has expired
+private const val PRUNABLE_WORK_SQL_RETENTION =
+    " AND last_enqueue_time < ? AND (last_enqueue_time + minimum_retention_duration) < ?"
+
+private const val PRUNABLE_WORK_SQL_SUFFIX =
+    " AND NOT EXISTS (SELECT 1 FROM dependency" +
+        " JOIN workspec AS dependent ON dependent.id = dependency.work_spec_id" +
+        " WHERE dependency.prerequisite_id = prunable.id" +
+        " AND dependent.state NOT IN $COMPLETED_STATES)" +
+        " ORDER BY last_enqueue_time LIMIT ?"
+
+// Progress is only reported while work runs, so the progress of finished work is left over.
+private const val FINISHED_PROGRESS_SQL =
+    "SELECT WorkProgress.work_spec_id, LENGTH(WorkProgress.progress) FROM WorkProgress" +
+        " JOIN workspec ON workspec.id = WorkProgress.work_spec_id" +
+        " WHERE workspec.state IN $COMPLETED_STATES LIMIT ?"
+
+// The data of finished work still in the legacy format, which starts with the
+// java.io.ObjectOutputStream magic number.
+private const val LEGACY_DATA_SQL =
+    "SELECT id, input, output FROM workspec WHERE id > ? AND state IN $COMPLETED_STATES" +
+        " AND (substr(input, 1, 2) = X'ACED' OR substr(output, 1, 2) = X'ACED')" +
+        " ORDER BY id LIMIT ?"
+
+private const val UPDATE_INPUT_SQL = "UPDATE workspec SET input=? WHERE id=?"
+
+private const val UPDATE_OUTPUT_SQL = "UPDATE workspec SET output=? WHERE id=?"
+
+/**
+ * Prunes finished work from the [androidx.work.impl.WorkDatabase] in chunks of at most
+ * [chunkSize] [androidx.work.impl.model.WorkSpec]s, each in its own transaction, so that pruning
+ * a large database never holds it for long. The tags, names, progress and dependencies of the
+ * pruned work are deleted along with it by the foreign keys.
+ *
+ * It also compacts the work which is kept: it deletes the left over progress of finished work,
+ * and rewrites the [Data] of finished work which is still in the legacy format in the current
+ * format, which all new [Data] is already written in.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class WorkPruner @JvmOverloads constructor(
+    private val db: SupportSQLiteDatabase,
+    private val chunkSize: Int = DEFAULT_CHUNK_SIZE
+) {
+    /**
+     * The number of [androidx.work.impl.model.WorkSpec]s pruned so far.
+     */
+    var prunedWorkCount: Int = 0
+        private set
+
+    /**
+     * The number of [androidx.work.impl.model.WorkSpec]s compacted so far.
+     */
+    var compactedWorkCount: Int = 0
+        private set
+
+    /**
+     * The approximate number of bytes of data deleted or saved so far. This doesn't include the
+     * size of the rows themselves and of their indices.
+     */
+    var bytesReclaimed: Long = 0
+        private set
+
+    private var lastCompactedId = ""
+
+    /**
+     * Prunes a chunk of work which is finished, and has no unfinished dependents.
+     *
+     * @param cutoff the time before which the minimum retention time of the work must have
+     * expired, or `null` to ignore it
+     * @return `true` if there may be more work to prune
+     */
+    fun pruneChunk(cutoff: Long?): Boolean {
+        db.beginTransaction()
+        try {
+            val ids = mutableListOf<String>()
+            val sql = if (cutoff != null) {
+                PRUNABLE_WORK_SQL_PREFIX + PRUNABLE_WORK_SQL_RETENTION + PRUNABLE_WORK_SQL_SUFFIX
+            } else {
+                PRUNABLE_WORK_SQL_PREFIX + PRUNABLE_WORK_SQL_SUFFIX
+            }
+            val args: Array<Any> =
+                if (cutoff != null) arrayOf(cutoff, cutoff, chunkSize) else arrayOf(chunkSize)
+            db.query(sql, args).use { cursor ->
+                while (cursor.moveToNext()) {
+                    ids.add(cursor.getString(0))
+                }
+            }
+            if (ids.isNotEmpty()) {
+                val placeholders = List(ids.size) { "?" }.joinToString(",")
+                val idArgs = ids.toTypedArray()
+                bytesReclaimed += queryLong(
+                    "SELECT IFNULL(SUM(LENGTH(input) + LENGTH(output)), 0) FROM workspec" +
+                        " WHERE id IN ($placeholders)", idArgs
+                )
+                bytesReclaimed += queryLong(
+                    "SELECT IFNULL(SUM(LENGTH(progress)), 0) FROM WorkProgress" +
+                        " WHERE work_spec_id IN ($placeholders)", idArgs
+                )
+                db.execSQL("DELETE FROM workspec WHERE id IN ($placeholders)", idArgs)
+                prunedWorkCount += ids.size
+            }
+            db.setTransactionSuccessful()
+            return ids.size == chunkSize
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    /**
+     * Prunes all the work which is finished, and has no unfinished dependents, chunk by chunk.
+     *
+     * @param cutoff the time before which the minimum retention time of the work must have
+     * expired, or `null` to ignore it
+     */
+    fun pruneAll(cutoff: Long?) {
+        @Suppress("ControlFlowWithEmptyBody")
+        while (pruneChunk(cutoff)) {
+        }
+    }
+
+    /**
+     * Compacts a chunk of the finished work which is kept.
+     *
+     * @return `true` if there may be more work to compact
+     */
+    fun compactChunk(): Boolean {
+        db.beginTransaction()
+        try {
+            val more = deleteFinishedProgress() or compactLegacyData()
+            db.setTransactionSuccessful()
+            return more
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    private fun deleteFinishedProgress(): Boolean {
+        val ids = mutableListOf<String>()
+        db.query(FINISHED_PROGRESS_SQL, arrayOf(chunkSize)).use { cursor ->
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0))
+                bytesReclaimed += cursor.getLong(1)
+            }
+        }
+        if (ids.isNotEmpty()) {
+            val placeholders = List(ids.size) { "?" }.joinToString(",")
+            db.execSQL(
+                "DELETE FROM WorkProgress WHERE work_spec_id IN ($placeholders)",
+                ids.toTypedArray()
+            )
+        }
+        return ids.size == chunkSize
+    }
+
+    private fun compactLegacyData(): Boolean {
+        var count = 0
+        val updates = mutableListOf<Pair<String, Array<Any>>>()
+        db.query(LEGACY_DATA_SQL, arrayOf(lastCompactedId, chunkSize)).use { cursor ->
+            while (cursor.moveToNext()) {
+                count++
+                val id = cursor.getString(0)
+                lastCompactedId = id
+                val input = cursor.getBlob(1)
+                val output = cursor.getBlob(2)
+                val compactedInput = compact(input)
+                val compactedOutput = compact(output)
+                if (compactedInput != null) {
+                    bytesReclaimed += input.size - compactedInput.size
+                    updates.add(UPDATE_INPUT_SQL to arrayOf(compactedInput, id))
+                }
+                if (compactedOutput != null) {
+                    bytesReclaimed += output.size - compactedOutput.size
+                    updates.add(UPDATE_OUTPUT_SQL to arrayOf(compactedOutput, id))
+                }
+                if (compactedInput != null || compactedOutput != null) {
+                    compactedWorkCount++
+                }
+            }
+        }
+        // Updates the rows once they have all been read
+        updates.forEach { (sql, args) -> db.execSQL(sql, args) }
+        return count == chunkSize
+    }
+
+    private fun queryLong(sql: String, args: Array<out Any>): Long =
+        db.query(sql, args).use { cursor -> if (cursor.moveToFirst()) cursor.getLong(0) else 0 }
+
+    companion object {
+        /**
+         * The default number of [androidx.work.impl.model.WorkSpec]s pruned or compacted per
+         * transaction.
+         */
+        const val DEFAULT_CHUNK_SIZE = 100
+
+        /**
+         * @return the [bytes] of a [Data] in the current format if they are smaller, or `null`
+         */
+        private fun compact(bytes: ByteArray?): ByteArray? {
+            if (bytes == null || bytes.size < 2 ||
+                bytes[0] != 0xAC.toByte() || bytes[1] != 0xED.toByte()
+            ) {
+                return null
+            }
+            val data = Data.fromByteArray(bytes)
+            // An empty Data is also what a payload which can't be read gives, keep it as is.
+            if (data.size() == 0) {
+                return null
+            }
+            val compacted = data.toByteArray()
+            return if (compacted.size < bytes.size) compacted else null
+        }
+    }
+}
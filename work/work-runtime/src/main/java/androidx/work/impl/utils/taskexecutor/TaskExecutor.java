@@ -46,6 +46,17 @@ public interface TaskExecutor {
         getSerialTaskExecutor().execute(runnable);
     }
 
+    /**
+     * @param key      The key of the {@link Runnable}, e.g. a work id. Implementations may run
+     *                 runnables of different keys in parallel, but the runnables of a key are
+     *                 always run serially.
+     * @param runnable {@link Runnable} to execute on a thread pool used
+     *                 for internal book-keeping.
+     */
+    default void executeOnTaskThread(@NonNull String key, @NonNull Runnable runnable) {
+        executeOnTaskThread(runnable);
+    }
+
     /**
      * It wraps an executor passed in {@link Configuration#getTaskExecutor()}
      *
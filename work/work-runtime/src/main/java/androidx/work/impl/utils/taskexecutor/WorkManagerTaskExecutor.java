@@ -20,7 +20,9 @@ import android.os.Handler;
 import android.os.Looper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.work.impl.utils.KeyedSerialExecutor;
 import androidx.work.impl.utils.SerialExecutorImpl;
 
 import java.util.concurrent.Executor;
@@ -35,12 +37,25 @@ import kotlinx.coroutines.ExecutorsKt;
 public class WorkManagerTaskExecutor implements TaskExecutor {
 
     private final SerialExecutorImpl mBackgroundExecutor;
+    @Nullable
+    private final KeyedSerialExecutor mKeyedExecutor;
     private final CoroutineDispatcher mTaskDispatcher;
 
     public WorkManagerTaskExecutor(@NonNull Executor backgroundExecutor) {
+        this(backgroundExecutor, false);
+    }
+
+    /**
+     * @param backgroundExecutor The {@link Executor} to run the tasks on
+     * @param parallel           Whether the tasks submitted with different keys through
+     *                           {@link #executeOnTaskThread(String, Runnable)} may run in
+     *                           parallel, rather than serially with all other tasks
+     */
+    public WorkManagerTaskExecutor(@NonNull Executor backgroundExecutor, boolean parallel) {
         // Wrap it with a serial executor so we have ordering guarantees on commands
         // being executed.
         mBackgroundExecutor = new SerialExecutorImpl(backgroundExecutor);
+        mKeyedExecutor = parallel ? new KeyedSerialExecutor(backgroundExecutor) : null;
         mTaskDispatcher = ExecutorsKt.from(mBackgroundExecutor);
     }
 
@@ -65,6 +80,15 @@ public class WorkManagerTaskExecutor implements TaskExecutor {
         return mBackgroundExecutor;
     }
 
+    @Override
+    public void executeOnTaskThread(@NonNull String key, @NonNull Runnable runnable) {
+        if (mKeyedExecutor != null) {
+            mKeyedExecutor.execute(key, runnable);
+        } else {
+            mBackgroundExecutor.execute(runnable);
+        }
+    }
+
     @NonNull
     @Override
     public CoroutineDispatcher getTaskCoroutineDispatcher() {
@@ -27,6 +27,9 @@ import androidx.annotation.NonNull;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -115,6 +118,103 @@ public class DataTest {
         }
     }
 
+    @Test
+    public void testSerializeAllTypes() {
+        Data data = new Data.Builder()
+                .putBoolean("boolean", true)
+                .putByte("byte", (byte) -1)
+                .putInt("int", Integer.MIN_VALUE)
+                .putLong("long", Long.MAX_VALUE)
+                .putFloat("float", 1.5f)
+                .putDouble("double", -0.25)
+                .putString("string", "\u00e9t\u00e9")
+                .putString("null", null)
+                .putBooleanArray("boolean array", new boolean[]{true, false})
+                .putByteArray("byte array", new byte[]{1, -2})
+                .putIntArray("int array", new int[]{-1, 0, Integer.MAX_VALUE})
+                .putLongArray("long array", new long[]{Long.MIN_VALUE, 0L})
+                .putFloatArray("float array", new float[]{-1f, 2f})
+                .putDoubleArray("double array", new double[]{3.0, -4.0})
+                .putStringArray("string array", new String[]{"string", null, "other"})
+                .build();
+
+        Data restoredData = Data.fromByteArray(Data.toByteArrayInternal(data));
+
+        assertThat(restoredData, is(data));
+        assertThat(restoredData.size(), is(data.size()));
+    }
+
+    @Test
+    public void testDeserializeSingleKey() {
+        Data data = createData();
+
+        Data restoredData = Data.fromByteArray(data.toByteArray());
+
+        assertThat(restoredData.getString("String"), is("two"));
+        assertThat(restoredData.getFloat("float", 0f), is(99f));
+        assertThat(restoredData.getLongArray("long array"), is(new long[]{1L, 2L, 3L}));
+        assertThat(restoredData.getInt("missing", -1), is(-1));
+        assertThat(restoredData.hasKeyWithValueOfType("int", Integer.class), is(true));
+        assertThat(restoredData.getKeyValueMap().containsKey("null"), is(true));
+        assertThat(restoredData.size(), is(7));
+    }
+
+    @Test
+    public void testDeserializeLegacyFormat() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+        objectOutputStream.writeInt(2);
+        objectOutputStream.writeUTF(KEY1);
+        objectOutputStream.writeObject("value1");
+        objectOutputStream.writeUTF(KEY2);
+        objectOutputStream.writeObject(new Integer[]{1, 2});
+        objectOutputStream.close();
+
+        Data restoredData = Data.fromByteArray(outputStream.toByteArray());
+
+        assertThat(restoredData.size(), is(2));
+        assertThat(restoredData.getString(KEY1), is("value1"));
+        assertThat(restoredData.getIntArray(KEY2), is(new int[]{1, 2}));
+    }
+
+    @Test
+    public void testDeserializeMalformed_stringIndexOutOfRange() {
+        byte[] payload = new byte[]{
+                (byte) 0xDA, 0x7A, 1, // header
+                1, 4, 'k', 'e', 'y', '1', // strings
+                1, 0, 7, 5 // "key1" is a string at index 4, out of range
+        };
+
+        Data restoredData = Data.fromByteArray(payload);
+
+        assertThat(restoredData.size(), is(0));
+        assertThat(restoredData.getString("key1"), is(nullValue()));
+    }
+
+    @Test
+    public void testDeserializeMalformed_stringArrayIndexOutOfRange() {
+        byte[] payload = new byte[]{
+                (byte) 0xDA, 0x7A, 1, // header
+                1, 4, 'k', 'e', 'y', '1', // strings
+                1, 0, 0x17, 2, 1, 2 // "key1" is a string array of indices 0 and 1
+        };
+
+        Data restoredData = Data.fromByteArray(payload);
+
+        assertThat(restoredData.size(), is(0));
+        assertThat(restoredData.getStringArray("key1"), is(nullValue()));
+    }
+
+    @Test
+    public void testSerializeReusesBytes() {
+        Data data = createData();
+
+        byte[] byteArray = Data.toByteArrayInternal(data);
+        Data restoredData = Data.fromByteArray(byteArray);
+
+        assertThat(Data.toByteArrayInternal(restoredData), is(byteArray));
+    }
+
     @Test
     public void testToString() {
         Data data = createData();